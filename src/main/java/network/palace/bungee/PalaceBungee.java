@@ -21,6 +21,8 @@ import network.palace.bungee.listeners.PlayerJoinAndLeave;
 import network.palace.bungee.listeners.ProxyPing;
 import network.palace.bungee.listeners.ServerSwitch;
 import network.palace.bungee.messages.MessageHandler;
+import network.palace.bungee.mongo.AsyncMongoHandler;
+import network.palace.bungee.mongo.LoginProfile;
 import network.palace.bungee.mongo.MongoHandler;
 import network.palace.bungee.utils.*;
 import network.palace.bungee.utils.chat.JaroWinkler;
@@ -33,8 +35,8 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -77,12 +79,13 @@ import java.util.logging.Level;
  *   <li><b>moderationUtil</b> - Handles actions related to moderation and rule enforcement.</li>
  *   <li><b>partyUtil</b> - Manages functionality for player party or group systems.</li>
  *   <li><b>passwordUtil</b> - Utility for managing secure password operations.</li>
+ *   <li><b>presenceUtil</b> - Tracks which proxy and server every player on the network is connected to.</li>
+ *   <li><b>friendGraph</b> - Holds the friends and friend requests of the players online on this proxy.</li>
  *   <li><b>slackUtil</b> - Provides integration with Slack for posting or receiving notifications.</li>
  *   <li><b>mongoHandler</b> - Handles MongoDB interactions for data persistence.</li>
  *   <li><b>messageHandler</b> - Manages message queuing and delivery within the plugin environment.</li>
  *   <li><b>startTime</b> - Captures the timestamp of the plugin startup.</li>
  *   <li><b>players</b> - Represents the collection of online players connected to the proxy.</li>
- *   <li><b>usernameCache</b> - Cache for pairing player UUIDs with usernames for quick access.</li>
  *   <li><b>testNetwork</b> - Flag indicating whether the plugin is functioning in a testing environment.</li>
  * </ul>
  *
@@ -98,7 +101,7 @@ import java.util.logging.Level;
  *   <li><b>{@link #getProxyServer()}</b> - Retrieves the proxy server instance.</li>
  *   <li><b>{@link #getPlayer(UUID)}</b> - Fetches a player object using their UUID.</li>
  *   <li><b>{@link #getPlayer(String)}</b> - Fetches a player object using their username.</li>
- *   <li><b>{@link #login(Player)}</b> - Handles player login, including updating cache and initializing player-specific data.</li>
+ *   <li><b>{@link #login(Player, LoginProfile)}</b> - Handles player login, including updating cache and initializing player-specific data.</li>
  *   <li><b>{@link #logout(UUID, Player)}</b> - Manages player logout and clears relevant data from the cache.</li>
  *   <li><b>{@link #getOnlinePlayers()}</b> - Retrieves a collection of players currently connected to the proxy.</li>
  *   <li><b>{@link #getUsername(UUID)}</b> - Returns the username corresponding to a given UUID.</li>
@@ -328,6 +331,15 @@ public class PalaceBungee extends Plugin {
      */
     @Getter private static PartyUtil partyUtil;
 
+    /**
+     * <p>The {@code loginUtil} runs the database work for each login on a bounded pool of login threads,
+     * so a slow database doesn't block the netty event loop that also handles pings and chat.</p>
+     *
+     * <p>It also tracks the login queue depth, rejected logins and login latency percentiles,
+     * which are reported by {@code /proxystats}.</p>
+     */
+    @Getter private static LoginUtil loginUtil;
+
     /**
      * Static instance of the {@code PasswordUtil} class used for password-related utilities in the application.
      * <p>
@@ -343,6 +355,26 @@ public class PalaceBungee extends Plugin {
      */
     @Getter private static PasswordUtil passwordUtil;
 
+    /**
+     * <p>The {@code presenceUtil} keeps an in-memory index of every player online across the network,
+     * including which proxy and server they're connected to.</p>
+     *
+     * <p>Proxies keep each other's index up to date by broadcasting join, switch and leave updates along
+     * with periodic snapshots over the {@code all_proxies} exchange. While the index is warm, lookups such as
+     * {@link MongoHandler#findPlayer(String)} and {@link MongoHandler#getOnlineCount()} are answered from it
+     * instead of querying the database.</p>
+     */
+    @Getter private static PresenceUtil presenceUtil;
+
+    /**
+     * <p>The {@code friendGraph} holds the friends and friend requests of every player online on this proxy.</p>
+     *
+     * <p>A player's lists are loaded by {@link #login(Player, LoginProfile)} and dropped by
+     * {@link #logout(UUID, Player)}. Changes made on any proxy are applied as they arrive over the
+     * {@code all_proxies} exchange, so friend lists and join/leave notifications don't read the database.</p>
+     */
+    @Getter private static FriendGraph friendGraph;
+
     /**
      * A static reference to an instance of the {@link SlackUtil} class.
      * <p>
@@ -391,6 +423,16 @@ public class PalaceBungee extends Plugin {
      */
     @Getter private static MongoHandler mongoHandler;
 
+    /**
+     * <p>The asynchronous companion to {@link #mongoHandler}. Queries submitted through it run on a bounded
+     * pool of database threads and complete a {@link java.util.concurrent.CompletableFuture}, so command
+     * executors and the message consumer don't wait on a database round trip themselves.</p>
+     *
+     * <p>When its queue is full, new queries are rejected rather than queued, and the player who ran the
+     * command is asked to try again.</p>
+     */
+    @Getter private static AsyncMongoHandler asyncMongoHandler;
+
     /**
      * Represents a static instance of the {@code MessageHandler}, which is responsible for
      * handling message-related functionalities within the application.
@@ -428,7 +470,7 @@ public class PalaceBungee extends Plugin {
     @Getter private static final long startTime = System.currentTimeMillis();
 
     /**
-     * <p>A static and thread-safe {@link HashMap} that stores information about currently known players.</p>
+     * <p>A static and thread-safe {@link ConcurrentHashMap} that stores information about currently known players.</p>
      *
      * <p>The {@code players} map uses a {@link UUID} as the key to uniquely identify each player,
      * and a {@link Player} instance as the corresponding value that holds the player's session data.</p>
@@ -448,31 +490,16 @@ public class PalaceBungee extends Plugin {
      *
      * <p>This field is marked {@code final} to prevent reassignment and remains static to ensure global accessibility within the application lifecycle.</p>
      */
-    private final static HashMap<UUID, Player> players = new HashMap<>();
+    private final static ConcurrentHashMap<UUID, Player> players = new ConcurrentHashMap<>();
 
     /**
-     * A static cache that maps unique player identifiers (UUIDs) to their corresponding usernames.
-     * <p>
-     * This HashMap is used to store and retrieve player username information based on their UUID,
-     * allowing for efficient lookup and reducing the need for repeated database or remote calls.
-     * </p>
-     *
-     * <p><b>Key Characteristics:</b>
-     * <lu>
-     *   <li>Keys are {@link UUID} objects representing unique player identifiers.</li>
-     *   <li>Values are {@link String} objects representing player usernames.</li>
-     *   <li>The map is declared as {@code final static} meaning it is constant and tied to the class.</li>
-     *   <li>Thread-safety is not guaranteed. If accessed concurrently, proper synchronization is required.</li>
-     * </lu>
-     * </p>
+     * <p>Indexes the players in {@link #players} by their address, so every player inside an address
+     * range can be found with a single lookup, such as when an IP range is banned.</p>
      *
-     * <p><b>Usage Context:</b></p>
-     * <p>
-     * This cache is used internally by the <i>PalaceBungee</i> plugin to enhance performance when dealing with player data.
-     * It helps minimize latency during username/UUID lookups by storing this data in memory for quick access.
-     * </p>
+     * <p>It is kept in step with {@code players} by {@link #login(Player, LoginProfile)} and
+     * {@link #logout(UUID, Player)}.</p>
      */
-    @Getter private final static HashMap<UUID, String> usernameCache = new HashMap<>();
+    @Getter private final static OnlineAddressIndex onlineAddresses = new OnlineAddressIndex();
 
     /**
      * A static boolean flag indicating whether the application is running in a test network environment.
@@ -502,7 +529,7 @@ public class PalaceBungee extends Plugin {
      *           <li>If the test network is enabled, logs a warning message.</li>
      *       </ul>
      *   </li>
-     *   <li>Initializes the MongoDB handler (<code>MongoHandler</code>) and reloads configurations.</li>
+     *   <li>Initializes the MongoDB handler (<code>MongoHandler</code>), declares its indexes in the background and reloads configurations.</li>
      *   <li>Initializes the forum utility (<code>ForumUtil</code>) for forum-related integration.</li>
      *   <li>Initializes the server utility (<code>ServerUtil</code>).</li>
      *   <li>Sets up the RabbitMQ message handling system:
@@ -517,9 +544,11 @@ public class PalaceBungee extends Plugin {
      *           <li><code>BroadcastUtil</code>: Handles broadcast-related tasks.</li>
      *           <li><code>ChatUtil</code>: Manages chat-related utilities.</li>
      *           <li><code>GuideUtil</code>: Provides tools related to game guides.</li>
+     *           <li><code>LoginUtil</code>: Runs login database work off the netty event loop.</li>
      *           <li><code>ModerationUtil</code>: Facilitates moderation tasks.</li>
      *           <li><code>PartyUtil</code>: Supports party-related mechanics.</li>
      *           <li><code>PasswordUtil</code>: Manages password-related functionality.</li>
+     *           <li><code>PresenceUtil</code>: Tracks which players are online across the network.</li>
      *           <li><code>SlackUtil</code>: Integrates notifications with Slack.</li>
      *       </ul>
      *   </li>
@@ -551,6 +580,12 @@ public class PalaceBungee extends Plugin {
         // try to initialze the mongo db handler
         try {
             mongoHandler = new MongoHandler();
+            asyncMongoHandler = new AsyncMongoHandler(mongoHandler);
+            // declare the indexes the hot queries need without holding up startup
+            asyncMongoHandler.run(MongoHandler::ensureIndexes).exceptionally(t -> {
+                getLogger().log(Level.SEVERE, "Error creating database indexes", t);
+                return null;
+            });
             PalaceBungee.getConfigUtil().reload();
         } catch (IOException e) { // catch the error if it does not work, print the stack trace
             e.printStackTrace();
@@ -579,9 +614,12 @@ public class PalaceBungee extends Plugin {
         broadcastUtil = new BroadcastUtil();
         chatUtil = new ChatUtil();
         guideUtil = new GuideUtil();
+        loginUtil = new LoginUtil();
         moderationUtil = new ModerationUtil();
         partyUtil = new PartyUtil();
         passwordUtil = new PasswordUtil();
+        presenceUtil = new PresenceUtil();
+        friendGraph = new FriendGraph();
         slackUtil = new SlackUtil();
 
         // set up the show reminders
@@ -596,7 +634,9 @@ public class PalaceBungee extends Plugin {
      * This method is called when the plugin is disabled.
      *
      * <p>It is used to perform cleanup tasks and release resources. Specifically,
-     * it ensures that the {@code messageHandler} is properly shut down if it is
+     * it stops the login and database threads, writes any player updates still waiting in the
+     * {@link MongoHandler#getWriteBuffer() write buffer} and chat messages still waiting in the
+     * {@link MongoHandler#getChatLog() chat log buffer}, and ensures that the {@code messageHandler} is properly shut down if it is
      * not {@code null}, preventing potential resource leaks or issues with
      * lingering connections.</p>
      *
@@ -614,6 +654,13 @@ public class PalaceBungee extends Plugin {
      */
     @Override
     public void onDisable() {
+        if (loginUtil != null) loginUtil.shutdown();
+        if (partyUtil != null) partyUtil.getRegistry().shutdown();
+        if (asyncMongoHandler != null) asyncMongoHandler.shutdown();
+        if (mongoHandler != null) {
+            mongoHandler.getWriteBuffer().shutdown();
+            mongoHandler.getChatLog().shutdown();
+        }
         if (messageHandler != null) messageHandler.shutdown();
     }
 
@@ -684,7 +731,9 @@ public class PalaceBungee extends Plugin {
         pm.registerCommand(this, new MaintenanceCommand());
         pm.registerCommand(this, new MsgToggleCommand());
         pm.registerCommand(this, new ProxyCountsCommand());
+        pm.registerCommand(this, new MigrateModerationCommand());
         pm.registerCommand(this, new ProxyReloadCommand());
+        pm.registerCommand(this, new ProxyStatsCommand());
         pm.registerCommand(this, new ProxyVersionCommand());
         pm.registerCommand(this, new SendCommand());
         pm.registerCommand(this, new UpdateHashesCommand());
@@ -825,15 +874,21 @@ public class PalaceBungee extends Plugin {
      * <ul>
      *     <li>Add the player to the local player storage.</li>
      *     <li>Perform database actions to record the login using the database handler.</li>
+     *     <li>Announce the player's presence to the other proxies.</li>
      *     <li>If the player is a new guest, initiate the tutorial sequence.</li>
      * </ul>
      *
-     * @param player The player who is attempting to log in. This object contains
-     *               all relevant data needed for the login process.
+     * @param player  The player who is attempting to log in. This object contains
+     *                all relevant data needed for the login process.
+     * @param profile The {@code LoginProfile} loaded for the player while handling the login event, so the
+     *                database handler doesn't need to read the player's document again.
      */
-    public static void login(Player player) {
+    public static void login(Player player, LoginProfile profile) {
         players.put(player.getUniqueId(), player);
-        mongoHandler.login(player);
+        onlineAddresses.add(player);
+        mongoHandler.login(player, profile);
+        presenceUtil.join(player);
+        friendGraph.load(player.getUniqueId());
         if (player.isNewGuest()) {
             player.runTutorial();
         }
@@ -847,6 +902,7 @@ public class PalaceBungee extends Plugin {
      *     <li>Checks if the player is a new guest and cancels their tutorial if necessary.</li>
      *     <li>Removes the player from the list of active players.</li>
      *     <li>Performs any necessary database operations to handle the player's logout.</li>
+     *     <li>Tells the other proxies the player has left.</li>
      * </ul>
      *
      * @param uuid The unique identifier of the player being logged out.
@@ -855,7 +911,11 @@ public class PalaceBungee extends Plugin {
     public static void logout(UUID uuid, Player player) {
         if (player != null && player.isNewGuest()) player.cancelTutorial();
         players.remove(uuid);
+        onlineAddresses.remove(uuid);
         mongoHandler.logout(uuid, player);
+        presenceUtil.leave(uuid);
+        friendGraph.unload(uuid);
+        serverUtil.getQueue().leave(uuid);
     }
 
     /**
@@ -873,27 +933,15 @@ public class PalaceBungee extends Plugin {
     /**
      * Retrieves the username associated with the provided UUID.
      * <p>
-     * The method first checks a local cache for the username. If the username is not found
-     * in the cache, it queries the database and retrieves the username. If no username is
-     * associated with the UUID in the database, the method returns "Unknown".
-     * <p>
-     * Once retrieved from the database, the username is added to the cache to optimize
-     * future lookups for the same UUID.
+     * The lookup goes through the {@link network.palace.bungee.mongo.UsernameCache}, which only queries the
+     * database on a miss. If no username is associated with the UUID in the database, the method returns "Unknown".
      *
      * @param uuid the unique identifier (UUID) of the player whose username is to be retrieved
      * @return the username associated with the provided UUID, or "Unknown" if not found
      */
     public static String getUsername(UUID uuid) {
-        String name = usernameCache.get(uuid);
-        if (name == null) {
-            name = mongoHandler.uuidToUsername(uuid);
-            if (name == null) {
-                name = "Unknown";
-            } else {
-                PalaceBungee.getUsernameCache().put(uuid, name);
-            }
-        }
-        return name;
+        String name = mongoHandler.uuidToUsername(uuid);
+        return name == null ? "Unknown" : name;
     }
 
     /**
@@ -907,7 +955,7 @@ public class PalaceBungee extends Plugin {
      *                 This should be a non-null and non-empty string.
      * <ul>
      * <li>If the player is currently online, their UUID is fetched from proxy server data.</li>
-     * <li>If the player is offline, an attempt is made to fetch their UUID from the database.</li>
+     * <li>If the player is offline, their UUID is fetched from the username cache, which queries the database on a miss.</li>
      * </ul>
      *
      * @return The UUID of the player associated with the specified username, or {@code null} if the UUID cannot be found.
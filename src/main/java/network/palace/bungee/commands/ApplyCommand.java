@@ -96,11 +96,13 @@ public class ApplyCommand extends PalaceCommand {
     @Override
     public void execute(Player player, String[] args) {
         String token = getRandomToken();
-        PalaceBungee.getMongoHandler().setTitanLogin(player.getUniqueId(), token);
-        player.sendMessage(new ComponentBuilder("\nWe now take applications through our new portal\nClick to see what positions we have available!\n").color(ChatColor.YELLOW).bold(true)
-                .event(new HoverEvent(HoverEvent.Action.SHOW_TEXT,
-                        new ComponentBuilder("Click to open ").color(ChatColor.AQUA).append("https://titan.palace.network/apply/login/" + token + "/" + player.getUniqueId().toString()).color(ChatColor.GREEN).create()))
-                .event(new ClickEvent(ClickEvent.Action.OPEN_URL, "https://titan.palace.network/apply/login/" + token + "/" + player.getUniqueId().toString())).create());
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            mongo.setTitanLogin(player.getUniqueId(), token);
+            player.sendMessage(new ComponentBuilder("\nWe now take applications through our new portal\nClick to see what positions we have available!\n").color(ChatColor.YELLOW).bold(true)
+                    .event(new HoverEvent(HoverEvent.Action.SHOW_TEXT,
+                            new ComponentBuilder("Click to open ").color(ChatColor.AQUA).append("https://titan.palace.network/apply/login/" + token + "/" + player.getUniqueId().toString()).color(ChatColor.GREEN).create()))
+                    .event(new ClickEvent(ClickEvent.Action.OPEN_URL, "https://titan.palace.network/apply/login/" + token + "/" + player.getUniqueId().toString())).create());
+        });
     }
 
     /**
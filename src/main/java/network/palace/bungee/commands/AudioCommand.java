@@ -110,12 +110,14 @@ public class AudioCommand extends PalaceCommand {
     public void execute(Player player, String[] args) {
         String token = getRandomToken();
         //TODO If the player is currently connected, they should be disconnected since their token changed
-        PalaceBungee.getMongoHandler().setOnlineData(player.getUniqueId(), "audioToken", token);
-        player.sendMessage(new ComponentBuilder("\nClick here to connect to the Audio Server!\n")
-                .color(ChatColor.GREEN).underlined(true).bold(true)
-                .event((new ClickEvent(ClickEvent.Action.OPEN_URL,
-                        (PalaceBungee.isTestNetwork() ? "https://audio-test.palace.network/?t=" :
-                                "https://audio.palace.network/?t=") + token))).create());
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            mongo.setOnlineData(player.getUniqueId(), "audioToken", token);
+            player.sendMessage(new ComponentBuilder("\nClick here to connect to the Audio Server!\n")
+                    .color(ChatColor.GREEN).underlined(true).bold(true)
+                    .event((new ClickEvent(ClickEvent.Action.OPEN_URL,
+                            (PalaceBungee.isTestNetwork() ? "https://audio-test.palace.network/?t=" :
+                                    "https://audio.palace.network/?t=") + token))).create());
+        });
     }
 
     /**
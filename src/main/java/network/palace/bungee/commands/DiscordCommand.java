@@ -76,27 +76,29 @@ public class DiscordCommand extends PalaceCommand {
             return;
         }
 
-        switch (args[0].toLowerCase()) {
-            case "link": {
-                boolean isLinked = PalaceBungee.getMongoHandler().verifyDiscordLink(player.getUniqueId());
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            switch (args[0].toLowerCase()) {
+                case "link": {
+                    boolean isLinked = mongo.verifyDiscordLink(player.getUniqueId());
 
-                BaseComponent[] linkMessage = new ComponentBuilder("\nClick to start linking your Discord account.\n").color(ChatColor.YELLOW).bold(true)
-                .event(new HoverEvent(HoverEvent.Action.SHOW_TEXT,
-                        new ComponentBuilder("Opens a browser window to start the discord linking process.").color(ChatColor.GREEN).create()))
-                .event(new ClickEvent(ClickEvent.Action.OPEN_URL, "https://discord.com/api/oauth2/authorize?client_id=543141358496383048&redirect_uri=https%3A%2F%2Finternal-api.palace.network%2Fdiscord%2Flink&response_type=code&scope=identify&state="
-                + Base64.getEncoder().encodeToString(player.getUniqueId().toString().getBytes()) + "")).create();
+                    BaseComponent[] linkMessage = new ComponentBuilder("\nClick to start linking your Discord account.\n").color(ChatColor.YELLOW).bold(true)
+                    .event(new HoverEvent(HoverEvent.Action.SHOW_TEXT,
+                            new ComponentBuilder("Opens a browser window to start the discord linking process.").color(ChatColor.GREEN).create()))
+                    .event(new ClickEvent(ClickEvent.Action.OPEN_URL, "https://discord.com/api/oauth2/authorize?client_id=543141358496383048&redirect_uri=https%3A%2F%2Finternal-api.palace.network%2Fdiscord%2Flink&response_type=code&scope=identify&state="
+                    + Base64.getEncoder().encodeToString(player.getUniqueId().toString().getBytes()) + "")).create();
 
-                if (isLinked) {
-                    player.sendMessage(ChatColor.GREEN + "Hey " + ChatColor.YELLOW + ChatColor.BOLD + player.getUsername() + ChatColor.GREEN + " you currently have a discord account linked. To unlink, run " + ChatColor.YELLOW + ChatColor.BOLD + "/discord unlink");
-                } else {
-                    player.sendMessage(linkMessage);
+                    if (isLinked) {
+                        player.sendMessage(ChatColor.GREEN + "Hey " + ChatColor.YELLOW + ChatColor.BOLD + player.getUsername() + ChatColor.GREEN + " you currently have a discord account linked. To unlink, run " + ChatColor.YELLOW + ChatColor.BOLD + "/discord unlink");
+                    } else {
+                        player.sendMessage(linkMessage);
+                    }
+                    return;
+                }
+                case "unlink": {
+                    mongo.removeDiscordLink(player.getUniqueId());
+                    player.sendMessage(ChatColor.GREEN + "You have successfully unlinked your discord account. Please run " + ChatColor.YELLOW + ChatColor.BOLD +  "/discord link" + ChatColor.GREEN + " to restart the linking process");
                 }
-                return;
-            }
-            case "unlink": {
-                PalaceBungee.getMongoHandler().removeDiscordLink(player.getUniqueId());
-                player.sendMessage(ChatColor.GREEN + "You have successfully unlinked your discord account. Please run " + ChatColor.YELLOW + ChatColor.BOLD +  "/discord link" + ChatColor.GREEN + " to restart the linking process");
             }
-        }
+        });
     }
 }
@@ -95,111 +95,113 @@ public class IgnoreCommand extends PalaceCommand {
             helpMenu(player);
             return;
         }
-        switch (args[0].toLowerCase()) {
-            case "list": {
-                List<UUID> list = player.getIgnored();
-                List<String> names = new ArrayList<>();
-                for (UUID uuid : list) {
-                    names.add(PalaceBungee.getUsername(uuid));
-                }
-                if (names.isEmpty()) {
-                    player.sendMessage(ChatColor.GREEN + "No ignored players!");
-                    return;
-                }
-                int page = 1;
-                if (args.length > 1) {
-                    try {
-                        page = Integer.parseInt(args[1]);
-                    } catch (NumberFormatException ignored) {
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            switch (args[0].toLowerCase()) {
+                case "list": {
+                    List<UUID> list = player.getIgnored();
+                    List<String> names = new ArrayList<>();
+                    for (UUID uuid : list) {
+                        names.add(PalaceBungee.getUsername(uuid));
                     }
-                }
-                names.sort(Comparator.comparing(String::toLowerCase));
-                int listSize = names.size();
-                int maxPage = (int) Math.ceil((double) listSize / 8);
-                if (page > maxPage) page = maxPage;
-                int startAmount = 8 * (page - 1);
-                int endAmount;
-                if (maxPage > 1) {
-                    if (page < maxPage) {
-                        endAmount = (8 * page);
+                    if (names.isEmpty()) {
+                        player.sendMessage(ChatColor.GREEN + "No ignored players!");
+                        return;
+                    }
+                    int page = 1;
+                    if (args.length > 1) {
+                        try {
+                            page = Integer.parseInt(args[1]);
+                        } catch (NumberFormatException ignored) {
+                        }
+                    }
+                    names.sort(Comparator.comparing(String::toLowerCase));
+                    int listSize = names.size();
+                    int maxPage = (int) Math.ceil((double) listSize / 8);
+                    if (page > maxPage) page = maxPage;
+                    int startAmount = 8 * (page - 1);
+                    int endAmount;
+                    if (maxPage > 1) {
+                        if (page < maxPage) {
+                            endAmount = (8 * page);
+                        } else {
+                            endAmount = listSize;
+                        }
                     } else {
                         endAmount = listSize;
                     }
-                } else {
-                    endAmount = listSize;
-                }
-                names = names.subList(startAmount, endAmount);
-                StringBuilder msg = new StringBuilder(ChatColor.YELLOW + "Ignored Players (Page " + page + " of " + maxPage + "):\n");
-                for (String name : names) {
-                    msg.append(ChatColor.AQUA).append("- ").append(ChatColor.YELLOW).append(name).append("\n");
-                }
-                player.sendMessage(msg.toString());
-                break;
-            }
-            case "add": {
-                if (args.length < 2) {
-                    helpMenu(player);
-                    return;
-                }
-                if (args[1].equalsIgnoreCase(player.getUsername())) {
-                    player.sendMessage(ChatColor.RED + "You can't ignore yourself!");
-                    return;
-                }
-                String name;
-                UUID uuid = PalaceBungee.getMongoHandler().usernameToUUID(args[1]);
-                if (uuid == null) {
-                    player.sendMessage(ChatColor.RED + "That player can't be found!");
-                    return;
+                    names = names.subList(startAmount, endAmount);
+                    StringBuilder msg = new StringBuilder(ChatColor.YELLOW + "Ignored Players (Page " + page + " of " + maxPage + "):\n");
+                    for (String name : names) {
+                        msg.append(ChatColor.AQUA).append("- ").append(ChatColor.YELLOW).append(name).append("\n");
+                    }
+                    player.sendMessage(msg.toString());
+                    break;
                 }
-                Rank rank = PalaceBungee.getMongoHandler().getRank(uuid);
-                if (rank.getRankId() >= Rank.CHARACTER.getRankId()) {
-                    player.sendMessage(ChatColor.RED + "You can't ignore that player!");
-                    return;
+                case "add": {
+                    if (args.length < 2) {
+                        helpMenu(player);
+                        return;
+                    }
+                    if (args[1].equalsIgnoreCase(player.getUsername())) {
+                        player.sendMessage(ChatColor.RED + "You can't ignore yourself!");
+                        return;
+                    }
+                    String name;
+                    UUID uuid = mongo.usernameToUUID(args[1]);
+                    if (uuid == null) {
+                        player.sendMessage(ChatColor.RED + "That player can't be found!");
+                        return;
+                    }
+                    Rank rank = mongo.getRank(uuid);
+                    if (rank.getRankId() >= Rank.CHARACTER.getRankId()) {
+                        player.sendMessage(ChatColor.RED + "You can't ignore that player!");
+                        return;
+                    }
+                    name = PalaceBungee.getUsername(uuid);
+                    player.setIgnored(uuid, true);
+                    mongo.ignorePlayer(player, uuid);
+                    player.sendMessage(ChatColor.GREEN + "You have ignored " + name);
+                    if (player.getServerName().equals("Creative")) {
+                        try {
+                            PalaceBungee.getMessageHandler().sendDirectServerMessage(new IgnoreListPacket(player.getUniqueId(), player.getIgnored()), "Creative");
+                        } catch (Exception e) {
+                            player.sendMessage(ChatColor.RED + "An error occurred while syncing your ignore list with Creative. Any changes you made recently may not take effect immediately. If you encounter further issues, log out and reconnect to Palace Network.");
+                            PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error syncing ignore list with Creative", e);
+                        }
+                    }
+                    break;
                 }
-                name = PalaceBungee.getUsername(uuid);
-                player.setIgnored(uuid, true);
-                PalaceBungee.getMongoHandler().ignorePlayer(player, uuid);
-                player.sendMessage(ChatColor.GREEN + "You have ignored " + name);
-                if (player.getServerName().equals("Creative")) {
-                    try {
-                        PalaceBungee.getMessageHandler().sendDirectServerMessage(new IgnoreListPacket(player.getUniqueId(), player.getIgnored()), "Creative");
-                    } catch (Exception e) {
-                        player.sendMessage(ChatColor.RED + "An error occurred while syncing your ignore list with Creative. Any changes you made recently may not take effect immediately. If you encounter further issues, log out and reconnect to Palace Network.");
-                        PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error syncing ignore list with Creative", e);
+                case "remove": {
+                    if (args.length < 2) {
+                        helpMenu(player);
+                        return;
+                    }
+                    String name;
+                    UUID uuid = mongo.usernameToUUID(args[1]);
+                    if (uuid == null) {
+                        player.sendMessage(ChatColor.RED + "That player can't be found!");
+                        return;
+                    }
+                    name = PalaceBungee.getUsername(uuid);
+                    player.setIgnored(uuid, false);
+                    mongo.unignorePlayer(player, uuid);
+                    player.sendMessage(ChatColor.GREEN + "You have unignored " + name);
+                    if (player.getServerName().equals("Creative")) {
+                        try {
+                            PalaceBungee.getMessageHandler().sendDirectServerMessage(new IgnoreListPacket(player.getUniqueId(), player.getIgnored()), "Creative");
+                        } catch (Exception e) {
+                            player.sendMessage(ChatColor.RED + "An error occurred while syncing your ignore list with Creative. Any changes you made recently may not take effect immediately. If you encounter further issues, log out and reconnect to Palace Network.");
+                            PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error syncing ignore list with Creative", e);
+                        }
                     }
+                    break;
                 }
-                break;
-            }
-            case "remove": {
-                if (args.length < 2) {
+                default: {
                     helpMenu(player);
-                    return;
-                }
-                String name;
-                UUID uuid = PalaceBungee.getMongoHandler().usernameToUUID(args[1]);
-                if (uuid == null) {
-                    player.sendMessage(ChatColor.RED + "That player can't be found!");
-                    return;
-                }
-                name = PalaceBungee.getUsername(uuid);
-                player.setIgnored(uuid, false);
-                PalaceBungee.getMongoHandler().unignorePlayer(player, uuid);
-                player.sendMessage(ChatColor.GREEN + "You have unignored " + name);
-                if (player.getServerName().equals("Creative")) {
-                    try {
-                        PalaceBungee.getMessageHandler().sendDirectServerMessage(new IgnoreListPacket(player.getUniqueId(), player.getIgnored()), "Creative");
-                    } catch (Exception e) {
-                        player.sendMessage(ChatColor.RED + "An error occurred while syncing your ignore list with Creative. Any changes you made recently may not take effect immediately. If you encounter further issues, log out and reconnect to Palace Network.");
-                        PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error syncing ignore list with Creative", e);
-                    }
+                    break;
                 }
-                break;
-            }
-            default: {
-                helpMenu(player);
-                break;
             }
-        }
+        });
     }
 
     /**
@@ -84,6 +84,7 @@ public class MentionsCommand extends PalaceCommand {
         if (player.hasMentions()) {
             player.mention();
         }
-        PalaceBungee.getMongoHandler().setSetting(player.getUniqueId(), "mentions", player.hasMentions());
+        boolean mentions = player.hasMentions();
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> mongo.setSetting(player.getUniqueId(), "mentions", mentions));
     }
 }
\ No newline at end of file
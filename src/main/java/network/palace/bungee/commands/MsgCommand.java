@@ -171,17 +171,17 @@ public class MsgCommand extends PalaceCommand {
                 player.sendMessage(ChatColor.RED + "There was an error sending your direct message. Try again soon!");
             }
         } else {
-            try {
-                String target = args[0];
-                if (onlyStaff && PalaceBungee.getMongoHandler().getRank(target).getRankId() < Rank.TRAINEE.getRankId()) {
-                    player.sendMessage(ChatColor.RED + "You can't direct message this player while muted.");
-                    return;
-                }
-                String processed = PalaceBungee.getChatUtil().processChatMessage(player, message, "DM", true, false);
-                if (processed == null) return;
+            String target = args[0];
+            PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+                try {
+                    if (onlyStaff && mongo.getRank(target).getRankId() < Rank.TRAINEE.getRankId()) {
+                        player.sendMessage(ChatColor.RED + "You can't direct message this player while muted.");
+                        return;
+                    }
+                    String processed = PalaceBungee.getChatUtil().processChatMessage(player, message, "DM", true, false);
+                    if (processed == null) return;
 
-                PalaceBungee.getChatUtil().analyzeMessage(player.getUniqueId(), player.getRank(), processed, "DM to " + args[0], () -> {
-                    try {
+                    PalaceBungee.getChatUtil().analyzeMessage(player.getUniqueId(), player.getRank(), processed, "DM to " + target, () -> {
                         String msg;
                         try {
                             msg = EmojiUtil.convertMessage(player, processed);
@@ -189,23 +189,27 @@ public class MsgCommand extends PalaceCommand {
                             player.sendMessage(ChatColor.RED + e.getMessage());
                             return;
                         }
-                        UUID targetProxy = PalaceBungee.getMongoHandler().findPlayer(target);
-                        if (targetProxy == null) {
-                            player.sendMessage(ChatColor.RED + "Player not found!");
-                            return;
-                        }
-                        DMPacket packet = new DMPacket(player.getUsername(), target, msg, PalaceBungee.getServerUtil().getChannel(player), "msg",
-                                player.getUniqueId(), null, PalaceBungee.getProxyID(), true, player.getRank());
-                        PalaceBungee.getMessageHandler().sendToProxy(packet, targetProxy);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        player.sendMessage(ChatColor.RED + "There was an error sending your direct message. Try again soon!");
-                    }
-                });
-            } catch (Exception e) {
-                e.printStackTrace();
-                player.sendMessage(ChatColor.RED + "There was an error sending your direct message. Try again soon!");
-            }
+                        PalaceBungee.getAsyncMongoHandler().run(player, m -> {
+                            try {
+                                UUID targetProxy = m.findPlayer(target);
+                                if (targetProxy == null) {
+                                    player.sendMessage(ChatColor.RED + "Player not found!");
+                                    return;
+                                }
+                                DMPacket packet = new DMPacket(player.getUsername(), target, msg, PalaceBungee.getServerUtil().getChannel(player), "msg",
+                                        player.getUniqueId(), null, PalaceBungee.getProxyID(), true, player.getRank());
+                                PalaceBungee.getMessageHandler().sendToProxy(packet, targetProxy);
+                            } catch (Exception e) {
+                                e.printStackTrace();
+                                player.sendMessage(ChatColor.RED + "There was an error sending your direct message. Try again soon!");
+                            }
+                        });
+                    });
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    player.sendMessage(ChatColor.RED + "There was an error sending your direct message. Try again soon!");
+                }
+            });
         }
     }
 
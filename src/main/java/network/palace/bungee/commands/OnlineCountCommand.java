@@ -86,6 +86,8 @@ public class OnlineCountCommand extends PalaceCommand {
      */
     @Override
     public void execute(Player player, String[] args) {
-        player.sendMessage(ChatColor.GREEN + "\nTotal Players Online: " + PalaceBungee.getMongoHandler().getOnlineCount() + "\n");
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            player.sendMessage(ChatColor.GREEN + "\nTotal Players Online: " + mongo.getOnlineCount() + "\n");
+        });
     }
 }
\ No newline at end of file
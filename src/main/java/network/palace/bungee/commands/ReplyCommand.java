@@ -152,17 +152,17 @@ public class ReplyCommand extends PalaceCommand {
                 player.sendMessage(ChatColor.RED + "There was an error sending your direct message. Try again soon!");
             }
         } else {
-            try {
-                if (onlyStaff && PalaceBungee.getMongoHandler().getRank(replyTo).getRankId() < Rank.TRAINEE.getRankId()) {
-                    player.sendMessage(ChatColor.RED + "You can't direct message this player while muted.");
-                    return;
-                }
-                String username = PalaceBungee.getMongoHandler().uuidToUsername(replyTo);
-                String processed = PalaceBungee.getChatUtil().processChatMessage(player, message, "DM", true, false);
-                if (processed == null) return;
+            PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+                try {
+                    if (onlyStaff && mongo.getRank(replyTo).getRankId() < Rank.TRAINEE.getRankId()) {
+                        player.sendMessage(ChatColor.RED + "You can't direct message this player while muted.");
+                        return;
+                    }
+                    String username = mongo.uuidToUsername(replyTo);
+                    String processed = PalaceBungee.getChatUtil().processChatMessage(player, message, "DM", true, false);
+                    if (processed == null) return;
 
-                PalaceBungee.getChatUtil().analyzeMessage(player.getUniqueId(), player.getRank(), processed, "DM Reply to " + username, () -> {
-                    try {
+                    PalaceBungee.getChatUtil().analyzeMessage(player.getUniqueId(), player.getRank(), processed, "DM Reply to " + username, () -> {
                         String msg;
                         try {
                             msg = EmojiUtil.convertMessage(player, processed);
@@ -170,23 +170,27 @@ public class ReplyCommand extends PalaceCommand {
                             player.sendMessage(ChatColor.RED + e.getMessage());
                             return;
                         }
-                        UUID targetProxy = PalaceBungee.getMongoHandler().findPlayer(replyTo);
-                        if (targetProxy == null) {
-                            player.sendMessage(ChatColor.RED + "Player not found!");
-                            return;
-                        }
-                        DMPacket packet = new DMPacket(player.getUsername(), username, msg, PalaceBungee.getServerUtil().getChannel(player), "r",
-                                player.getUniqueId(), null, PalaceBungee.getProxyID(), true, player.getRank());
-                        PalaceBungee.getMessageHandler().sendToProxy(packet, targetProxy);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        player.sendMessage(ChatColor.RED + "There was an error sending your direct message. Try again soon!");
-                    }
-                });
-            } catch (Exception e) {
-                e.printStackTrace();
-                player.sendMessage(ChatColor.RED + "There was an error sending your direct message. Try again soon!");
-            }
+                        PalaceBungee.getAsyncMongoHandler().run(player, m -> {
+                            try {
+                                UUID targetProxy = m.findPlayer(replyTo);
+                                if (targetProxy == null) {
+                                    player.sendMessage(ChatColor.RED + "Player not found!");
+                                    return;
+                                }
+                                DMPacket packet = new DMPacket(player.getUsername(), username, msg, PalaceBungee.getServerUtil().getChannel(player), "r",
+                                        player.getUniqueId(), null, PalaceBungee.getProxyID(), true, player.getRank());
+                                PalaceBungee.getMessageHandler().sendToProxy(packet, targetProxy);
+                            } catch (Exception e) {
+                                e.printStackTrace();
+                                player.sendMessage(ChatColor.RED + "There was an error sending your direct message. Try again soon!");
+                            }
+                        });
+                    });
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    player.sendMessage(ChatColor.RED + "There was an error sending your direct message. Try again soon!");
+                }
+            });
         }
     }
 }
@@ -18,13 +18,15 @@ public class VirtualQueueJoinCommand extends PalaceCommand {
     @Override
     public void execute(Player player, String[] args) {
         if (args.length != 1) return;
-        try {
-            Document queueDoc = PalaceBungee.getMongoHandler().getVirtualQueue(args[0]);
-            if (queueDoc == null) return;
-            PalaceBungee.getMessageHandler().sendDirectServerMessage(new PlayerQueuePacket(queueDoc.getString("queueId"), player.getUniqueId(), true), queueDoc.getString("server"));
-        } catch (Exception e) {
-            PalaceBungee.getInstance().getLogger().log(Level.SEVERE, "Error requesting player to join virtual queue", e);
-            player.sendMessage(ChatColor.RED + "An error occurred while joining that virtual queue, try again in a few minutes!");
-        }
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            try {
+                Document queueDoc = mongo.getVirtualQueue(args[0]);
+                if (queueDoc == null) return;
+                PalaceBungee.getMessageHandler().sendDirectServerMessage(new PlayerQueuePacket(queueDoc.getString("queueId"), player.getUniqueId(), true), queueDoc.getString("server"));
+            } catch (Exception e) {
+                PalaceBungee.getInstance().getLogger().log(Level.SEVERE, "Error requesting player to join virtual queue", e);
+                player.sendMessage(ChatColor.RED + "An error occurred while joining that virtual queue, try again in a few minutes!");
+            }
+        });
     }
 }
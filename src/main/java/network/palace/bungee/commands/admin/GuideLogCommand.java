@@ -21,16 +21,18 @@ public class GuideLogCommand extends PalaceCommand {
             return;
         }
         String username = args[0];
-        UUID uuid = PalaceBungee.getMongoHandler().usernameToUUID(username);
-        if (uuid == null) {
-            player.sendMessage(ChatColor.RED + "Player not found!");
-            return;
-        }
-        String[] stats = PalaceBungee.getMongoHandler().getHelpActivity(uuid).split(",");
-        player.sendMessage(ChatColor.GREEN + "Guide Log for " + username + ": \n" + ChatColor.YELLOW +
-                "Last Day: " + stats[0] + " requests\n" +
-                "Last Week: " + stats[1] + " requests\n" +
-                "Last Month: " + stats[2] + " requests\n" +
-                "All Time: " + stats[3] + " requests");
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            UUID uuid = mongo.usernameToUUID(username);
+            if (uuid == null) {
+                player.sendMessage(ChatColor.RED + "Player not found!");
+                return;
+            }
+            String[] stats = mongo.getHelpActivity(uuid).split(",");
+            player.sendMessage(ChatColor.GREEN + "Guide Log for " + username + ": \n" + ChatColor.YELLOW +
+                    "Last Day: " + stats[0] + " requests\n" +
+                    "Last Week: " + stats[1] + " requests\n" +
+                    "Last Month: " + stats[2] + " requests\n" +
+                    "All Time: " + stats[3] + " requests");
+        });
     }
 }
@@ -0,0 +1,40 @@
+package network.palace.bungee.commands.admin;
+
+import net.md_5.bungee.api.ChatColor;
+import network.palace.bungee.PalaceBungee;
+import network.palace.bungee.handlers.PalaceCommand;
+import network.palace.bungee.handlers.Player;
+import network.palace.bungee.handlers.Rank;
+import network.palace.bungee.messages.packets.ProxyReloadPacket;
+
+import java.util.logging.Level;
+
+public class MigrateModerationCommand extends PalaceCommand {
+
+    public MigrateModerationCommand() {
+        super("migratemoderation", Rank.DEVELOPER);
+    }
+
+    @Override
+    public void execute(Player player, String[] args) {
+        if (args.length < 1 || !args[0].equalsIgnoreCase("confirm")) {
+            player.sendMessage(ChatColor.YELLOW + "This copies every player's bans, mutes, kicks and warnings into the moderation collection, then switches all proxies to read from it. It's safe to run again if it's interrupted.");
+            player.sendMessage(ChatColor.RED + "/migratemoderation confirm");
+            return;
+        }
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            player.sendMessage(ChatColor.GREEN + "Migrating moderation history...");
+            try {
+                int inserted = mongo.getModerationLog().migrate(mongo.getPlayerCollection(), message -> {
+                    PalaceBungee.getProxyServer().getLogger().info(message);
+                    player.sendMessage(ChatColor.GREEN + message);
+                });
+                PalaceBungee.getMessageHandler().sendMessage(new ProxyReloadPacket(), PalaceBungee.getMessageHandler().ALL_PROXIES);
+                player.sendMessage(ChatColor.BLUE + "Migration complete, " + inserted + " records copied. All proxies now read moderation history from the moderation collection.");
+            } catch (Exception e) {
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error migrating moderation history", e);
+                player.sendMessage(ChatColor.RED + "There was an error migrating moderation history! Check console for details.");
+            }
+        });
+    }
+}
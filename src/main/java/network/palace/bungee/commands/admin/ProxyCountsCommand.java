@@ -18,11 +18,13 @@ public class ProxyCountsCommand extends PalaceCommand {
 
     @Override
     public void execute(Player player, String[] args) {
-        HashMap<UUID, Integer> proxyCounts = PalaceBungee.getMongoHandler().getProxyCounts();
-        player.sendMessage(ChatColor.GREEN + "Proxy Player Counts:");
-        int i = 1;
-        for (Map.Entry<UUID, Integer> entry : proxyCounts.entrySet()) {
-            player.sendMessage(ChatColor.GREEN + "Proxy" + (i++) + " (" + entry.getKey().toString() + "): " + entry.getValue());
-        }
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            HashMap<UUID, Integer> proxyCounts = mongo.getProxyCounts();
+            player.sendMessage(ChatColor.GREEN + "Proxy Player Counts:");
+            int i = 1;
+            for (Map.Entry<UUID, Integer> entry : proxyCounts.entrySet()) {
+                player.sendMessage(ChatColor.GREEN + "Proxy" + (i++) + " (" + entry.getKey().toString() + "): " + entry.getValue());
+            }
+        });
     }
 }
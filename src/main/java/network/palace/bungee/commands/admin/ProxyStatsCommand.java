@@ -0,0 +1,86 @@
+package network.palace.bungee.commands.admin;
+
+import net.md_5.bungee.api.ChatColor;
+import network.palace.bungee.PalaceBungee;
+import network.palace.bungee.handlers.PalaceCommand;
+import network.palace.bungee.handlers.Player;
+import network.palace.bungee.handlers.Rank;
+import network.palace.bungee.messages.MessagePublisher;
+import network.palace.bungee.messages.Outbox;
+import network.palace.bungee.messages.PacketRegistry;
+import network.palace.bungee.mongo.AsyncMongoHandler;
+import network.palace.bungee.mongo.BanIndex;
+import network.palace.bungee.mongo.ChatLogBuffer;
+import network.palace.bungee.mongo.PlayerWriteBuffer;
+import network.palace.bungee.mongo.UsernameCache;
+import network.palace.bungee.utils.LoginUtil;
+import network.palace.bungee.utils.PartyRegistry;
+import network.palace.bungee.utils.ServerRegistry;
+
+public class ProxyStatsCommand extends PalaceCommand {
+
+    public ProxyStatsCommand() {
+        super("proxystats", Rank.DEVELOPER);
+    }
+
+    @Override
+    public void execute(Player player, String[] args) {
+        PacketRegistry packets = PalaceBungee.getMessageHandler().getPackets();
+        if (args.length > 0 && args[0].equalsIgnoreCase("packets")) {
+            player.sendMessage(ChatColor.GREEN + "Packet Stats (" + PalaceBungee.getProxyID().toString() + "):");
+            for (PacketRegistry.Stats stats : packets.getStats()) {
+                player.sendMessage(ChatColor.GREEN + stats.getType().name() + ": " + ChatColor.YELLOW + stats.getHandled() +
+                        " handled, " + stats.getFailed() + " failed, " + stats.getLatency().summary());
+                player.sendMessage(ChatColor.GRAY + "  avg size " + stats.getAverageJsonSize() + " bytes as JSON, " +
+                        stats.getAverageBinarySize() + " bytes binary (" + stats.getBinaryCount() + " binary)");
+            }
+            return;
+        }
+        player.sendMessage(ChatColor.GREEN + "Proxy Stats (" + PalaceBungee.getProxyID().toString() + "):");
+        LoginUtil login = PalaceBungee.getLoginUtil();
+        player.sendMessage(ChatColor.GREEN + "Logins: " + ChatColor.YELLOW + login.getLatency().getCount() + " handled, " +
+                login.getActiveCount() + " active, " + login.getQueueDepth() + " queued, " + login.getRejectedCount() + " rejected");
+        player.sendMessage(ChatColor.GREEN + "Login latency: " + ChatColor.YELLOW + login.getLatency().summary());
+        AsyncMongoHandler mongo = PalaceBungee.getAsyncMongoHandler();
+        player.sendMessage(ChatColor.GREEN + "Database queue: " + ChatColor.YELLOW + mongo.getActiveCount() + " active, " +
+                mongo.getQueueDepth() + " queued, " + mongo.getRejectedCount() + " rejected");
+        long handled = 0, failed = 0;
+        for (PacketRegistry.Stats stats : packets.getStats()) {
+            handled += stats.getHandled();
+            failed += stats.getFailed();
+        }
+        player.sendMessage(ChatColor.GREEN + "Packets: " + ChatColor.YELLOW + handled + " handled, " + packets.getQueueDepth() +
+                " queued, " + failed + " failed " + ChatColor.GRAY + "(/proxystats packets)");
+        player.sendMessage(ChatColor.GREEN + "Player packets: " + ChatColor.YELLOW + PalaceBungee.getMessageHandler().getRoutedCount() +
+                " sent to their proxies, " + PalaceBungee.getMessageHandler().getFannedOutCount() + " sent to all proxies, " +
+                PalaceBungee.getMessageHandler().getSkippedCount() + " not sent, no one online");
+        MessagePublisher publisher = PalaceBungee.getMessageHandler().getPublisher();
+        player.sendMessage(ChatColor.GREEN + "Publisher: " + ChatColor.YELLOW + publisher.getPublishedCount() + " published, " +
+                publisher.getConfirmedCount() + " confirmed, " + publisher.getUnconfirmedCount() + " unconfirmed, " +
+                publisher.getQueueDepth() + " queued, " + publisher.getRejectedCount() + " rejected, " + publisher.getFailedCount() + " failed");
+        Outbox outbox = publisher.getOutbox();
+        player.sendMessage(ChatColor.GREEN + "Outbox: " + ChatColor.YELLOW + outbox.size() + " held, " + outbox.getExpiredCount() +
+                " expired, " + outbox.getDroppedCount() + " dropped");
+        PlayerWriteBuffer buffer = PalaceBungee.getMongoHandler().getWriteBuffer();
+        player.sendMessage(ChatColor.GREEN + "Write buffer: " + ChatColor.YELLOW + buffer.getPendingCount() + " pending, " +
+                buffer.getFlushedCount() + " written, " + buffer.getMergedCount() + " merged, " + buffer.getFailedCount() + " failed");
+        ChatLogBuffer chatLog = PalaceBungee.getMongoHandler().getChatLog();
+        player.sendMessage(ChatColor.GREEN + "Chat log: " + ChatColor.YELLOW + chatLog.getQueueDepth() + " queued, " +
+                chatLog.getFlushedCount() + " written, " + chatLog.getSpilledCount() + " journaled, " +
+                chatLog.getReplayedCount() + " replayed, " + chatLog.getDroppedCount() + " dropped");
+        BanIndex bans = PalaceBungee.getMongoHandler().getBanIndex();
+        player.sendMessage(ChatColor.GREEN + "Ban index: " + ChatColor.YELLOW + (bans.isLoaded() ? bans.getAddressCount() +
+                " addresses, " + bans.getProviderCount() + " providers" : "not loaded"));
+        UsernameCache names = PalaceBungee.getMongoHandler().getUsernameCache();
+        player.sendMessage(ChatColor.GREEN + "Username cache: " + ChatColor.YELLOW + names.getSize() + " entries, " +
+                Math.round(names.getStats().hitRate() * 100) + "% hit rate");
+        PartyRegistry parties = PalaceBungee.getPartyUtil().getRegistry();
+        player.sendMessage(ChatColor.GREEN + "Party registry: " + ChatColor.YELLOW + (parties.isLoaded() ?
+                parties.getPartyCount() + " parties" : "not loaded"));
+        ServerRegistry servers = PalaceBungee.getServerUtil().getRegistry();
+        player.sendMessage(ChatColor.GREEN + "Server registry: " + ChatColor.YELLOW + servers.getServers().size() +
+                " servers, refreshed " + (System.currentTimeMillis() - servers.getLastRefresh()) / 1000 + "s ago, " +
+                PalaceBungee.getServerUtil().getQueue().getQueuedCount() + " players queued, " +
+                PalaceBungee.getServerUtil().getHealth().getEjectedCount() + " ejected");
+    }
+}
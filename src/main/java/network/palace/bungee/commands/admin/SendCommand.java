@@ -64,18 +64,20 @@ public class SendCommand extends PalaceCommand {
                             " to " + ChatColor.YELLOW + server.getName());
                     server.join(targetPlayer);
                 } else {
-                    try {
-                        String target = args[0];
-                        UUID targetProxy = PalaceBungee.getMongoHandler().findPlayer(target);
-                        if (targetProxy == null) {
-                            player.sendMessage(ChatColor.RED + "Player not found!");
-                            return;
+                    String target = args[0];
+                    PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+                        try {
+                            UUID targetProxy = mongo.findPlayer(target);
+                            if (targetProxy == null) {
+                                player.sendMessage(ChatColor.RED + "Player not found!");
+                                return;
+                            }
+                            PalaceBungee.getMessageHandler().sendToProxy(new SendPlayerPacket(target, server.getName()), targetProxy);
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                            player.sendMessage(ChatColor.RED + "An error occurred while sending " + target + " to that server! See console for details.");
                         }
-                        PalaceBungee.getMessageHandler().sendToProxy(new SendPlayerPacket(target, server.getName()), targetProxy);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        player.sendMessage(ChatColor.RED + "An error occurred while sending " + args[0] + " to that server! See console for details.");
-                    }
+                    });
                 }
             }
         }
@@ -17,23 +17,25 @@ public class ClearChatCommand extends PalaceCommand {
 
     @Override
     public void execute(Player player, String[] args) {
-        try {
-            if (args.length > 0) {
-                UUID uuid = PalaceBungee.getUUID(args[0]);
-                if (uuid == null || !PalaceBungee.getMongoHandler().isPlayerOnline(uuid)) {
-                    player.sendMessage(ChatColor.RED + "Player not found!");
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            try {
+                if (args.length > 0) {
+                    UUID uuid = PalaceBungee.getUUID(args[0]);
+                    if (uuid == null || !mongo.isPlayerOnline(uuid)) {
+                        player.sendMessage(ChatColor.RED + "Player not found!");
+                        return;
+                    }
+                    String channel = PalaceBungee.getServerUtil().isOnPark(player) ? "ParkChat" : player.getServerName();
+                    ClearChatPacket packet = new ClearChatPacket(channel, player.getUsername(), uuid);
+                    PalaceBungee.getMessageHandler().sendMessage(packet, PalaceBungee.getMessageHandler().ALL_PROXIES);
                     return;
                 }
                 String channel = PalaceBungee.getServerUtil().isOnPark(player) ? "ParkChat" : player.getServerName();
-                ClearChatPacket packet = new ClearChatPacket(channel, player.getUsername(), uuid);
-                PalaceBungee.getMessageHandler().sendMessage(packet, PalaceBungee.getMessageHandler().ALL_PROXIES);
-                return;
+                PalaceBungee.getMessageHandler().sendMessage(new ClearChatPacket(channel, player.getUsername()), PalaceBungee.getMessageHandler().ALL_PROXIES);
+            } catch (Exception e) {
+                e.printStackTrace();
+                player.sendMessage(ChatColor.RED + "There was an error running the chat clear command! If this continues to happen, report it immediately on Discord.");
             }
-            String channel = PalaceBungee.getServerUtil().isOnPark(player) ? "ParkChat" : player.getServerName();
-            PalaceBungee.getMessageHandler().sendMessage(new ClearChatPacket(channel, player.getUsername()), PalaceBungee.getMessageHandler().ALL_PROXIES);
-        } catch (Exception e) {
-            e.printStackTrace();
-            player.sendMessage(ChatColor.RED + "There was an error running the chat clear command! If this continues to happen, report it immediately on Discord.");
-        }
+        });
     }
 }
@@ -24,49 +24,51 @@ public class GuideHelpCommand extends PalaceCommand {
             return;
         }
         Player tp = PalaceBungee.getPlayer(args[1]);
-        switch (args[0].toLowerCase()) {
-            case "accept": {
-                UUID uuid;
-                String username;
-                if (tp != null) {
-                    username = tp.getUsername();
-                } else {
-                    username = args[1];
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            switch (args[0].toLowerCase()) {
+                case "accept": {
+                    UUID uuid;
+                    String username;
+                    if (tp != null) {
+                        username = tp.getUsername();
+                    } else {
+                        username = args[1];
+                    }
+                    uuid = mongo.usernameToUUID(username);
+                    if (uuid == null) {
+                        player.sendMessage(ChatColor.RED + "Player not found!");
+                        return;
+                    }
+                    try {
+                        PalaceBungee.getGuideUtil().acceptHelpRequest(player, uuid, username);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                        player.sendMessage(ChatColor.RED + "An error occurred while accepting that help request. Try again in a few minutes!");
+                    }
+                    break;
                 }
-                uuid = PalaceBungee.getMongoHandler().usernameToUUID(username);
-                if (uuid == null) {
-                    player.sendMessage(ChatColor.RED + "Player not found!");
-                    return;
+                case "tp": {
+                    String serverName, username;
+                    if (tp != null) {
+                        serverName = tp.getServerName();
+                        username = tp.getUsername();
+                    } else {
+                        serverName = mongo.getPlayerServer(args[1]);
+                        username = args[1];
+                    }
+                    if (serverName == null) {
+                        player.sendMessage(ChatColor.RED + "Player not found!");
+                        return;
+                    }
+                    PalaceBungee.getGuideUtil().teleport(player, username, serverName);
+                    break;
                 }
-                try {
-                    PalaceBungee.getGuideUtil().acceptHelpRequest(player, uuid, username);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                    player.sendMessage(ChatColor.RED + "An error occurred while accepting that help request. Try again in a few minutes!");
+                default: {
+                    player.sendMessage(ChatColor.AQUA + "/h accept [username] - Accept a help request");
+                    player.sendMessage(ChatColor.AQUA + "/h tp [username] - Teleport cross-server to a player");
+                    break;
                 }
-                break;
             }
-            case "tp": {
-                String serverName, username;
-                if (tp != null) {
-                    serverName = tp.getServerName();
-                    username = tp.getUsername();
-                } else {
-                    serverName = PalaceBungee.getMongoHandler().getPlayerServer(args[1]);
-                    username = args[1];
-                }
-                if (serverName == null) {
-                    player.sendMessage(ChatColor.RED + "Player not found!");
-                    return;
-                }
-                PalaceBungee.getGuideUtil().teleport(player, username, serverName);
-                break;
-            }
-            default: {
-                player.sendMessage(ChatColor.AQUA + "/h accept [username] - Accept a help request");
-                player.sendMessage(ChatColor.AQUA + "/h tp [username] - Teleport cross-server to a player");
-                break;
-            }
-        }
+        });
     }
 }
\ No newline at end of file
@@ -20,22 +20,24 @@ public class GuideListCommand extends PalaceCommand {
 
     @Override
     public void execute(Player player, String[] args) {
-        TreeMap<RankTag, Set<String>> players = PalaceBungee.getMongoHandler().getRankTagList(tag -> tag.equals(RankTag.GUIDE));
-        Set<String> members = players.get(RankTag.GUIDE);
-        if (members == null || members.isEmpty()) {
-            player.sendMessage(ChatColor.RED + "There are no Guides online!");
-            return;
-        }
-        ComponentBuilder comp = new ComponentBuilder("Online Guides (" + members.size() + "): ").color(RankTag.GUIDE.getColor());
-        int i = 0;
-        for (String s : members) {
-            String[] list = s.split(":");
-            comp.append(list[0], ComponentBuilder.FormatRetention.NONE).color(ChatColor.GREEN)
-                    .event(new HoverEvent(HoverEvent.Action.SHOW_TEXT, new ComponentBuilder("Currently on: ")
-                            .color(ChatColor.GREEN).append(list[1]).color(ChatColor.AQUA).create()));
-            if (i < (members.size() - 1)) comp.append(", ");
-            i++;
-        }
-        player.sendMessage(comp.create());
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            TreeMap<RankTag, Set<String>> players = mongo.getRankTagList(tag -> tag.equals(RankTag.GUIDE));
+            Set<String> members = players.get(RankTag.GUIDE);
+            if (members == null || members.isEmpty()) {
+                player.sendMessage(ChatColor.RED + "There are no Guides online!");
+                return;
+            }
+            ComponentBuilder comp = new ComponentBuilder("Online Guides (" + members.size() + "): ").color(RankTag.GUIDE.getColor());
+            int i = 0;
+            for (String s : members) {
+                String[] list = s.split(":");
+                comp.append(list[0], ComponentBuilder.FormatRetention.NONE).color(ChatColor.GREEN)
+                        .event(new HoverEvent(HoverEvent.Action.SHOW_TEXT, new ComponentBuilder("Currently on: ")
+                                .color(ChatColor.GREEN).append(list[1]).color(ChatColor.AQUA).create()));
+                if (i < (members.size() - 1)) comp.append(", ");
+                i++;
+            }
+            player.sendMessage(comp.create());
+        });
     }
 }
@@ -31,24 +31,24 @@ public class BanCommand extends PalaceCommand {
             return;
         }
         String playername = args[0];
-        UUID uuid = PalaceBungee.getMongoHandler().usernameToUUID(playername);
-        if (uuid == null) {
-            banner.sendMessage(ChatColor.RED + "Player not found!");
-            return;
-        }
         StringBuilder r = new StringBuilder();
         for (int i = 1; i < args.length; i++) {
             r.append(args[i]).append(" ");
         }
         String reason = (r.substring(0, 1).toUpperCase() + r.substring(1)).trim();
-        PalaceBungee.getProxyServer().getScheduler().runAsync(PalaceBungee.getInstance(), () -> {
+        PalaceBungee.getAsyncMongoHandler().run(banner, mongo -> {
             try {
-                if (PalaceBungee.getMongoHandler().isPlayerBanned(uuid)) {
+                UUID uuid = mongo.usernameToUUID(playername);
+                if (uuid == null) {
+                    banner.sendMessage(ChatColor.RED + "Player not found!");
+                    return;
+                }
+                if (mongo.isPlayerBanned(uuid)) {
                     banner.sendMessage(ChatColor.RED + "This player is already banned! Unban them to change the reason.");
                     return;
                 }
                 Ban ban = new Ban(uuid, playername, true, System.currentTimeMillis(), System.currentTimeMillis(), reason, banner.getUniqueId().toString());
-                PalaceBungee.getMongoHandler().banPlayer(uuid, ban);
+                mongo.banPlayer(uuid, ban);
                 PalaceBungee.getMessageHandler().sendMessage(new KickPlayerPacket(uuid,
                         ComponentSerializer.toString(PalaceBungee.getModerationUtil().getBanMessage(ban)),
                         true), PalaceBungee.getMessageHandler().ALL_PROXIES);
@@ -8,6 +8,7 @@ import network.palace.bungee.handlers.Player;
 import network.palace.bungee.handlers.Rank;
 import network.palace.bungee.handlers.moderation.AddressBan;
 import network.palace.bungee.messages.packets.KickIPPacket;
+import network.palace.bungee.utils.IPTrie;
 
 import java.util.logging.Level;
 
@@ -24,22 +25,27 @@ public class BanIPCommand extends PalaceCommand {
             return;
         }
         String ip = args[0];
+        if (IPTrie.parsePrefix(ip) == null) {
+            banner.sendMessage(ChatColor.RED + "That isn't a valid IP address or range! Use an address, a.b.c.* or CIDR notation such as 1.2.0.0/16, " +
+                    "no wider than /" + IPTrie.MIN_IPV4_LENGTH + " for IPv4 or /" + IPTrie.MIN_IPV6_LENGTH + " for IPv6.");
+            return;
+        }
         StringBuilder r = new StringBuilder();
         for (int i = 1; i < args.length; i++) {
             r.append(args[i]).append(" ");
         }
         String reason = r.substring(0, 1).toUpperCase() + r.substring(1);
         String finalReason = reason.trim();
-        PalaceBungee.getProxyServer().getScheduler().runAsync(PalaceBungee.getInstance(), () -> {
+        PalaceBungee.getAsyncMongoHandler().run(banner, mongo -> {
             try {
-                AddressBan existing = PalaceBungee.getMongoHandler().getAddressBan(ip);
+                AddressBan existing = mongo.getAddressBan(ip);
                 if (existing != null) {
-                    banner.sendMessage(ChatColor.RED + "This IP " + (!ip.contains("*") ? "Address " : "Range ") +
+                    banner.sendMessage(ChatColor.RED + "This IP " + (!ip.contains("*") && !ip.contains("/") ? "Address " : "Range ") +
                             "is already banned! Unban it to change the reason.");
                     return;
                 }
                 AddressBan ban = new AddressBan(ip, finalReason, banner.getUniqueId().toString());
-                PalaceBungee.getMongoHandler().banAddress(ban);
+                mongo.banAddress(ban);
                 PalaceBungee.getMessageHandler().sendMessage(new KickIPPacket(ip,
                         ComponentSerializer.toString(PalaceBungee.getModerationUtil().getBanMessage(ban)),
                         true), PalaceBungee.getMessageHandler().ALL_PROXIES);
@@ -24,14 +24,14 @@ public class BanProviderCommand extends PalaceCommand {
         }
         String provider = String.join(" ", args);
         ProviderBan ban = new ProviderBan(provider, player.getUniqueId().toString());
-        PalaceBungee.getProxyServer().getScheduler().runAsync(PalaceBungee.getInstance(), () -> {
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
             try {
-                ProviderBan existing = PalaceBungee.getMongoHandler().getProviderBan(provider);
+                ProviderBan existing = mongo.getProviderBan(provider);
                 if (existing != null) {
                     player.sendMessage(ChatColor.RED + "This provider is already banned!");
                     return;
                 }
-                PalaceBungee.getMongoHandler().banProvider(ban);
+                mongo.banProvider(ban);
                 PalaceBungee.getMessageHandler().sendMessage(new BanProviderPacket(ban.getProvider()), PalaceBungee.getMessageHandler().ALL_PROXIES);
                 PalaceBungee.getModerationUtil().announceBan(ban);
             } catch (Exception e) {
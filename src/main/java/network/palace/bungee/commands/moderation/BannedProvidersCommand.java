@@ -16,15 +16,17 @@ public class BannedProvidersCommand extends PalaceCommand {
 
     @Override
     public void execute(Player player, String[] args) {
-        List<String> bannedProviders = PalaceBungee.getMongoHandler().getBannedProviders();
-        if (bannedProviders.isEmpty()) {
-            player.sendMessage(ChatColor.GREEN + "No Banned Providers!");
-            return;
-        }
-        StringBuilder msg = new StringBuilder(ChatColor.GREEN + "Banned Providers:");
-        for (String s : bannedProviders) {
-            msg.append("\n- ").append(s);
-        }
-        player.sendMessage(msg.toString());
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            List<String> bannedProviders = mongo.getBannedProviders();
+            if (bannedProviders.isEmpty()) {
+                player.sendMessage(ChatColor.GREEN + "No Banned Providers!");
+                return;
+            }
+            StringBuilder msg = new StringBuilder(ChatColor.GREEN + "Banned Providers:");
+            for (String s : bannedProviders) {
+                msg.append("\n- ").append(s);
+            }
+            player.sendMessage(msg.toString());
+        });
     }
 }
\ No newline at end of file
@@ -20,11 +20,13 @@ public class FindCommand extends PalaceCommand {
             player.sendMessage(ChatColor.RED + "/find [Player]");
             return;
         }
-        String server = PalaceBungee.getMongoHandler().getPlayerServer(args[0]);
-        if (server == null) {
-            player.sendMessage(ChatColor.RED + args[0] + " is not online!");
-            return;
-        }
-        player.sendMessage(ChatColor.BLUE + args[0] + " is on the server " + ChatColor.GOLD + server);
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            String server = mongo.getPlayerServer(args[0]);
+            if (server == null) {
+                player.sendMessage(ChatColor.RED + args[0] + " is not online!");
+                return;
+            }
+            player.sendMessage(ChatColor.BLUE + args[0] + " is on the server " + ChatColor.GOLD + server);
+        });
     }
 }
\ No newline at end of file
@@ -21,11 +21,13 @@ public class IPCommand extends PalaceCommand {
             player.sendMessage(ChatColor.RED + "/ip [Player]");
             return;
         }
-        Document doc = PalaceBungee.getMongoHandler().getPlayer(args[0], new Document("ip", true).append("online", true));
-        if (doc == null || !doc.containsKey("ip") || !doc.containsKey("online")) {
-            player.sendMessage(ChatColor.RED + "Player not found!");
-            return;
-        }
-        player.sendMessage(ChatColor.GREEN + "IP of " + args[0] + " is " + doc.getString("ip"));
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            Document doc = mongo.getPlayer(args[0], new Document("ip", true).append("online", true));
+            if (doc == null || !doc.containsKey("ip") || !doc.containsKey("online")) {
+                player.sendMessage(ChatColor.RED + "Player not found!");
+                return;
+            }
+            player.sendMessage(ChatColor.GREEN + "IP of " + args[0] + " is " + doc.getString("ip"));
+        });
     }
 }
\ No newline at end of file
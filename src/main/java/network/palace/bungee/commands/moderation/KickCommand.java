@@ -26,28 +26,30 @@ public class KickCommand extends PalaceCommand {
             player.sendMessage(ChatColor.RED + "/kick [Player] [Reason]");
             return;
         }
-        String playername = args[0];
-        UUID uuid = PalaceBungee.getMongoHandler().usernameToUUID(playername);
-        if (uuid == null || !PalaceBungee.getMongoHandler().isPlayerOnline(uuid)) {
-            player.sendMessage(ChatColor.RED + "Player not found!");
-            return;
-        }
-        StringBuilder r = new StringBuilder();
-        for (int i = 1; i < args.length; i++) {
-            r.append(args[i]).append(" ");
-        }
-        String reason = (r.substring(0, 1).toUpperCase() + r.substring(1)).trim();
-        Kick kick = new Kick(uuid, reason, player.getUniqueId().toString());
-        try {
-            PalaceBungee.getMessageHandler().sendMessage(new KickPlayerPacket(uuid,
-                    ComponentSerializer.toString(PalaceBungee.getModerationUtil().getKickMessage(kick)),
-                    true), PalaceBungee.getMessageHandler().ALL_PROXIES);
-            PalaceBungee.getModerationUtil().announceKick(playername, reason, player.getUsername());
-            PalaceBungee.getMongoHandler().kickPlayer(uuid, kick);
-        } catch (Exception e) {
-            e.printStackTrace();
-            player.sendMessage(ChatColor.RED + "An error occurred while kicking that player. Check console for errors.");
-            PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error processing kick", e);
-        }
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            String playername = args[0];
+            UUID uuid = mongo.usernameToUUID(playername);
+            if (uuid == null || !mongo.isPlayerOnline(uuid)) {
+                player.sendMessage(ChatColor.RED + "Player not found!");
+                return;
+            }
+            StringBuilder r = new StringBuilder();
+            for (int i = 1; i < args.length; i++) {
+                r.append(args[i]).append(" ");
+            }
+            String reason = (r.substring(0, 1).toUpperCase() + r.substring(1)).trim();
+            Kick kick = new Kick(uuid, reason, player.getUniqueId().toString());
+            try {
+                PalaceBungee.getMessageHandler().sendMessage(new KickPlayerPacket(uuid,
+                        ComponentSerializer.toString(PalaceBungee.getModerationUtil().getKickMessage(kick)),
+                        true), PalaceBungee.getMessageHandler().ALL_PROXIES);
+                PalaceBungee.getModerationUtil().announceKick(playername, reason, player.getUsername());
+                mongo.kickPlayer(uuid, kick);
+            } catch (Exception e) {
+                e.printStackTrace();
+                player.sendMessage(ChatColor.RED + "An error occurred while kicking that player. Check console for errors.");
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error processing kick", e);
+            }
+        });
     }
 }
\ No newline at end of file
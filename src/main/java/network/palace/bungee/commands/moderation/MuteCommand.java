@@ -30,7 +30,7 @@ public class MuteCommand extends PalaceCommand {
             return;
         }
         String username = args[0];
-        PalaceBungee.getProxyServer().getScheduler().runAsync(PalaceBungee.getInstance(), () -> {
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
             try {
                 long muteTimestamp = DateUtil.parseDateDiff(args[1], true);
                 long length = muteTimestamp - System.currentTimeMillis();
@@ -50,18 +50,18 @@ public class MuteCommand extends PalaceCommand {
                 }
                 reason = (r.substring(0, 1).toUpperCase() + r.substring(1)).trim();
                 String source = player.getUniqueId().toString();
-                UUID uuid = PalaceBungee.getMongoHandler().usernameToUUID(username);
+                UUID uuid = mongo.usernameToUUID(username);
                 if (uuid == null) {
                     player.sendMessage(ChatColor.RED + "Player not found!");
                     return;
                 }
-                if (PalaceBungee.getMongoHandler().isPlayerMuted(uuid)) {
+                if (mongo.isPlayerMuted(uuid)) {
                     player.sendMessage(ChatColor.RED + "This player is already muted! Unmute them to change the reason/duration.");
                     return;
                 }
                 Mute mute = new Mute(uuid, true, System.currentTimeMillis(), muteTimestamp, reason, source);
-                PalaceBungee.getMongoHandler().mutePlayer(uuid, mute);
-                PalaceBungee.getMessageHandler().sendMessage(new MutePlayerPacket(uuid), PalaceBungee.getMessageHandler().ALL_PROXIES);
+                mongo.mutePlayer(uuid, mute);
+                PalaceBungee.getMessageHandler().sendToPlayer(new MutePlayerPacket(uuid), uuid);
                 PalaceBungee.getModerationUtil().announceMute(mute, username);
             } catch (Exception e) {
                 e.printStackTrace();
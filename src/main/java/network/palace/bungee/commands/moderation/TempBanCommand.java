@@ -33,25 +33,25 @@ public class TempBanCommand extends PalaceCommand {
             return;
         }
         String playername = args[0];
-        UUID uuid = PalaceBungee.getMongoHandler().usernameToUUID(playername);
-        if (uuid == null) {
-            banner.sendMessage(ChatColor.RED + "Player not found!");
-            return;
-        }
         StringBuilder r = new StringBuilder();
         for (int i = 2; i < args.length; i++) {
             r.append(args[i]).append(" ");
         }
         String reason = (r.substring(0, 1).toUpperCase() + r.substring(1)).trim();
-        PalaceBungee.getProxyServer().getScheduler().runAsync(PalaceBungee.getInstance(), () -> {
+        PalaceBungee.getAsyncMongoHandler().run(banner, mongo -> {
             try {
+                UUID uuid = mongo.usernameToUUID(playername);
+                if (uuid == null) {
+                    banner.sendMessage(ChatColor.RED + "Player not found!");
+                    return;
+                }
                 long timestamp = DateUtil.parseDateDiff(args[1], true);
-                if (PalaceBungee.getMongoHandler().isPlayerBanned(uuid)) {
+                if (mongo.isPlayerBanned(uuid)) {
                     banner.sendMessage(ChatColor.RED + "This player is already banned! Unban them to change the reason.");
                     return;
                 }
                 Ban ban = new Ban(uuid, playername, false, timestamp, reason, banner.getUniqueId().toString());
-                PalaceBungee.getMongoHandler().banPlayer(uuid, ban);
+                mongo.banPlayer(uuid, ban);
                 PalaceBungee.getMessageHandler().sendMessage(new KickPlayerPacket(uuid,
                         ComponentSerializer.toString(PalaceBungee.getModerationUtil().getBanMessage(ban)),
                         true), PalaceBungee.getMessageHandler().ALL_PROXIES);
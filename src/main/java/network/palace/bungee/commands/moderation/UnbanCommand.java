@@ -20,18 +20,20 @@ public class UnbanCommand extends PalaceCommand {
             player.sendMessage(ChatColor.RED + "/unban [Player] [Username]");
             return;
         }
-        String username = args[0];
-        UUID uuid = PalaceBungee.getMongoHandler().usernameToUUID(username);
-        if (uuid == null) {
-            player.sendMessage(ChatColor.RED + "Player not found!");
-            return;
-        }
-        try {
-            PalaceBungee.getMongoHandler().unbanPlayer(uuid);
-            PalaceBungee.getModerationUtil().announceUnban(username, player.getUsername());
-        } catch (Exception e) {
-            e.printStackTrace();
-            player.sendMessage(ChatColor.RED + "An error occurred while unbanning that player. Check console for errors.");
-        }
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            String username = args[0];
+            UUID uuid = mongo.usernameToUUID(username);
+            if (uuid == null) {
+                player.sendMessage(ChatColor.RED + "Player not found!");
+                return;
+            }
+            try {
+                mongo.unbanPlayer(uuid);
+                PalaceBungee.getModerationUtil().announceUnban(username, player.getUsername());
+            } catch (Exception e) {
+                e.printStackTrace();
+                player.sendMessage(ChatColor.RED + "An error occurred while unbanning that player. Check console for errors.");
+            }
+        });
     }
 }
\ No newline at end of file
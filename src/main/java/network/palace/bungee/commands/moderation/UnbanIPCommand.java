@@ -19,8 +19,10 @@ public class UnbanIPCommand extends PalaceCommand {
             player.sendMessage(ChatColor.RED + "/unbanip [IP Address]");
             return;
         }
-        String address = args[0];
-        PalaceBungee.getMongoHandler().unbanAddress(address);
-        PalaceBungee.getModerationUtil().announceUnban(new AddressBan(address, "", player.getUsername()));
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            String address = args[0];
+            mongo.unbanAddress(address);
+            PalaceBungee.getModerationUtil().announceUnban(new AddressBan(address, "", player.getUsername()));
+        });
     }
 }
\ No newline at end of file
@@ -18,13 +18,15 @@ public class UnbanProviderCommand extends PalaceCommand {
             player.sendMessage(ChatColor.RED + "/unbanprovider [Provider]");
             return;
         }
-        String provider = String.join(" ", args);
-        try {
-            PalaceBungee.getMongoHandler().unbanProvider(provider);
-            PalaceBungee.getModerationUtil().announceUnban("Provider " + provider, player.getUsername());
-        } catch (Exception e) {
-            e.printStackTrace();
-            player.sendMessage(ChatColor.RED + "An error occurred while unbanning that ISP. Check console for errors.");
-        }
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            String provider = String.join(" ", args);
+            try {
+                mongo.unbanProvider(provider);
+                PalaceBungee.getModerationUtil().announceUnban("Provider " + provider, player.getUsername());
+            } catch (Exception e) {
+                e.printStackTrace();
+                player.sendMessage(ChatColor.RED + "An error occurred while unbanning that ISP. Check console for errors.");
+            }
+        });
     }
 }
\ No newline at end of file
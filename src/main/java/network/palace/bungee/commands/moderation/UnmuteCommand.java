@@ -24,20 +24,22 @@ public class UnmuteCommand extends PalaceCommand {
             player.sendMessage(ChatColor.RED + "/unmute [Username]");
             return;
         }
-        String username = args[0];
-        UUID uuid = PalaceBungee.getMongoHandler().usernameToUUID(username);
-        if (uuid == null) {
-            player.sendMessage(ChatColor.RED + "Player not found!");
-            return;
-        }
-        try {
-            PalaceBungee.getMongoHandler().unmutePlayer(uuid);
-            PalaceBungee.getMessageHandler().sendMessage(new MutePlayerPacket(uuid), PalaceBungee.getMessageHandler().ALL_PROXIES);
-            PalaceBungee.getModerationUtil().announceUnmute(username, player.getUsername());
-        } catch (Exception e) {
-            e.printStackTrace();
-            player.sendMessage(ChatColor.RED + "An error occurred while unmuting that player. Check console for errors.");
-            PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error processing mute", e);
-        }
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            String username = args[0];
+            UUID uuid = mongo.usernameToUUID(username);
+            if (uuid == null) {
+                player.sendMessage(ChatColor.RED + "Player not found!");
+                return;
+            }
+            try {
+                mongo.unmutePlayer(uuid);
+                PalaceBungee.getMessageHandler().sendToPlayer(new MutePlayerPacket(uuid), uuid);
+                PalaceBungee.getModerationUtil().announceUnmute(username, player.getUsername());
+            } catch (Exception e) {
+                e.printStackTrace();
+                player.sendMessage(ChatColor.RED + "An error occurred while unmuting that player. Check console for errors.");
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error processing mute", e);
+            }
+        });
     }
 }
\ No newline at end of file
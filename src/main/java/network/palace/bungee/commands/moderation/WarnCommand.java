@@ -26,36 +26,38 @@ public class WarnCommand extends PalaceCommand {
             player.sendMessage(ChatColor.RED + "/warn [Player] [Reason]");
             return;
         }
-        String playername = args[0];
-        UUID uuid = PalaceBungee.getMongoHandler().usernameToUUID(playername);
-        if (uuid == null || !PalaceBungee.getMongoHandler().isPlayerOnline(uuid)) {
-            player.sendMessage(ChatColor.RED + "Player not found!");
-            return;
-        }
-        if (System.currentTimeMillis() - PalaceBungee.getMongoHandler().getWarningCooldown(uuid) < 15000) {
-            //players can't be warned until at least 15 seconds after their previous warn
-            player.sendMessage(ChatColor.RED + "That player was warned recently, wait at least 15 seconds before warning again.");
-            return;
-        }
-        StringBuilder r = new StringBuilder();
-        for (int i = 1; i < args.length; i++) {
-            r.append(args[i]).append(" ");
-        }
-        String reason = (r.substring(0, 1).toUpperCase() + r.substring(1)).trim();
-        if (reason.length() < 3) return;
-        Warning warn = new Warning(uuid, reason, player.getUniqueId().toString());
-        try {
-            PalaceBungee.getMessageHandler().sendMessage(
-                    new ComponentMessagePacket(ComponentSerializer.toString(PalaceBungee.getModerationUtil().getWarnMessage(warn)), uuid),
-                    PalaceBungee.getMessageHandler().ALL_PROXIES
-            );
-            PalaceBungee.getModerationUtil().announceWarning(playername, reason, player.getUsername());
-            PalaceBungee.getMongoHandler().warnPlayer(warn);
-            PalaceBungee.getMongoHandler().setWarningCooldown(uuid);
-        } catch (Exception e) {
-            e.printStackTrace();
-            player.sendMessage(ChatColor.RED + "An error occurred while warning that player. Check console for errors.");
-            PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error processing warn", e);
-        }
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            String playername = args[0];
+            UUID uuid = mongo.usernameToUUID(playername);
+            if (uuid == null || !mongo.isPlayerOnline(uuid)) {
+                player.sendMessage(ChatColor.RED + "Player not found!");
+                return;
+            }
+            if (System.currentTimeMillis() - mongo.getWarningCooldown(uuid) < 15000) {
+                //players can't be warned until at least 15 seconds after their previous warn
+                player.sendMessage(ChatColor.RED + "That player was warned recently, wait at least 15 seconds before warning again.");
+                return;
+            }
+            StringBuilder r = new StringBuilder();
+            for (int i = 1; i < args.length; i++) {
+                r.append(args[i]).append(" ");
+            }
+            String reason = (r.substring(0, 1).toUpperCase() + r.substring(1)).trim();
+            if (reason.length() < 3) return;
+            Warning warn = new Warning(uuid, reason, player.getUniqueId().toString());
+            try {
+                PalaceBungee.getMessageHandler().sendToPlayer(
+                        new ComponentMessagePacket(ComponentSerializer.toString(PalaceBungee.getModerationUtil().getWarnMessage(warn)), uuid),
+                        uuid
+                );
+                PalaceBungee.getModerationUtil().announceWarning(playername, reason, player.getUsername());
+                mongo.warnPlayer(warn);
+                mongo.setWarningCooldown(uuid);
+            } catch (Exception e) {
+                e.printStackTrace();
+                player.sendMessage(ChatColor.RED + "An error occurred while warning that player. Check console for errors.");
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error processing warn", e);
+            }
+        });
     }
 }
\ No newline at end of file
@@ -19,22 +19,24 @@ public class SGListCommand extends PalaceCommand {
 
     @Override
     public void execute(Player player, String[] args) {
-        TreeMap<Rank, Set<String>> players = PalaceBungee.getMongoHandler().getRankList(rank -> rank.equals(Rank.VIP));
-        Set<String> members = players.get(Rank.VIP);
-        if (members == null || members.isEmpty()) {
-            player.sendMessage(ChatColor.RED + "There are no Special Guests online!");
-            return;
-        }
-        ComponentBuilder comp = new ComponentBuilder("Online Special Guests (" + members.size() + "): ").color(Rank.VIP.getTagColor());
-        int i = 0;
-        for (String s : members) {
-            String[] list = s.split(":");
-            comp.append(list[0], ComponentBuilder.FormatRetention.NONE).color(ChatColor.GREEN)
-                    .event(new HoverEvent(HoverEvent.Action.SHOW_TEXT, new ComponentBuilder("Currently on: ")
-                            .color(ChatColor.GREEN).append(list[1]).color(ChatColor.AQUA).create()));
-            if (i < (members.size() - 1)) comp.append(", ");
-            i++;
-        }
-        player.sendMessage(comp.create());
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            TreeMap<Rank, Set<String>> players = mongo.getRankList(rank -> rank.equals(Rank.VIP));
+            Set<String> members = players.get(Rank.VIP);
+            if (members == null || members.isEmpty()) {
+                player.sendMessage(ChatColor.RED + "There are no Special Guests online!");
+                return;
+            }
+            ComponentBuilder comp = new ComponentBuilder("Online Special Guests (" + members.size() + "): ").color(Rank.VIP.getTagColor());
+            int i = 0;
+            for (String s : members) {
+                String[] list = s.split(":");
+                comp.append(list[0], ComponentBuilder.FormatRetention.NONE).color(ChatColor.GREEN)
+                        .event(new HoverEvent(HoverEvent.Action.SHOW_TEXT, new ComponentBuilder("Currently on: ")
+                                .color(ChatColor.GREEN).append(list[1]).color(ChatColor.AQUA).create()));
+                if (i < (members.size() - 1)) comp.append(", ");
+                i++;
+            }
+            player.sendMessage(comp.create());
+        });
     }
 }
@@ -57,21 +57,23 @@ public class ServerCommand extends PalaceCommand {
                         .append(ChatColor.GREEN).append(" - ").append(ChatColor.YELLOW).append("[IP:Port]")
                         .append(ChatColor.GREEN).append(" - ").append(ChatColor.YELLOW).append("[Type]")
                         .append(ChatColor.GREEN).append(" - ").append(ChatColor.YELLOW).append("[Players]\n");
-                List<Server> servers = new ArrayList<>(PalaceBungee.getMongoHandler().getServers(PalaceBungee.isTestNetwork()));
-                HashMap<String, Integer> playerCounts = PalaceBungee.getMongoHandler().getServerCounts();
-                servers.sort((o1, o2) -> o1.getName().compareToIgnoreCase(o2.getName()));
-                for (int i = 0; i < servers.size(); i++) {
-                    Server s = servers.get(i);
-                    ChatColor c = s.isOnline() ? ChatColor.GREEN : ChatColor.RED;
-                    msg.append("- ").append(c).append(s.getName())
-                            .append(ChatColor.GREEN).append(" - ").append(s.getAddress())
-                            .append(" - ").append(s.getServerType())
-                            .append(" - ").append(playerCounts.getOrDefault(s.getName(), 0));
-                    if (i < (servers.size() - 1)) {
-                        msg.append("\n");
+                PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+                    List<Server> servers = new ArrayList<>(mongo.getServers(PalaceBungee.isTestNetwork()));
+                    HashMap<String, Integer> playerCounts = mongo.getServerCounts();
+                    servers.sort((o1, o2) -> o1.getName().compareToIgnoreCase(o2.getName()));
+                    for (int i = 0; i < servers.size(); i++) {
+                        Server s = servers.get(i);
+                        ChatColor c = s.isOnline() ? ChatColor.GREEN : ChatColor.RED;
+                        msg.append("- ").append(c).append(s.getName())
+                                .append(ChatColor.GREEN).append(" - ").append(s.getAddress())
+                                .append(" - ").append(s.getServerType())
+                                .append(" - ").append(playerCounts.getOrDefault(s.getName(), 0));
+                        if (i < (servers.size() - 1)) {
+                            msg.append("\n");
+                        }
                     }
-                }
-                player.sendMessage(msg.toString());
+                    player.sendMessage(msg.toString());
+                });
                 break;
             }
             case "add": {
@@ -79,16 +81,18 @@ public class ServerCommand extends PalaceCommand {
                     player.sendMessage(ChatColor.RED + "/server add [Name] [IP Address:Port] [True/False] [Type]");
                     break;
                 }
-                try {
-                    Server s = new Server(args[1], args[2], Boolean.parseBoolean(args[3]), args[4], false);
-                    if (!args[2].contains(":")) throw new IllegalArgumentException("Invalid address format!");
-                    PalaceBungee.getMongoHandler().createServer(s);
-                    PalaceBungee.getMessageHandler().sendMessage(new CreateServerPacket(s), PalaceBungee.getMessageHandler().ALL_PROXIES);
-                    player.sendMessage(ChatColor.GREEN + "Server created successfully! Connect to it with " + ChatColor.YELLOW + "/server " + s.getName());
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    player.sendMessage(ChatColor.RED + "There was an error creating that server! Check your command arguments and console for errors.");
-                }
+                PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+                    try {
+                        Server s = new Server(args[1], args[2], Boolean.parseBoolean(args[3]), args[4], false);
+                        if (!args[2].contains(":")) throw new IllegalArgumentException("Invalid address format!");
+                        mongo.createServer(s);
+                        PalaceBungee.getMessageHandler().sendMessage(new CreateServerPacket(s), PalaceBungee.getMessageHandler().ALL_PROXIES);
+                        player.sendMessage(ChatColor.GREEN + "Server created successfully! Connect to it with " + ChatColor.YELLOW + "/server " + s.getName());
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        player.sendMessage(ChatColor.RED + "There was an error creating that server! Check your command arguments and console for errors.");
+                    }
+                });
                 break;
             }
             case "remove": {
@@ -96,21 +100,23 @@ public class ServerCommand extends PalaceCommand {
                     player.sendMessage(ChatColor.RED + "/server remove [Name]");
                     break;
                 }
-                try {
-                    List<Server> servers = new ArrayList<>(PalaceBungee.getMongoHandler().getServers(PalaceBungee.isTestNetwork()));
-                    Optional<Server> opt = servers.stream().filter(server -> server.getName().equals(args[1])).findFirst();
-                    if (opt.isEmpty()) {
-                        player.sendMessage(ChatColor.RED + "Server not found!");
-                        return;
+                PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+                    try {
+                        List<Server> servers = new ArrayList<>(mongo.getServers(PalaceBungee.isTestNetwork()));
+                        Optional<Server> opt = servers.stream().filter(server -> server.getName().equals(args[1])).findFirst();
+                        if (opt.isEmpty()) {
+                            player.sendMessage(ChatColor.RED + "Server not found!");
+                            return;
+                        }
+                        Server s = opt.get();
+                        mongo.deleteServer(s.getName());
+                        PalaceBungee.getMessageHandler().sendMessage(new DeleteServerPacket(s.getName()), PalaceBungee.getMessageHandler().ALL_PROXIES);
+                        player.sendMessage(ChatColor.RED + "Server removed successfully!");
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        player.sendMessage(ChatColor.RED + "There was an error deleting that server! Check your command arguments and console for errors.");
                     }
-                    Server s = opt.get();
-                    PalaceBungee.getMongoHandler().deleteServer(s.getName());
-                    PalaceBungee.getMessageHandler().sendMessage(new DeleteServerPacket(s.getName()), PalaceBungee.getMessageHandler().ALL_PROXIES);
-                    player.sendMessage(ChatColor.RED + "Server removed successfully!");
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    player.sendMessage(ChatColor.RED + "There was an error deleting that server! Check your command arguments and console for errors.");
-                }
+                });
                 break;
             }
             case "help": {
@@ -22,7 +22,7 @@ public class StaffCommand extends PalaceCommand {
 
     @Override
     public void execute(Player player, String[] args) {
-        PalaceBungee.getProxyServer().getScheduler().runAsync(PalaceBungee.getInstance(), () -> {
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
             try {
                 boolean disabled = player.isDisabled();
                 if ((args.length == 0 && disabled) || (disabled && !args[0].equalsIgnoreCase("login"))) {
@@ -34,11 +34,11 @@ public class StaffCommand extends PalaceCommand {
                         player.sendMessage(ChatColor.GREEN + "You're already logged in!");
                         return;
                     }
-                    if (PalaceBungee.getMongoHandler().verifyPassword(player.getUniqueId(), args[1])) {
+                    if (mongo.verifyPassword(player.getUniqueId(), args[1])) {
                         player.sendMessage(ChatColor.GREEN + "You logged in!");
                         player.setDisabled(false);
-                        PalaceBungee.getMongoHandler().updateAddress(player.getUniqueId(), player.getAddress());
-                        PalaceBungee.getMongoHandler().setStaffPasswordAttempts(player.getUniqueId(), 0);
+                        mongo.updateAddress(player.getUniqueId(), player.getAddress());
+                        mongo.setStaffPasswordAttempts(player.getUniqueId(), 0);
                         PalaceBungee.getMessageHandler().sendStaffMessage(player.getRank().getFormattedName() + ChatColor.YELLOW +
                                 " " + player.getUsername() + " has logged in!");
                         player.sendPacket(new DisablePlayerPacket(player.getUniqueId(), false), true);
@@ -48,15 +48,15 @@ public class StaffCommand extends PalaceCommand {
                         a.color("good");
                         PalaceBungee.getSlackUtil().sendDashboardMessage(m, Collections.singletonList(a), false);
                     } else {
-                        int attempts = PalaceBungee.getMongoHandler().getStaffPasswordAttempts(player.getUniqueId()) + 1;
+                        int attempts = mongo.getStaffPasswordAttempts(player.getUniqueId()) + 1;
                         if (attempts >= 5) {
                             Ban ban = new Ban(player.getUniqueId(), player.getUsername(), true, System.currentTimeMillis(),
                                     "Locked out of staff account", "Network");
-                            PalaceBungee.getMongoHandler().banPlayer(player.getUniqueId(), ban);
+                            mongo.banPlayer(player.getUniqueId(), ban);
                             PalaceBungee.getModerationUtil().announceBan(ban);
                             PalaceBungee.getMessageHandler().sendStaffMessage(ChatColor.RED + player.getUsername() + " has been locked out of their account!");
                             player.kickPlayer(ChatColor.RED + "Locked out of staff account. Please contact management to unlock your account.");
-                            PalaceBungee.getMongoHandler().setStaffPasswordAttempts(player.getUniqueId(), 0);
+                            mongo.setStaffPasswordAttempts(player.getUniqueId(), 0);
                             SlackMessage m = new SlackMessage("<!channel> *" + player.getUsername() + " Locked Out*");
                             SlackAttachment a = new SlackAttachment("*[Locked] " + player.getRank().getName() + "* `" +
                                     player.getUsername() + "` `" + player.getAddress() + "`");
@@ -64,7 +64,7 @@ public class StaffCommand extends PalaceCommand {
                             PalaceBungee.getSlackUtil().sendDashboardMessage(m, Collections.singletonList(a), false);
                             return;
                         }
-                        PalaceBungee.getMongoHandler().setStaffPasswordAttempts(player.getUniqueId(), attempts);
+                        mongo.setStaffPasswordAttempts(player.getUniqueId(), attempts);
                         PalaceBungee.getMessageHandler().sendStaffMessage(ChatColor.GOLD + player.getUsername() + " attempted to login but failed! (" + attempts + "/5)");
                         player.sendMessage(ChatColor.RED + "Incorrect password!");
                         SlackMessage m = new SlackMessage("");
@@ -87,7 +87,7 @@ public class StaffCommand extends PalaceCommand {
                             player.sendMessage(ChatColor.RED + "This password is not secure enough! Make sure it has:\n- at least 8 characters\n- a lowercase letter\n- an uppercase letter\n- a number");
                             return;
                         }
-                        if (!PalaceBungee.getMongoHandler().verifyPassword(player.getUniqueId(), oldp)) {
+                        if (!mongo.verifyPassword(player.getUniqueId(), oldp)) {
                             player.sendMessage(ChatColor.RED + "Your existing password is incorrect!");
                             SlackMessage m = new SlackMessage("");
                             SlackAttachment a = new SlackAttachment("[Failed PW Change] *" + player.getRank().getName() + "* `" +
@@ -96,7 +96,7 @@ public class StaffCommand extends PalaceCommand {
                             PalaceBungee.getSlackUtil().sendDashboardMessage(m, Collections.singletonList(a), false);
                             return;
                         }
-                        PalaceBungee.getMongoHandler().setPassword(player.getUniqueId(), newp);
+                        mongo.setPassword(player.getUniqueId(), newp);
                         player.sendMessage(ChatColor.GREEN + "Your password was successfully changed!");
                         SlackMessage m = new SlackMessage("");
                         SlackAttachment a = new SlackAttachment("[PW Changed] *" + player.getRank().getName() + "* `" +
@@ -107,13 +107,13 @@ public class StaffCommand extends PalaceCommand {
                     } else if (args[0].equalsIgnoreCase("force") && player.getRank().getRankId() >= Rank.DEVELOPER.getRankId()) {
                         String username;
                         String pass = args[2];
-                        UUID uuid = PalaceBungee.getMongoHandler().usernameToUUID(args[1]);
+                        UUID uuid = mongo.usernameToUUID(args[1]);
                         if (uuid == null) {
                             player.sendMessage(ChatColor.RED + "No player was found with the username '" +
                                     ChatColor.GREEN + args[1] + ChatColor.RED + "'!");
                             return;
                         }
-                        username = PalaceBungee.getMongoHandler().uuidToUsername(uuid);
+                        username = mongo.uuidToUsername(uuid);
                         if (username.equalsIgnoreCase("unknown")) {
                             player.sendMessage(ChatColor.RED + "No player was found with the username '" +
                                     ChatColor.GREEN + args[1] + ChatColor.RED + "'!");
@@ -127,7 +127,7 @@ public class StaffCommand extends PalaceCommand {
                             player.sendMessage(ChatColor.RED + "This password is not secure enough! Make sure it has:\n- at least 8 characters\n- a lowercase letter\n- an uppercase letter\n- a number");
                             return;
                         }
-                        PalaceBungee.getMongoHandler().setPassword(uuid, pass);
+                        mongo.setPassword(uuid, pass);
                         player.sendMessage(ChatColor.GREEN + username + "'s password was successfully changed!");
                         SlackMessage m = new SlackMessage("");
                         SlackAttachment a = new SlackAttachment("[PW Force-Changed] `" + username +
@@ -20,11 +20,13 @@ public class StaffListCommand extends PalaceCommand {
 
     @Override
     public void execute(Player player, String[] args) {
-        TreeMap<Rank, Set<String>> players = PalaceBungee.getMongoHandler().getRankList(rank -> rank.getRankId() >= Rank.TRAINEE.getRankId());
-        player.sendMessage(ChatColor.GREEN + "Online Staff Members:");
-        for (Map.Entry<Rank, Set<String>> entry : players.entrySet()) {
-            sendRankMessage(player, entry.getKey(), entry.getValue());
-        }
+        PalaceBungee.getAsyncMongoHandler().run(player, mongo -> {
+            TreeMap<Rank, Set<String>> players = mongo.getRankList(rank -> rank.getRankId() >= Rank.TRAINEE.getRankId());
+            player.sendMessage(ChatColor.GREEN + "Online Staff Members:");
+            for (Map.Entry<Rank, Set<String>> entry : players.entrySet()) {
+                sendRankMessage(player, entry.getKey(), entry.getValue());
+            }
+        });
     }
 
     private void sendRankMessage(Player player, Rank rank, Set<String> members) {
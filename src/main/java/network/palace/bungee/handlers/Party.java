@@ -11,6 +11,7 @@ import org.bson.Document;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public class Party {
@@ -32,12 +33,17 @@ public class Party {
     public Party(Document doc) throws Exception {
         this.partyID = doc.getObjectId("_id").toHexString();
         this.leader = UUID.fromString(doc.getString("leader"));
-        this.leaderName = PalaceBungee.getUsername(leader);
         this.members = new HashMap<>();
         this.invited = new HashMap<>();
+        List<UUID> uuids = new ArrayList<>();
+        uuids.add(leader);
         for (Object o : doc.get("members", ArrayList.class)) {
-            UUID uuid = UUID.fromString((String) o);
-            members.put(uuid, PalaceBungee.getUsername(uuid));
+            uuids.add(UUID.fromString((String) o));
+        }
+        Map<UUID, String> names = PalaceBungee.getMongoHandler().getUsernameCache().resolveAll(uuids);
+        this.leaderName = names.getOrDefault(leader, "Unknown");
+        for (UUID uuid : uuids.subList(1, uuids.size())) {
+            members.put(uuid, names.getOrDefault(uuid, "Unknown"));
         }
         for (Object o : doc.get("invited", ArrayList.class)) {
             Document d = (Document) o;
@@ -53,6 +59,10 @@ public class Party {
         return ImmutableMap.copyOf(members);
     }
 
+    public ImmutableMap<UUID, Long> getInviteMap() {
+        return ImmutableMap.copyOf(invited);
+    }
+
     public boolean isLeader(UUID uuid) {
         return leader.equals(uuid);
     }
@@ -88,9 +98,9 @@ public class Party {
 
     public void messageAllMembers(String message, boolean bars, boolean mention) throws Exception {
         if (bars) message = MESSAGE_BARS + "\n" + message + "\n" + MESSAGE_BARS;
-        PalaceBungee.getMessageHandler().sendMessage(new MessagePacket(message, getMembers()), PalaceBungee.getMessageHandler().ALL_PROXIES);
+        PalaceBungee.getMessageHandler().sendToPlayers(new MessagePacket(message, getMembers()), getMembers());
         if (mention)
-            PalaceBungee.getMessageHandler().sendMessage(new MentionPacket(getMembers().toArray(new UUID[0])), PalaceBungee.getMessageHandler().ALL_PROXIES);
+            PalaceBungee.getMessageHandler().sendToPlayers(new MentionPacket(getMembers().toArray(new UUID[0])), getMembers());
     }
 
     public void forAllMembers(PalaceCallback.UUIDCallback callback) {
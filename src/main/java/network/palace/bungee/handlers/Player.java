@@ -216,11 +216,11 @@ public class Player {
     }
 
     public HashMap<UUID, String> getFriends() {
-        return PalaceBungee.getMongoHandler().getFriendList(uuid);
+        return PalaceBungee.getFriendGraph().getFriends(uuid);
     }
 
     public HashMap<UUID, String> getRequests() {
-        return PalaceBungee.getMongoHandler().getFriendRequestList(uuid);
+        return PalaceBungee.getFriendGraph().getRequests(uuid);
     }
 
     public boolean hasFriendToggledOff() {
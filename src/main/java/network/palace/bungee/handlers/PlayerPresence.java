@@ -0,0 +1,82 @@
+package network.palace.bungee.handlers;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import network.palace.bungee.messages.packets.PacketBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Where a player is connected across the network, as tracked by {@link network.palace.bungee.utils.PresenceUtil}
+ */
+@Getter
+@AllArgsConstructor
+public class PlayerPresence {
+    private final UUID uniqueId;
+    private final String username;
+    private final UUID proxy;
+    private final String server;
+    private final Rank rank;
+    private final List<RankTag> tags;
+
+    public PlayerPresence(Player player) {
+        this(player.getUniqueId(), player.getUsername(), null, player.getServerName(), player.getRank(), player.getTags());
+    }
+
+    public PlayerPresence withProxy(UUID proxy) {
+        return new PlayerPresence(uniqueId, username, proxy, server, rank, tags);
+    }
+
+    public PlayerPresence withServer(String server) {
+        return new PlayerPresence(uniqueId, username, proxy, server, rank, tags);
+    }
+
+    public boolean isStaff(boolean guide) {
+        return rank.getRankId() >= Rank.TRAINEE.getRankId() || (guide && tags.contains(RankTag.GUIDE));
+    }
+
+    public JsonObject toJSON() {
+        JsonObject object = new JsonObject();
+        object.addProperty("uuid", uniqueId.toString());
+        object.addProperty("username", username);
+        object.addProperty("server", server);
+        object.addProperty("rank", rank.getDBName());
+        JsonArray tags = new JsonArray();
+        this.tags.forEach(t -> tags.add(t.getDBName()));
+        object.add("tags", tags);
+        return object;
+    }
+
+    public static PlayerPresence fromJSON(JsonObject object, UUID proxy) {
+        List<RankTag> tags = new ArrayList<>();
+        for (JsonElement e : object.get("tags").getAsJsonArray()) {
+            RankTag tag = RankTag.fromString(e.getAsString());
+            if (tag != null) tags.add(tag);
+        }
+        return new PlayerPresence(UUID.fromString(object.get("uuid").getAsString()), object.get("username").getAsString(),
+                proxy, object.get("server").getAsString(), Rank.fromString(object.get("rank").getAsString()), tags);
+    }
+
+    public void write(PacketBuffer buffer) {
+        buffer.writeUUID(uniqueId).writeString(username).writeString(server).writeString(rank.getDBName()).writeVarInt(tags.size());
+        tags.forEach(t -> buffer.writeString(t.getDBName()));
+    }
+
+    public static PlayerPresence read(PacketBuffer buffer, UUID proxy) {
+        UUID uuid = buffer.readUUID();
+        String username = buffer.readString(), server = buffer.readString();
+        Rank rank = Rank.fromString(buffer.readString());
+        int size = buffer.readVarInt();
+        List<RankTag> tags = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            RankTag tag = RankTag.fromString(buffer.readString());
+            if (tag != null) tags.add(tag);
+        }
+        return new PlayerPresence(uuid, username, proxy, server, rank, tags);
+    }
+}
@@ -1,29 +1,47 @@
 package network.palace.bungee.handlers;
 
 import lombok.Getter;
-import lombok.Setter;
 import net.md_5.bungee.api.config.ServerInfo;
 import network.palace.bungee.PalaceBungee;
 
 import java.util.UUID;
 
+/**
+ * A server on the network as of the last time the servers collection was read. Servers held by
+ * {@link network.palace.bungee.utils.ServerRegistry} are replaced rather than changed when their count or online
+ * state changes, keeping the same unique id so they can still be compared against older copies.
+ */
 public class Server {
-    private final UUID uuid = UUID.randomUUID();
+    private final UUID uuid;
     @Getter private final String name;
     @Getter private final String address;
     @Getter private final boolean park;
-    @Getter @Setter private int gameMaxPlayers;
+    @Getter private final int gameMaxPlayers;
     @Getter private final String serverType;
-    @Setter private boolean online;
-    private int count = 0;
-    private long lastDBUpdate = 0;
+    private final boolean online;
+    private final int count;
 
     public Server(String name, String address, boolean park, String serverType, boolean online) {
+        this(name, address, park, serverType, online, 0, 0);
+    }
+
+    /**
+     * @param gameMaxPlayers the most players the server accepts, or 0 if it has no limit
+     */
+    public Server(String name, String address, boolean park, String serverType, boolean online, int count, int gameMaxPlayers) {
+        this(UUID.randomUUID(), name, address, park, serverType, online, count, gameMaxPlayers);
+    }
+
+    private Server(UUID uuid, String name, String address, boolean park, String serverType, boolean online, int count,
+                   int gameMaxPlayers) {
+        this.uuid = uuid;
         this.name = name;
         this.address = address;
         this.park = park;
         this.serverType = serverType;
         this.online = online;
+        this.count = count;
+        this.gameMaxPlayers = gameMaxPlayers;
     }
 
     public UUID getUniqueId() {
@@ -31,25 +49,33 @@ public class Server {
     }
 
     public boolean isOnline() {
-        if (System.currentTimeMillis() - lastDBUpdate < 3000) return online;
-        dbUpdate();
         return online;
     }
 
     public int getCount() {
-        if (System.currentTimeMillis() - lastDBUpdate < 3000) return count;
-        dbUpdate();
         return count;
     }
 
-    private void dbUpdate() {
-        count = PalaceBungee.getMongoHandler().getServerCount(name);
-        online = PalaceBungee.getMongoHandler().isServerOnline(name);
-        lastDBUpdate = System.currentTimeMillis();
+    /**
+     * Check whether another copy of a server has the same name, address, type and park flag as this one
+     */
+    public boolean isSameServer(Server other) {
+        return name.equals(other.name) && address.equals(other.address) && park == other.park &&
+                serverType.equals(other.serverType);
+    }
+
+    /**
+     * Copy this server with the player count, online state and player limit of a newer copy, keeping its unique id
+     */
+    public Server withStatus(Server latest) {
+        return new Server(uuid, name, address, park, serverType, latest.online, latest.count, latest.gameMaxPlayers);
     }
 
     public void join(Player player) {
         ServerInfo info = PalaceBungee.getServerUtil().getServerInfo(name, true);
-        if (info != null) player.getProxiedPlayer().ifPresent(p -> p.connect(info));
+        if (info == null || player.getProxiedPlayer().isEmpty()) return;
+        if (!PalaceBungee.getServerUtil().getQueue().admit(player, this)) return;
+        PalaceBungee.getServerUtil().reserve(this);
+        player.getProxiedPlayer().get().connect(info);
     }
-}
\ No newline at end of file
+}
@@ -18,10 +18,10 @@ import network.palace.bungee.handlers.moderation.ProviderBan;
 import network.palace.bungee.handlers.moderation.ProviderData;
 import network.palace.bungee.messages.packets.FriendJoinPacket;
 import network.palace.bungee.messages.packets.MessageByRankPacket;
+import network.palace.bungee.mongo.LoginProfile;
 import network.palace.bungee.slack.SlackAttachment;
 import network.palace.bungee.slack.SlackMessage;
 import network.palace.bungee.utils.IPUtil;
-import org.bson.Document;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
@@ -41,11 +41,18 @@ public class PlayerJoinAndLeave implements Listener {
             return;
         }
 
+        PalaceBungee.getLoginUtil().submit(event, () -> handleLogin(event, connection));
+    }
+
+    /**
+     * Load the player's profile and run the ban, mute and maintenance checks. Called on a login thread.
+     */
+    private void handleLogin(LoginEvent event, PendingConnection connection) {
         String address = ((InetSocketAddress) connection.getSocketAddress()).getAddress().toString().replaceAll("/", "");
 
-        Document doc = PalaceBungee.getMongoHandler().getPlayer(connection.getUniqueId(), new Document("rank", true).append("tags", true).append("online", true).append("settings", true));
+        LoginProfile profile = PalaceBungee.getMongoHandler().getLoginProfile(connection.getUniqueId(), address);
 
-        if (doc != null && doc.containsKey("online") && doc.getBoolean("online")) {
+        if (profile.isOnline()) {
             event.setCancelled(true);
             event.setCancelReason(new ComponentBuilder("You are already connected to this server!").color(ChatColor.RED).create());
             return;
@@ -53,26 +60,18 @@ public class PlayerJoinAndLeave implements Listener {
 
         Player player;
         Rank rank;
-        if (doc == null) {
+        if (profile.isNewPlayer()) {
             // new player
             rank = Rank.GUEST;
             player = new Player(connection.getUniqueId(), connection.getName(), rank, new ArrayList<>(), address, connection.getVersion(), true);
         } else {
-            AddressBan addressBan = PalaceBungee.getMongoHandler().getAddressBan(address);
+            AddressBan addressBan = profile.getAddressBan();
             if (addressBan != null) {
                 event.setCancelled(true);
                 event.setCancelReason(PalaceBungee.getModerationUtil().getBanMessage(addressBan));
                 return;
             }
-            String[] list = address.split("\\.");
-            String range = list[0] + "." + list[1] + "." + list[2] + ".*";
-            AddressBan rangeBan = PalaceBungee.getMongoHandler().getAddressBan(range);
-            if (rangeBan != null) {
-                event.setCancelled(true);
-                event.setCancelReason(PalaceBungee.getModerationUtil().getBanMessage(rangeBan));
-                return;
-            }
-            Ban ban = PalaceBungee.getMongoHandler().getCurrentBan(connection.getUniqueId(), connection.getName());
+            Ban ban = profile.getCurrentBan(connection.getName());
             if (ban != null) {
                 if (ban.isPermanent()) {
                     event.setCancelled(true);
@@ -88,21 +87,10 @@ public class PlayerJoinAndLeave implements Listener {
                 }
             }
 
-            rank = Rank.fromString(doc.getString("rank"));
+            rank = profile.getRank();
 
-            List<RankTag> tagList = new ArrayList<>();
-            if (doc.containsKey("tags")) {
-                var tags = doc.get("tags", ArrayList.class);
-                for (Object s : tags) {
-                    RankTag tag = RankTag.fromString((String) s);
-                    if (tag != null) tagList.add(tag);
-                }
-            }
-
-            Document settings = (Document) doc.get("settings");
-
-            player = new Player(connection.getUniqueId(), connection.getName(), rank, tagList, address, connection.getVersion(), settings.getBoolean("mentions"));
-            player.setMute(PalaceBungee.getMongoHandler().getCurrentMute(connection.getUniqueId()));
+            player = new Player(connection.getUniqueId(), connection.getName(), rank, profile.getTags(), address, connection.getVersion(), profile.getSettings().getBoolean("mentions"));
+            player.setMute(profile.getCurrentMute());
         }
         if (PalaceBungee.getConfigUtil().isMaintenance() && rank.getRankId() < Rank.DEVELOPER.getRankId()) {
             event.setCancelled(true);
@@ -111,7 +99,7 @@ public class PlayerJoinAndLeave implements Listener {
                     .color(ChatColor.AQUA).create());
             return;
         }
-        PalaceBungee.login(player);
+        PalaceBungee.login(player, profile);
         PalaceBungee.getProxyServer().getScheduler().runAsync(PalaceBungee.getInstance(), () -> {
             ProviderData data = IPUtil.getProviderData(player.getAddress());
             if (data != null) {
@@ -125,7 +113,6 @@ public class PlayerJoinAndLeave implements Listener {
                 PalaceBungee.getMongoHandler().updateProviderData(player.getUniqueId(), data);
             }
         });
-
     }
 
     @EventHandler
@@ -194,17 +181,18 @@ public class PlayerJoinAndLeave implements Listener {
                 player.sendMessage(ChatColor.AQUA + "\nOne or more of your applications have been responded to.\nRun /apply to view them!\n");
             }
             try {
-                HashMap<UUID, String> requests = PalaceBungee.getMongoHandler().getFriendRequestList(player.getUniqueId());
+                HashMap<UUID, String> requests = player.getRequests();
                 if (requests.size() > 0) {
                     player.sendMessage(ChatColor.AQUA + "You have " + ChatColor.YELLOW + "" + ChatColor.BOLD +
                             requests.size() + " " + ChatColor.AQUA +
                             "pending friend request" + (requests.size() > 1 ? "s" : "") + "! View them with " +
                             ChatColor.YELLOW + ChatColor.BOLD + "/friend requests");
                 }
-                HashMap<UUID, String> friends = PalaceBungee.getMongoHandler().getFriendList(player.getUniqueId());
+                HashMap<UUID, String> friends = player.getFriends();
                 if (friends.size() > 0) {
-                    PalaceBungee.getMessageHandler().sendMessage(new FriendJoinPacket(player.getUniqueId(), rank.getTagColor() + player.getUsername(),
-                            new ArrayList<>(friends.keySet()), true, rank.getRankId() >= Rank.CHARACTER.getRankId()), PalaceBungee.getMessageHandler().ALL_PROXIES);
+                    List<UUID> list = new ArrayList<>(friends.keySet());
+                    PalaceBungee.getMessageHandler().sendToPlayers(new FriendJoinPacket(player.getUniqueId(), rank.getTagColor() + player.getUsername(),
+                            list, true, rank.getRankId() >= Rank.CHARACTER.getRankId()), list);
                 }
             } catch (Exception e) {
                 PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error sending friend/request notifications", e);
@@ -216,7 +204,7 @@ public class PlayerJoinAndLeave implements Listener {
     public void onDisconnect(PlayerDisconnectEvent event) {
         ProxiedPlayer pl = event.getPlayer();
         try {
-            Party party = PalaceBungee.getMongoHandler().getPartyByLeader(pl.getUniqueId());
+            Party party = PalaceBungee.getPartyUtil().getRegistry().getPartyByLeader(pl.getUniqueId());
             if (party != null) {
                 party.messageAllMembers("The party has been closed because " + pl.getName() + " has disconnected!", true, false);
                 PalaceBungee.getPartyUtil().closeParty(party);
@@ -226,6 +214,8 @@ public class PlayerJoinAndLeave implements Listener {
         }
 
         Player player = PalaceBungee.getPlayer(pl.getUniqueId());
+        // read before logging out, which drops the player's friend list
+        List<UUID> friends = player == null ? null : new ArrayList<>(player.getFriends().keySet());
         PalaceBungee.logout(pl.getUniqueId(), player);
         PalaceBungee.getChatUtil().logout(pl.getUniqueId());
         PalaceBungee.getMongoHandler().staffClock(pl.getUniqueId(), false);
@@ -238,8 +228,8 @@ public class PlayerJoinAndLeave implements Listener {
                 }
             }
             try {
-                PalaceBungee.getMessageHandler().sendMessage(new FriendJoinPacket(player.getUniqueId(), player.getRank().getTagColor() + player.getUsername(),
-                        new ArrayList<>(player.getFriends().keySet()), false, player.getRank().getRankId() >= Rank.CHARACTER.getRankId()), PalaceBungee.getMessageHandler().ALL_PROXIES);
+                PalaceBungee.getMessageHandler().sendToPlayers(new FriendJoinPacket(player.getUniqueId(), player.getRank().getTagColor() + player.getUsername(),
+                        friends, false, player.getRank().getRankId() >= Rank.CHARACTER.getRankId()), friends);
             } catch (Exception e) {
                 e.printStackTrace();
             }
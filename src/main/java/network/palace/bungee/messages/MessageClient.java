@@ -38,10 +38,21 @@ public class MessageClient {
     }
 
     public void basicPublish(byte[] bytes, String routingKey, AMQP.BasicProperties props) throws IOException {
+        basicPublish(bytes, routingKey, props, PalaceBungee.getMessageHandler().getPublisher().getOutbox().getDefaultTtl());
+    }
+
+    /**
+     * Queue a message to be published by the {@link MessagePublisher}, since this client's channel is only used to
+     * declare its exchange or queue and mustn't be published on from more than one thread
+     *
+     * @param ttl how long the message can be held while the connection is down, in milliseconds
+     */
+    public void basicPublish(byte[] bytes, String routingKey, AMQP.BasicProperties props, long ttl) throws IOException {
+        MessagePublisher publisher = PalaceBungee.getMessageHandler().getPublisher();
         if (queue) {
-            channel.basicPublish(routingKey, name, props, bytes);
+            publisher.publish(routingKey, name, props, bytes, ttl);
         } else {
-            channel.basicPublish(name, routingKey, props, bytes);
+            publisher.publish(name, routingKey, props, bytes, ttl);
         }
     }
 
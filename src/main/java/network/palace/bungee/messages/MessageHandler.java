@@ -4,6 +4,7 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.rabbitmq.client.*;
+import lombok.Getter;
 import net.md_5.bungee.api.ChatColor;
 import net.md_5.bungee.api.ProxyServer;
 import net.md_5.bungee.api.chat.BaseComponent;
@@ -12,7 +13,6 @@ import net.md_5.bungee.api.config.ServerInfo;
 import net.md_5.bungee.chat.ComponentSerializer;
 import network.palace.bungee.PalaceBungee;
 import network.palace.bungee.handlers.*;
-import network.palace.bungee.handlers.moderation.Mute;
 import network.palace.bungee.handlers.moderation.ProviderBan;
 import network.palace.bungee.messages.packets.*;
 import network.palace.bungee.utils.ConfigUtil;
@@ -21,17 +21,29 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 
 public class MessageHandler {
     public static final AMQP.BasicProperties JSON_PROPS = new AMQP.BasicProperties.Builder().contentEncoding("application/json").build();
+    public static final String BINARY_CONTENT_TYPE = "application/x-palace-packet";
+    public static final AMQP.BasicProperties BINARY_PROPS = new AMQP.BasicProperties.Builder().contentType(BINARY_CONTENT_TYPE).build();
 
     public Connection PUBLISHING_CONNECTION, CONSUMING_CONNECTION;
     public MessageClient ALL_PROXIES, CHAT_ANALYSIS, PROXY_DIRECT, MC_DIRECT;
 
     private final ConnectionFactory factory;
     private final HashMap<String, Channel> channels = new HashMap<>();
+    // clients for exchanges other than the ones above, so each exchange is only declared once
+    private final ConcurrentHashMap<String, MessageClient> clients = new ConcurrentHashMap<>();
+    @Getter private final MessagePublisher publisher;
+    // packets for particular players sent only to their proxies, and ones that had to go to every proxy
+    private final LongAdder routed = new LongAdder(), fannedOut = new LongAdder(), skipped = new LongAdder();
+    @Getter private final PacketRegistry packets = new PacketRegistry();
+    // whether packets with a binary format are sent in it to the other proxies, only safe once they can all read it
+    private final boolean binary;
 
     /* Chat Clear Data */
     private final HashMap<String, Long> lastCleared = new HashMap<>();
@@ -45,8 +57,17 @@ public class MessageHandler {
         factory.setUsername(connection.getUsername());
         factory.setPassword(connection.getPassword());
 
+        boolean binary = false;
+        try {
+            binary = PalaceBungee.getConfigUtil().getConfig().getBoolean("messaging.binary", binary);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading messaging settings from config file, using defaults", e);
+        }
+        this.binary = binary;
+
         PUBLISHING_CONNECTION = factory.newConnection();
         CONSUMING_CONNECTION = factory.newConnection();
+        publisher = new MessagePublisher(PUBLISHING_CONNECTION);
 
         ((Recoverable) PUBLISHING_CONNECTION).addRecoveryListener(new RecoveryListener() {
             @Override
@@ -90,463 +111,390 @@ public class MessageHandler {
             PalaceBungee.getProxyServer().getLogger().severe("There was an error initializing essential message publishing queues!");
         }
 
+        registerHandlers();
+
         CancelCallback doNothing = consumerTag -> {
         };
-
-        registerConsumer("all_proxies", "fanout", "", (consumerTag, delivery) -> {
+        DeliverCallback dispatch = (consumerTag, delivery) -> {
             try {
-                JsonObject object = parseDelivery(delivery);
-                PalaceBungee.getProxyServer().getLogger().warning(object.toString());
-                switch (object.get("id").getAsInt()) {
-                    // Broadcast
-                    case 1: {
-                        BroadcastPacket packet = new BroadcastPacket(object);
-                        String message = ChatColor.WHITE + "[" + ChatColor.AQUA + "Information" + ChatColor.WHITE + "] " + ChatColor.GREEN + packet.getMessage();
-                        String staffMessage = ChatColor.WHITE + "[" + ChatColor.AQUA + packet.getSender() + ChatColor.WHITE + "] " + ChatColor.GREEN + packet.getMessage();
-                        PalaceBungee.getOnlinePlayers().forEach(player -> {
-                            if (player.getRank().getRankId() >= Rank.TRAINEE.getRankId()) {
-                                player.sendMessage(staffMessage);
-                            } else {
-                                player.sendMessage(message);
-                            }
-                        });
-                        break;
-                    }
-                    // Message by rank
-                    case 2: {
-                        MessageByRankPacket packet = new MessageByRankPacket(object);
-                        RankTag tag = packet.getTag();
-                        BaseComponent[] components = packet.isComponentMessage() ? ComponentSerializer.parse(packet.getMessage()) : null;
-                        PalaceBungee.getOnlinePlayers().stream().filter(p -> {
-                            if (p.isDisabled()) return false;
-                            if (packet.isExact())
-                                return p.getRank().equals(packet.getRank()) || (tag != null && p.getTags().contains(packet.getTag()));
-                            else
-                                return p.getRank().getRankId() >= packet.getRank().getRankId() || (tag != null && p.getTags().contains(packet.getTag()));
-                        }).forEach(player -> {
-                            if (packet.isComponentMessage()) player.sendMessage(components);
-                            else player.sendMessage(packet.getMessage());
-                        });
-                        break;
-                    }
-                    // Proxy reload
-                    case 3: {
-                        ProxyReloadPacket packet = new ProxyReloadPacket(object);
-                        PalaceBungee.getConfigUtil().reload();
-                        break;
-                    }
-                    // Message
-                    case 5: {
-                        MessagePacket packet = new MessagePacket(object);
-                        for (UUID uuid : packet.getPlayers()) {
-                            Player tp = PalaceBungee.getPlayer(uuid);
-                            if (tp != null) tp.sendMessage(packet.getMessage());
-                        }
-                        break;
-                    }
-                    // Component Message
-                    case 6: {
-                        ComponentMessagePacket packet = new ComponentMessagePacket(object);
-                        BaseComponent[] components = ComponentSerializer.parse(packet.getSerializedMessage());
-                        if (packet.getPlayers() == null) {
-                            for (Player tp : PalaceBungee.getOnlinePlayers()) {
-                                tp.sendMessage(components);
-                            }
-                        } else {
-                            for (UUID uuid : packet.getPlayers()) {
-                                Player tp = PalaceBungee.getPlayer(uuid);
-                                if (tp != null) tp.sendMessage(components);
-                            }
-                        }
-                        break;
-                    }
-                    // Chat Clear
-                    case 7: {
-                        ClearChatPacket packet = new ClearChatPacket(object);
-                        String channel = packet.getChat();
-                        UUID target = packet.getTarget();
-                        if (target != null) {
-                            String username = PalaceBungee.getUsername(target);
-                            for (Player tp : PalaceBungee.getOnlinePlayers()) {
-                                if (tp.getRank().getRankId() >= Rank.TRAINEE.getRankId()) {
-                                    tp.sendMessage("\n" + ChatColor.DARK_AQUA + username + "'s chat has been cleared by " + packet.getSource());
-                                }
-                            }
-                            Player tp = PalaceBungee.getPlayer(target);
-                            if (tp != null && tp.getRank().getRankId() < Rank.TRAINEE.getRankId())
-                                tp.sendMessage(clearMessage + ChatColor.DARK_AQUA + "Chat has been cleared");
-                            return;
-                        }
-                        if (System.currentTimeMillis() - (lastCleared.getOrDefault(channel, 0L)) < 2000) {
-                            //if this channel was last cleared up to 2 seconds ago, prevent it from being cleared again
-                            Player player = PalaceBungee.getPlayer(packet.getSource());
-                            if (player != null)
-                                player.sendMessage(ChatColor.YELLOW + "It hasn't been 2 seconds since the last chat clear!");
-                            return;
-                        }
-                        lastCleared.put(channel, System.currentTimeMillis());
-                        boolean park = channel.equals("ParkChat");
-                        for (Player tp : PalaceBungee.getOnlinePlayers()) {
-                            boolean clear = false;
-                            if (park) {
-                                if (PalaceBungee.getServerUtil().isOnPark(tp)) clear = true;
-                            } else {
-                                if (tp.getServerName().equals(channel)) clear = true;
-                            }
-                            if (clear) {
-                                if (tp.getRank().getRankId() < Rank.TRAINEE.getRankId()) {
-                                    tp.sendMessage(clearMessage + ChatColor.DARK_AQUA + "Chat has been cleared");
-                                } else {
-                                    tp.sendMessage("\n" + ChatColor.DARK_AQUA + "Chat has been cleared by " + packet.getSource());
-                                }
-                            }
-                        }
-                        break;
-                    }
-                    // Create Server
-                    case 8: {
-                        CreateServerPacket packet = new CreateServerPacket(object);
-                        String[] addressList = packet.getAddress().split(":");
-                        ServerInfo info = ProxyServer.getInstance().constructServerInfo(packet.getName(), new InetSocketAddress(addressList[0], Integer.parseInt(addressList[1])), "", false);
-                        ProxyServer.getInstance().getServers().put(packet.getName(), info);
-                        PalaceBungee.getServerUtil().createServer(new Server(packet.getName(), packet.getAddress(), packet.isPark(), packet.getType(), false));
-                        PalaceBungee.getProxyServer().getLogger().info("New server created: " + object.toString());
-                        break;
-                    }
-                    // Delete Server
-                    case 9: {
-                        DeleteServerPacket packet = new DeleteServerPacket(object);
-                        ProxyServer.getInstance().getServers().remove(packet.getName());
-                        PalaceBungee.getServerUtil().deleteServer(packet.getName());
-                        PalaceBungee.getProxyServer().getLogger().info("Server deleted: " + packet.getName());
-                        break;
-                    }
-                    // Mention
-                    case 10: {
-                        MentionPacket packet = new MentionPacket(object);
-                        PalaceBungee.getOnlinePlayers().stream().filter(p -> packet.getPlayers().contains(p.getUniqueId())).forEach(Player::mention);
-                        break;
-                    }
-                    // Chat
-                    case 12: {
-                        ChatPacket packet = new ChatPacket(object);
-                        PalaceBungee.getChatUtil().handleIncomingChatPacket(packet);
-                        break;
-                    }
-                    case 15: {
-                        handleSendPacket(new SendPlayerPacket(object));
-                        break;
-                    }
-                    case 16: {
-                        ChangeChannelPacket packet = new ChangeChannelPacket(object);
-                        UUID uuid = packet.getUuid();
-                        String channel = packet.getChannel();
-
-                        Player player = PalaceBungee.getPlayer(uuid);
-                        if (player == null || player.getChannel().equals(channel)) return;
-
-                        player.setChannel(channel);
-                        player.sendMessage(ChatColor.GREEN + "You have been moved to the " + ChatColor.AQUA + channel +
-                                ChatColor.GREEN + " channel");
-                        break;
-                    }
-                    case 17: {
-                        ChatMutePacket packet = new ChatMutePacket(object);
-                        List<String> mutedChats = PalaceBungee.getConfigUtil().getMutedChats();
-                        if (packet.isMuted() && !mutedChats.contains(packet.getChannel())) {
-                            mutedChats.add(packet.getChannel());
-                        } else if (!packet.isMuted() && mutedChats.contains(packet.getChannel())) {
-                            mutedChats.remove(packet.getChannel());
-                        } else {
-                            return;
-                        }
-                        PalaceBungee.getConfigUtil().setMutedChats(mutedChats, false);
-                        String msg;
-                        if (packet.isMuted()) {
-                            msg = ChatColor.WHITE + "[" + ChatColor.DARK_AQUA + "Palace Chat" + ChatColor.WHITE + "] " +
-                                    ChatColor.YELLOW + "Chat has been muted";
-                        } else {
-                            msg = ChatColor.WHITE + "[" + ChatColor.DARK_AQUA + "Palace Chat" + ChatColor.WHITE + "] " +
-                                    ChatColor.YELLOW + "Chat has been unmuted";
-                        }
-                        String msgname = msg + " by " + packet.getSource();
-                        for (Player tp : PalaceBungee.getOnlinePlayers()) {
-                            if ((packet.getChannel().equals("ParkChat") && PalaceBungee.getServerUtil().isOnPark(tp)) || tp.getServerName().equals(packet.getChannel())) {
-                                tp.sendMessage(tp.getRank().getRankId() >= Rank.TRAINEE.getRankId() ? msgname : msg);
-                            }
-                        }
-                        break;
-                    }
-                    case 18: {
-                        MentionByRankPacket packet = new MentionByRankPacket(object);
-                        Rank rank = packet.getRank();
-                        RankTag tag = packet.getTag();
-                        PalaceBungee.getOnlinePlayers().stream().filter(p -> {
-                            if (packet.isExact())
-                                return (rank != null && p.getRank().equals(packet.getRank())) || (tag != null && p.getTags().contains(packet.getTag()));
-                            else
-                                return (rank != null && p.getRank().getRankId() >= packet.getRank().getRankId()) || (tag != null && p.getTags().contains(packet.getTag()));
-                        }).forEach(Player::mention);
-                        break;
-                    }
-                    case 19: {
-                        KickPlayerPacket packet = new KickPlayerPacket(object);
-                        Player tp = PalaceBungee.getPlayer(packet.getUuid());
-                        if (tp != null) {
-                            if (packet.isComponentMessage()) {
-                                tp.kickPlayer(ComponentSerializer.parse(packet.getReason()));
-                            } else {
-                                tp.kickPlayer(packet.getReason(), false);
-                            }
-                        }
-                        break;
-                    }
-                    case 20: {
-                        KickIPPacket packet = new KickIPPacket(object);
-                        String address = packet.getAddress();
-                        if (!address.contains("*")) {
-                            for (Player tp : PalaceBungee.getOnlinePlayers()) {
-                                if (tp.getAddress().equals(address)) {
-                                    if (packet.isComponentMessage()) {
-                                        tp.kickPlayer(ComponentSerializer.parse(packet.getReason()));
-                                    } else {
-                                        tp.kickPlayer(packet.getReason());
-                                    }
-                                }
-                            }
-                        } else {
-                            for (Player tp : PalaceBungee.getOnlinePlayers()) {
-                                String[] list = tp.getAddress().split("\\.");
-                                String range = list[0] + "." + list[1] + "." + list[2] + ".*";
-                                if (range.equalsIgnoreCase(address)) {
-                                    if (packet.isComponentMessage()) {
-                                        tp.kickPlayer(ComponentSerializer.parse(packet.getReason()));
-                                    } else {
-                                        tp.kickPlayer(packet.getReason());
-                                    }
-                                }
-                            }
-                        }
-                        break;
-                    }
-                    case 21: {
-                        MutePlayerPacket packet = new MutePlayerPacket(object);
-                        Player tp = PalaceBungee.getPlayer(packet.getUuid());
-                        if (tp == null) return;
-                        Mute mute = PalaceBungee.getMongoHandler().getCurrentMute(tp.getUniqueId());
-                        if (mute != null) {
-                            tp.setMute(mute);
-                            tp.sendMessage(PalaceBungee.getModerationUtil().getMuteMessage(mute));
-                        } else {
-                            if (tp.getMute() != null && tp.getMute().isMuted()) {
-                                tp.sendMessage(ChatColor.RED + "You have been unmuted.");
-                            }
-                            tp.setMute(null);
-                        }
-                        break;
-                    }
-                    case 22: {
-                        BanProviderPacket packet = new BanProviderPacket(object);
-                        for (Player tp : PalaceBungee.getOnlinePlayers()) {
-                            if (tp.getIsp().trim().equalsIgnoreCase(packet.getProvider().trim())) {
-                                try {
-                                    tp.kickPlayer(PalaceBungee.getModerationUtil().getBanMessage(new ProviderBan(packet.getProvider(), "")));
-                                } catch (Exception e) {
-                                    e.printStackTrace();
-                                }
-                            }
-                        }
-                        break;
+                if (BINARY_CONTENT_TYPE.equals(delivery.getProperties().getContentType())) {
+                    packets.dispatch(delivery.getBody());
+                } else {
+                    packets.dispatch(parseDelivery(delivery), delivery.getBody().length);
+                }
+            } catch (Exception e) {
+                handleError(consumerTag, delivery, e);
+            }
+        };
+
+        registerConsumer("all_proxies", "fanout", "", dispatch, doNothing);
+        registerConsumer("proxy_direct", "direct", PalaceBungee.getProxyID().toString(), dispatch, doNothing);
+    }
+
+    /**
+     * Register the handler for every packet type this proxy receives from the all_proxies or proxy_direct exchanges
+     */
+    private void registerHandlers() {
+        // Broadcast
+        packets.register(PacketID.Global.BROADCAST, BroadcastPacket::new, packet -> {
+            String message = ChatColor.WHITE + "[" + ChatColor.AQUA + "Information" + ChatColor.WHITE + "] " + ChatColor.GREEN + packet.getMessage();
+            String staffMessage = ChatColor.WHITE + "[" + ChatColor.AQUA + packet.getSender() + ChatColor.WHITE + "] " + ChatColor.GREEN + packet.getMessage();
+            PalaceBungee.getOnlinePlayers().forEach(player -> {
+                if (player.getRank().getRankId() >= Rank.TRAINEE.getRankId()) {
+                    player.sendMessage(staffMessage);
+                } else {
+                    player.sendMessage(message);
+                }
+            });
+        });
+        // Message by rank
+        packets.register(PacketID.Global.MESSAGEBYRANK, MessageByRankPacket::new, packet -> {
+            RankTag tag = packet.getTag();
+            BaseComponent[] components = packet.isComponentMessage() ? ComponentSerializer.parse(packet.getMessage()) : null;
+            PalaceBungee.getOnlinePlayers().stream().filter(p -> {
+                if (p.isDisabled()) return false;
+                if (packet.isExact())
+                    return p.getRank().equals(packet.getRank()) || (tag != null && p.getTags().contains(packet.getTag()));
+                else
+                    return p.getRank().getRankId() >= packet.getRank().getRankId() || (tag != null && p.getTags().contains(packet.getTag()));
+            }).forEach(player -> {
+                if (packet.isComponentMessage()) player.sendMessage(components);
+                else player.sendMessage(packet.getMessage());
+            });
+        });
+        // Proxy reload
+        packets.register(PacketID.Global.PROXYRELOAD, ProxyReloadPacket::new, packet -> PalaceBungee.getConfigUtil().reload());
+        // DM
+        packets.register(PacketID.Global.DM, DMPacket::new, packet -> {
+            Player player = PalaceBungee.getPlayer(packet.getTo());
+            if (packet.isInitialSend()) {
+                // message to target
+                DMPacket response;
+                if (player == null) {
+                    response = new DMPacket("", packet.getFrom(), "", packet.getChannel(), packet.getCommand(), packet.getFromUUID(), packet.getToUUID(), PalaceBungee.getProxyID(), false, packet.getRank());
+                } else {
+                    if (packet.getRank().getRankId() < Rank.CHARACTER.getRankId() && (!player.isDmEnabled() || (player.isIgnored(packet.getFromUUID()) && player.getRank().getRankId() < Rank.CHARACTER.getRankId()))) {
+                        // if sender is not staff, and the target player either has dm's disabled or has ignored the sender
+                        response = new DMPacket("", packet.getFrom(), ChatColor.RED + "This person has messages disabled!", packet.getChannel(), packet.getCommand(), packet.getFromUUID(), packet.getToUUID(), PalaceBungee.getProxyID(), false, packet.getRank());
+                    } else {
+                        PalaceBungee.getChatUtil().socialSpyMessage(packet.getFromUUID(), packet.getToUUID(), packet.getFrom(), player.getUsername(), PalaceBungee.getServerUtil().getChannel(player), packet.getMessage(), packet.getCommand());
+                        player.sendMessage(packet.getRank().getFormattedName() + ChatColor.GRAY + " " + packet.getFrom() + ChatColor.GREEN + " -> " + ChatColor.LIGHT_PURPLE + "You: " + ChatColor.WHITE + packet.getMessage());
+                        player.mention();
+                        response = new DMPacket(player.getUsername(), packet.getFrom(), packet.getMessage(), packet.getChannel(), packet.getCommand(), packet.getFromUUID(), player.getUniqueId(), PalaceBungee.getProxyID(), false, player.getRank());
+                        player.setReplyTo(packet.getFromUUID());
+                        player.setReplyTime(System.currentTimeMillis());
                     }
-                    case 23: {
-                        FriendJoinPacket packet = new FriendJoinPacket(object);
-                        String phrase = packet.isJoin() ? "joined" : "left";
-                        for (Player tp : PalaceBungee.getOnlinePlayers()) {
-                            if ((packet.isStaff() && tp.getRank().getRankId() >= Rank.CHARACTER.getRankId()) ||
-                                    !packet.getPlayers().contains(tp.getUniqueId()))
-                                continue;
-                            tp.sendMessage(packet.getUsername() + ChatColor.LIGHT_PURPLE + " has " + phrase + ".");
-                        }
-                        break;
+                }
+                sendToProxy(response, packet.getSendingProxy());
+            } else {
+                // confirmation to sender
+                if (player == null) return;
+                if (packet.getFrom().isEmpty()) {
+                    if (packet.getMessage().isEmpty()) {
+                        player.sendMessage(ChatColor.RED + "Player not found!");
+                    } else {
+                        player.sendMessage(packet.getMessage());
                     }
-                    case 32: {
-                        BroadcastComponentPacket packet = new BroadcastComponentPacket(object);
-                        BaseComponent[] message = new ComponentBuilder("[").color(ChatColor.WHITE)
-                                .append("Information").color(ChatColor.AQUA)
-                                .append("] ").color(ChatColor.WHITE)
-                                .append(ComponentSerializer.parse(packet.getSerializedMessage())).create();
-                        BaseComponent[] staffMessage = new ComponentBuilder("[").color(ChatColor.WHITE)
-                                .append(packet.getSender()).color(ChatColor.AQUA)
-                                .append("] ").color(ChatColor.WHITE)
-                                .append(ComponentSerializer.parse(packet.getSerializedMessage())).create();
-                        PalaceBungee.getOnlinePlayers().forEach(player -> {
-                            if (player.getRank().getRankId() >= Rank.TRAINEE.getRankId()) {
-                                player.sendMessage(staffMessage);
-                            } else {
-                                player.sendMessage(message);
-                            }
-                        });
-                        break;
+                } else {
+                    player.sendMessage(ChatColor.LIGHT_PURPLE + "You" + ChatColor.GREEN + " -> " + packet.getRank().getFormattedName() + ChatColor.GRAY + " " + packet.getFrom() + ": " + ChatColor.WHITE + packet.getMessage());
+                    player.setReplyTo(packet.getToUUID());
+                    player.setReplyTime(System.currentTimeMillis());
+                }
+            }
+        });
+        // Message
+        packets.register(PacketID.Global.MESSAGE, MessagePacket::new, packet -> {
+            for (UUID uuid : packet.getPlayers()) {
+                Player tp = PalaceBungee.getPlayer(uuid);
+                if (tp != null) tp.sendMessage(packet.getMessage());
+            }
+        });
+        // Component Message
+        packets.register(PacketID.Global.COMPONENTMESSAGE, ComponentMessagePacket::new, packet -> {
+            BaseComponent[] components = ComponentSerializer.parse(packet.getSerializedMessage());
+            if (packet.getPlayers() == null) {
+                for (Player tp : PalaceBungee.getOnlinePlayers()) {
+                    tp.sendMessage(components);
+                }
+            } else {
+                for (UUID uuid : packet.getPlayers()) {
+                    Player tp = PalaceBungee.getPlayer(uuid);
+                    if (tp != null) tp.sendMessage(components);
+                }
+            }
+        });
+        // Chat Clear
+        packets.register(PacketID.Global.CLEARCHAT, ClearChatPacket::new, packet -> {
+            String channel = packet.getChat();
+            UUID target = packet.getTarget();
+            if (target != null) {
+                String username = PalaceBungee.getUsername(target);
+                for (Player tp : PalaceBungee.getOnlinePlayers()) {
+                    if (tp.getRank().getRankId() >= Rank.TRAINEE.getRankId()) {
+                        tp.sendMessage("\n" + ChatColor.DARK_AQUA + username + "'s chat has been cleared by " + packet.getSource());
                     }
-                    case 33: {
-                        EmptyServerPacket packet = new EmptyServerPacket(object);
-                        String name = packet.getServer();
-                        Server server = PalaceBungee.getServerUtil().getServer(name, true);
-                        if (server == null) {
-                            return;
-                        }
-                        for (Player tp : PalaceBungee.getOnlinePlayers()) {
-                            if (tp.getServerName().equals(server.getName())) {
-                                Server target = PalaceBungee.getServerUtil().getServerByType(name.replaceAll("\\d*$", ""), server.getUniqueId());
-                                if (target == null) {
-                                    if (server.getServerType().equalsIgnoreCase("hub")) {
-                                        target = PalaceBungee.getServerUtil().getServerByType("Creative");
-                                    } else {
-                                        target = PalaceBungee.getServerUtil().getServerByType("Hub");
-                                    }
-                                }
-                                if (target == null) {
-                                    target = PalaceBungee.getServerUtil().getEmptyParkServer(server.isPark() ? server.getUniqueId() : null);
-                                }
-                                if (!target.getName().toLowerCase().startsWith("hub") && !target.getName().toLowerCase().startsWith("arcade")) {
-                                    tp.sendMessage(ChatColor.RED + "No fallback servers are available, so you were sent to a Park server.");
-                                }
-                                PalaceBungee.getServerUtil().sendPlayer(tp, target);
-                            }
-                        }
-                        break;
+                }
+                Player tp = PalaceBungee.getPlayer(target);
+                if (tp != null && tp.getRank().getRankId() < Rank.TRAINEE.getRankId())
+                    tp.sendMessage(clearMessage + ChatColor.DARK_AQUA + "Chat has been cleared");
+                return;
+            }
+            if (System.currentTimeMillis() - (lastCleared.getOrDefault(channel, 0L)) < 2000) {
+                //if this channel was last cleared up to 2 seconds ago, prevent it from being cleared again
+                Player player = PalaceBungee.getPlayer(packet.getSource());
+                if (player != null)
+                    player.sendMessage(ChatColor.YELLOW + "It hasn't been 2 seconds since the last chat clear!");
+                return;
+            }
+            lastCleared.put(channel, System.currentTimeMillis());
+            boolean park = channel.equals("ParkChat");
+            for (Player tp : PalaceBungee.getOnlinePlayers()) {
+                boolean clear = false;
+                if (park) {
+                    if (PalaceBungee.getServerUtil().isOnPark(tp)) clear = true;
+                } else {
+                    if (tp.getServerName().equals(channel)) clear = true;
+                }
+                if (clear) {
+                    if (tp.getRank().getRankId() < Rank.TRAINEE.getRankId()) {
+                        tp.sendMessage(clearMessage + ChatColor.DARK_AQUA + "Chat has been cleared");
+                    } else {
+                        tp.sendMessage("\n" + ChatColor.DARK_AQUA + "Chat has been cleared by " + packet.getSource());
                     }
-                    case 34: {
-                        RankChangePacket packet = new RankChangePacket(object);
-                        UUID uuid = packet.getUuid();
-                        Rank rank = packet.getRank();
-                        List<String> tags = packet.getTags();
-                        String source = packet.getSource();
-                        Player player = PalaceBungee.getPlayer(uuid);
-
-                        PalaceBungee.getProxyServer().getScheduler().runAsync(PalaceBungee.getInstance(), () -> {
-                            String name;
-                            if (player == null) {
-                                name = PalaceBungee.getMongoHandler().uuidToUsername(uuid);
-                            } else {
-                                player.setRank(rank);
-                                player.getTags().forEach(player::removeTag);
-                                for (String tag : tags) {
-                                    player.addTag(RankTag.fromString(tag));
-                                }
-                                name = player.getUsername();
-                                //TODO discord syncing
-                            }
-                            List<RankTag> realTags = new ArrayList<>();
-                            for (String s : tags) {
-                                realTags.add(RankTag.fromString(s));
-                            }
-                            try {
-                                PalaceBungee.getModerationUtil().announceRankChange(name, rank, realTags, source);
-                            } catch (Exception e) {
-                                PalaceBungee.getInstance().getLogger().log(Level.SEVERE, "Error announcing rank change", e);
-                            }
-
-                            try {
-                                int member_id = PalaceBungee.getMongoHandler().getForumMemberId(uuid);
-                                if (member_id != -1) {
-                                    PalaceBungee.getForumUtil().updatePlayerRank(uuid, member_id, rank, player);
-                                }
-                            } catch (Exception e) {
-                                PalaceBungee.getInstance().getLogger().log(Level.SEVERE, "Error processing rank change", e);
-                            }
-                        });
-                        break;
+                }
+            }
+        });
+        // Create Server
+        packets.register(PacketID.Global.CREATESERVER, CreateServerPacket::new, packet -> {
+            String[] addressList = packet.getAddress().split(":");
+            ServerInfo info = ProxyServer.getInstance().constructServerInfo(packet.getName(), new InetSocketAddress(addressList[0], Integer.parseInt(addressList[1])), "", false);
+            ProxyServer.getInstance().getServers().put(packet.getName(), info);
+            PalaceBungee.getServerUtil().createServer(new Server(packet.getName(), packet.getAddress(), packet.isPark(), packet.getType(), false));
+            PalaceBungee.getProxyServer().getLogger().info("New server created: " + packet.getJSON().toString());
+        });
+        // Delete Server
+        packets.register(PacketID.Global.DELETESERVER, DeleteServerPacket::new, packet -> {
+            ProxyServer.getInstance().getServers().remove(packet.getName());
+            PalaceBungee.getServerUtil().deleteServer(packet.getName());
+            PalaceBungee.getProxyServer().getLogger().info("Server deleted: " + packet.getName());
+        });
+        // Mention
+        packets.register(PacketID.Global.MENTION, MentionPacket::new, packet -> PalaceBungee.getOnlinePlayers().stream().filter(p -> packet.getPlayers().contains(p.getUniqueId())).forEach(Player::mention));
+        // Chat
+        packets.register(PacketID.Global.CHAT, ChatPacket::new, packet -> PalaceBungee.getChatUtil().handleIncomingChatPacket(packet));
+        // Chat Analysis (Response)
+        packets.register(PacketID.Global.CHAT_ANALYSIS_RESPONSE, ChatAnalysisResponsePacket::new, packet -> PalaceBungee.getChatUtil().handleAnalysisResponse(packet));
+        packets.register(PacketID.Global.SEND_PLAYER, SendPlayerPacket::new, this::handleSendPacket);
+        packets.register(PacketID.Global.CHANGE_CHANNEL, ChangeChannelPacket::new, packet -> {
+            UUID uuid = packet.getUuid();
+            String channel = packet.getChannel();
+
+            Player player = PalaceBungee.getPlayer(uuid);
+            if (player == null || player.getChannel().equals(channel)) return;
+
+            player.setChannel(channel);
+            player.sendMessage(ChatColor.GREEN + "You have been moved to the " + ChatColor.AQUA + channel +
+                    ChatColor.GREEN + " channel");
+        });
+        packets.register(PacketID.Global.CHAT_MUTED, ChatMutePacket::new, packet -> {
+            List<String> mutedChats = PalaceBungee.getConfigUtil().getMutedChats();
+            if (packet.isMuted() && !mutedChats.contains(packet.getChannel())) {
+                mutedChats.add(packet.getChannel());
+            } else if (!packet.isMuted() && mutedChats.contains(packet.getChannel())) {
+                mutedChats.remove(packet.getChannel());
+            } else {
+                return;
+            }
+            PalaceBungee.getConfigUtil().setMutedChats(mutedChats, false);
+            String msg;
+            if (packet.isMuted()) {
+                msg = ChatColor.WHITE + "[" + ChatColor.DARK_AQUA + "Palace Chat" + ChatColor.WHITE + "] " +
+                        ChatColor.YELLOW + "Chat has been muted";
+            } else {
+                msg = ChatColor.WHITE + "[" + ChatColor.DARK_AQUA + "Palace Chat" + ChatColor.WHITE + "] " +
+                        ChatColor.YELLOW + "Chat has been unmuted";
+            }
+            String msgname = msg + " by " + packet.getSource();
+            for (Player tp : PalaceBungee.getOnlinePlayers()) {
+                if ((packet.getChannel().equals("ParkChat") && PalaceBungee.getServerUtil().isOnPark(tp)) || tp.getServerName().equals(packet.getChannel())) {
+                    tp.sendMessage(tp.getRank().getRankId() >= Rank.TRAINEE.getRankId() ? msgname : msg);
+                }
+            }
+        });
+        packets.register(PacketID.Global.MENTIONBYRANK, MentionByRankPacket::new, packet -> {
+            Rank rank = packet.getRank();
+            RankTag tag = packet.getTag();
+            PalaceBungee.getOnlinePlayers().stream().filter(p -> {
+                if (packet.isExact())
+                    return (rank != null && p.getRank().equals(packet.getRank())) || (tag != null && p.getTags().contains(packet.getTag()));
+                else
+                    return (rank != null && p.getRank().getRankId() >= packet.getRank().getRankId()) || (tag != null && p.getTags().contains(packet.getTag()));
+            }).forEach(Player::mention);
+        });
+        packets.register(PacketID.Global.KICK_PLAYER, KickPlayerPacket::new, KickPlayerPacket::getUuid, packet -> {
+            Player tp = PalaceBungee.getPlayer(packet.getUuid());
+            if (tp != null) {
+                if (packet.isComponentMessage()) {
+                    tp.kickPlayer(ComponentSerializer.parse(packet.getReason()));
+                } else {
+                    tp.kickPlayer(packet.getReason(), false);
+                }
+            }
+        });
+        packets.register(PacketID.Global.KICK_IP, KickIPPacket::new, packet -> {
+            for (Player tp : PalaceBungee.getOnlineAddresses().getPlayers(packet.getAddress())) {
+                if (packet.isComponentMessage()) {
+                    tp.kickPlayer(ComponentSerializer.parse(packet.getReason()));
+                } else {
+                    tp.kickPlayer(packet.getReason());
+                }
+            }
+        });
+        packets.register(PacketID.Global.MUTE_PLAYER, MutePlayerPacket::new, MutePlayerPacket::getUuid, packet -> {
+            Player tp = PalaceBungee.getPlayer(packet.getUuid());
+            if (tp == null) return;
+            PalaceBungee.getAsyncMongoHandler().getCurrentMute(tp.getUniqueId()).thenAccept(mute -> {
+                if (mute != null) {
+                    tp.setMute(mute);
+                    tp.sendMessage(PalaceBungee.getModerationUtil().getMuteMessage(mute));
+                } else {
+                    if (tp.getMute() != null && tp.getMute().isMuted()) {
+                        tp.sendMessage(ChatColor.RED + "You have been unmuted.");
                     }
-                    case 37: {
-                        SocialSpyPacket packet = new SocialSpyPacket(object);
-                        boolean park = packet.getChannel().equals("ParkChat");
-                        Party party = packet.getReceiver() == null ? PalaceBungee.getMongoHandler().getPartyByMember(packet.getSender()) : null;
-                        for (Player tp : PalaceBungee.getOnlinePlayers()) {
-                            if (tp.getRank().getRankId() < Rank.TRAINEE.getRankId() ||
-                                    tp.getUniqueId().equals(packet.getSender()) ||
-                                    (party == null && tp.getUniqueId().equals(packet.getReceiver())) ||
-                                    (party != null && party.isMember(tp.getUniqueId())) ||
-                                    !park && !tp.getServerName().equals(packet.getChannel()) ||
-                                    park && !PalaceBungee.getServerUtil().isOnPark(tp))
-                                // Skip if:
-                                // 1. Player is not Trainee+
-                                // 2. Player is the sender
-                                // 3. Party is null (meaning it's a DM) and the player is the receiver
-                                // 4. Party is not null (meaning it's Party Chat) and the player is in the party
-                                // 5. Message was not sent in ParkChat and TP is not on the server
-                                // 6. Message was sent in ParkChat and TP is not in ParkChat
-                                continue;
-                            tp.sendMessage(packet.getMessage());
-                        }
-                        break;
+                    tp.setMute(null);
+                }
+            }).exceptionally(t -> {
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error updating mute for " + tp.getUsername(), t);
+                return null;
+            });
+        });
+        packets.register(PacketID.Global.BAN_PROVIDER, BanProviderPacket::new, packet -> {
+            for (Player tp : PalaceBungee.getOnlinePlayers()) {
+                if (tp.getIsp().trim().equalsIgnoreCase(packet.getProvider().trim())) {
+                    try {
+                        tp.kickPlayer(PalaceBungee.getModerationUtil().getBanMessage(new ProviderBan(packet.getProvider(), "")));
+                    } catch (Exception e) {
+                        e.printStackTrace();
                     }
                 }
-            } catch (Exception e) {
-                handleError(consumerTag, delivery, e);
             }
-        }, doNothing);
-
-        registerConsumer("proxy_direct", "direct", PalaceBungee.getProxyID().toString(), (consumerTag, delivery) -> {
-            try {
-                JsonObject object = parseDelivery(delivery);
-                PalaceBungee.getProxyServer().getLogger().warning(object.toString());
-                switch (object.get("id").getAsInt()) {
-                    // DM
-                    case 4: {
-                        DMPacket packet = new DMPacket(object);
-                        Player player = PalaceBungee.getPlayer(packet.getTo());
-                        if (packet.isInitialSend()) {
-                            // message to target
-                            DMPacket response;
-                            if (player == null) {
-                                response = new DMPacket("", packet.getFrom(), "", packet.getChannel(), packet.getCommand(), packet.getFromUUID(), packet.getToUUID(), PalaceBungee.getProxyID(), false, packet.getRank());
-                            } else {
-                                if (packet.getRank().getRankId() < Rank.CHARACTER.getRankId() && (!player.isDmEnabled() || (player.isIgnored(packet.getFromUUID()) && player.getRank().getRankId() < Rank.CHARACTER.getRankId()))) {
-                                    // if sender is not staff, and the target player either has dm's disabled or has ignored the sender
-                                    response = new DMPacket("", packet.getFrom(), ChatColor.RED + "This person has messages disabled!", packet.getChannel(), packet.getCommand(), packet.getFromUUID(), packet.getToUUID(), PalaceBungee.getProxyID(), false, packet.getRank());
-                                } else {
-                                    PalaceBungee.getChatUtil().socialSpyMessage(packet.getFromUUID(), packet.getToUUID(), packet.getFrom(), player.getUsername(), PalaceBungee.getServerUtil().getChannel(player), packet.getMessage(), packet.getCommand());
-                                    player.sendMessage(packet.getRank().getFormattedName() + ChatColor.GRAY + " " + packet.getFrom() + ChatColor.GREEN + " -> " + ChatColor.LIGHT_PURPLE + "You: " + ChatColor.WHITE + packet.getMessage());
-                                    player.mention();
-                                    response = new DMPacket(player.getUsername(), packet.getFrom(), packet.getMessage(), packet.getChannel(), packet.getCommand(), packet.getFromUUID(), player.getUniqueId(), PalaceBungee.getProxyID(), false, player.getRank());
-                                    player.setReplyTo(packet.getFromUUID());
-                                    player.setReplyTime(System.currentTimeMillis());
-                                }
-                            }
-                            sendToProxy(response, packet.getSendingProxy());
-                        } else {
-                            // confirmation to sender
-                            if (player == null) return;
-                            if (packet.getFrom().isEmpty()) {
-                                if (packet.getMessage().isEmpty()) {
-                                    player.sendMessage(ChatColor.RED + "Player not found!");
-                                } else {
-                                    player.sendMessage(packet.getMessage());
-                                }
-                            } else {
-                                player.sendMessage(ChatColor.LIGHT_PURPLE + "You" + ChatColor.GREEN + " -> " + packet.getRank().getFormattedName() + ChatColor.GRAY + " " + packet.getFrom() + ": " + ChatColor.WHITE + packet.getMessage());
-                                player.setReplyTo(packet.getToUUID());
-                                player.setReplyTime(System.currentTimeMillis());
-                            }
-                        }
-                        break;
-                    }
-                    // Chat Analysis (Response)
-                    case 14: {
-                        ChatAnalysisResponsePacket packet = new ChatAnalysisResponsePacket(object);
-                        PalaceBungee.getChatUtil().handleAnalysisResponse(packet);
-                        break;
+        });
+        packets.register(PacketID.Global.FRIEND_JOIN, FriendJoinPacket::new, packet -> {
+            String phrase = packet.isJoin() ? "joined" : "left";
+            for (Player tp : PalaceBungee.getOnlinePlayers()) {
+                if ((packet.isStaff() && tp.getRank().getRankId() >= Rank.CHARACTER.getRankId()) ||
+                        !packet.getPlayers().contains(tp.getUniqueId()))
+                    continue;
+                tp.sendMessage(packet.getUsername() + ChatColor.LIGHT_PURPLE + " has " + phrase + ".");
+            }
+        });
+        packets.register(PacketID.Global.BROADCAST_COMPONENT, BroadcastComponentPacket::new, packet -> {
+            BaseComponent[] message = new ComponentBuilder("[").color(ChatColor.WHITE)
+                    .append("Information").color(ChatColor.AQUA)
+                    .append("] ").color(ChatColor.WHITE)
+                    .append(ComponentSerializer.parse(packet.getSerializedMessage())).create();
+            BaseComponent[] staffMessage = new ComponentBuilder("[").color(ChatColor.WHITE)
+                    .append(packet.getSender()).color(ChatColor.AQUA)
+                    .append("] ").color(ChatColor.WHITE)
+                    .append(ComponentSerializer.parse(packet.getSerializedMessage())).create();
+            PalaceBungee.getOnlinePlayers().forEach(player -> {
+                if (player.getRank().getRankId() >= Rank.TRAINEE.getRankId()) {
+                    player.sendMessage(staffMessage);
+                } else {
+                    player.sendMessage(message);
+                }
+            });
+        });
+        packets.register(PacketID.Global.EMPTY_SERVER, EmptyServerPacket::new, packet -> {
+            String name = packet.getServer();
+            Server server = PalaceBungee.getServerUtil().getServer(name, true);
+            if (server == null) {
+                return;
+            }
+            PalaceBungee.getServerUtil().getEvacuation().evacuate(server);
+        });
+        packets.register(PacketID.Global.RANK_CHANGE, RankChangePacket::new, RankChangePacket::getUuid, packet -> {
+            UUID uuid = packet.getUuid();
+            Rank rank = packet.getRank();
+            List<String> tags = packet.getTags();
+            String source = packet.getSource();
+            Player player = PalaceBungee.getPlayer(uuid);
+
+            PalaceBungee.getAsyncMongoHandler().run(mongo -> {
+                String name;
+                if (player == null) {
+                    name = mongo.uuidToUsername(uuid);
+                } else {
+                    player.setRank(rank);
+                    player.getTags().forEach(player::removeTag);
+                    for (String tag : tags) {
+                        player.addTag(RankTag.fromString(tag));
                     }
-                    case 15: {
-                        handleSendPacket(new SendPlayerPacket(object));
-                        break;
+                    name = player.getUsername();
+                    //TODO discord syncing
+                }
+                List<RankTag> realTags = new ArrayList<>();
+                for (String s : tags) {
+                    realTags.add(RankTag.fromString(s));
+                }
+                try {
+                    PalaceBungee.getModerationUtil().announceRankChange(name, rank, realTags, source);
+                } catch (Exception e) {
+                    PalaceBungee.getInstance().getLogger().log(Level.SEVERE, "Error announcing rank change", e);
+                }
+
+                try {
+                    int member_id = mongo.getForumMemberId(uuid);
+                    if (member_id != -1) {
+                        PalaceBungee.getForumUtil().updatePlayerRank(uuid, member_id, rank, player);
                     }
+                } catch (Exception e) {
+                    PalaceBungee.getInstance().getLogger().log(Level.SEVERE, "Error processing rank change", e);
                 }
-            } catch (Exception e) {
-                handleError(consumerTag, delivery, e);
+            }).exceptionally(t -> {
+                PalaceBungee.getInstance().getLogger().log(Level.SEVERE, "Error processing rank change", t);
+                return null;
+            });
+        });
+        packets.register(PacketID.Global.SOCIAL_SPY, SocialSpyPacket::new, SocialSpyPacket::getSender, packet -> {
+            if (packet.getReceiver() == null) {
+                socialSpy(packet, PalaceBungee.getPartyUtil().getRegistry().getPartyByMember(packet.getSender()));
+            } else {
+                socialSpy(packet, null);
+            }
+        });
+        packets.register(PacketID.Global.PRESENCE, PresencePacket::new, PresencePacket::getProxy, packet -> {
+            if (PalaceBungee.getPresenceUtil() != null) PalaceBungee.getPresenceUtil().handle(packet);
+        });
+        packets.register(PacketID.Global.PRESENCE_SNAPSHOT, PresenceSnapshotPacket::new, PresenceSnapshotPacket::getProxy, packet -> {
+            if (PalaceBungee.getPresenceUtil() != null) PalaceBungee.getPresenceUtil().handle(packet);
+        });
+        packets.register(PacketID.Global.BAN_INDEX, BanIndexPacket::new, packet -> PalaceBungee.getMongoHandler().getBanIndex().handle(packet));
+        packets.register(PacketID.Global.FRIEND_UPDATE, FriendUpdatePacket::new, packet -> {
+            // updates made on this proxy were applied when they were made
+            if (!packet.getProxy().equals(PalaceBungee.getProxyID())) {
+                PalaceBungee.getFriendGraph().handle(packet);
+            }
+        });
+        packets.register(PacketID.Global.PARTY_UPDATE, PartyUpdatePacket::new, packet -> {
+            // updates made on this proxy were applied when they were made
+            if (!packet.getProxy().equals(PalaceBungee.getProxyID())) {
+                PalaceBungee.getPartyUtil().getRegistry().handle(packet);
             }
-        }, doNothing);
+        });
+
+        // Binary formats, accepted from other proxies whatever messaging.binary is set to here
+        packets.registerBinary(PacketID.Global.DM, DMPacket::new);
+        packets.registerBinary(PacketID.Global.MESSAGE, MessagePacket::new);
+        packets.registerBinary(PacketID.Global.COMPONENTMESSAGE, ComponentMessagePacket::new);
+        packets.registerBinary(PacketID.Global.MENTION, MentionPacket::new);
+        packets.registerBinary(PacketID.Global.CHAT, ChatPacket::new);
+        packets.registerBinary(PacketID.Global.SEND_PLAYER, SendPlayerPacket::new);
+        packets.registerBinary(PacketID.Global.SOCIAL_SPY, SocialSpyPacket::new);
+        packets.registerBinary(PacketID.Global.PRESENCE, PresencePacket::new);
+        packets.registerBinary(PacketID.Global.PRESENCE_SNAPSHOT, PresenceSnapshotPacket::new);
+        packets.registerBinary(PacketID.Global.FRIEND_UPDATE, FriendUpdatePacket::new);
+        packets.registerBinary(PacketID.Global.PARTY_UPDATE, PartyUpdatePacket::new);
     }
 
     private void handleSendPacket(SendPlayerPacket packet) {
@@ -585,6 +533,33 @@ public class MessageHandler {
         }
     }
 
+    /**
+     * Show a DM or party chat message to staff members with social spy
+     *
+     * @param packet the social spy packet
+     * @param party  the sender's party if the message was sent in party chat, otherwise null
+     */
+    private void socialSpy(SocialSpyPacket packet, Party party) {
+        boolean park = packet.getChannel().equals("ParkChat");
+        for (Player tp : PalaceBungee.getOnlinePlayers()) {
+            if (tp.getRank().getRankId() < Rank.TRAINEE.getRankId() ||
+                    tp.getUniqueId().equals(packet.getSender()) ||
+                    (party == null && tp.getUniqueId().equals(packet.getReceiver())) ||
+                    (party != null && party.isMember(tp.getUniqueId())) ||
+                    !park && !tp.getServerName().equals(packet.getChannel()) ||
+                    park && !PalaceBungee.getServerUtil().isOnPark(tp))
+                // Skip if:
+                // 1. Player is not Trainee+
+                // 2. Player is the sender
+                // 3. Party is null (meaning it's a DM) and the player is the receiver
+                // 4. Party is not null (meaning it's Party Chat) and the player is in the party
+                // 5. Message was not sent in ParkChat and TP is not on the server
+                // 6. Message was sent in ParkChat and TP is not in ParkChat
+                continue;
+            tp.sendMessage(packet.getMessage());
+        }
+    }
+
     private void handleError(String consumerTag, Delivery delivery, Exception e) {
         PalaceBungee.getProxyServer().getLogger().severe("[MessageHandler] Error processing message: " + e.getClass().getName() + " - " + e.getMessage());
         PalaceBungee.getProxyServer().getLogger().severe("consumerTag: " + consumerTag);
@@ -638,6 +613,16 @@ public class MessageHandler {
     }
 
     public void shutdown() {
+        packets.shutdown();
+        publisher.shutdown();
+        clients.values().forEach(client -> {
+            try {
+                client.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        clients.clear();
         if (ALL_PROXIES != null) {
             try {
                 ALL_PROXIES.close();
@@ -682,13 +667,25 @@ public class MessageHandler {
     }
 
     public void sendMessage(MQPacket packet, MessageClient client, String routingKey) throws IOException {
-        client.basicPublish(packet.toBytes(), routingKey);
+        long ttl = publisher.getOutbox().getTtl(packet.getId());
+        if (binary && packet instanceof BinaryPacket && (client == ALL_PROXIES || client == PROXY_DIRECT)) {
+            client.basicPublish(packet.toBinary(), routingKey, BINARY_PROPS, ttl);
+        } else {
+            client.basicPublish(packet.toBytes(), routingKey, JSON_PROPS, ttl);
+        }
     }
 
     public void sendMessage(MQPacket packet, String exchange, String exchangeType, String routingKey) throws Exception {
-        MessageClient client = new MessageClient(ConnectionType.PUBLISHING, exchange, exchangeType);
-        client.basicPublish(packet.toBytes(), routingKey);
-        client.close();
+        MessageClient client = clients.get(exchange);
+        if (client == null) {
+            client = new MessageClient(ConnectionType.PUBLISHING, exchange, exchangeType);
+            MessageClient existing = clients.putIfAbsent(exchange, client);
+            if (existing != null) {
+                client.close();
+                client = existing;
+            }
+        }
+        client.basicPublish(packet.toBytes(), routingKey, JSON_PROPS, publisher.getOutbox().getTtl(packet.getId()));
     }
 
     public void sendStaffMessage(String message) throws Exception {
@@ -704,7 +701,7 @@ public class MessageHandler {
             return;
         }
         ComponentMessagePacket packet = new ComponentMessagePacket(message, uuid);
-        sendMessage(packet, ALL_PROXIES);
+        sendToPlayer(packet, uuid);
     }
 
     public void sendMessageToPlayer(UUID uuid, String message) throws Exception {
@@ -714,7 +711,46 @@ public class MessageHandler {
             return;
         }
         MessagePacket packet = new MessagePacket(message, uuid);
-        sendMessage(packet, ALL_PROXIES);
+        sendToPlayer(packet, uuid);
+    }
+
+    /**
+     * Send a packet meant for particular players to just the proxies they're on, looked up in the
+     * {@link network.palace.bungee.utils.PresenceUtil}, instead of to every proxy. It's sent to every proxy if the
+     * presence index isn't warm yet or the players are spread across all of them, and not sent at all if none of them
+     * are online.
+     */
+    public void sendToPlayers(MQPacket packet, Collection<UUID> players) throws IOException {
+        Set<UUID> proxies = PalaceBungee.getPresenceUtil().getProxies(players);
+        if (proxies == null) {
+            fannedOut.increment();
+            sendMessage(packet, ALL_PROXIES);
+            return;
+        }
+        if (proxies.isEmpty()) {
+            skipped.increment();
+            return;
+        }
+        routed.increment();
+        for (UUID proxy : proxies) {
+            sendMessage(packet, PROXY_DIRECT, proxy.toString());
+        }
+    }
+
+    public void sendToPlayer(MQPacket packet, UUID uuid) throws IOException {
+        sendToPlayers(packet, Collections.singletonList(uuid));
+    }
+
+    public long getRoutedCount() {
+        return routed.sum();
+    }
+
+    public long getFannedOutCount() {
+        return fannedOut.sum();
+    }
+
+    public long getSkippedCount() {
+        return skipped.sum();
     }
 
     public void sendToProxy(MQPacket packet, UUID targetProxy) throws Exception {
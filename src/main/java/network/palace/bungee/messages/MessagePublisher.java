@@ -0,0 +1,286 @@
+package network.palace.bungee.messages;
+
+import com.rabbitmq.client.*;
+import lombok.Getter;
+import net.md_5.bungee.config.Configuration;
+import network.palace.bungee.PalaceBungee;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Publishes every message this proxy sends, on one channel owned by a single writer thread. RabbitMQ channels must
+ * not be published on from several threads at once, and messages are sent from netty, scheduler, timer and consumer
+ * threads, so callers only add messages to a queue here and the writer thread does the publishing.
+ * <p>
+ * The writer takes whatever has queued up since its last pass, up to {@code messaging.publishBatch} messages, and
+ * publishes it in one go. The channel is in confirm mode, and the broker's confirms are handled as they arrive rather
+ * than waited for. At most {@code messaging.maxUnconfirmed} messages can be waiting for a confirm; once that many are,
+ * the writer stops until some are confirmed, and once {@code messaging.publishQueue} messages are queued behind it,
+ * {@link #publish} fails instead of queueing more.
+ * <p>
+ * While the connection is down, messages are moved to the {@link Outbox} instead of being published, and once the
+ * connection has been recovered everything in the outbox is published, in order, before anything queued since.
+ * Messages the broker rejects, or that were waiting for a confirm when the channel was recovered, go back to the
+ * front of the outbox and are published again, up to three times in all.
+ */
+public class MessagePublisher {
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final Channel channel;
+    @Getter private final Outbox outbox = new Outbox();
+    private final LinkedBlockingDeque<Publish> queue;
+    private final ConcurrentSkipListMap<Long, Publish> unconfirmed = new ConcurrentSkipListMap<>();
+    private final Semaphore window;
+    private final int batchSize;
+    private final Thread writer;
+    private final LongAdder published = new LongAdder(), confirmed = new LongAdder(), rejected = new LongAdder(), failed = new LongAdder();
+    private volatile boolean running = true, connected;
+    // whether the last publish failed, so an outage is logged once rather than for every message
+    private boolean failing = false;
+
+    public MessagePublisher(Connection connection) throws IOException {
+        int queueSize = 10000, maxUnconfirmed = 1000, batchSize = 100;
+        try {
+            Configuration config = PalaceBungee.getConfigUtil().getConfig();
+            queueSize = config.getInt("messaging.publishQueue", queueSize);
+            maxUnconfirmed = config.getInt("messaging.maxUnconfirmed", maxUnconfirmed);
+            batchSize = config.getInt("messaging.publishBatch", batchSize);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading publisher settings from config file, using defaults", e);
+        }
+        this.queue = new LinkedBlockingDeque<>(Math.max(1, queueSize));
+        this.window = new Semaphore(Math.max(1, maxUnconfirmed));
+        this.batchSize = Math.max(1, batchSize);
+
+        connected = connection.isOpen();
+        connection.addShutdownListener(cause -> connected = false);
+        ((Recoverable) connection).addRecoveryListener(new RecoveryListener() {
+            @Override
+            public void handleRecovery(Recoverable recoverable) {
+                connected = true;
+            }
+
+            @Override
+            public void handleRecoveryStarted(Recoverable recoverable) {
+            }
+        });
+
+        channel = connection.createChannel();
+        channel.confirmSelect();
+        channel.addConfirmListener((tag, multiple) -> confirm(tag, multiple, true), (tag, multiple) -> confirm(tag, multiple, false));
+        ((Recoverable) channel).addRecoveryListener(new RecoveryListener() {
+            @Override
+            public void handleRecovery(Recoverable recoverable) {
+                // confirms for messages published before the channel was lost will never arrive
+                retry(take(unconfirmed));
+            }
+
+            @Override
+            public void handleRecoveryStarted(Recoverable recoverable) {
+            }
+        });
+
+        writer = new Thread(this::run, "PalaceBungee Message Publisher");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queue a message to be published
+     *
+     * @param ttl how long the message can wait in the outbox in milliseconds, see {@link Outbox#getTtl(int)}
+     * @throws IOException if the publisher has shut down or too many messages are already queued
+     */
+    public void publish(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body, long ttl) throws IOException {
+        if (!running) throw new IOException("Message publisher has shut down");
+        if (!queue.offer(new Publish(exchange, routingKey, props, body, System.currentTimeMillis() + ttl))) {
+            failed.increment();
+            throw new IOException("Message publish queue is full, dropping message to " + exchange);
+        }
+    }
+
+    private void run() {
+        List<Publish> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty() || (connected && !outbox.isEmpty())) {
+            try {
+                if (!connected) {
+                    Publish publish = queue.poll(1, TimeUnit.SECONDS);
+                    if (publish != null) outbox.add(publish);
+                    continue;
+                }
+                if (!outbox.isEmpty()) {
+                    drainOutbox();
+                    continue;
+                }
+                Publish first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                for (Publish publish : batch) {
+                    if (!connected || !send(publish)) outbox.add(publish);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error publishing messages", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Publish up to a batch of messages from the outbox, stopping at the first one that can't be published
+     */
+    private void drainOutbox() throws InterruptedException {
+        for (int i = 0; i < batchSize && connected; i++) {
+            Publish publish = outbox.peek();
+            if (publish == null) return;
+            if (!send(publish)) {
+                // the connection isn't really back yet, so wait a moment rather than retrying straight away
+                Thread.sleep(1000);
+                return;
+            }
+            outbox.remove(publish);
+        }
+    }
+
+    /**
+     * @return false if the message couldn't be published
+     */
+    private boolean send(Publish publish) throws InterruptedException {
+        window.acquire();
+        long tag = channel.getNextPublishSeqNo();
+        unconfirmed.put(tag, publish);
+        try {
+            channel.basicPublish(publish.exchange, publish.routingKey, publish.props, publish.body);
+            published.increment();
+            failing = false;
+            return true;
+        } catch (Exception e) {
+            if (unconfirmed.remove(tag) != null) window.release();
+            if (!failing) {
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error publishing message to " + publish.exchange +
+                        ", holding messages in the outbox until the connection is back", e);
+            }
+            failing = true;
+            return false;
+        }
+    }
+
+    private void confirm(long tag, boolean multiple, boolean ack) {
+        List<Publish> done;
+        if (multiple) {
+            done = take(unconfirmed.headMap(tag, true));
+        } else {
+            Publish publish = unconfirmed.remove(tag);
+            if (publish == null) return;
+            done = Collections.singletonList(publish);
+        }
+        if (ack) {
+            confirmed.add(done.size());
+        } else {
+            rejected.add(done.size());
+            retry(done);
+        }
+    }
+
+    /**
+     * Remove messages from the unconfirmed map, freeing their places in the window
+     */
+    private List<Publish> take(Map<Long, Publish> map) {
+        List<Publish> list = new ArrayList<>(map.values());
+        map.clear();
+        window.release(list.size());
+        return list;
+    }
+
+    /**
+     * Put messages back at the front of the outbox, in their original order, unless they've been tried too many times
+     */
+    private void retry(List<Publish> list) {
+        List<Publish> again = new ArrayList<>();
+        for (Publish publish : list) {
+            if (++publish.attempts < MAX_ATTEMPTS) {
+                again.add(publish);
+            } else {
+                failed.increment();
+                PalaceBungee.getProxyServer().getLogger().warning("Dropping message to " + publish.exchange + " after " +
+                        publish.attempts + " attempts");
+            }
+        }
+        outbox.addFirst(again);
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getUnconfirmedCount() {
+        return unconfirmed.size();
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getConfirmedCount() {
+        return confirmed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Publish what's still queued and wait briefly for it to be confirmed, called when the proxy shuts down
+     */
+    public void shutdown() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+            if (channel.isOpen() && !channel.waitForConfirms(TimeUnit.SECONDS.toMillis(5))) {
+                PalaceBungee.getProxyServer().getLogger().warning("Some messages were rejected while shutting down");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            PalaceBungee.getProxyServer().getLogger().warning("Timed out waiting for " + unconfirmed.size() + " messages to be confirmed");
+        }
+        outbox.close();
+        try {
+            if (channel.isOpen()) channel.close();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Getter
+    static class Publish {
+        private final String exchange, routingKey;
+        private final AMQP.BasicProperties props;
+        private final byte[] body;
+        private final long expires;
+        private int attempts = 0;
+
+        Publish(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body, long expires) {
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.props = props;
+            this.body = body;
+            this.expires = expires;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expires;
+        }
+    }
+}
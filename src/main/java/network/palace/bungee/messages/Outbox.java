@@ -0,0 +1,316 @@
+package network.palace.bungee.messages;
+
+import com.rabbitmq.client.AMQP;
+import net.md_5.bungee.config.Configuration;
+import network.palace.bungee.PalaceBungee;
+import network.palace.bungee.messages.packets.PacketBuffer;
+import network.palace.bungee.messages.packets.PacketID;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Holds the messages the {@link MessagePublisher} can't publish while the connection to the message queue is down,
+ * so they can be published in order once it's back instead of being lost.
+ * <p>
+ * Each message expires after a time that depends on its packet type, {@code messaging.outbox.ttl.<TYPE>} seconds, so
+ * e.g. chat that's more than a few seconds old is thrown away rather than replayed, while kicks, mutes and staff
+ * messages are kept for a few minutes. At most {@code messaging.outbox.size} messages are held, and the oldest is
+ * dropped to make room for a new one.
+ * <p>
+ * If {@code messaging.outbox.file} is enabled, messages are also written to a memory-mapped file of
+ * {@code messaging.outbox.fileSize} megabytes, so they survive the proxy restarting before the connection is back.
+ * The file holds the messages in the order they were added, between a head and a tail offset kept in its header, and
+ * the head moves forward as messages leave the outbox. Messages added back to the front after a failed publish, and
+ * messages that don't fit in the file, are only held in memory.
+ */
+public class Outbox {
+    private static final int MAGIC = 0x50414F42, HEADER = 12;
+
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private final Map<Integer, Long> ttls = new HashMap<>();
+    private final int capacity;
+    private final long defaultTtl;
+    private final File file = new File("plugins/PalaceBungee", "message-outbox.dat");
+    private MappedByteBuffer buffer = null;
+    private int head = HEADER, tail = HEADER, storedCount = 0;
+    private boolean fileFull = false;
+    private long expired = 0, dropped = 0;
+
+    public Outbox() {
+        int capacity = 5000, fileSize = 16;
+        long defaultTtl = 60;
+        boolean useFile = false;
+        Configuration config = null;
+        try {
+            config = PalaceBungee.getConfigUtil().getConfig();
+            capacity = config.getInt("messaging.outbox.size", capacity);
+            defaultTtl = config.getLong("messaging.outbox.defaultTtl", defaultTtl);
+            useFile = config.getBoolean("messaging.outbox.file", useFile);
+            fileSize = config.getInt("messaging.outbox.fileSize", fileSize);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading outbox settings from config file, using defaults", e);
+        }
+        this.capacity = Math.max(1, capacity);
+        this.defaultTtl = TimeUnit.SECONDS.toMillis(defaultTtl);
+        for (PacketID.Global type : PacketID.Global.values()) {
+            long ttl = getTtlSeconds(type, defaultTtl);
+            if (config != null) ttl = config.getLong("messaging.outbox.ttl." + type.name(), ttl);
+            ttls.put(type.getId(), TimeUnit.SECONDS.toMillis(ttl));
+        }
+        if (useFile) open(fileSize);
+    }
+
+    /**
+     * Chat and other messages a player is waiting on are only worth sending for a few seconds; moderation, staff
+     * messages and updates to shared state are worth sending for a few minutes
+     */
+    private static long getTtlSeconds(PacketID.Global type, long defaultTtl) {
+        switch (type) {
+            case CHAT:
+            case DM:
+            case MESSAGE:
+            case COMPONENTMESSAGE:
+            case MENTION:
+            case MENTIONBYRANK:
+            case SOCIAL_SPY:
+            case CLEARCHAT:
+            case CHAT_ANALYSIS:
+            case CHAT_ANALYSIS_RESPONSE:
+            case SEND_PLAYER:
+            case PLAYER_QUEUE:
+            case FRIEND_JOIN:
+                return 10;
+            case BROADCAST:
+            case BROADCAST_COMPONENT:
+            case MESSAGEBYRANK:
+            case KICK_PLAYER:
+            case KICK_IP:
+            case MUTE_PLAYER:
+            case CHAT_MUTED:
+            case BAN_PROVIDER:
+            case BAN_INDEX:
+            case RANK_CHANGE:
+            case FRIEND_UPDATE:
+            case PARTY_UPDATE:
+            case LOG_STATISTIC:
+                return 300;
+            default:
+                return defaultTtl;
+        }
+    }
+
+    /**
+     * @return how long a packet can wait in the outbox in milliseconds
+     */
+    public long getTtl(int packetId) {
+        return ttls.getOrDefault(packetId, defaultTtl);
+    }
+
+    public long getDefaultTtl() {
+        return defaultTtl;
+    }
+
+    /**
+     * Hold a message at the back of the outbox, dropping it if it's already expired or the oldest message if the
+     * outbox is full
+     */
+    public synchronized void add(MessagePublisher.Publish publish) {
+        if (publish.isExpired()) {
+            expired++;
+            return;
+        }
+        if (entries.size() >= capacity) {
+            remove(entries.peekFirst());
+            dropped++;
+        }
+        entries.addLast(new Entry(publish, store(publish)));
+    }
+
+    /**
+     * Put messages back at the front of the outbox, in their original order, e.g. when they were never confirmed
+     */
+    public synchronized void addFirst(List<MessagePublisher.Publish> list) {
+        for (int i = list.size() - 1; i >= 0; i--) {
+            if (entries.size() >= capacity) {
+                dropped += i + 1;
+                return;
+            }
+            entries.addFirst(new Entry(list.get(i), 0));
+        }
+    }
+
+    /**
+     * Get the oldest message that hasn't expired without removing it, throwing away any expired messages in front of it
+     *
+     * @return the message, or null if the outbox is empty
+     */
+    public synchronized MessagePublisher.Publish peek() {
+        Entry entry;
+        while ((entry = entries.peekFirst()) != null && entry.publish.isExpired()) {
+            remove(entry);
+            expired++;
+        }
+        return entry == null ? null : entry.publish;
+    }
+
+    /**
+     * Remove a message once it's been published
+     */
+    public synchronized void remove(MessagePublisher.Publish publish) {
+        for (Entry entry : entries) {
+            if (entry.publish == publish) {
+                remove(entry);
+                return;
+            }
+        }
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry);
+        if (buffer == null || entry.stored == 0) return;
+        // stored messages always leave in the order they were written, so the head moves past this one
+        head += entry.stored;
+        if (--storedCount == 0) {
+            head = tail = HEADER;
+            fileFull = false;
+        }
+        writeHeader();
+    }
+
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getExpiredCount() {
+        return expired;
+    }
+
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    public synchronized void close() {
+        if (buffer != null) buffer.force();
+    }
+
+    /*
+    File
+     */
+
+    /**
+     * Map the outbox file, loading any messages left in it from the last time the proxy ran
+     */
+    private void open(int sizeMegabytes) {
+        int size = Math.max(1, sizeMegabytes) * 1024 * 1024;
+        file.getParentFile().mkdirs();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error opening message outbox file, only holding messages in memory", e);
+            return;
+        }
+        int magic = buffer.getInt(0), head = buffer.getInt(4), tail = buffer.getInt(8);
+        if (magic != MAGIC || head < HEADER || tail < head || tail > size) {
+            writeHeader();
+            return;
+        }
+        int loaded = 0;
+        try {
+            int position = head;
+            while (position < tail) {
+                int length = buffer.getInt(position);
+                if (length < 0 || length > tail - position - 4) throw new IOException("Corrupt record at " + position);
+                byte[] record = new byte[length];
+                buffer.position(position + 4);
+                buffer.get(record);
+                MessagePublisher.Publish publish = read(new PacketBuffer(record));
+                if (publish.isExpired()) {
+                    expired++;
+                } else {
+                    entries.addLast(new Entry(publish, 0));
+                    loaded++;
+                }
+                position += 4 + length;
+            }
+        } catch (Exception e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error reading message outbox file, some messages from the last run were lost", e);
+        }
+        // the loaded messages are written again from the start, so they're kept if the proxy stops before sending them
+        this.head = this.tail = HEADER;
+        writeHeader();
+        for (Entry entry : new ArrayList<>(entries)) {
+            entry.stored = store(entry.publish);
+        }
+        if (loaded > 0) {
+            PalaceBungee.getProxyServer().getLogger().info("Loaded " + loaded + " messages from the message outbox file");
+        }
+    }
+
+    /**
+     * Append a message to the file
+     *
+     * @return the number of bytes written, or 0 if the message isn't in the file
+     */
+    private int store(MessagePublisher.Publish publish) {
+        if (buffer == null) return 0;
+        byte[] record = write(publish);
+        if (tail + 4 + record.length > buffer.capacity()) {
+            if (!fileFull) {
+                PalaceBungee.getProxyServer().getLogger().warning("Message outbox file is full, holding new messages in memory only");
+            }
+            fileFull = true;
+            return 0;
+        }
+        buffer.putInt(tail, record.length);
+        buffer.position(tail + 4);
+        buffer.put(record);
+        tail += 4 + record.length;
+        storedCount++;
+        writeHeader();
+        return 4 + record.length;
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, head);
+        buffer.putInt(8, tail);
+    }
+
+    private static byte[] write(MessagePublisher.Publish publish) {
+        PacketBuffer out = new PacketBuffer();
+        out.writeLong(publish.getExpires()).writeString(publish.getExchange()).writeString(publish.getRoutingKey())
+                .writeNullableString(publish.getProps().getContentType())
+                .writeNullableString(publish.getProps().getContentEncoding()).writeBytes(publish.getBody());
+        return out.toByteArray();
+    }
+
+    private static MessagePublisher.Publish read(PacketBuffer in) {
+        long expires = in.readLong();
+        String exchange = in.readString(), routingKey = in.readString();
+        AMQP.BasicProperties props = new AMQP.BasicProperties.Builder().contentType(in.readNullableString())
+                .contentEncoding(in.readNullableString()).build();
+        return new MessagePublisher.Publish(exchange, routingKey, props, in.readBytes(), expires);
+    }
+
+    private static class Entry {
+        private final MessagePublisher.Publish publish;
+        // bytes this message takes up in the file, or 0 if it's only held in memory
+        private int stored;
+
+        private Entry(MessagePublisher.Publish publish, int stored) {
+            this.publish = publish;
+            this.stored = stored;
+        }
+    }
+}
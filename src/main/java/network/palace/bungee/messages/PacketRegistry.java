@@ -0,0 +1,269 @@
+package network.palace.bungee.messages;
+
+import com.google.gson.JsonObject;
+import lombok.Getter;
+import net.md_5.bungee.config.Configuration;
+import network.palace.bungee.PalaceBungee;
+import network.palace.bungee.messages.packets.BinaryPacket;
+import network.palace.bungee.messages.packets.MQPacket;
+import network.palace.bungee.messages.packets.PacketBuffer;
+import network.palace.bungee.messages.packets.PacketID;
+import network.palace.bungee.utils.LatencyTracker;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Maps each {@link PacketID.Global} to a decoder and a handler, and runs handlers on a pool of worker threads instead
+ * of the message queue's consumer thread, so one slow handler doesn't hold up every packet behind it.
+ * <p>
+ * Each packet has an ordering key, and packets with the same key are always handled one at a time in the order they
+ * arrived. By default the key is the packet type, so e.g. chat messages and party updates keep their order; types
+ * that only affect one player can be keyed by that player instead, so they run in parallel with each other. Each
+ * worker has a bounded queue, and the consumer thread waits for space when one is full.
+ * <p>
+ * Packets can arrive as JSON or, for types registered with {@link #registerBinary(PacketID.Global, Function)}, in the
+ * binary format, and the average size of each is tracked per type.
+ * <p>
+ * The pool size and queue length come from {@code messaging.workers} and {@code messaging.workerQueue} in the config
+ * file.
+ */
+public class PacketRegistry {
+    private final Map<Integer, Registration<?>> registrations = new HashMap<>();
+    private final List<ThreadPoolExecutor> workers = new ArrayList<>();
+
+    public PacketRegistry() {
+        int threads = 4, queueSize = 1000;
+        try {
+            Configuration config = PalaceBungee.getConfigUtil().getConfig();
+            threads = config.getInt("messaging.workers", threads);
+            queueSize = config.getInt("messaging.workerQueue", queueSize);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading packet worker settings from config file, using defaults", e);
+        }
+        for (int i = 0; i < Math.max(1, threads); i++) {
+            String name = "PalaceBungee Packet Worker #" + (i + 1);
+            workers.add(new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueSize), r -> {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            }, (r, executor) -> {
+                // wait for space rather than dropping the packet or running it out of order
+                try {
+                    if (!executor.isShutdown()) executor.getQueue().put(r);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+    }
+
+    /**
+     * Register a packet type, ordered with every other packet of the same type
+     *
+     * @param type    the packet type
+     * @param decoder turns the packet's JSON into the packet
+     * @param handler handles the packet
+     */
+    public <P extends MQPacket> void register(PacketID.Global type, Function<JsonObject, P> decoder, Handler<P> handler) {
+        register(type, decoder, packet -> type, handler);
+    }
+
+    /**
+     * Register a packet type
+     *
+     * @param type    the packet type
+     * @param decoder turns the packet's JSON into the packet
+     * @param key     the packet's ordering key, e.g. the uuid of the player it's about
+     * @param handler handles the packet
+     */
+    public <P extends MQPacket> void register(PacketID.Global type, Function<JsonObject, P> decoder, Function<P, Object> key, Handler<P> handler) {
+        registrations.put(type.getId(), new Registration<>(type, decoder, key, handler));
+    }
+
+    /**
+     * Let a registered packet type also be received in the binary format, see {@link BinaryPacket}
+     *
+     * @param type    the packet type, which must already be registered
+     * @param decoder reads the packet's fields from the buffer
+     */
+    @SuppressWarnings("unchecked")
+    public <P extends MQPacket & BinaryPacket> void registerBinary(PacketID.Global type, Function<PacketBuffer, P> decoder) {
+        Registration<P> registration = (Registration<P>) registrations.get(type.getId());
+        if (registration == null) throw new IllegalStateException(type + " packets must be registered before their binary format");
+        registration.binaryDecoder = decoder;
+    }
+
+    /**
+     * Decode a packet and queue it for its handler. Packets of types that haven't been registered are ignored.
+     *
+     * @param object the packet's JSON
+     * @param size   the size of the packet in bytes as it was received
+     */
+    public void dispatch(JsonObject object, int size) {
+        Registration<?> registration = registrations.get(object.get("id").getAsInt());
+        if (registration != null) registration.dispatch(object, size, System.nanoTime());
+    }
+
+    /**
+     * Decode a packet in the binary format and queue it for its handler. Packets of types that haven't been
+     * registered are ignored.
+     *
+     * @param bytes the packet
+     */
+    public void dispatch(byte[] bytes) {
+        PacketBuffer buffer = new PacketBuffer(bytes);
+        Registration<?> registration = registrations.get(buffer.readVarInt());
+        if (registration != null) registration.dispatch(buffer, bytes.length, System.nanoTime());
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (ThreadPoolExecutor worker : workers) {
+            depth += worker.getQueue().size();
+        }
+        return depth;
+    }
+
+    /**
+     * @return the statistics for each packet type that has been received at least once
+     */
+    public List<Stats> getStats() {
+        List<Stats> list = new ArrayList<>();
+        for (Registration<?> registration : registrations.values()) {
+            if (registration.stats.getHandled() > 0 || registration.stats.getFailed() > 0) list.add(registration.stats);
+        }
+        list.sort(Comparator.comparingLong(Stats::getHandled).reversed());
+        return list;
+    }
+
+    /**
+     * Wait briefly for queued packets to be handled, called when the proxy shuts down
+     */
+    public void shutdown() {
+        workers.forEach(ThreadPoolExecutor::shutdown);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        try {
+            for (ThreadPoolExecutor worker : workers) {
+                worker.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public interface Handler<P> {
+        void handle(P packet) throws Exception;
+    }
+
+    private class Registration<P extends MQPacket> {
+        private final Function<JsonObject, P> decoder;
+        private final Function<P, Object> key;
+        private final Handler<P> handler;
+        private final Stats stats;
+        private Function<PacketBuffer, P> binaryDecoder = null;
+
+        private Registration(PacketID.Global type, Function<JsonObject, P> decoder, Function<P, Object> key, Handler<P> handler) {
+            this.decoder = decoder;
+            this.key = key;
+            this.handler = handler;
+            this.stats = new Stats(type);
+        }
+
+        private void dispatch(JsonObject object, int size, long received) {
+            P packet;
+            try {
+                packet = decoder.apply(object);
+            } catch (Exception e) {
+                stats.failed.increment();
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error decoding " + stats.type + " packet: " + object, e);
+                return;
+            }
+            stats.jsonBytes.add(size);
+            stats.json.increment();
+            submit(packet, received);
+        }
+
+        private void dispatch(PacketBuffer buffer, int size, long received) {
+            P packet;
+            try {
+                if (binaryDecoder == null) throw new IllegalArgumentException("No binary format registered");
+                packet = binaryDecoder.apply(buffer);
+            } catch (Exception e) {
+                stats.failed.increment();
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error decoding binary " + stats.type + " packet (" + size + " bytes)", e);
+                return;
+            }
+            stats.binaryBytes.add(size);
+            stats.binary.increment();
+            submit(packet, received);
+        }
+
+        private void submit(P packet, long received) {
+            Object k;
+            try {
+                k = key.apply(packet);
+            } catch (Exception e) {
+                stats.failed.increment();
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error decoding " + stats.type + " packet: " + packet.getJSON(), e);
+                return;
+            }
+            workers.get(Math.floorMod(Objects.hashCode(k), workers.size())).execute(() -> {
+                try {
+                    handler.handle(packet);
+                    stats.handled.increment();
+                } catch (Exception e) {
+                    stats.failed.increment();
+                    PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error handling " + stats.type + " packet: " + packet.getJSON(), e);
+                }
+                stats.latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - received));
+            });
+        }
+    }
+
+    /**
+     * How many packets of one type have been handled, and how long they took from arriving to being handled
+     */
+    public static class Stats {
+        @Getter private final PacketID.Global type;
+        private final LongAdder handled = new LongAdder(), failed = new LongAdder();
+        private final LongAdder json = new LongAdder(), jsonBytes = new LongAdder(), binary = new LongAdder(), binaryBytes = new LongAdder();
+        @Getter private final LatencyTracker latency = new LatencyTracker(1000);
+
+        private Stats(PacketID.Global type) {
+            this.type = type;
+        }
+
+        public long getHandled() {
+            return handled.sum();
+        }
+
+        public long getFailed() {
+            return failed.sum();
+        }
+
+        public long getBinaryCount() {
+            return binary.sum();
+        }
+
+        /**
+         * @return the average size in bytes of the packets received as JSON, or 0 if there haven't been any
+         */
+        public long getAverageJsonSize() {
+            long count = json.sum();
+            return count == 0 ? 0 : jsonBytes.sum() / count;
+        }
+
+        /**
+         * @return the average size in bytes of the packets received in the binary format, or 0 if there haven't been any
+         */
+        public long getAverageBinarySize() {
+            long count = binary.sum();
+            return count == 0 ? 0 : binaryBytes.sum() / count;
+        }
+    }
+}
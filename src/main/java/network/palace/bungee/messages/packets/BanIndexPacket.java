@@ -0,0 +1,50 @@
+package network.palace.bungee.messages.packets;
+
+import com.google.gson.JsonObject;
+import lombok.Getter;
+
+/**
+ * Sent when an address or provider is banned or unbanned, so every proxy's ban index stays up to date
+ */
+@Getter
+public class BanIndexPacket extends MQPacket {
+    private final String type;
+    private final String data;
+    private final String reason;
+    private final String source;
+    private final boolean banned;
+
+    public BanIndexPacket(JsonObject object) {
+        super(PacketID.Global.BAN_INDEX.getId(), object);
+        this.type = object.get("type").getAsString();
+        this.data = object.get("data").getAsString();
+        this.reason = object.has("reason") ? object.get("reason").getAsString() : "";
+        this.source = object.has("source") ? object.get("source").getAsString() : "";
+        this.banned = object.get("banned").getAsBoolean();
+    }
+
+    /**
+     * @param type   either "ip" or "provider", matching the type field in the bans collection
+     * @param data   the address, address range or provider name
+     * @param banned true if it was banned, false if it was unbanned
+     */
+    public BanIndexPacket(String type, String data, String reason, String source, boolean banned) {
+        super(PacketID.Global.BAN_INDEX.getId(), null);
+        this.type = type;
+        this.data = data;
+        this.reason = reason;
+        this.source = source;
+        this.banned = banned;
+    }
+
+    @Override
+    public JsonObject getJSON() {
+        JsonObject object = getBaseJSON();
+        object.addProperty("type", type);
+        object.addProperty("data", data);
+        if (reason != null) object.addProperty("reason", reason);
+        if (source != null) object.addProperty("source", source);
+        object.addProperty("banned", banned);
+        return object;
+    }
+}
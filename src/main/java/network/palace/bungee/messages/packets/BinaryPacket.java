@@ -0,0 +1,14 @@
+package network.palace.bungee.messages.packets;
+
+/**
+ * A packet that can also be sent in the compact binary format, which is used instead of JSON between proxies when
+ * {@code messaging.binary} is enabled. The game servers only read JSON, so packets sent to them always use it.
+ * <p>
+ * A binary packet is the packet id as a varint followed by the fields written by {@link #write(PacketBuffer)}, and is
+ * published with the {@link network.palace.bungee.messages.MessageHandler#BINARY_CONTENT_TYPE} content type. Each
+ * packet reads its fields back in the same order from a constructor taking a {@link PacketBuffer}.
+ */
+public interface BinaryPacket {
+
+    void write(PacketBuffer buffer);
+}
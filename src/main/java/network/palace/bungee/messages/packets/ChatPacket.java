@@ -8,7 +8,7 @@ import network.palace.bungee.handlers.Rank;
 
 import java.util.UUID;
 
-public class ChatPacket extends MQPacket {
+public class ChatPacket extends MQPacket implements BinaryPacket {
     @Getter private final UUID sender;
     @Getter private final Rank rank;
     @Getter private final String serializedMessage;
@@ -23,6 +23,14 @@ public class ChatPacket extends MQPacket {
         this.channel = object.get("channel").getAsString();
     }
 
+    public ChatPacket(PacketBuffer buffer) {
+        super(PacketID.Global.CHAT.getId(), null);
+        this.sender = buffer.readUUID();
+        this.rank = Rank.fromString(buffer.readString());
+        this.serializedMessage = buffer.readString();
+        this.channel = buffer.readString();
+    }
+
     public ChatPacket(UUID sender, Rank rank, BaseComponent[] message, String channel) {
         super(PacketID.Global.CHAT.getId(), null);
         this.sender = sender;
@@ -44,4 +52,9 @@ public class ChatPacket extends MQPacket {
         object.addProperty("channel", channel);
         return object;
     }
+
+    @Override
+    public void write(PacketBuffer buffer) {
+        buffer.writeUUID(sender).writeString(rank.getDBName()).writeString(serializedMessage).writeString(channel);
+    }
 }
@@ -10,7 +10,7 @@ import net.md_5.bungee.chat.ComponentSerializer;
 
 import java.util.*;
 
-public class ComponentMessagePacket extends MQPacket {
+public class ComponentMessagePacket extends MQPacket implements BinaryPacket {
     @Getter private final String serializedMessage;
     @Getter private final List<UUID> players;
 
@@ -28,6 +28,12 @@ public class ComponentMessagePacket extends MQPacket {
         }
     }
 
+    public ComponentMessagePacket(PacketBuffer buffer) {
+        super(PacketID.Global.COMPONENTMESSAGE.getId(), null);
+        this.serializedMessage = buffer.readString();
+        this.players = buffer.readBoolean() ? buffer.readUUIDList() : null;
+    }
+
     public ComponentMessagePacket(BaseComponent[] components, UUID uuid) {
         super(PacketID.Global.COMPONENTMESSAGE.getId(), null);
         this.serializedMessage = ComponentSerializer.toString(components);
@@ -54,4 +60,10 @@ public class ComponentMessagePacket extends MQPacket {
         }
         return object;
     }
+
+    @Override
+    public void write(PacketBuffer buffer) {
+        buffer.writeString(serializedMessage).writeBoolean(players != null);
+        if (players != null) buffer.writeUUIDList(players);
+    }
 }
\ No newline at end of file
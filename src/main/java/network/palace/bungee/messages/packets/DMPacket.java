@@ -7,7 +7,7 @@ import network.palace.bungee.handlers.Rank;
 import java.util.UUID;
 
 @Getter
-public class DMPacket extends MQPacket {
+public class DMPacket extends MQPacket implements BinaryPacket {
     private final String from, to, message, channel, command;
     private final UUID fromUUID, toUUID;
     private final boolean initialSend;
@@ -35,6 +35,21 @@ public class DMPacket extends MQPacket {
         this.rank = Rank.fromString(object.get("rank").getAsString());
     }
 
+    public DMPacket(PacketBuffer buffer) {
+        super(PacketID.Global.DM.getId(), null);
+        this.from = buffer.readString();
+        this.to = buffer.readString();
+        this.fromUUID = buffer.readNullableUUID();
+        this.toUUID = buffer.readNullableUUID();
+        this.message = buffer.readString();
+        String channel = buffer.readNullableString(), command = buffer.readNullableString();
+        this.channel = channel == null ? "ParkChat" : channel;
+        this.command = command == null ? "msg" : command;
+        this.sendingProxy = buffer.readUUID();
+        this.initialSend = buffer.readBoolean();
+        this.rank = Rank.fromString(buffer.readString());
+    }
+
     public DMPacket(String from, String to, String message, String channel, String command, UUID fromUUID, UUID toUUID, UUID sendingProxy, boolean initialSend, Rank rank) {
         super(PacketID.Global.DM.getId(), null);
         this.from = from;
@@ -62,4 +77,11 @@ public class DMPacket extends MQPacket {
         object.addProperty("rank", rank.getDBName());
         return object;
     }
+
+    @Override
+    public void write(PacketBuffer buffer) {
+        buffer.writeString(from).writeString(to).writeNullableUUID(fromUUID).writeNullableUUID(toUUID).writeString(message)
+                .writeNullableString(channel).writeNullableString(command).writeUUID(sendingProxy)
+                .writeBoolean(initialSend).writeString(rank.getDBName());
+    }
 }
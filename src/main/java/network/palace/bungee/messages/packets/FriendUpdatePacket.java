@@ -0,0 +1,74 @@
+package network.palace.bungee.messages.packets;
+
+import com.google.gson.JsonObject;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Sent by a proxy when a friend request is sent, accepted or denied, or a friend is removed, so every proxy can
+ * update the friend lists it holds for its online players
+ */
+@Getter
+public class FriendUpdatePacket extends MQPacket implements BinaryPacket {
+    private final Action action;
+    private final UUID proxy;
+    private final UUID sender, receiver;
+    private final String senderName, receiverName;
+
+    public FriendUpdatePacket(JsonObject object) {
+        super(PacketID.Global.FRIEND_UPDATE.getId(), object);
+        this.action = Action.valueOf(object.get("action").getAsString());
+        this.proxy = UUID.fromString(object.get("proxy").getAsString());
+        this.sender = UUID.fromString(object.get("sender").getAsString());
+        this.receiver = UUID.fromString(object.get("receiver").getAsString());
+        this.senderName = object.get("senderName").getAsString();
+        this.receiverName = object.get("receiverName").getAsString();
+    }
+
+    public FriendUpdatePacket(PacketBuffer buffer) {
+        super(PacketID.Global.FRIEND_UPDATE.getId(), null);
+        this.action = buffer.readEnum(Action.class);
+        this.proxy = buffer.readUUID();
+        this.sender = buffer.readUUID();
+        this.receiver = buffer.readUUID();
+        this.senderName = buffer.readString();
+        this.receiverName = buffer.readString();
+    }
+
+    /**
+     * @param sender   the player who sent the friend request, or who removed the friend
+     * @param receiver the player who received the friend request, or who was removed
+     */
+    public FriendUpdatePacket(Action action, UUID proxy, UUID sender, String senderName, UUID receiver, String receiverName) {
+        super(PacketID.Global.FRIEND_UPDATE.getId(), null);
+        this.action = action;
+        this.proxy = proxy;
+        this.sender = sender;
+        this.senderName = senderName;
+        this.receiver = receiver;
+        this.receiverName = receiverName;
+    }
+
+    @Override
+    public JsonObject getJSON() {
+        JsonObject object = getBaseJSON();
+        object.addProperty("action", action.name());
+        object.addProperty("proxy", proxy.toString());
+        object.addProperty("sender", sender.toString());
+        object.addProperty("receiver", receiver.toString());
+        object.addProperty("senderName", senderName);
+        object.addProperty("receiverName", receiverName);
+        return object;
+    }
+
+    @Override
+    public void write(PacketBuffer buffer) {
+        buffer.writeEnum(action).writeUUID(proxy).writeUUID(sender).writeUUID(receiver).writeString(senderName)
+                .writeString(receiverName);
+    }
+
+    public enum Action {
+        REQUEST, ACCEPT, DENY, REMOVE
+    }
+}
@@ -39,4 +39,16 @@ public abstract class MQPacket {
             return new byte[0];
         }
     }
+
+    /**
+     * @return the packet in the binary format, see {@link BinaryPacket}
+     */
+    public byte[] toBinary() {
+        if (!(this instanceof BinaryPacket))
+            throw new UnsupportedOperationException(getClass().getName() + " has no binary format");
+        PacketBuffer buffer = new PacketBuffer();
+        buffer.writeVarInt(id);
+        ((BinaryPacket) this).write(buffer);
+        return buffer.toByteArray();
+    }
 }
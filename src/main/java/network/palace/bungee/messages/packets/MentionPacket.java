@@ -10,7 +10,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
-public class MentionPacket extends MQPacket {
+public class MentionPacket extends MQPacket implements BinaryPacket {
     @Getter private final List<UUID> players;
 
     public MentionPacket(JsonObject object) {
@@ -26,6 +26,11 @@ public class MentionPacket extends MQPacket {
         }
     }
 
+    public MentionPacket(PacketBuffer buffer) {
+        super(PacketID.Global.MENTION.getId(), null);
+        this.players = buffer.readUUIDList();
+    }
+
     public MentionPacket(List<UUID> players) {
         super(PacketID.Global.MENTION.getId(), null);
         this.players = players;
@@ -47,4 +52,9 @@ public class MentionPacket extends MQPacket {
 
         return object;
     }
+
+    @Override
+    public void write(PacketBuffer buffer) {
+        buffer.writeUUIDList(players);
+    }
 }
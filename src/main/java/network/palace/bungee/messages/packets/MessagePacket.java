@@ -10,7 +10,7 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
-public class MessagePacket extends MQPacket {
+public class MessagePacket extends MQPacket implements BinaryPacket {
     @Getter private final String message;
     @Getter private final List<UUID> players;
 
@@ -24,6 +24,12 @@ public class MessagePacket extends MQPacket {
         }
     }
 
+    public MessagePacket(PacketBuffer buffer) {
+        super(PacketID.Global.MESSAGE.getId(), null);
+        this.message = buffer.readString();
+        this.players = buffer.readUUIDList();
+    }
+
     public MessagePacket(String message, List<UUID> players) {
         super(PacketID.Global.MESSAGE.getId(), null);
         this.message = message;
@@ -47,4 +53,9 @@ public class MessagePacket extends MQPacket {
 
         return object;
     }
+
+    @Override
+    public void write(PacketBuffer buffer) {
+        buffer.writeString(message).writeUUIDList(players);
+    }
 }
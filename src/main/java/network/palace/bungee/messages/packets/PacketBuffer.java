@@ -0,0 +1,197 @@
+package network.palace.bungee.messages.packets;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads and writes the fields of a packet in the binary format used between proxies, see {@link BinaryPacket}.
+ * <p>
+ * Ints and enums are written as varints (seven bits per byte, low bits first), UUIDs as two longs, and strings as
+ * a varint length followed by their UTF-8 bytes. Fields that may be null are preceded by a boolean.
+ */
+public class PacketBuffer {
+    private byte[] bytes;
+    private int position = 0;
+    private final int limit;
+
+    /**
+     * Create an empty buffer to write a packet into
+     */
+    public PacketBuffer() {
+        this.bytes = new byte[64];
+        this.limit = -1;
+    }
+
+    /**
+     * Create a buffer to read a packet from
+     */
+    public PacketBuffer(byte[] bytes) {
+        this.bytes = bytes;
+        this.limit = bytes.length;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, position);
+    }
+
+    /*
+    Writing
+     */
+
+    public PacketBuffer writeBoolean(boolean value) {
+        ensure(1);
+        bytes[position++] = (byte) (value ? 1 : 0);
+        return this;
+    }
+
+    public PacketBuffer writeVarInt(int value) {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+        return this;
+    }
+
+    public PacketBuffer writeLong(long value) {
+        ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            bytes[position++] = (byte) (value >>> shift);
+        }
+        return this;
+    }
+
+    public PacketBuffer writeUUID(UUID uuid) {
+        return writeLong(uuid.getMostSignificantBits()).writeLong(uuid.getLeastSignificantBits());
+    }
+
+    public PacketBuffer writeString(String value) {
+        return writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public PacketBuffer writeBytes(byte[] value) {
+        writeVarInt(value.length);
+        ensure(value.length);
+        System.arraycopy(value, 0, bytes, position, value.length);
+        position += value.length;
+        return this;
+    }
+
+    /**
+     * Write an enum by its ordinal. Only for enums that are part of a packet's own format, e.g. its action; ranks and
+     * tags are written by their database name, so proxies running different versions still agree on them.
+     */
+    public PacketBuffer writeEnum(Enum<?> value) {
+        return writeVarInt(value.ordinal());
+    }
+
+    public PacketBuffer writeNullableUUID(UUID uuid) {
+        writeBoolean(uuid != null);
+        return uuid == null ? this : writeUUID(uuid);
+    }
+
+    public PacketBuffer writeNullableString(String value) {
+        writeBoolean(value != null);
+        return value == null ? this : writeString(value);
+    }
+
+    public PacketBuffer writeUUIDList(List<UUID> list) {
+        writeVarInt(list.size());
+        list.forEach(this::writeUUID);
+        return this;
+    }
+
+    private void ensure(int length) {
+        if (position + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + length));
+        }
+    }
+
+    /*
+    Reading
+     */
+
+    public boolean readBoolean() {
+        check(1);
+        return bytes[position++] != 0;
+    }
+
+    public int readVarInt() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            check(1);
+            byte b = bytes[position++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("VarInt is too long");
+    }
+
+    public long readLong() {
+        check(8);
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[position++] & 0xFF);
+        }
+        return value;
+    }
+
+    public UUID readUUID() {
+        return new UUID(readLong(), readLong());
+    }
+
+    public String readString() {
+        int length = readVarInt();
+        if (length < 0) throw new IllegalArgumentException("Negative string length " + length);
+        check(length);
+        String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    public byte[] readBytes() {
+        int length = readVarInt();
+        if (length < 0) throw new IllegalArgumentException("Negative length " + length);
+        check(length);
+        byte[] value = Arrays.copyOfRange(bytes, position, position + length);
+        position += length;
+        return value;
+    }
+
+    public <E extends Enum<E>> E readEnum(Class<E> type) {
+        E[] values = type.getEnumConstants();
+        int ordinal = readVarInt();
+        if (ordinal < 0 || ordinal >= values.length)
+            throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " " + ordinal);
+        return values[ordinal];
+    }
+
+    public UUID readNullableUUID() {
+        return readBoolean() ? readUUID() : null;
+    }
+
+    public String readNullableString() {
+        return readBoolean() ? readString() : null;
+    }
+
+    public List<UUID> readUUIDList() {
+        int size = readVarInt();
+        // every UUID takes 16 bytes, so a larger count can only come from a corrupt packet
+        if (size < 0 || size > (limit - position) / 16)
+            throw new IllegalArgumentException("Invalid list length " + size);
+        List<UUID> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readUUID());
+        }
+        return list;
+    }
+
+    private void check(int length) {
+        if (limit < 0) throw new IllegalStateException("Buffer is being written, not read");
+        if (length > limit - position) throw new IllegalArgumentException("Packet is truncated");
+    }
+}
@@ -0,0 +1,78 @@
+package network.palace.bungee.messages.packets;
+
+import com.google.gson.JsonObject;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Sent by a proxy when a party is created or closed, or a player is invited to, joins, leaves or is promoted in a
+ * party, so every proxy can keep its party registry up to date
+ */
+@Getter
+public class PartyUpdatePacket extends MQPacket implements BinaryPacket {
+    private final Action action;
+    private final UUID proxy;
+    private final String partyId;
+    private final UUID uuid;
+    private final String username;
+    private final long expires;
+
+    public PartyUpdatePacket(JsonObject object) {
+        super(PacketID.Global.PARTY_UPDATE.getId(), object);
+        this.action = Action.valueOf(object.get("action").getAsString());
+        this.proxy = UUID.fromString(object.get("proxy").getAsString());
+        this.partyId = object.get("partyId").getAsString();
+        this.uuid = object.has("uuid") ? UUID.fromString(object.get("uuid").getAsString()) : null;
+        this.username = object.has("username") ? object.get("username").getAsString() : null;
+        this.expires = object.has("expires") ? object.get("expires").getAsLong() : 0;
+    }
+
+    public PartyUpdatePacket(PacketBuffer buffer) {
+        super(PacketID.Global.PARTY_UPDATE.getId(), null);
+        this.action = buffer.readEnum(Action.class);
+        this.proxy = buffer.readUUID();
+        this.partyId = buffer.readString();
+        this.uuid = buffer.readNullableUUID();
+        this.username = buffer.readNullableString();
+        this.expires = buffer.readLong();
+    }
+
+    /**
+     * @param uuid     the player the update is about: the leader for CREATE and PROMOTE, otherwise the member or
+     *                 invited player, and null for CLOSE
+     * @param username the username of that player, or null
+     * @param expires  when the invite expires for INVITE, otherwise 0
+     */
+    public PartyUpdatePacket(Action action, UUID proxy, String partyId, UUID uuid, String username, long expires) {
+        super(PacketID.Global.PARTY_UPDATE.getId(), null);
+        this.action = action;
+        this.proxy = proxy;
+        this.partyId = partyId;
+        this.uuid = uuid;
+        this.username = username;
+        this.expires = expires;
+    }
+
+    @Override
+    public JsonObject getJSON() {
+        JsonObject object = getBaseJSON();
+        object.addProperty("action", action.name());
+        object.addProperty("proxy", proxy.toString());
+        object.addProperty("partyId", partyId);
+        if (uuid != null) object.addProperty("uuid", uuid.toString());
+        if (username != null) object.addProperty("username", username);
+        if (expires != 0) object.addProperty("expires", expires);
+        return object;
+    }
+
+    @Override
+    public void write(PacketBuffer buffer) {
+        buffer.writeEnum(action).writeUUID(proxy).writeString(partyId).writeNullableUUID(uuid).writeNullableString(username)
+                .writeLong(expires);
+    }
+
+    public enum Action {
+        CREATE, INVITE, JOIN, LEAVE, PROMOTE, CLOSE
+    }
+}
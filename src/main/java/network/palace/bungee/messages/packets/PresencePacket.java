@@ -0,0 +1,65 @@
+package network.palace.bungee.messages.packets;
+
+import com.google.gson.JsonObject;
+import lombok.Getter;
+import network.palace.bungee.handlers.PlayerPresence;
+
+import java.util.UUID;
+
+/**
+ * Sent by a proxy when one of its players joins, switches server or leaves
+ */
+@Getter
+public class PresencePacket extends MQPacket implements BinaryPacket {
+    private final Action action;
+    private final UUID proxy;
+    private final UUID uuid;
+    private final PlayerPresence presence;
+
+    public PresencePacket(JsonObject object) {
+        super(PacketID.Global.PRESENCE.getId(), object);
+        this.action = Action.valueOf(object.get("action").getAsString());
+        this.proxy = UUID.fromString(object.get("proxy").getAsString());
+        this.uuid = UUID.fromString(object.get("uuid").getAsString());
+        this.presence = object.has("presence") ? PlayerPresence.fromJSON(object.getAsJsonObject("presence"), proxy) : null;
+    }
+
+    public PresencePacket(PacketBuffer buffer) {
+        super(PacketID.Global.PRESENCE.getId(), null);
+        this.action = buffer.readEnum(Action.class);
+        this.proxy = buffer.readUUID();
+        this.uuid = buffer.readUUID();
+        this.presence = buffer.readBoolean() ? PlayerPresence.read(buffer, proxy) : null;
+    }
+
+    /**
+     * @param presence the player's presence, or null when the player is leaving
+     */
+    public PresencePacket(Action action, UUID proxy, UUID uuid, PlayerPresence presence) {
+        super(PacketID.Global.PRESENCE.getId(), null);
+        this.action = action;
+        this.proxy = proxy;
+        this.uuid = uuid;
+        this.presence = presence;
+    }
+
+    @Override
+    public JsonObject getJSON() {
+        JsonObject object = getBaseJSON();
+        object.addProperty("action", action.name());
+        object.addProperty("proxy", proxy.toString());
+        object.addProperty("uuid", uuid.toString());
+        if (presence != null) object.add("presence", presence.toJSON());
+        return object;
+    }
+
+    @Override
+    public void write(PacketBuffer buffer) {
+        buffer.writeEnum(action).writeUUID(proxy).writeUUID(uuid).writeBoolean(presence != null);
+        if (presence != null) presence.write(buffer);
+    }
+
+    public enum Action {
+        JOIN, SWITCH, LEAVE
+    }
+}
@@ -0,0 +1,62 @@
+package network.palace.bungee.messages.packets;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import lombok.Getter;
+import network.palace.bungee.handlers.PlayerPresence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Sent periodically by each proxy with every player connected to it, so other proxies can correct
+ * anything they missed and notice when a proxy goes away
+ */
+@Getter
+public class PresenceSnapshotPacket extends MQPacket implements BinaryPacket {
+    private final UUID proxy;
+    private final List<PlayerPresence> players;
+
+    public PresenceSnapshotPacket(JsonObject object) {
+        super(PacketID.Global.PRESENCE_SNAPSHOT.getId(), object);
+        this.proxy = UUID.fromString(object.get("proxy").getAsString());
+        this.players = new ArrayList<>();
+        for (JsonElement e : object.get("players").getAsJsonArray()) {
+            players.add(PlayerPresence.fromJSON(e.getAsJsonObject(), proxy));
+        }
+    }
+
+    public PresenceSnapshotPacket(PacketBuffer buffer) {
+        super(PacketID.Global.PRESENCE_SNAPSHOT.getId(), null);
+        this.proxy = buffer.readUUID();
+        int size = buffer.readVarInt();
+        this.players = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            players.add(PlayerPresence.read(buffer, proxy));
+        }
+    }
+
+    public PresenceSnapshotPacket(UUID proxy, List<PlayerPresence> players) {
+        super(PacketID.Global.PRESENCE_SNAPSHOT.getId(), null);
+        this.proxy = proxy;
+        this.players = players;
+    }
+
+    @Override
+    public JsonObject getJSON() {
+        JsonObject object = getBaseJSON();
+        object.addProperty("proxy", proxy.toString());
+        JsonArray players = new JsonArray();
+        this.players.forEach(p -> players.add(p.toJSON()));
+        object.add("players", players);
+        return object;
+    }
+
+    @Override
+    public void write(PacketBuffer buffer) {
+        buffer.writeUUID(proxy).writeVarInt(players.size());
+        players.forEach(p -> p.write(buffer));
+    }
+}
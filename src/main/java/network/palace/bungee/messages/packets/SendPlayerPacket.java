@@ -3,7 +3,7 @@ package network.palace.bungee.messages.packets;
 import com.google.gson.JsonObject;
 import lombok.Getter;
 
-public class SendPlayerPacket extends MQPacket {
+public class SendPlayerPacket extends MQPacket implements BinaryPacket {
     // Players can be targeded by username, UUID, 'Server:Hub1', or 'all'
     @Getter private final String targetPlayer, targetServer;
 
@@ -13,6 +13,12 @@ public class SendPlayerPacket extends MQPacket {
         this.targetServer = object.get("targetServer").getAsString();
     }
 
+    public SendPlayerPacket(PacketBuffer buffer) {
+        super(PacketID.Global.SEND_PLAYER.getId(), null);
+        this.targetPlayer = buffer.readString();
+        this.targetServer = buffer.readString();
+    }
+
     public SendPlayerPacket(String targetPlayer, String targetServer) {
         super(PacketID.Global.SEND_PLAYER.getId(), null);
         this.targetPlayer = targetPlayer;
@@ -26,4 +32,9 @@ public class SendPlayerPacket extends MQPacket {
         object.addProperty("targetServer", targetServer);
         return object;
     }
+
+    @Override
+    public void write(PacketBuffer buffer) {
+        buffer.writeString(targetPlayer).writeString(targetServer);
+    }
 }
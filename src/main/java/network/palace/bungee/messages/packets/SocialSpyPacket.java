@@ -5,7 +5,7 @@ import lombok.Getter;
 
 import java.util.UUID;
 
-public class SocialSpyPacket extends MQPacket {
+public class SocialSpyPacket extends MQPacket implements BinaryPacket {
     @Getter private final UUID sender, receiver;
     @Getter private final String message, channel;
 
@@ -18,6 +18,14 @@ public class SocialSpyPacket extends MQPacket {
         else this.receiver = null;
     }
 
+    public SocialSpyPacket(PacketBuffer buffer) {
+        super(PacketID.Global.SOCIAL_SPY.getId(), null);
+        this.sender = buffer.readUUID();
+        this.receiver = buffer.readNullableUUID();
+        this.message = buffer.readString();
+        this.channel = buffer.readString();
+    }
+
     public SocialSpyPacket(UUID sender, UUID receiver, String message, String channel) {
         super(PacketID.Global.SOCIAL_SPY.getId(), null);
         this.sender = sender;
@@ -35,4 +43,9 @@ public class SocialSpyPacket extends MQPacket {
         object.addProperty("channel", channel);
         return object;
     }
+
+    @Override
+    public void write(PacketBuffer buffer) {
+        buffer.writeUUID(sender).writeNullableUUID(receiver).writeString(message).writeString(channel);
+    }
 }
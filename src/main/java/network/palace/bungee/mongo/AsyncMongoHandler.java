@@ -0,0 +1,188 @@
+package network.palace.bungee.mongo;
+
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.config.Configuration;
+import network.palace.bungee.PalaceBungee;
+import network.palace.bungee.handlers.Party;
+import network.palace.bungee.handlers.Player;
+import network.palace.bungee.handlers.Rank;
+import network.palace.bungee.handlers.moderation.Mute;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+
+/**
+ * An asynchronous companion to {@link MongoHandler}. Queries are run on a bounded pool of database threads and their
+ * results are returned as {@link CompletableFuture}s, so command executors, event handlers and the message consumer
+ * never wait on a database round trip themselves.
+ * <p>
+ * When the queue is full, new queries aren't queued; the returned future is completed exceptionally with a
+ * {@link RejectedExecutionException} instead.
+ */
+public class AsyncMongoHandler {
+    private final MongoHandler mongoHandler;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong rejected = new AtomicLong(0);
+
+    public AsyncMongoHandler(MongoHandler mongoHandler) {
+        this.mongoHandler = mongoHandler;
+        int threads = 8, queueSize = 512;
+        try {
+            Configuration config = PalaceBungee.getConfigUtil().getConfig();
+            threads = config.getInt("mongodb.asyncThreads", threads);
+            queueSize = config.getInt("mongodb.asyncQueueSize", queueSize);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading async database settings from config file, using defaults", e);
+        }
+        AtomicInteger threadId = new AtomicInteger(1);
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+            Thread t = new Thread(r, "PalaceBungee Mongo #" + threadId.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Run a query against the database asynchronously
+     *
+     * @param query the query
+     * @param <T>   the type of the result
+     * @return a future completed with the result of the query, or exceptionally if the query failed or was rejected
+     */
+    public <T> CompletableFuture<T> supply(MongoQuery<T> query) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(query.apply(mongoHandler));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Run a task against the database asynchronously
+     *
+     * @param task the task
+     * @return a future completed once the task has finished, or exceptionally if it failed or was rejected
+     */
+    public CompletableFuture<Void> run(MongoTask task) {
+        return supply(mongo -> {
+            task.run(mongo);
+            return null;
+        });
+    }
+
+    /**
+     * Run a task against the database asynchronously on behalf of a player. If the task fails or is rejected,
+     * the error is logged and the player is told something went wrong.
+     *
+     * @param player the player the task is being run for
+     * @param task   the task
+     * @return a future completed once the task has finished
+     */
+    public CompletableFuture<Void> run(Player player, MongoTask task) {
+        return run(task).whenComplete((v, t) -> {
+            if (t == null) return;
+            Throwable cause = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+            if (cause instanceof RejectedExecutionException) {
+                player.sendMessage(ChatColor.RED + "The server is busy right now, please try again in a moment!");
+            } else {
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error running database task for " + player.getUsername(), cause);
+                player.sendMessage(ChatColor.RED + "An error occurred, please try again later.");
+            }
+        });
+    }
+
+    public CompletableFuture<UUID> usernameToUUID(String username) {
+        return supply(mongo -> mongo.usernameToUUID(username));
+    }
+
+    public CompletableFuture<String> uuidToUsername(UUID uuid) {
+        return supply(mongo -> mongo.uuidToUsername(uuid));
+    }
+
+    public CompletableFuture<UUID> findPlayer(String username) {
+        return supply(mongo -> mongo.findPlayer(username));
+    }
+
+    public CompletableFuture<String> getPlayerServer(String username) {
+        return supply(mongo -> mongo.getPlayerServer(username));
+    }
+
+    public CompletableFuture<Boolean> isPlayerOnline(UUID uuid) {
+        return supply(mongo -> mongo.isPlayerOnline(uuid));
+    }
+
+    public CompletableFuture<Integer> getOnlineCount() {
+        return supply(MongoHandler::getOnlineCount);
+    }
+
+    public CompletableFuture<HashMap<UUID, Integer>> getProxyCounts() {
+        return supply(MongoHandler::getProxyCounts);
+    }
+
+    public CompletableFuture<TreeMap<Rank, Set<String>>> getRankList(Predicate<? super Rank> rankPredicate) {
+        return supply(mongo -> mongo.getRankList(rankPredicate));
+    }
+
+    public CompletableFuture<HashMap<UUID, String>> getFriendList(UUID uuid) {
+        return supply(mongo -> mongo.getFriendList(uuid));
+    }
+
+    public CompletableFuture<HashMap<UUID, String>> getFriendRequestList(UUID uuid) {
+        return supply(mongo -> mongo.getFriendRequestList(uuid));
+    }
+
+    public CompletableFuture<Party> getPartyByMember(UUID member) {
+        return supply(mongo -> mongo.getPartyByMember(member));
+    }
+
+    public CompletableFuture<Mute> getCurrentMute(UUID uuid) {
+        return supply(mongo -> mongo.getCurrentMute(uuid));
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    @FunctionalInterface
+    public interface MongoQuery<T> {
+        T apply(MongoHandler mongo) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface MongoTask {
+        void run(MongoHandler mongo) throws Exception;
+    }
+}
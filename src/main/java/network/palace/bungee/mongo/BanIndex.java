@@ -0,0 +1,221 @@
+package network.palace.bungee.mongo;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.mongodb.client.MongoCollection;
+import net.md_5.bungee.config.Configuration;
+import network.palace.bungee.PalaceBungee;
+import network.palace.bungee.handlers.moderation.AddressBan;
+import network.palace.bungee.handlers.moderation.ProviderBan;
+import network.palace.bungee.messages.packets.BanIndexPacket;
+import network.palace.bungee.utils.IPTrie;
+import org.bson.Document;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * An in-memory copy of the address and provider bans in the {@code bans} collection, so checking a clean login
+ * doesn't need to query the database. A bloom filter in front of the maps answers most lookups for addresses and
+ * providers that were never banned without touching the maps at all.
+ * <p>
+ * The index is replaced by a full reload every {@code bans.reloadInterval} seconds. Between reloads, bans and unbans
+ * made on any proxy are applied as soon as their {@link BanIndexPacket} arrives. Changes that arrive while a reload
+ * is reading the collection are recorded and applied again on top of what it read, so the reload can't undo them, and
+ * changes that arrive before the first load are held until it finishes. Until then, {@link MongoHandler} keeps
+ * querying the database.
+ */
+public class BanIndex {
+    private final MongoCollection<Document> bansCollection;
+    private volatile Snapshot snapshot = null;
+    // changes applied since the current reload started reading, or since startup if the first load hasn't finished
+    private final List<BanIndexPacket> pending = new ArrayList<>();
+    private boolean reloading = false;
+
+    public BanIndex(MongoCollection<Document> bansCollection) {
+        this.bansCollection = bansCollection;
+        int reloadInterval = 300;
+        try {
+            Configuration config = PalaceBungee.getConfigUtil().getConfig();
+            reloadInterval = config.getInt("bans.reloadInterval", reloadInterval);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading ban index settings from config file, using defaults", e);
+        }
+        PalaceBungee.getProxyServer().getScheduler().schedule(PalaceBungee.getInstance(), () -> {
+            try {
+                reload();
+            } catch (Exception e) {
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error reloading ban index", e);
+            }
+        }, 0, reloadInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Replace the index with every address and provider ban currently in the database
+     */
+    public void reload() {
+        synchronized (this) {
+            // anything applied before now is already in the collection, so only changes from here on need replaying
+            if (snapshot != null) pending.clear();
+            reloading = true;
+        }
+        Map<String, AddressBan> addresses = new HashMap<>();
+        Map<String, ProviderBan> providers = new HashMap<>();
+        try {
+            for (Document doc : bansCollection.find(new Document("type", new Document("$in", Arrays.asList("ip", "provider"))))) {
+                String data = doc.getString("data");
+                if (data == null) continue;
+                if (doc.getString("type").equals("ip")) {
+                    addresses.put(data, new AddressBan(data, doc.getString("reason"), doc.getString("source")));
+                } else {
+                    providers.put(data, new ProviderBan(data, doc.getString("source")));
+                }
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                reloading = false;
+                if (snapshot != null) pending.clear();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            pending.forEach(packet -> apply(packet, addresses, providers));
+            pending.clear();
+            reloading = false;
+            snapshot = new Snapshot(addresses, providers);
+        }
+    }
+
+    public boolean isLoaded() {
+        return snapshot != null;
+    }
+
+    /**
+     * Get the ban for an exact address or address range
+     *
+     * @param address the address or range, e.g. 1.2.3.4 or 1.2.3.*
+     * @return the ban, or null if it isn't banned
+     */
+    public AddressBan getAddressBan(String address) {
+        Snapshot s = snapshot;
+        if (!s.bloom.mightContain("ip:" + address)) return null;
+        return s.addresses.get(address);
+    }
+
+    /**
+     * Get the ban matching either the exact address or the most specific banned range containing it, whether that
+     * range was banned as a.b.c.* or in CIDR notation. An exact match takes priority.
+     *
+     * @param address the address
+     * @return the matching ban, or null if neither the address nor its range is banned
+     */
+    public AddressBan getAddressBanOrRange(String address) {
+        AddressBan ban = getAddressBan(address);
+        if (ban != null) return ban;
+        byte[] bytes = IPTrie.parseAddress(address);
+        return bytes == null ? null : snapshot.ranges.longestMatch(bytes);
+    }
+
+    public ProviderBan getProviderBan(String isp) {
+        Snapshot s = snapshot;
+        if (!s.bloom.mightContain("provider:" + isp)) return null;
+        return s.providers.get(isp);
+    }
+
+    public void addAddress(AddressBan ban) {
+        update(new BanIndexPacket("ip", ban.getAddress(), ban.getReason(), ban.getSource(), true));
+    }
+
+    public void removeAddress(String address) {
+        update(new BanIndexPacket("ip", address, null, null, false));
+    }
+
+    public void addProvider(ProviderBan ban) {
+        update(new BanIndexPacket("provider", ban.getProvider(), null, ban.getSource(), true));
+    }
+
+    public void removeProvider(String isp) {
+        update(new BanIndexPacket("provider", isp, null, null, false));
+    }
+
+    /**
+     * Apply a ban or unban locally, then tell the other proxies about it
+     */
+    private void update(BanIndexPacket packet) {
+        handle(packet);
+        try {
+            PalaceBungee.getMessageHandler().sendMessage(packet, PalaceBungee.getMessageHandler().ALL_PROXIES);
+        } catch (Exception e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error publishing ban index update, other proxies will pick it up on their next reload", e);
+        }
+    }
+
+    /**
+     * Apply a ban or unban made on any proxy. Bans change rarely, so each change builds a new snapshot rather than
+     * making readers synchronize.
+     */
+    public synchronized void handle(BanIndexPacket packet) {
+        if (reloading || snapshot == null) pending.add(packet);
+        Snapshot s = snapshot;
+        if (s == null) return;
+        Map<String, AddressBan> addresses = new HashMap<>(s.addresses);
+        Map<String, ProviderBan> providers = new HashMap<>(s.providers);
+        if (apply(packet, addresses, providers)) snapshot = new Snapshot(addresses, providers);
+    }
+
+    /**
+     * @return false if the packet is for an unknown type of ban
+     */
+    private static boolean apply(BanIndexPacket packet, Map<String, AddressBan> addresses, Map<String, ProviderBan> providers) {
+        if (packet.getType().equals("ip")) {
+            if (packet.isBanned()) {
+                addresses.put(packet.getData(), new AddressBan(packet.getData(), packet.getReason(), packet.getSource()));
+            } else {
+                addresses.remove(packet.getData());
+            }
+        } else if (packet.getType().equals("provider")) {
+            if (packet.isBanned()) {
+                providers.put(packet.getData(), new ProviderBan(packet.getData(), packet.getSource()));
+            } else {
+                providers.remove(packet.getData());
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    public int getAddressCount() {
+        Snapshot s = snapshot;
+        return s == null ? 0 : s.addresses.size();
+    }
+
+    public int getProviderCount() {
+        Snapshot s = snapshot;
+        return s == null ? 0 : s.providers.size();
+    }
+
+    private static class Snapshot {
+        private final Map<String, AddressBan> addresses;
+        private final Map<String, ProviderBan> providers;
+        private final BloomFilter<CharSequence> bloom;
+        private final IPTrie<AddressBan> ranges = new IPTrie<>();
+
+        private Snapshot(Map<String, AddressBan> addresses, Map<String, ProviderBan> providers) {
+            this.addresses = Collections.unmodifiableMap(addresses);
+            this.providers = Collections.unmodifiableMap(providers);
+            this.bloom = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                    Math.max(1000, (addresses.size() + providers.size()) * 2), 0.01);
+            addresses.keySet().forEach(a -> bloom.put("ip:" + a));
+            addresses.forEach((data, ban) -> {
+                // rows that aren't a valid range, or cover too many addresses, only ever match exactly
+                IPTrie.Prefix prefix = IPTrie.parsePrefix(data);
+                if (prefix != null) ranges.put(prefix, ban);
+            });
+            providers.keySet().forEach(p -> bloom.put("provider:" + p));
+        }
+    }
+}
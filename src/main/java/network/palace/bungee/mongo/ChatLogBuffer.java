@@ -0,0 +1,243 @@
+package network.palace.bungee.mongo;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
+import net.md_5.bungee.config.Configuration;
+import network.palace.bungee.PalaceBungee;
+import org.bson.Document;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Batches chat log documents into {@code insertMany} calls on a single flusher thread. Callers only add to a
+ * bounded queue, so logging a chat message never waits on the database; when the queue is full the message is
+ * dropped and counted instead.
+ * <p>
+ * A batch is written once it reaches {@code chatLog.batchSize} documents or its oldest document is
+ * {@code chatLog.maxAge} milliseconds old. If the database can't be reached, batches are appended to a local
+ * journal file instead, and the journal is replayed once an insert succeeds again. The driver assigns each document
+ * its {@code _id} before the first attempt, so a batch that was partly written before failing doesn't end up
+ * duplicated when it's replayed.
+ */
+public class ChatLogBuffer {
+    private final MongoCollection<Document> chatCollection;
+    private final BlockingQueue<Document> queue;
+    private final int batchSize;
+    private final long maxAge, retryInterval;
+    private final File journal = new File("plugins/PalaceBungee", "chat-journal.jsonl");
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    private final AtomicLong flushed = new AtomicLong(0);
+    private final AtomicLong dropped = new AtomicLong(0);
+    private final AtomicLong spilled = new AtomicLong(0);
+    private final AtomicLong replayed = new AtomicLong(0);
+
+    // only used by the flusher thread
+    private boolean available;
+    private long lastAttempt = 0;
+
+    public ChatLogBuffer(MongoCollection<Document> chatCollection) {
+        this.chatCollection = chatCollection;
+        int capacity = 10000, batchSize = 500;
+        long maxAge = 1000, retryInterval = 30000;
+        try {
+            Configuration config = PalaceBungee.getConfigUtil().getConfig();
+            capacity = config.getInt("chatLog.capacity", capacity);
+            batchSize = config.getInt("chatLog.batchSize", batchSize);
+            maxAge = config.getLong("chatLog.maxAge", maxAge);
+            retryInterval = config.getLong("chatLog.retryInterval", retryInterval);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading chat log settings from config file, using defaults", e);
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.maxAge = maxAge;
+        this.retryInterval = retryInterval;
+        // a journal left over from the last run is replayed as soon as the flusher starts
+        this.available = !journal.exists();
+        flusher = new Thread(this::run, "PalaceBungee Chat Log");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Queue a chat log document to be inserted
+     *
+     * @param doc the document
+     * @return false if the queue was full and the document was dropped
+     */
+    public boolean add(Document doc) {
+        if (queue.offer(doc)) return true;
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            List<Document> batch = new ArrayList<>(batchSize);
+            try {
+                Document first = queue.poll(maxAge, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    long deadline = System.currentTimeMillis() + maxAge;
+                    queue.drainTo(batch, batchSize - batch.size());
+                    while (running && batch.size() < batchSize) {
+                        long wait = deadline - System.currentTimeMillis();
+                        if (wait <= 0) break;
+                        Document next = queue.poll(wait, TimeUnit.MILLISECONDS);
+                        if (next == null) break;
+                        batch.add(next);
+                        queue.drainTo(batch, batchSize - batch.size());
+                    }
+                }
+            } catch (InterruptedException ignored) {
+            }
+            try {
+                if (!batch.isEmpty()) write(batch);
+                if (!available && System.currentTimeMillis() - lastAttempt >= retryInterval) replay();
+            } catch (Exception e) {
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error flushing chat log", e);
+            }
+        }
+    }
+
+    private void write(List<Document> batch) throws IOException {
+        if (available && insert(batch)) {
+            flushed.addAndGet(batch.size());
+            return;
+        }
+        spill(batch);
+    }
+
+    /**
+     * Insert a batch of documents
+     *
+     * @return false if the database couldn't be reached
+     */
+    private boolean insert(List<Document> batch) {
+        lastAttempt = System.currentTimeMillis();
+        try {
+            chatCollection.insertMany(batch, new InsertManyOptions().ordered(false));
+            return true;
+        } catch (MongoBulkWriteException e) {
+            // duplicate keys are documents already written by an earlier attempt; anything else won't succeed on a retry either
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (error.getCode() != 11000) {
+                    PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error inserting chat log document: " + error.getMessage());
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            if (available) {
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error inserting chat log batch, journaling to " + journal.getPath() + " until the database is back", e);
+            }
+            available = false;
+            return false;
+        }
+    }
+
+    private void spill(List<Document> batch) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journal, true), StandardCharsets.UTF_8))) {
+            for (Document doc : batch) {
+                writer.write(doc.toJson());
+                writer.write('\n');
+            }
+        }
+        spilled.addAndGet(batch.size());
+    }
+
+    /**
+     * Insert everything in the journal, then delete it. If an insert fails, whatever hasn't been inserted yet is kept.
+     */
+    private void replay() throws IOException {
+        if (!journal.exists()) {
+            available = true;
+            return;
+        }
+        File remaining = new File(journal.getParentFile(), "chat-journal.tmp");
+        boolean failed = false;
+        try (BufferedReader reader = Files.newBufferedReader(journal.toPath(), StandardCharsets.UTF_8)) {
+            List<Document> chunk = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null || !chunk.isEmpty()) {
+                if (line != null) {
+                    if (line.isEmpty()) continue;
+                    try {
+                        chunk.add(Document.parse(line));
+                    } catch (Exception e) {
+                        PalaceBungee.getProxyServer().getLogger().warning("Skipping unreadable line in chat journal: " + line);
+                    }
+                    if (chunk.size() < batchSize) continue;
+                }
+                if (!insert(chunk)) {
+                    try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(remaining), StandardCharsets.UTF_8))) {
+                        for (Document doc : chunk) {
+                            writer.write(doc.toJson());
+                            writer.write('\n');
+                        }
+                        while ((line = reader.readLine()) != null) {
+                            writer.write(line);
+                            writer.write('\n');
+                        }
+                    }
+                    failed = true;
+                    break;
+                }
+                replayed.addAndGet(chunk.size());
+                chunk.clear();
+                if (line == null) break;
+            }
+        }
+        if (failed) {
+            Files.move(remaining.toPath(), journal.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return;
+        }
+        Files.delete(journal.toPath());
+        available = true;
+        PalaceBungee.getProxyServer().getLogger().info("Chat log journal replayed, " + replayed.get() + " documents recovered so far");
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getFlushedCount() {
+        return flushed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getSpilledCount() {
+        return spilled.get();
+    }
+
+    public long getReplayedCount() {
+        return replayed.get();
+    }
+
+    /**
+     * Stop the flusher thread once everything that's queued has been written or journaled
+     */
+    public void shutdown() {
+        running = false;
+        try {
+            flusher.join(10000);
+        } catch (InterruptedException ignored) {
+        }
+    }
+}
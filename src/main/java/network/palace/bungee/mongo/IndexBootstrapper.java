@@ -0,0 +1,124 @@
+package network.palace.bungee.mongo;
+
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.IndexOptions;
+import network.palace.bungee.PalaceBungee;
+import org.bson.Document;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Declares the indexes the queries in {@link MongoHandler} rely on, then asks the database to explain each hot query
+ * and warns if any of them would still scan the whole collection.
+ * <p>
+ * Indexes are built in the background, and an index that already exists with different options is left alone
+ * with a warning rather than being dropped and rebuilt.
+ */
+public class IndexBootstrapper {
+    private final MongoDatabase database;
+
+    public IndexBootstrapper(MongoDatabase database) {
+        this.database = database;
+    }
+
+    public void run() {
+        createIndexes();
+        verifyQueryPlans();
+    }
+
+    private void createIndexes() {
+        index("players", new Document("uuid", 1), null);
+        index("players", new Document("username", 1), null);
+        index("players", new Document("ip", 1), null);
+        index("players", new Document("rank", 1), null);
+        // only a small fraction of players are ever online, so only index those
+        index("players", new Document("online", 1), new IndexOptions().name("online_partial")
+                .partialFilterExpression(new Document("online", true)));
+        index("friends", new Document("sender", 1).append("receiver", 1), null);
+        index("friends", new Document("receiver", 1), null);
+        index("parties", new Document("leader", 1), null);
+        index("parties", new Document("members", 1), null);
+        index("parties", new Document("invited.uuid", 1), null);
+        index("parties", new Document("invited.expires", 1), null);
+        index("bans", new Document("type", 1).append("data", 1), null);
+        index("moderation", new Document("uuid", 1).append("type", 1).append("active", 1), null);
+        index("moderation", new Document("uuid", 1).append("type", 1).append("time", -1), null);
+        index("servers", new Document("name", 1), null);
+        index("help_requests", new Document("helping", 1), null);
+    }
+
+    private void index(String collection, Document keys, IndexOptions options) {
+        if (options == null) options = new IndexOptions();
+        try {
+            database.getCollection(collection).createIndex(keys, options.background(true));
+        } catch (Exception e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Could not create index " + keys.toJson() +
+                    " on " + collection + ": " + e.getMessage());
+        }
+    }
+
+    private void verifyQueryPlans() {
+        String sample = UUID.randomUUID().toString();
+        List<HotQuery> queries = Arrays.asList(
+                new HotQuery("players", new Document("uuid", sample)),
+                new HotQuery("players", new Document("username", "Notch")),
+                new HotQuery("players", new Document("online", true)),
+                new HotQuery("players", new Document("ip", "127.0.0.1")),
+                new HotQuery("players", new Document("rank", new Document("$in", Arrays.asList("owner", "manager")))),
+                new HotQuery("friends", new Document("$or", Arrays.asList(new Document("sender", sample), new Document("receiver", sample)))),
+                new HotQuery("parties", new Document("leader", sample)),
+                new HotQuery("parties", new Document("members", new Document("$elemMatch", new Document("$eq", sample)))),
+                new HotQuery("parties", new Document("invited", new Document("$elemMatch", new Document("uuid", sample)))),
+                new HotQuery("bans", new Document("type", "ip").append("data", "127.0.0.1")),
+                new HotQuery("moderation", new Document("uuid", sample).append("type", new Document("$in", Arrays.asList("ban", "mute"))).append("active", true)),
+                new HotQuery("moderation", new Document("uuid", sample).append("type", "kick"))
+        );
+        int scans = 0;
+        for (HotQuery query : queries) {
+            String collection = query.collection;
+            Document filter = query.filter;
+            try {
+                Document explain = database.runCommand(new Document("explain",
+                        new Document("find", collection).append("filter", filter)).append("verbosity", "queryPlanner"));
+                Document planner = explain.get("queryPlanner", Document.class);
+                if (planner != null && hasCollectionScan(planner.get("winningPlan", Document.class))) {
+                    scans++;
+                    PalaceBungee.getProxyServer().getLogger().severe("!!! Query on " + collection + " with filter " +
+                            filter.toJson() + " is doing a COLLSCAN, it will scan every document until an index is added !!!");
+                }
+            } catch (Exception e) {
+                PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Could not explain query on " + collection + ": " + e.getMessage());
+            }
+        }
+        if (scans == 0) {
+            PalaceBungee.getProxyServer().getLogger().info("Verified query plans for " + queries.size() + " hot queries, all use an index");
+        }
+    }
+
+    private static class HotQuery {
+        private final String collection;
+        private final Document filter;
+
+        private HotQuery(String collection, Document filter) {
+            this.collection = collection;
+            this.filter = filter;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean hasCollectionScan(Document stage) {
+        if (stage == null) return false;
+        if ("COLLSCAN".equals(stage.getString("stage"))) return true;
+        if (hasCollectionScan(stage.get("inputStage", Document.class))) return true;
+        Object inputStages = stage.get("inputStages");
+        if (inputStages instanceof List) {
+            for (Object o : (List<Object>) inputStages) {
+                if (o instanceof Document && hasCollectionScan((Document) o)) return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,86 @@
+package network.palace.bungee.mongo;
+
+import lombok.Getter;
+import network.palace.bungee.handlers.Rank;
+import network.palace.bungee.handlers.RankTag;
+import network.palace.bungee.handlers.moderation.AddressBan;
+import network.palace.bungee.handlers.moderation.Ban;
+import network.palace.bungee.handlers.moderation.Mute;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Everything the login path needs to know about a connecting player, loaded once by
+ * {@link MongoHandler#getLoginProfile(UUID, String)} and shared between the login listener and
+ * {@link MongoHandler#login(network.palace.bungee.handlers.Player, LoginProfile)}.
+ */
+public class LoginProfile {
+    private final UUID uuid;
+    @Getter private final Document document;
+    @Getter private final AddressBan addressBan;
+
+    public LoginProfile(UUID uuid, Document document, AddressBan addressBan) {
+        this.uuid = uuid;
+        this.document = document;
+        this.addressBan = addressBan;
+    }
+
+    public UUID getUniqueId() {
+        return uuid;
+    }
+
+    /**
+     * @return true if the player has no document in the database yet
+     */
+    public boolean isNewPlayer() {
+        return document == null;
+    }
+
+    public boolean isOnline() {
+        return document != null && document.getBoolean("online", false);
+    }
+
+    public Rank getRank() {
+        if (document == null) return Rank.GUEST;
+        return Rank.fromString(document.getString("rank"));
+    }
+
+    public List<RankTag> getTags() {
+        List<RankTag> tagList = new ArrayList<>();
+        if (document != null && document.containsKey("tags")) {
+            for (Object s : document.get("tags", ArrayList.class)) {
+                RankTag tag = RankTag.fromString((String) s);
+                if (tag != null) tagList.add(tag);
+            }
+        }
+        return tagList;
+    }
+
+    public Document getSettings() {
+        if (document == null) return new Document();
+        Document settings = document.get("settings", Document.class);
+        return settings == null ? new Document() : settings;
+    }
+
+    public Ban getCurrentBan(String name) {
+        if (document == null) return null;
+        return MongoHandler.getActiveBan(uuid, name, document);
+    }
+
+    public Mute getCurrentMute() {
+        if (document == null) return null;
+        return MongoHandler.getActiveMute(uuid, document);
+    }
+
+    public List<UUID> getIgnored() {
+        List<UUID> list = new ArrayList<>();
+        if (document == null || !document.containsKey("ignoring")) return list;
+        for (Object o : document.get("ignoring", ArrayList.class)) {
+            list.add(UUID.fromString(((Document) o).getString("uuid")));
+        }
+        return list;
+    }
+}
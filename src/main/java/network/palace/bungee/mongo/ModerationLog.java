@@ -0,0 +1,200 @@
+package network.palace.bungee.mongo;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.*;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The moderation history (bans, mutes, kicks and warnings) kept in its own {@code moderation} collection, one
+ * document per record, rather than in arrays on the player document that grow for as long as the player is punished.
+ * Records are indexed on (uuid, type, active) and (uuid, type, time), so finding a player's active ban or mute is a single
+ * indexed point read and a page of history is an indexed range read, however long the history is.
+ * <p>
+ * Every record is written both here and to the player document's arrays, so proxies on either side of the switch
+ * agree. Reads only move to this collection once {@link #migrate(MongoCollection, Consumer)} has copied the existing
+ * history over and set {@code readFromCollection} on the {@code moderation} service config.
+ */
+public class ModerationLog {
+    public static final String BAN = "ban", MUTE = "mute", KICK = "kick", WARNING = "warning";
+
+    private final MongoCollection<Document> moderationCollection;
+    private final MongoCollection<Document> serviceConfigCollection;
+    private volatile boolean readFromCollection = false;
+
+    public ModerationLog(MongoCollection<Document> moderationCollection, MongoCollection<Document> serviceConfigCollection) {
+        this.moderationCollection = moderationCollection;
+        this.serviceConfigCollection = serviceConfigCollection;
+        loadSettings();
+    }
+
+    /**
+     * Re-read whether reads should come from the moderation collection
+     */
+    public void loadSettings() {
+        Document config = serviceConfigCollection.find(Filters.eq("type", "moderation")).first();
+        readFromCollection = config != null && config.getBoolean("readFromCollection", false);
+    }
+
+    public boolean isReadFromCollection() {
+        return readFromCollection;
+    }
+
+    /**
+     * Record a ban, mute, kick or warning
+     *
+     * @param uuid  the uuid of the punished player
+     * @param type  the type of record
+     * @param entry the entry as it's stored in the player document's array
+     */
+    public void add(UUID uuid, String type, Document entry) {
+        moderationCollection.insertOne(toRecord(uuid, type, entry));
+    }
+
+    /**
+     * Mark a player's active records of a type as no longer active
+     *
+     * @param uuid   the uuid of the player
+     * @param type   the type of record
+     * @param values any other fields to set on the records
+     */
+    public void deactivate(UUID uuid, String type, Document values) {
+        moderationCollection.updateMany(activeFilter(uuid, Collections.singletonList(type)),
+                new Document("$set", new Document(values).append("active", false)));
+    }
+
+    /**
+     * Get a player's active records of the given types
+     *
+     * @return a map from type to the active records of that type, oldest first
+     */
+    public Map<String, List<Document>> getActive(UUID uuid, List<String> types) {
+        Map<String, List<Document>> map = new HashMap<>();
+        for (String type : types) {
+            map.put(type, new ArrayList<>());
+        }
+        for (Document doc : moderationCollection.find(activeFilter(uuid, types)).sort(Sorts.ascending("time"))) {
+            map.get(doc.getString("type")).add(doc);
+        }
+        return map;
+    }
+
+    /**
+     * Get one page of a player's records of a type, newest first
+     *
+     * @param page     the page, starting from 1
+     * @param pageSize the number of records on a page
+     */
+    public List<Document> getPage(UUID uuid, String type, int page, int pageSize) {
+        List<Document> list = new ArrayList<>();
+        moderationCollection.find(Filters.and(Filters.eq("uuid", uuid.toString()), Filters.eq("type", type)))
+                .sort(Sorts.descending("time")).skip((page - 1) * pageSize).limit(pageSize).into(list);
+        return list;
+    }
+
+    /**
+     * Get every record of a type for a player, oldest first
+     */
+    public List<Document> getAll(UUID uuid, String type) {
+        List<Document> list = new ArrayList<>();
+        moderationCollection.find(Filters.and(Filters.eq("uuid", uuid.toString()), Filters.eq("type", type)))
+                .sort(Sorts.ascending("time")).into(list);
+        return list;
+    }
+
+    /**
+     * Count a player's records of each type with a single aggregation
+     *
+     * @return a map from type to count, with every type present
+     */
+    public Map<String, Integer> getCounts(UUID uuid) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String type : Arrays.asList(BAN, MUTE, KICK, WARNING)) {
+            counts.put(type, 0);
+        }
+        for (Document doc : moderationCollection.aggregate(Arrays.asList(
+                Aggregates.match(Filters.eq("uuid", uuid.toString())),
+                Aggregates.group("$type", Accumulators.sum("count", 1))))) {
+            counts.put(doc.getString("_id"), doc.getInteger("count"));
+        }
+        return counts;
+    }
+
+    /**
+     * Copy every ban, mute, kick and warning from the player documents into the moderation collection, then switch
+     * reads over to it. Each record is upserted on (uuid, type, time, source) with {@code $setOnInsert}, so records
+     * already dual-written are left alone and the migration can safely be re-run if it's interrupted.
+     *
+     * @param playerCollection the players collection
+     * @param progress         receives a progress message every few thousand players
+     * @return the number of records that didn't exist yet
+     */
+    public int migrate(MongoCollection<Document> playerCollection, Consumer<String> progress) {
+        Map<String, String> arrays = new LinkedHashMap<>();
+        arrays.put("bans", BAN);
+        arrays.put("mutes", MUTE);
+        arrays.put("kicks", KICK);
+        arrays.put("warnings", WARNING);
+        List<Bson> hasHistory = new ArrayList<>();
+        arrays.keySet().forEach(array -> hasHistory.add(Filters.exists(array + ".0")));
+
+        List<WriteModel<Document>> batch = new ArrayList<>();
+        int players = 0, inserted = 0;
+        for (Document player : playerCollection.find(Filters.or(hasHistory))
+                .projection(Projections.include("uuid", "bans", "mutes", "kicks", "warnings"))) {
+            String uuid = player.getString("uuid");
+            if (uuid == null) continue;
+            for (Map.Entry<String, String> array : arrays.entrySet()) {
+                List<?> entries = player.get(array.getKey(), List.class);
+                if (entries == null) continue;
+                for (Object o : entries) {
+                    if (!(o instanceof Document)) continue;
+                    Document record = toRecord(UUID.fromString(uuid), array.getValue(), (Document) o);
+                    batch.add(new UpdateOneModel<>(Filters.and(Filters.eq("uuid", uuid),
+                            Filters.eq("type", record.getString("type")), Filters.eq("time", record.get("time")),
+                            Filters.eq("source", record.getString("source"))),
+                            new Document("$setOnInsert", record), new UpdateOptions().upsert(true)));
+                }
+            }
+            if (batch.size() >= 500) {
+                inserted += write(batch);
+            }
+            if (++players % 5000 == 0) {
+                progress.accept("Migrated moderation history for " + players + " players (" + inserted + " new records)");
+            }
+        }
+        inserted += write(batch);
+        progress.accept("Migrated moderation history for " + players + " players (" + inserted + " new records)");
+
+        serviceConfigCollection.updateOne(Filters.eq("type", "moderation"), Updates.set("readFromCollection", true),
+                new UpdateOptions().upsert(true));
+        readFromCollection = true;
+        return inserted;
+    }
+
+    private int write(List<WriteModel<Document>> batch) {
+        if (batch.isEmpty()) return 0;
+        int upserts = moderationCollection.bulkWrite(batch, new BulkWriteOptions().ordered(false)).getUpserts().size();
+        batch.clear();
+        return upserts;
+    }
+
+    private static Bson activeFilter(UUID uuid, List<String> types) {
+        return Filters.and(Filters.eq("uuid", uuid.toString()), Filters.in("type", types), Filters.eq("active", true));
+    }
+
+    /**
+     * Bans and mutes are timed by when they were created, kicks and warnings by when they happened
+     */
+    private static Document toRecord(UUID uuid, String type, Document entry) {
+        Object time = entry.containsKey("created") ? entry.get("created") : entry.get("time");
+        Document record = new Document("uuid", uuid.toString()).append("type", type).append("time", time);
+        entry.forEach((key, value) -> {
+            if (!key.equals("_id") && !record.containsKey(key)) record.append(key, value);
+        });
+        return record;
+    }
+}
@@ -1,11 +1,18 @@
 package network.palace.bungee.mongo;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientURI;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
 import lombok.Getter;
@@ -16,9 +23,12 @@ import network.palace.bungee.PalaceBungee;
 import network.palace.bungee.handlers.*;
 import network.palace.bungee.handlers.moderation.*;
 import network.palace.bungee.utils.ConfigUtil;
+import network.palace.bungee.utils.IPTrie;
 import network.palace.bungee.utils.NameUtil;
+import network.palace.bungee.utils.PresenceUtil;
 import org.bson.BsonInt32;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
 import javax.imageio.ImageIO;
@@ -30,6 +40,7 @@ import java.io.InputStream;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.logging.Level;
@@ -37,6 +48,7 @@ import java.util.logging.Level;
 @SuppressWarnings({"rawtypes", "unchecked"})
 public class MongoHandler {
     private final MongoClient client;
+    private final MongoDatabase database;
     private final MongoCollection<Document> bansCollection;
     private final MongoCollection<Document> partyCollection;
     @Getter private final MongoCollection<Document> playerCollection;
@@ -50,6 +62,14 @@ public class MongoHandler {
     private final MongoCollection<Document> friendsCollection;
     private final MongoCollection<Document> staffLoginCollection;
     private final MongoCollection<Document> virtualQueuesCollection;
+    @Getter private final PlayerWriteBuffer writeBuffer;
+    @Getter private final ChatLogBuffer chatLog;
+    @Getter private final BanIndex banIndex;
+    @Getter private final ModerationLog moderationLog;
+    @Getter private final UsernameCache usernameCache;
+    private final Supplier<HashMap<String, Integer>> serverCounts;
+    private final Supplier<HashMap<UUID, Integer>> proxyCounts;
+    private final Cache<UUID, String> helpActivity;
 
     public MongoHandler() throws IOException {
         ConfigUtil.DatabaseConnection mongo = PalaceBungee.getConfigUtil().getMongoDBInfo();
@@ -58,7 +78,7 @@ public class MongoHandler {
         String password = mongo.getPassword();
         MongoClientURI connectionString = new MongoClientURI("mongodb://" + username + ":" + password + "@" + hostname);
         client = new MongoClient(connectionString);
-        MongoDatabase database = client.getDatabase(mongo.getDatabase());
+        database = client.getDatabase(mongo.getDatabase());
         playerCollection = database.getCollection("players");
         chatCollection = database.getCollection("chat");
         bansCollection = database.getCollection("bans");
@@ -72,12 +92,44 @@ public class MongoHandler {
         staffLoginCollection = database.getCollection("stafflogin");
         virtualQueuesCollection = database.getCollection("virtual_queues");
         titanAppsCollection = database.getCollection("titan_applications");
+        writeBuffer = new PlayerWriteBuffer(playerCollection);
+        chatLog = new ChatLogBuffer(chatCollection);
+        banIndex = new BanIndex(bansCollection);
+        moderationLog = new ModerationLog(database.getCollection("moderation"), serviceConfigCollection);
+        usernameCache = new UsernameCache(playerCollection);
+
+        // aggregation results are shared for a few seconds so repeated /proxycounts and /guidelog don't re-run them
+        int cacheSeconds = 5;
+        try {
+            cacheSeconds = PalaceBungee.getConfigUtil().getConfig().getInt("mongodb.aggregationCacheSeconds", cacheSeconds);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading aggregation cache settings from config file, using defaults", e);
+        }
+        serverCounts = Suppliers.memoizeWithExpiration(() -> countOnlineBy("server"), cacheSeconds, TimeUnit.SECONDS);
+        proxyCounts = Suppliers.memoizeWithExpiration(() -> {
+            HashMap<UUID, Integer> map = new HashMap<>();
+            countOnlineBy("proxy").forEach((proxy, count) -> {
+                try {
+                    map.put(UUID.fromString(proxy), count);
+                } catch (IllegalArgumentException ignored) {
+                }
+            });
+            return map;
+        }, cacheSeconds, TimeUnit.SECONDS);
+        helpActivity = CacheBuilder.newBuilder().expireAfterWrite(cacheSeconds, TimeUnit.SECONDS).build();
     }
 
     public void stop() {
         client.close();
     }
 
+    /**
+     * Create any missing indexes and check the hot queries use them
+     */
+    public void ensureIndexes() {
+        new IndexBootstrapper(database).run();
+    }
+
     /**
      * Get a specific set of a player's data from the database
      *
@@ -127,6 +179,7 @@ public class MongoHandler {
             }
             if (!username.isEmpty() && !current.equals(username)) {
                 playerCollection.updateOne(Filters.eq("uuid", uuid.toString()), Updates.set("username", current));
+                usernameCache.put(uuid, current);
             }
         });
     }
@@ -152,6 +205,8 @@ public class MongoHandler {
     }
 
     public boolean isPlayerOnline(UUID uuid) {
+        PresenceUtil presence = PalaceBungee.getPresenceUtil();
+        if (presence != null && presence.isWarm()) return presence.getPresence(uuid) != null;
         return playerCollection.find(Filters.and(Filters.eq("uuid", uuid.toString()), Filters.eq("online", true))).first() != null;
     }
 
@@ -169,6 +224,8 @@ public class MongoHandler {
     }
 
     public int getOnlineCount() {
+        PresenceUtil presence = PalaceBungee.getPresenceUtil();
+        if (presence != null && presence.isWarm()) return presence.getOnlineCount();
         return (int) playerCollection.count(Filters.eq("online", true));
     }
 
@@ -304,11 +361,44 @@ public class MongoHandler {
         updatePreviousUsernames(player.getUniqueId(), player.getUsername());
     }
 
-    public void login(Player player) {
+    /**
+     * Load everything the login path needs for a player in one query against the players collection, plus one
+     * query against the bans collection for the player's address and address range.
+     * Only the active entries of the bans and mutes arrays are returned. Once moderation history has been migrated,
+     * those come from one indexed query against the moderation collection instead.
+     *
+     * @param uuid    the uuid of the connecting player
+     * @param address the address the player is connecting from
+     * @return the login profile
+     */
+    public LoginProfile getLoginProfile(UUID uuid, String address) {
+        // the stats from a logout a moment ago may still be waiting in the write buffer
+        writeBuffer.flush(uuid);
+        Document doc;
+        if (moderationLog.isReadFromCollection()) {
+            doc = playerCollection.find(Filters.eq("uuid", uuid.toString())).projection(
+                    Projections.include("rank", "tags", "online", "settings", "ip", "username", "onlineTime",
+                            "tutorial", "minecraftVersion", "ignoring")).first();
+            if (doc != null) {
+                Map<String, List<Document>> active = moderationLog.getActive(uuid, Arrays.asList(ModerationLog.BAN, ModerationLog.MUTE));
+                doc.put("bans", active.get(ModerationLog.BAN));
+                doc.put("mutes", active.get(ModerationLog.MUTE));
+            }
+        } else {
+            doc = playerCollection.find(Filters.eq("uuid", uuid.toString())).projection(Projections.fields(
+                    Projections.include("rank", "tags", "online", "settings", "ip", "username", "onlineTime",
+                            "tutorial", "minecraftVersion", "ignoring"),
+                    Projections.elemMatch("bans", Filters.eq("active", true)),
+                    Projections.elemMatch("mutes", Filters.eq("active", true)))).first();
+        }
+        AddressBan addressBan = doc == null ? null : getAddressBanOrRange(address);
+        return new LoginProfile(uuid, doc, addressBan);
+    }
+
+    public void login(Player player, LoginProfile profile) {
+        usernameCache.put(player.getUniqueId(), player.getUsername());
         try {
-            Document doc = getPlayer(player.getUniqueId(), new Document("ip", 1).append("username", 1)
-                    .append("friendRequestToggle", 1).append("onlineTime", 1).append("tutorial", 1)
-                    .append("minecraftVersion", 1).append("settings", 1));
+            Document doc = profile.getDocument();
             if (doc == null) {
                 createPlayer(player);
                 return;
@@ -358,16 +448,19 @@ public class MongoHandler {
             player.setNewGuest(!doc.getBoolean("tutorial"));
             PalaceBungee.getProxyServer().getLogger().info("Player Join: " + player.getUsername() + "|" + player.getUniqueId());
 
-            List<UUID> ignored = getIgnoredUsers(player.getUniqueId());
+            List<UUID> ignored = profile.getIgnored();
             ignored.forEach(uuid -> player.setIgnored(uuid, true));
 
-            player.setMute(getCurrentMute(player.getUniqueId()));
+            player.setMute(profile.getCurrentMute());
         } catch (Exception e) {
             PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error handling player login", e);
         }
     }
 
     public void logout(UUID uuid, Player player) {
+        // write anything still buffered for this player first, so a late onlineData update can't land after the unset
+        writeBuffer.flush(uuid);
+        // the online state is written straight away, another proxy may be checking it for this player's next login
         playerCollection.updateOne(new Document("uuid", uuid.toString()), Updates.set("online", false));
         playerCollection.updateOne(new Document("uuid", uuid.toString()), Updates.unset("onlineData"));
 
@@ -376,10 +469,10 @@ public class MongoHandler {
             if (player.getServerName() != null) {
                 server = player.getServerName();
             }
-            playerCollection.updateOne(Filters.eq("uuid", player.getUniqueId().toString()),
-                    new Document("$set", new Document("server", server).append("lastOnline", System.currentTimeMillis()))
-                            .append("$inc", new Document("onlineTime", (int) ((System.currentTimeMillis() / 1000) -
-                                    (player.getLoginTime() / 1000)))));
+            writeBuffer.set(player.getUniqueId(), "server", server);
+            writeBuffer.set(player.getUniqueId(), "lastOnline", System.currentTimeMillis());
+            writeBuffer.inc(player.getUniqueId(), "onlineTime", (int) ((System.currentTimeMillis() / 1000) -
+                    (player.getLoginTime() / 1000)));
         }
     }
 
@@ -427,6 +520,11 @@ public class MongoHandler {
      * @return the proxyID for the proxy the player is connected to, or null if they are offline
      */
     public UUID findPlayer(String username) {
+        PresenceUtil presence = PalaceBungee.getPresenceUtil();
+        if (presence != null && presence.isWarm()) {
+            PlayerPresence p = presence.getPresence(username);
+            return p == null ? null : p.getProxy();
+        }
         Document doc = playerCollection.find(Filters.and(Filters.eq("username", username), Filters.eq("online", true))).projection(new Document("onlineData", true).append("uuid", true)).first();
         if (doc == null) return null;
         return UUID.fromString(doc.get("onlineData", Document.class).getString("proxy"));
@@ -439,6 +537,11 @@ public class MongoHandler {
      * @return the proxyID for the proxy the player is connected to, or null if they are offline
      */
     public UUID findPlayer(UUID uuid) {
+        PresenceUtil presence = PalaceBungee.getPresenceUtil();
+        if (presence != null && presence.isWarm()) {
+            PlayerPresence p = presence.getPresence(uuid);
+            return p == null ? null : p.getProxy();
+        }
         Document doc = playerCollection.find(Filters.and(Filters.eq("uuid", uuid.toString()), Filters.eq("online", true))).projection(new Document("onlineData", true).append("uuid", true)).first();
         if (doc == null) return null;
         return UUID.fromString(doc.get("onlineData", Document.class).getString("proxy"));
@@ -451,6 +554,11 @@ public class MongoHandler {
      * @return the server the player is connected to, or null if they are offline
      */
     public String getPlayerServer(String username) {
+        PresenceUtil presence = PalaceBungee.getPresenceUtil();
+        if (presence != null && presence.isWarm()) {
+            PlayerPresence p = presence.getPresence(username);
+            return p == null ? null : p.getServer();
+        }
         Document doc = playerCollection.find(Filters.and(Filters.eq("username", username), Filters.eq("online", true))).projection(new Document("onlineData", true).append("username", true)).first();
         if (doc == null) return null;
         return doc.get("onlineData", Document.class).getString("server");
@@ -463,7 +571,7 @@ public class MongoHandler {
      * @param name the server name
      */
     public void setPlayerServer(UUID uuid, String name) {
-        playerCollection.updateOne(Filters.eq("uuid", uuid.toString()), Updates.set("onlineData.server", name));
+        writeBuffer.set(uuid, "onlineData.server", name);
     }
 
     /**
@@ -473,9 +581,7 @@ public class MongoHandler {
      * @return the UUID, or null if not found
      */
     public UUID usernameToUUID(String username) {
-        Document doc = playerCollection.find(Filters.eq("username", username)).projection(new Document("uuid", 1)).first();
-        if (doc == null || !doc.containsKey("uuid")) return null;
-        return UUID.fromString(doc.getString("uuid"));
+        return usernameCache.getUUID(username);
     }
 
     /**
@@ -485,9 +591,7 @@ public class MongoHandler {
      * @return the username, or null if not found
      */
     public String uuidToUsername(UUID uuid) {
-        Document doc = playerCollection.find(Filters.eq("uuid", uuid.toString())).projection(new Document("username", 1)).first();
-        if (doc == null || !doc.containsKey("username")) return null;
-        return doc.getString("username");
+        return usernameCache.getUsername(uuid);
     }
 
     public String verifyModerationSource(String source) {
@@ -495,16 +599,8 @@ public class MongoHandler {
         if (source.length() == 36) {
             try {
                 UUID sourceUUID = UUID.fromString(source);
-                String name = PalaceBungee.getUsernameCache().get(sourceUUID);
-                if (name == null) {
-                    name = uuidToUsername(sourceUUID);
-                    if (name == null) {
-                        name = "Unknown";
-                    } else {
-                        PalaceBungee.getUsernameCache().put(sourceUUID, name);
-                    }
-                }
-                source = name;
+                String name = uuidToUsername(sourceUUID);
+                source = name == null ? "Unknown" : name;
             } catch (Exception ignored) {
             }
         }
@@ -576,20 +672,16 @@ public class MongoHandler {
         return parties;
     }
 
-    public Party createParty(UUID leader) throws Exception {
-        Document doc = new Document("leader", leader.toString()).append("members", Collections.singletonList(leader.toString()))
-                .append("createdOn", System.currentTimeMillis()).append("invited", new ArrayList<>());
-        partyCollection.insertOne(doc);
-        doc = partyCollection.find(Filters.eq("leader", leader.toString())).first();
-        return new Party(doc.getObjectId("_id").toHexString(), leader, PalaceBungee.getUsername(leader), new HashMap<>(), new HashMap<>());
-    }
-
-    public boolean hasPendingInvite(UUID uuid) {
-        Document doc = partyCollection.find(Filters.elemMatch("invited", Filters.eq("uuid", uuid.toString()))).first();
-        if (doc == null) return false;
-        String id = doc.getObjectId("_id").toHexString();
-        removeExpiredInvites(id);
-        return partyCollection.find(Filters.elemMatch("invited", Filters.eq("uuid", uuid.toString()))).first() != null;
+    /**
+     * Store a new party
+     *
+     * @param partyID the id the party was given when it was created
+     * @param leader  the uuid of the party leader
+     */
+    public void createParty(String partyID, UUID leader) {
+        partyCollection.insertOne(new Document("_id", new ObjectId(partyID)).append("leader", leader.toString())
+                .append("members", Collections.singletonList(leader.toString()))
+                .append("createdOn", System.currentTimeMillis()).append("invited", new ArrayList<>()));
     }
 
     public void addPartyInvite(String partyID, UUID uuid, long expires) {
@@ -608,30 +700,13 @@ public class MongoHandler {
                 Updates.pull("invited", Filters.lte("expires", time)));
     }
 
-    public void removeExpiredInvites(String id) {
-        partyCollection.updateOne(Filters.eq("_id", new ObjectId(id)),
-                Updates.pull("invited", Filters.lte("expires", System.currentTimeMillis())));
-    }
-
-    public boolean acceptPartyInvite(UUID uuid) {
-        Document doc = partyCollection.find(Filters.elemMatch("invited", Filters.eq("uuid", uuid.toString()))).first();
-        if (doc == null) return false;
-        for (Object o : doc.get("invited", ArrayList.class)) {
-            Document inviteDoc = (Document) o;
-            if (inviteDoc.getString("uuid").equals(uuid.toString())) {
-                long expires = inviteDoc.getLong("expires");
-                partyCollection.updateOne(Filters.eq("_id", doc.getObjectId("_id")),
-                        Updates.pull("invited", Filters.eq("uuid", uuid.toString())));
-                if (System.currentTimeMillis() < expires) {
-                    partyCollection.updateOne(Filters.eq("_id", doc.getObjectId("_id")),
-                            Updates.push("members", uuid.toString()));
-                    return true;
-                } else {
-                    return false;
-                }
-            }
-        }
-        return true;
+    /**
+     * Add a player who accepted an invite to a party, removing their invite in the same update
+     */
+    public void addPartyMember(String partyID, UUID uuid) {
+        partyCollection.updateOne(Filters.eq("_id", new ObjectId(partyID)), Updates.combine(
+                Updates.pull("invited", Filters.eq("uuid", uuid.toString())),
+                Updates.addToSet("members", uuid.toString())));
     }
 
     public void removePartyMember(String partyID, UUID uuid) {
@@ -694,70 +769,69 @@ public class MongoHandler {
 
     public List<Server> getServers(boolean playground) {
         List<Server> list = new ArrayList<>();
-        for (Document doc : serversCollection.find()) {
-            if (playground) {
-                if (!doc.containsKey("playground") || !doc.getBoolean("playground")) continue;
-            } else {
-                if (doc.containsKey("playground") && doc.getBoolean("playground")) continue;
-            }
-            list.add(new Server(doc.getString("name"), doc.getString("address"),
-                    doc.getBoolean("park", false), doc.getString("type"), doc.getBoolean("online", false)));
+        Bson filter = playground ? Filters.eq("playground", true) : Filters.ne("playground", true);
+        for (Document doc : serversCollection.find(filter)) {
+            list.add(new Server(doc.getString("name"), doc.getString("address"), doc.getBoolean("park", false),
+                    doc.getString("type"), doc.getBoolean("online", false), doc.getInteger("count", 0),
+                    doc.getInteger("maxPlayers", 0)));
         }
         return list;
     }
 
-    public int getServerCount(String name) {
-        Document doc;
-        if (PalaceBungee.isTestNetwork()) {
-            doc = serversCollection.find(Filters.and(
-                    Filters.eq("playground", true),
-                    Filters.eq("name", name)
-            )).first();
-        } else {
-            doc = serversCollection.find(Filters.eq("name", name)).first();
-        }
-        if (doc == null) return 0;
-        return doc.getInteger("count", 0);
+    public HashMap<String, Integer> getServerCounts() {
+        PresenceUtil presence = PalaceBungee.getPresenceUtil();
+        if (presence != null && presence.isWarm()) return presence.getServerCounts();
+        return new HashMap<>(serverCounts.get());
     }
 
-    public boolean isServerOnline(String name) {
-        Document doc;
-        if (PalaceBungee.isTestNetwork()) {
-            doc = serversCollection.find(Filters.and(
-                    Filters.eq("playground", true),
-                    Filters.eq("name", name)
-            )).first();
-        } else {
-            doc = serversCollection.find(Filters.eq("name", name)).first();
-        }
-        if (doc == null) return false;
-        return doc.getBoolean("online", false);
+    public HashMap<UUID, Integer> getProxyCounts() {
+        PresenceUtil presence = PalaceBungee.getPresenceUtil();
+        if (presence != null && presence.isWarm()) return presence.getProxyCounts();
+        return new HashMap<>(proxyCounts.get());
     }
 
-    public HashMap<String, Integer> getServerCounts() {
-        FindIterable<Document> list = playerCollection.find(Filters.eq("online", true)).projection(new Document("onlineData", true));
+    /**
+     * Count the online players grouped by a field of their onlineData, letting the database do the counting
+     *
+     * @param field the onlineData field to group by
+     * @return a map of each value of the field to the number of online players with it
+     */
+    private HashMap<String, Integer> countOnlineBy(String field) {
         HashMap<String, Integer> map = new HashMap<>();
-        for (Document doc : list) {
-            try {
-                String server = doc.get("onlineData", Document.class).getString("server");
-                map.put(server, map.getOrDefault(server, 0) + 1);
-            } catch (Exception ignored) {
-            }
+        for (Document doc : playerCollection.aggregate(Arrays.asList(
+                Aggregates.match(Filters.eq("online", true)),
+                Aggregates.group("$onlineData." + field, Accumulators.sum("count", 1))))) {
+            String key = doc.getString("_id");
+            if (key != null) map.put(key, doc.getInteger("count"));
         }
         return map;
     }
 
-    public HashMap<UUID, Integer> getProxyCounts() {
-        FindIterable<Document> list = playerCollection.find(Filters.eq("online", true)).projection(new Document("onlineData", true));
-        HashMap<UUID, Integer> map = new HashMap<>();
-        for (Document doc : list) {
+    /**
+     * Load every player marked online, used to fill the {@link PresenceUtil} index when the proxy starts
+     *
+     * @return the presence of each online player
+     */
+    public List<PlayerPresence> getOnlinePresence() {
+        List<PlayerPresence> list = new ArrayList<>();
+        for (Document doc : playerCollection.find(Filters.eq("online", true)).projection(new Document("uuid", true)
+                .append("username", true).append("rank", true).append("tags", true).append("onlineData", true))) {
             try {
-                UUID proxy = UUID.fromString(doc.get("onlineData", Document.class).getString("proxy"));
-                map.put(proxy, map.getOrDefault(proxy, 0) + 1);
+                Document onlineData = doc.get("onlineData", Document.class);
+                List<RankTag> tags = new ArrayList<>();
+                if (doc.containsKey("tags")) {
+                    for (Object o : doc.get("tags", ArrayList.class)) {
+                        RankTag tag = RankTag.fromString((String) o);
+                        if (tag != null) tags.add(tag);
+                    }
+                }
+                list.add(new PlayerPresence(UUID.fromString(doc.getString("uuid")), doc.getString("username"),
+                        UUID.fromString(onlineData.getString("proxy")), onlineData.getString("server"),
+                        Rank.fromString(doc.getString("rank")), tags));
             } catch (Exception ignored) {
             }
         }
-        return map;
+        return list;
     }
 
     public void createServer(Server server) {
@@ -793,22 +867,26 @@ public class MongoHandler {
      * @return a String with comma-separated values for accepted help requests: last day, last week, last month, all time
      */
     public String getHelpActivity(UUID staffMember) {
-        List<Long> requests = new ArrayList<>();
-        for (Document doc : helpRequestsCollection.find(Filters.eq("helping", staffMember.toString())).projection(new Document("time", true))) {
-            if (doc.containsKey("time")) requests.add(doc.getLong("time"));
-        }
-        requests.sort((o1, o2) -> (int) (o1 - o2));
+        String cached = helpActivity.getIfPresent(staffMember);
+        if (cached != null) return cached;
         long dayAgo = Instant.now().minus(Duration.ofDays(1)).toEpochMilli();
         long weekAgo = Instant.now().minus(Duration.ofDays(7)).toEpochMilli();
         long monthAgo = Instant.now().minus(Duration.ofDays(30)).toEpochMilli();
-        int dayTotal = 0, weekTotal = 0, monthTotal = 0, total = 0;
-        for (long r : requests) {
-            if (r >= dayAgo) dayTotal++;
-            if (r >= weekAgo) weekTotal++;
-            if (r >= monthAgo) monthTotal++;
-            total++;
-        }
-        return dayTotal + "," + weekTotal + "," + monthTotal + "," + total;
+        Document doc = helpRequestsCollection.aggregate(Arrays.asList(
+                Aggregates.match(Filters.and(Filters.eq("helping", staffMember.toString()), Filters.exists("time", true))),
+                Aggregates.group(null,
+                        Accumulators.sum("day", countSince(dayAgo)),
+                        Accumulators.sum("week", countSince(weekAgo)),
+                        Accumulators.sum("month", countSince(monthAgo)),
+                        Accumulators.sum("total", 1)))).first();
+        String activity = doc == null ? "0,0,0,0" : doc.getInteger("day") + "," + doc.getInteger("week") + "," +
+                doc.getInteger("month") + "," + doc.getInteger("total");
+        helpActivity.put(staffMember, activity);
+        return activity;
+    }
+
+    private static Document countSince(long time) {
+        return new Document("$cond", Arrays.asList(new Document("$gte", Arrays.asList("$time", time)), 1, 0));
     }
 
     public long lastHelpRequest(UUID uuid) {
@@ -858,6 +936,8 @@ public class MongoHandler {
      * @return true if a staff member is online, false if not
      */
     public boolean areStaffOnline(boolean guide) {
+        PresenceUtil presence = PalaceBungee.getPresenceUtil();
+        if (presence != null && presence.isWarm()) return presence.areStaffOnline(guide);
         FindIterable<Document> find = playerCollection.find(Filters.eq("online", true)).projection(new Document("rank", true).append("tags", true));
         for (Document doc : find) {
             Rank rank = Rank.fromString(doc.getString("rank"));
@@ -887,9 +967,27 @@ public class MongoHandler {
     }
 
     public Mute getCurrentMute(UUID uuid) {
-        Document doc = getPlayer(uuid, new Document("mutes", 1));
+        Document doc;
+        if (moderationLog.isReadFromCollection()) {
+            doc = new Document("mutes", moderationLog.getActive(uuid, Collections.singletonList(ModerationLog.MUTE)).get(ModerationLog.MUTE));
+        } else {
+            doc = getPlayer(uuid, new Document("mutes", 1));
+        }
         if (doc == null) return null;
-        for (Object o : doc.get("mutes", ArrayList.class)) {
+        return getActiveMute(uuid, doc);
+    }
+
+    /**
+     * Find the first active mute in a player document's mutes array
+     *
+     * @param uuid the uuid of the player
+     * @param doc  a player document containing (at least) the active entries of the mutes array
+     * @return the active mute, or null if there isn't one
+     */
+    static Mute getActiveMute(UUID uuid, Document doc) {
+        List mutes = doc.get("mutes", List.class);
+        if (mutes == null) return null;
+        for (Object o : mutes) {
             Document muteDoc = (Document) o;
             if (muteDoc == null || !muteDoc.getBoolean("active")) continue;
             return new Mute(uuid, true, muteDoc.getLong("created"), muteDoc.getLong("expires"),
@@ -900,6 +998,7 @@ public class MongoHandler {
 
     public void unmutePlayer(UUID uuid) {
         playerCollection.updateMany(new Document("uuid", uuid.toString()).append("mutes.active", true), Updates.set("mutes.$.active", false));
+        moderationLog.deactivate(uuid, ModerationLog.MUTE, new Document());
     }
 
     public void mutePlayer(UUID uuid, Mute mute) {
@@ -909,6 +1008,7 @@ public class MongoHandler {
                 .append("reason", mute.getReason()).append("source", mute.getSource()).append("active", true);
 
         playerCollection.updateOne(Filters.eq("uuid", uuid.toString()), Updates.push("mutes", muteDocument));
+        moderationLog.add(uuid, ModerationLog.MUTE, muteDocument);
     }
 
     public Ban getCurrentBan(UUID uuid) {
@@ -916,8 +1016,28 @@ public class MongoHandler {
     }
 
     public Ban getCurrentBan(UUID uuid, String name) {
-        Document doc = getPlayer(uuid, new Document("bans", 1));
-        for (Object o : doc.get("bans", ArrayList.class)) {
+        Document doc;
+        if (moderationLog.isReadFromCollection()) {
+            doc = new Document("bans", moderationLog.getActive(uuid, Collections.singletonList(ModerationLog.BAN)).get(ModerationLog.BAN));
+        } else {
+            doc = getPlayer(uuid, new Document("bans", 1));
+            if (doc == null) return null;
+        }
+        return getActiveBan(uuid, name, doc);
+    }
+
+    /**
+     * Find the first active ban in a player document's bans array
+     *
+     * @param uuid the uuid of the player
+     * @param name the name of the player
+     * @param doc  a player document containing (at least) the active entries of the bans array
+     * @return the active ban, or null if there isn't one
+     */
+    static Ban getActiveBan(UUID uuid, String name, Document doc) {
+        List bans = doc.get("bans", List.class);
+        if (bans == null) return null;
+        for (Object o : bans) {
             Document banDoc = (Document) o;
             if (banDoc == null || !banDoc.getBoolean("active")) continue;
             return new Ban(uuid, name, banDoc.getBoolean("permanent"), banDoc.getLong("created"),
@@ -931,6 +1051,7 @@ public class MongoHandler {
                 .append("time", System.currentTimeMillis())
                 .append("source", kick.getSource());
         playerCollection.updateOne(Filters.eq("uuid", uuid.toString()), Updates.push("kicks", kickDocument));
+        moderationLog.add(uuid, ModerationLog.KICK, kickDocument);
     }
 
     public void warnPlayer(Warning warning) {
@@ -939,11 +1060,14 @@ public class MongoHandler {
                 .append("source", warning.getSource());
         playerCollection.updateOne(Filters.eq("uuid", warning.getUniqueId().toString()),
                 Updates.push("warnings", warningDocument), new UpdateOptions().upsert(true));
+        moderationLog.add(warning.getUniqueId(), ModerationLog.WARNING, warningDocument);
     }
 
     public void unbanPlayer(UUID uuid) {
+        long now = System.currentTimeMillis();
         playerCollection.updateMany(new Document("uuid", uuid.toString()).append("bans.active", true),
-                new Document("$set", new Document("bans.$.active", false).append("bans.$.expires", System.currentTimeMillis())));
+                new Document("$set", new Document("bans.$.active", false).append("bans.$.expires", now)));
+        moderationLog.deactivate(uuid, ModerationLog.BAN, new Document("expires", now));
     }
 
     public void banPlayer(UUID uuid, Ban ban) {
@@ -954,14 +1078,17 @@ public class MongoHandler {
                 .append("source", ban.getSource()).append("active", true);
 
         playerCollection.updateOne(Filters.eq("uuid", uuid.toString()), Updates.push("bans", banDocument));
+        moderationLog.add(uuid, ModerationLog.BAN, banDocument);
     }
 
     public void banProvider(ProviderBan ban) {
         bansCollection.insertOne(new Document("type", "provider").append("data", ban.getProvider())
                 .append("source", ban.getSource()));
+        banIndex.addProvider(ban);
     }
 
     public ProviderBan getProviderBan(String isp) {
+        if (banIndex.isLoaded()) return banIndex.getProviderBan(isp);
         Document doc = bansCollection.find(new Document("type", "provider").append("data", isp)).first();
         if (doc == null) return null;
         return new ProviderBan(doc.getString("data"), doc.getString("source"));
@@ -977,21 +1104,66 @@ public class MongoHandler {
 
     public void unbanProvider(String isp) {
         bansCollection.deleteMany(new Document("type", "provider").append("data", isp));
+        banIndex.removeProvider(isp);
     }
 
     public void banAddress(AddressBan ban) {
         bansCollection.insertOne(new Document("type", "ip").append("data", ban.getAddress())
                 .append("reason", ban.getReason()).append("source", ban.getSource()));
+        banIndex.addAddress(ban);
     }
 
     public AddressBan getAddressBan(String address) {
+        if (banIndex.isLoaded()) return banIndex.getAddressBan(address);
         Document doc = bansCollection.find(new Document("type", "ip").append("data", address)).first();
         if (doc == null) return null;
         return new AddressBan(doc.getString("data"), doc.getString("reason"), doc.getString("source"));
     }
 
+    /**
+     * Get the address ban matching either the exact address or the most specific banned range containing it, whether
+     * that range was banned as a.b.c.* or in CIDR notation, in a single query. An exact match takes priority.
+     *
+     * @param address the address
+     * @return the matching ban, or null if neither the address nor a range containing it is banned
+     */
+    public AddressBan getAddressBanOrRange(String address) {
+        if (banIndex.isLoaded()) return banIndex.getAddressBanOrRange(address);
+        List<String> candidates = new ArrayList<>();
+        candidates.add(address);
+        String range = getAddressRange(address);
+        if (range != null) candidates.add(range);
+        // CIDR bans can't be looked up by value, but there are few of them, so they're all checked here the same way
+        // the ban index checks them
+        IPTrie<AddressBan> ranges = new IPTrie<>();
+        for (Document doc : bansCollection.find(Filters.and(Filters.eq("type", "ip"),
+                Filters.or(Filters.in("data", candidates), Filters.regex("data", "/"))))) {
+            String data = doc.getString("data");
+            if (data == null) continue;
+            AddressBan ban = new AddressBan(data, doc.getString("reason"), doc.getString("source"));
+            if (address.equals(data)) return ban;
+            IPTrie.Prefix prefix = IPTrie.parsePrefix(data);
+            if (prefix != null) ranges.put(prefix, ban);
+        }
+        byte[] bytes = IPTrie.parseAddress(address);
+        return bytes == null ? null : ranges.longestMatch(bytes);
+    }
+
+    /**
+     * Get the a.b.c.* range an IPv4 address belongs to
+     *
+     * @param address the address
+     * @return the range, or null if the address isn't IPv4
+     */
+    public static String getAddressRange(String address) {
+        String[] list = address.split("\\.");
+        if (list.length != 4) return null;
+        return list[0] + "." + list[1] + "." + list[2] + ".*";
+    }
+
     public void unbanAddress(String address) {
         bansCollection.deleteMany(new Document("type", "ip").append("data", address));
+        banIndex.removeAddress(address);
     }
 
     public void updateProviderData(UUID uuid, ProviderData data) {
@@ -1001,24 +1173,100 @@ public class MongoHandler {
         playerCollection.updateOne(Filters.eq("uuid", uuid.toString()), new Document("$set", doc));
     }
 
-    public ArrayList getBans(UUID uuid) {
-        return getPlayer(uuid, new Document("bans", 1)).get("bans", ArrayList.class);
+    public List getBans(UUID uuid) {
+        return getModerationHistory(uuid, "bans");
+    }
+
+    public List getMutes(UUID uuid) {
+        return getModerationHistory(uuid, "mutes");
+    }
+
+    public List getKicks(UUID uuid) {
+        return getModerationHistory(uuid, "kicks");
+    }
+
+    public List getWarnings(UUID uuid) {
+        return getModerationHistory(uuid, "warnings");
     }
 
-    public ArrayList getMutes(UUID uuid) {
-        return getPlayer(uuid, new Document("mutes", 1)).get("mutes", ArrayList.class);
+    /**
+     * Get a player's full history of one kind of punishment, oldest first
+     *
+     * @param uuid  the uuid of the player
+     * @param array the name of the array on the player document: bans, mutes, kicks or warnings
+     * @return the history, empty if there isn't any
+     */
+    private List<Document> getModerationHistory(UUID uuid, String array) {
+        if (moderationLog.isReadFromCollection()) {
+            return moderationLog.getAll(uuid, getModerationType(array));
+        }
+        Document doc = getPlayer(uuid, new Document(array, 1));
+        if (doc == null || !doc.containsKey(array)) {
+            return new ArrayList<>();
+        }
+        return doc.get(array, List.class);
     }
 
-    public ArrayList getKicks(UUID uuid) {
-        return getPlayer(uuid, new Document("kicks", 1)).get("kicks", ArrayList.class);
+    /**
+     * Get one page of a player's history of one kind of punishment, newest first
+     *
+     * @param uuid     the uuid of the player
+     * @param array    the name of the array on the player document: bans, mutes, kicks or warnings
+     * @param page     the page, starting from 1
+     * @param pageSize the number of entries on a page
+     * @return the entries on that page, empty if the page is past the end of the history
+     */
+    public List<Document> getModerationPage(UUID uuid, String array, int page, int pageSize) {
+        if (moderationLog.isReadFromCollection()) {
+            return moderationLog.getPage(uuid, getModerationType(array), page, pageSize);
+        }
+        List<Document> all = getModerationHistory(uuid, array);
+        List<Document> list = new ArrayList<>();
+        for (int i = all.size() - 1 - (page - 1) * pageSize; i >= 0 && list.size() < pageSize; i--) {
+            list.add(all.get(i));
+        }
+        return list;
     }
 
-    public ArrayList getWarnings(UUID uuid) {
-        Document doc = getPlayer(uuid, new Document("warnings", 1));
-        if (doc == null || !doc.containsKey("warnings")) {
-            return new ArrayList();
+    /**
+     * Count a player's bans, mutes, kicks and warnings without loading any of them
+     *
+     * @param uuid the uuid of the player
+     * @return a map from array name (bans, mutes, kicks, warnings) to count, with every name present
+     */
+    public Map<String, Integer> getModerationCounts(UUID uuid) {
+        List<String> arrays = Arrays.asList("bans", "mutes", "kicks", "warnings");
+        Map<String, Integer> counts = new HashMap<>();
+        if (moderationLog.isReadFromCollection()) {
+            Map<String, Integer> byType = moderationLog.getCounts(uuid);
+            for (String array : arrays) {
+                counts.put(array, byType.get(getModerationType(array)));
+            }
+            return counts;
+        }
+        Document projection = new Document();
+        for (String array : arrays) {
+            projection.append(array, new Document("$size", new Document("$ifNull", Arrays.asList("$" + array, Collections.emptyList()))));
+        }
+        Document doc = playerCollection.aggregate(Arrays.asList(Aggregates.match(Filters.eq("uuid", uuid.toString())),
+                Aggregates.project(projection))).first();
+        for (String array : arrays) {
+            counts.put(array, doc == null ? 0 : doc.getInteger(array, 0));
+        }
+        return counts;
+    }
+
+    private static String getModerationType(String array) {
+        switch (array) {
+            case "bans":
+                return ModerationLog.BAN;
+            case "mutes":
+                return ModerationLog.MUTE;
+            case "kicks":
+                return ModerationLog.KICK;
+            default:
+                return ModerationLog.WARNING;
         }
-        return doc.get("warnings", ArrayList.class);
     }
 
     public Rank getRank(String username) {
@@ -1105,10 +1353,22 @@ public class MongoHandler {
         return getList(uuid, 0);
     }
 
+    /**
+     * Get every friendship and pending friend request a player is part of
+     *
+     * @param uuid the uuid of the player
+     * @return the documents from the friends collection, where a started value of 0 means the request is pending
+     */
+    public List<Document> getFriendships(UUID uuid) {
+        List<Document> list = new ArrayList<>();
+        friendsCollection.find(Filters.or(Filters.eq("sender", uuid.toString()),
+                Filters.eq("receiver", uuid.toString()))).into(list);
+        return list;
+    }
+
     public HashMap<UUID, String> getList(UUID uuid, int id) {
         List<UUID> list = new ArrayList<>();
-        for (Document doc : friendsCollection.find(Filters.or(Filters.eq("sender", uuid.toString()),
-                Filters.eq("receiver", uuid.toString())))) {
+        for (Document doc : getFriendships(uuid)) {
             UUID sender = UUID.fromString(doc.getString("sender"));
             UUID receiver = UUID.fromString(doc.getString("receiver"));
             boolean friend = doc.getLong("started") > 0;
@@ -1122,9 +1382,10 @@ public class MongoHandler {
                 }
             }
         }
+        Map<UUID, String> names = usernameCache.resolveAll(list);
         HashMap<UUID, String> map = new HashMap<>();
         for (UUID uid : list) {
-            map.put(uid, PalaceBungee.getUsername(uid));
+            map.put(uid, names.getOrDefault(uid, "Unknown"));
         }
         return map;
     }
@@ -1243,12 +1504,11 @@ public class MongoHandler {
     }
 
     public void logAFK(UUID uuid) {
-        playerCollection.updateOne(Filters.eq("uuid", uuid.toString()),
-                Updates.push("afklogs", System.currentTimeMillis()), new UpdateOptions().upsert(true));
+        writeBuffer.push(uuid, "afklogs", System.currentTimeMillis(), true);
     }
 
     public void setOnlineData(UUID uuid, String key, Object value) {
-        playerCollection.updateOne(Filters.eq("uuid", uuid.toString()), Updates.set("onlineData." + key, value));
+        writeBuffer.set(uuid, "onlineData." + key, value);
     }
 
     public Document getVirtualQueue(String queueId) {
@@ -1260,7 +1520,7 @@ public class MongoHandler {
         if (!okay) {
             doc.append("uuid", sender.toString()).append("message", message).append("time", time).append("okay", false).append("filterCaught", filterCaught).append("offendingText", offendingText);
         }
-        chatCollection.insertOne(doc);
+        chatLog.add(doc);
     }
 
     public void completeTutorial(UUID uuid) {
@@ -1268,6 +1528,8 @@ public class MongoHandler {
     }
 
     public List<String> getOnlinePlayerNames() {
+        PresenceUtil presence = PalaceBungee.getPresenceUtil();
+        if (presence != null && presence.isWarm()) return presence.getOnlinePlayerNames();
         List<String> names = new ArrayList<>();
         for (Document doc : playerCollection.find(Filters.eq("online", true)).projection(new Document("username", true))) {
             try {
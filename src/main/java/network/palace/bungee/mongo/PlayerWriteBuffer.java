@@ -0,0 +1,311 @@
+package network.palace.bungee.mongo;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import net.md_5.bungee.config.Configuration;
+import network.palace.bungee.PalaceBungee;
+import org.bson.Document;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * A write-behind buffer for updates to the {@code players} collection. Updates are keyed by player UUID and merged
+ * with any update already pending for that player, then flushed together with an unordered bulk write every
+ * {@code mongodb.writeBuffer.interval} milliseconds, or sooner once {@code mongodb.writeBuffer.maxPending} players
+ * have pending updates.
+ * <p>
+ * Two updates can't always be merged into one, e.g. an {@code $unset} of {@code onlineData} followed by a {@code $set}
+ * of {@code onlineData.server}. In that case the later update is kept as a separate update for that player and
+ * written in a later round of the same flush, so updates for one player are always applied in the order they were made.
+ * <p>
+ * If a round can't be written, e.g. because the database can't be reached or the write timed out, the updates in it
+ * and every player's later updates go back to the front of the pending updates and are tried again on the next flush,
+ * up to three times in all. Updates the database rejects outright are logged and dropped.
+ */
+public class PlayerWriteBuffer {
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final MongoCollection<Document> playerCollection;
+    private final ScheduledExecutorService executor;
+    private final int maxPending;
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushQueued = new AtomicBoolean(false);
+    private final AtomicLong flushedUpdates = new AtomicLong(0);
+    private final AtomicLong mergedUpdates = new AtomicLong(0);
+    private final AtomicLong failedUpdates = new AtomicLong(0);
+    private LinkedHashMap<UUID, Deque<PendingUpdate>> pending = new LinkedHashMap<>();
+
+    public PlayerWriteBuffer(MongoCollection<Document> playerCollection) {
+        this.playerCollection = playerCollection;
+        int interval = 500, maxPending = 500;
+        try {
+            Configuration config = PalaceBungee.getConfigUtil().getConfig();
+            interval = config.getInt("mongodb.writeBuffer.interval", interval);
+            maxPending = config.getInt("mongodb.writeBuffer.maxPending", maxPending);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading write buffer settings from config file, using defaults", e);
+        }
+        this.maxPending = maxPending;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "PalaceBungee Write Buffer");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void set(UUID uuid, String key, Object value) {
+        add(uuid, "$set", key, value, false);
+    }
+
+    public void set(UUID uuid, String key, Object value, boolean upsert) {
+        add(uuid, "$set", key, value, upsert);
+    }
+
+    public void unset(UUID uuid, String key) {
+        add(uuid, "$unset", key, "", false);
+    }
+
+    public void inc(UUID uuid, String key, Number amount) {
+        add(uuid, "$inc", key, amount, false);
+    }
+
+    public void push(UUID uuid, String key, Object value, boolean upsert) {
+        add(uuid, "$push", key, value, upsert);
+    }
+
+    private void add(UUID uuid, String operator, String key, Object value, boolean upsert) {
+        int size;
+        synchronized (this) {
+            Deque<PendingUpdate> updates = pending.computeIfAbsent(uuid, u -> new ArrayDeque<>());
+            PendingUpdate last = updates.peekLast();
+            if (last != null && last.merge(operator, key, value, upsert)) {
+                mergedUpdates.incrementAndGet();
+            } else {
+                PendingUpdate update = new PendingUpdate();
+                update.merge(operator, key, value, upsert);
+                updates.addLast(update);
+            }
+            size = pending.size();
+        }
+        if (size >= maxPending && flushQueued.compareAndSet(false, true)) {
+            executor.execute(this::flush);
+        }
+    }
+
+    /**
+     * Write every pending update to the database. Blocks until the bulk writes have finished.
+     */
+    public void flush() {
+        flushQueued.set(false);
+        synchronized (flushLock) {
+            LinkedHashMap<UUID, Deque<PendingUpdate>> toFlush;
+            synchronized (this) {
+                if (pending.isEmpty()) return;
+                toFlush = pending;
+                pending = new LinkedHashMap<>();
+            }
+            write(toFlush);
+        }
+    }
+
+    /**
+     * Write any pending updates for one player to the database, so a read that follows sees them
+     *
+     * @param uuid the uuid of the player
+     */
+    public void flush(UUID uuid) {
+        // taking the flushLock first also waits out a bulk write already in progress that may include this player
+        synchronized (flushLock) {
+            Deque<PendingUpdate> updates;
+            synchronized (this) {
+                updates = pending.remove(uuid);
+            }
+            if (updates == null) return;
+            LinkedHashMap<UUID, Deque<PendingUpdate>> single = new LinkedHashMap<>();
+            single.put(uuid, updates);
+            write(single);
+        }
+    }
+
+    private void write(LinkedHashMap<UUID, Deque<PendingUpdate>> toFlush) {
+        // each round takes the oldest remaining update for every player, so later updates for the same player
+        // are only written once the earlier ones have been
+        while (!toFlush.isEmpty()) {
+            List<WriteModel<Document>> round = new ArrayList<>();
+            Map<UUID, PendingUpdate> updates = new LinkedHashMap<>();
+            Iterator<Map.Entry<UUID, Deque<PendingUpdate>>> it = toFlush.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<UUID, Deque<PendingUpdate>> entry = it.next();
+                PendingUpdate update = entry.getValue().pollFirst();
+                if (entry.getValue().isEmpty()) it.remove();
+                if (update == null) continue;
+                updates.put(entry.getKey(), update);
+                round.add(new UpdateOneModel<>(Filters.eq("uuid", entry.getKey().toString()), update.toDocument(),
+                        new UpdateOptions().upsert(update.upsert)));
+            }
+            if (round.isEmpty()) continue;
+            try {
+                playerCollection.bulkWrite(round, new BulkWriteOptions().ordered(false));
+                flushedUpdates.addAndGet(round.size());
+            } catch (MongoBulkWriteException e) {
+                List<BulkWriteError> errors = e.getWriteErrors();
+                List<UUID> uuids = new ArrayList<>(updates.keySet());
+                Map<UUID, PendingUpdate> retry = new LinkedHashMap<>();
+                flushedUpdates.addAndGet(round.size() - errors.size());
+                for (BulkWriteError error : errors) {
+                    UUID uuid = uuids.get(error.getIndex());
+                    if (ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.EXECUTION_TIMEOUT) {
+                        retry.put(uuid, updates.get(uuid));
+                        continue;
+                    }
+                    failedUpdates.incrementAndGet();
+                    PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error writing buffered player update " +
+                            ((UpdateOneModel<Document>) round.get(error.getIndex())).getFilter() + ": " + error.getMessage());
+                }
+                if (!retry.isEmpty()) requeue(retry, toFlush, false);
+            } catch (Exception e) {
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error writing " + round.size() +
+                        " buffered player updates, trying again on the next flush", e);
+                requeue(updates, toFlush, true);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Put updates that couldn't be written back at the front of the pending updates, followed by the same players'
+     * later updates so they're still written in order, unless they've been tried too many times
+     *
+     * @param failed the updates that couldn't be written
+     * @param later  the updates left to write in this flush
+     * @param all    whether to put back every update left in this flush, not just the failed players' ones
+     */
+    private void requeue(Map<UUID, PendingUpdate> failed, Map<UUID, Deque<PendingUpdate>> later, boolean all) {
+        LinkedHashMap<UUID, Deque<PendingUpdate>> retry = new LinkedHashMap<>();
+        failed.forEach((uuid, update) -> {
+            Deque<PendingUpdate> updates = new ArrayDeque<>();
+            if (++update.attempts < MAX_ATTEMPTS) {
+                updates.add(update);
+            } else {
+                failedUpdates.incrementAndGet();
+                PalaceBungee.getProxyServer().getLogger().severe("Dropping buffered update for " + uuid + " after " +
+                        update.attempts + " attempts: " + update.toDocument().toJson());
+            }
+            Deque<PendingUpdate> rest = later.remove(uuid);
+            if (rest != null) updates.addAll(rest);
+            if (!updates.isEmpty()) retry.put(uuid, updates);
+        });
+        if (all) {
+            later.forEach((uuid, updates) -> retry.computeIfAbsent(uuid, u -> new ArrayDeque<>()).addAll(updates));
+            later.clear();
+        }
+        synchronized (this) {
+            // anything added since this flush started goes after the updates being retried
+            pending.forEach((uuid, updates) -> retry.computeIfAbsent(uuid, u -> new ArrayDeque<>()).addAll(updates));
+            pending = retry;
+        }
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getFlushedCount() {
+        return flushedUpdates.get();
+    }
+
+    public long getMergedCount() {
+        return mergedUpdates.get();
+    }
+
+    public long getFailedCount() {
+        return failedUpdates.get();
+    }
+
+    /**
+     * Stop the flush timer and write everything that's still pending. Called when the proxy shuts down.
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+        }
+        flush();
+    }
+
+    /**
+     * The merged operators of one update for one player
+     */
+    private static class PendingUpdate {
+        private final Map<String, Document> operators = new LinkedHashMap<>();
+        private boolean upsert = false;
+        private int attempts = 0;
+
+        /**
+         * Merge an operator into this update
+         *
+         * @return false if the key conflicts with a key already in this update, in which case nothing is changed
+         */
+        @SuppressWarnings("unchecked")
+        boolean merge(String operator, String key, Object value, boolean upsert) {
+            for (Map.Entry<String, Document> entry : operators.entrySet()) {
+                for (String existing : entry.getValue().keySet()) {
+                    if (existing.equals(key)) {
+                        if (!entry.getKey().equals(operator)) return false;
+                    } else if (existing.startsWith(key + ".") || key.startsWith(existing + ".")) {
+                        return false;
+                    }
+                }
+            }
+            Document doc = operators.computeIfAbsent(operator, o -> new Document());
+            switch (operator) {
+                case "$inc": {
+                    Number current = (Number) doc.get(key);
+                    if (current == null) {
+                        doc.put(key, value);
+                    } else if (current instanceof Integer && value instanceof Integer) {
+                        doc.put(key, current.intValue() + (Integer) value);
+                    } else {
+                        doc.put(key, current.longValue() + ((Number) value).longValue());
+                    }
+                    break;
+                }
+                case "$push": {
+                    Document each = (Document) doc.get(key);
+                    if (each == null) {
+                        each = new Document("$each", new ArrayList<>());
+                        doc.put(key, each);
+                    }
+                    ((List<Object>) each.get("$each")).add(value);
+                    break;
+                }
+                default:
+                    doc.put(key, value);
+            }
+            this.upsert |= upsert;
+            return true;
+        }
+
+        Document toDocument() {
+            Document update = new Document();
+            operators.forEach(update::append);
+            return update;
+        }
+    }
+}
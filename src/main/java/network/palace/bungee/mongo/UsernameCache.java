@@ -0,0 +1,195 @@
+package network.palace.bungee.mongo;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import net.md_5.bungee.config.Configuration;
+import network.palace.bungee.PalaceBungee;
+import org.bson.Document;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * A bounded, thread-safe cache of username/UUID pairs in both directions, loaded from the players collection.
+ * <p>
+ * Concurrent lookups of the same missing key share a single query, and lookups that found nothing are remembered for
+ * a shorter time than hits so a player who has just joined for the first time isn't reported missing for long.
+ * {@link #resolveAll(Collection)} resolves any number of UUIDs with at most one {@code $in} query.
+ * <p>
+ * Sizes and lifetimes come from the {@code usernameCache} section of the config file.
+ */
+public class UsernameCache {
+    private final MongoCollection<Document> playerCollection;
+    private final long negativeExpiry;
+    private final LoadingCache<UUID, Lookup<String>> names;
+    private final LoadingCache<String, Lookup<UUID>> uuids;
+
+    public UsernameCache(MongoCollection<Document> playerCollection) {
+        this.playerCollection = playerCollection;
+        int maximumSize = 10000, expiry = 600, negativeExpiry = 30;
+        try {
+            Configuration config = PalaceBungee.getConfigUtil().getConfig();
+            maximumSize = config.getInt("usernameCache.maximumSize", maximumSize);
+            expiry = config.getInt("usernameCache.expiry", expiry);
+            negativeExpiry = config.getInt("usernameCache.negativeExpiry", negativeExpiry);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading username cache settings from config file, using defaults", e);
+        }
+        this.negativeExpiry = TimeUnit.SECONDS.toMillis(negativeExpiry);
+        names = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(expiry, TimeUnit.SECONDS).recordStats()
+                .build(new CacheLoader<UUID, Lookup<String>>() {
+                    @Override
+                    public Lookup<String> load(UUID uuid) {
+                        return loadAll(Collections.singleton(uuid)).get(uuid);
+                    }
+
+                    @Override
+                    public Map<UUID, Lookup<String>> loadAll(Iterable<? extends UUID> keys) {
+                        return loadUsernames(keys);
+                    }
+                });
+        uuids = CacheBuilder.newBuilder().maximumSize(maximumSize).expireAfterWrite(expiry, TimeUnit.SECONDS).recordStats()
+                .build(new CacheLoader<String, Lookup<UUID>>() {
+                    @Override
+                    public Lookup<UUID> load(String username) {
+                        return loadUUID(username);
+                    }
+                });
+    }
+
+    /**
+     * Get a player's username from their UUID
+     *
+     * @param uuid the uuid
+     * @return the username, or null if not found
+     */
+    public String getUsername(UUID uuid) {
+        return get(names, uuid);
+    }
+
+    /**
+     * Get a player's UUID from their username
+     *
+     * @param username the username
+     * @return the UUID, or null if not found
+     */
+    public UUID getUUID(String username) {
+        return get(uuids, username);
+    }
+
+    /**
+     * Get the usernames for a group of players, querying the database once for all of those that aren't cached
+     *
+     * @param players the uuids
+     * @return a map from uuid to username, containing only the players that were found
+     */
+    public Map<UUID, String> resolveAll(Collection<UUID> players) {
+        for (UUID uuid : players) {
+            Lookup<String> lookup = names.getIfPresent(uuid);
+            if (lookup != null && lookup.isStale(negativeExpiry)) names.asMap().remove(uuid, lookup);
+        }
+        Map<UUID, String> map = new HashMap<>();
+        try {
+            names.getAll(players).forEach((uuid, lookup) -> {
+                if (lookup.value != null) map.put(uuid, lookup.value);
+            });
+        } catch (Exception e) {
+            throw unwrap(e);
+        }
+        return map;
+    }
+
+    /**
+     * Record a known username/UUID pair, e.g. when a player logs in, replacing any older name cached for that player
+     */
+    public void put(UUID uuid, String username) {
+        Lookup<String> previous = names.getIfPresent(uuid);
+        if (previous != null && previous.value != null && !previous.value.equals(username)) {
+            uuids.invalidate(previous.value);
+        }
+        names.put(uuid, new Lookup<>(username));
+        uuids.put(username, new Lookup<>(uuid));
+    }
+
+    public long getSize() {
+        return names.size() + uuids.size();
+    }
+
+    public CacheStats getStats() {
+        return names.stats().plus(uuids.stats());
+    }
+
+    private <K, V> V get(LoadingCache<K, Lookup<V>> cache, K key) {
+        try {
+            Lookup<V> lookup = cache.get(key);
+            if (lookup.isStale(negativeExpiry)) {
+                cache.asMap().remove(key, lookup);
+                lookup = cache.get(key);
+            }
+            return lookup.value;
+        } catch (Exception e) {
+            throw unwrap(e);
+        }
+    }
+
+    private Map<UUID, Lookup<String>> loadUsernames(Iterable<? extends UUID> keys) {
+        Map<UUID, Lookup<String>> map = new HashMap<>();
+        List<String> list = new ArrayList<>();
+        for (UUID uuid : keys) {
+            map.put(uuid, new Lookup<>(null));
+            list.add(uuid.toString());
+        }
+        for (Document doc : playerCollection.find(Filters.in("uuid", list)).projection(Projections.include("uuid", "username"))) {
+            String username = doc.getString("username");
+            if (username == null) continue;
+            UUID uuid = UUID.fromString(doc.getString("uuid"));
+            map.put(uuid, new Lookup<>(username));
+            uuids.put(username, new Lookup<>(uuid));
+        }
+        return map;
+    }
+
+    private Lookup<UUID> loadUUID(String username) {
+        Document doc = playerCollection.find(Filters.eq("username", username)).projection(new Document("uuid", 1)).first();
+        if (doc == null || !doc.containsKey("uuid")) return new Lookup<>(null);
+        UUID uuid = UUID.fromString(doc.getString("uuid"));
+        names.put(uuid, new Lookup<>(username));
+        return new Lookup<>(uuid);
+    }
+
+    /**
+     * Rethrow the exception a loader threw, rather than the wrapper the cache put around it
+     */
+    private static RuntimeException unwrap(Exception e) {
+        Throwable cause = (e instanceof ExecutionException || e instanceof UncheckedExecutionException) &&
+                e.getCause() != null ? e.getCause() : e;
+        Throwables.throwIfUnchecked(cause);
+        return new RuntimeException(cause);
+    }
+
+    /**
+     * A cached lookup result, where a null value means the player wasn't found
+     */
+    private static class Lookup<V> {
+        private final V value;
+        private final long loaded = System.currentTimeMillis();
+
+        private Lookup(V value) {
+            this.value = value;
+        }
+
+        private boolean isStale(long negativeExpiry) {
+            return value == null && System.currentTimeMillis() - loaded > negativeExpiry;
+        }
+    }
+}
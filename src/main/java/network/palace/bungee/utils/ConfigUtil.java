@@ -48,6 +48,7 @@ public class ConfigUtil {
         }
 
         BungeeConfig bungeeConfig = getBungeeConfig();
+        PalaceBungee.getMongoHandler().getModerationLog().loadSettings();
         this.favicon = bungeeConfig.favicon;
         this.motdTemp = bungeeConfig.motd;
         this.motd = this.motdTemp.replaceAll("%n%", System.getProperty("line.separator"));
@@ -0,0 +1,178 @@
+package network.palace.bungee.utils;
+
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.config.ServerInfo;
+import net.md_5.bungee.config.Configuration;
+import network.palace.bungee.PalaceBungee;
+import network.palace.bungee.handlers.Player;
+import network.palace.bungee.handlers.Server;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Moves every player on this proxy off a server that's being emptied, e.g. before it shuts down.
+ * <p>
+ * The destinations are chosen once for the whole server: other servers of the same type, otherwise the hubs (or
+ * Creative when a hub is being emptied), otherwise the parks. Players are split between them in proportion to the
+ * free slots each one had when the evacuation started, and sent in waves of {@code evacuation.waveSize} players every
+ * {@code evacuation.waveInterval} seconds, with each wave spread across all the destinations, so no single server
+ * takes the whole load at once.
+ */
+public class EvacuationPlanner {
+    private final int waveSize, waveInterval;
+
+    public EvacuationPlanner() {
+        int waveSize = 20, waveInterval = 1;
+        try {
+            Configuration config = PalaceBungee.getConfigUtil().getConfig();
+            waveSize = config.getInt("evacuation.waveSize", waveSize);
+            waveInterval = config.getInt("evacuation.waveInterval", waveInterval);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading evacuation settings from config file, using defaults", e);
+        }
+        this.waveSize = Math.max(1, waveSize);
+        this.waveInterval = Math.max(1, waveInterval);
+    }
+
+    /**
+     * Send every player on this proxy who is on a server somewhere else
+     *
+     * @param server the server being emptied
+     */
+    public void evacuate(Server server) {
+        List<Player> players = new ArrayList<>();
+        for (Player tp : PalaceBungee.getOnlinePlayers()) {
+            if (tp.getServerName().equals(server.getName())) players.add(tp);
+        }
+        if (players.isEmpty()) return;
+        ServerUtil util = PalaceBungee.getServerUtil();
+        String type = server.getName().replaceAll("\\d*$", "");
+        List<Server> targets = util.getCandidates(s -> s.getServerType().equals(type), server.getUniqueId());
+        if (targets.isEmpty()) {
+            String fallback = server.getServerType().equalsIgnoreCase("hub") ? "Creative" : "Hub";
+            targets = util.getCandidates(s -> s.getServerType().equals(fallback), server.getUniqueId());
+        }
+        if (targets.isEmpty()) {
+            targets = util.getCandidates(Server::isPark, server.isPark() ? server.getUniqueId() : null);
+        }
+        if (targets.isEmpty()) {
+            PalaceBungee.getProxyServer().getLogger().warning("Can't empty " + server.getName() + ", there are no servers to send its " +
+                    players.size() + " players to");
+            return;
+        }
+        Deque<Assignment> plan = plan(players, targets);
+        int waves = (plan.size() + waveSize - 1) / waveSize;
+        PalaceBungee.getProxyServer().getLogger().info("Emptying " + server.getName() + ": sending " + plan.size() +
+                " players to " + targets.size() + " servers in " + waves + " waves");
+        PalaceBungee.getProxyServer().getScheduler().schedule(PalaceBungee.getInstance(),
+                () -> sendWave(server, plan, 1, waves), 0, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Send the next {@code waveSize} players, skipping any who have already left the server, then schedule the next
+     * wave if there are players left
+     */
+    private void sendWave(Server server, Deque<Assignment> plan, int wave, int waves) {
+        int sent = 0;
+        while (sent < waveSize && !plan.isEmpty()) {
+            if (send(server, plan.poll())) sent++;
+        }
+        PalaceBungee.getProxyServer().getLogger().info("Emptying " + server.getName() + ": wave " + wave + "/" +
+                waves + " sent " + sent + " players, " + plan.size() + " left");
+        if (plan.isEmpty()) return;
+        PalaceBungee.getProxyServer().getScheduler().schedule(PalaceBungee.getInstance(),
+                () -> sendWave(server, plan, wave + 1, waves), waveInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Split the players between the servers in proportion to each server's free slots, or to its capacity for any
+     * players left over once every server is full. The assignments take turns between servers so each wave is spread
+     * across all of them.
+     */
+    private Deque<Assignment> plan(List<Player> players, List<Server> targets) {
+        ServerUtil util = PalaceBungee.getServerUtil();
+        double[] free = new double[targets.size()], capacity = new double[targets.size()];
+        int totalFree = 0;
+        for (int i = 0; i < targets.size(); i++) {
+            Server target = targets.get(i);
+            capacity[i] = util.getCapacity(target);
+            free[i] = util.getFreeSlots(target);
+            totalFree += (int) free[i];
+        }
+        int[] quota;
+        if (totalFree >= players.size()) {
+            quota = apportion(players.size(), free);
+        } else {
+            quota = apportion(players.size() - totalFree, capacity);
+            for (int i = 0; i < quota.length; i++) quota[i] += (int) free[i];
+        }
+        Deque<Assignment> plan = new ArrayDeque<>();
+        Iterator<Player> iterator = players.iterator();
+        while (iterator.hasNext()) {
+            for (int i = 0; i < quota.length && iterator.hasNext(); i++) {
+                if (quota[i] == 0) continue;
+                quota[i]--;
+                plan.add(new Assignment(iterator.next(), targets.get(i)));
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Split a number of players into whole shares proportional to the weights, giving the players lost to rounding
+     * to the largest remainders
+     */
+    private static int[] apportion(int count, double[] weights) {
+        int[] shares = new int[weights.length];
+        double total = Arrays.stream(weights).sum();
+        if (total <= 0) {
+            weights = new double[weights.length];
+            Arrays.fill(weights, 1);
+            total = weights.length;
+        }
+        double[] remainders = new double[weights.length];
+        int assigned = 0;
+        for (int i = 0; i < weights.length; i++) {
+            double exact = count * weights[i] / total;
+            shares[i] = (int) exact;
+            remainders[i] = exact - shares[i];
+            assigned += shares[i];
+        }
+        for (; assigned < count; assigned++) {
+            int best = 0;
+            for (int i = 1; i < remainders.length; i++) {
+                if (remainders[i] > remainders[best]) best = i;
+            }
+            shares[best]++;
+            remainders[best] = -1;
+        }
+        return shares;
+    }
+
+    private boolean send(Server from, Assignment assignment) {
+        Player player = PalaceBungee.getPlayer(assignment.player.getUniqueId());
+        if (player == null || !player.getServerName().equals(from.getName())) return false;
+        ServerInfo info = PalaceBungee.getServerUtil().getServerInfo(assignment.target.getName(), true);
+        if (info == null || player.getProxiedPlayer().isEmpty()) return false;
+        String name = assignment.target.getName().toLowerCase();
+        if (!name.startsWith("hub") && !name.startsWith("arcade")) {
+            player.sendMessage(ChatColor.RED + "No fallback servers are available, so you were sent to a Park server.");
+        }
+        PalaceBungee.getServerUtil().reserve(assignment.target);
+        player.getProxiedPlayer().get().connect(info);
+        return true;
+    }
+
+    private static class Assignment {
+        private final Player player;
+        private final Server target;
+
+        private Assignment(Player player, Server target) {
+            this.player = player;
+            this.target = target;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package network.palace.bungee.utils;
+
+import network.palace.bungee.PalaceBungee;
+import network.palace.bungee.messages.packets.FriendUpdatePacket;
+import org.bson.Document;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+/**
+ * Holds the friends, incoming friend requests and outgoing friend requests of every player online on this proxy.
+ * <p>
+ * A player's lists are loaded with one query when they log in and dropped when they log out. In between, every
+ * request, accept, deny and remove made on any proxy arrives as a {@link FriendUpdatePacket} and is applied in place,
+ * so friend lists, request counts and join/leave notifications don't need to read the database. Updates that arrive
+ * while a player's lists are still loading are held back and applied once the load finishes.
+ * <p>
+ * Lookups for players who aren't online here fall back to the database.
+ */
+public class FriendGraph {
+    private final UUID proxyId = PalaceBungee.getProxyID();
+    private final ConcurrentHashMap<UUID, Adjacency> players = new ConcurrentHashMap<>();
+
+    /**
+     * Load a player's friends and friend requests, called when they log in to this proxy
+     */
+    public void load(UUID uuid) {
+        Adjacency adjacency = new Adjacency();
+        players.put(uuid, adjacency);
+        try {
+            List<Document> friendships = PalaceBungee.getMongoHandler().getFriendships(uuid);
+            Set<UUID> others = new HashSet<>();
+            for (Document doc : friendships) {
+                others.add(UUID.fromString(doc.getString("sender")));
+                others.add(UUID.fromString(doc.getString("receiver")));
+            }
+            others.remove(uuid);
+            Map<UUID, String> names = PalaceBungee.getMongoHandler().getUsernameCache().resolveAll(others);
+            synchronized (adjacency) {
+                for (Document doc : friendships) {
+                    UUID sender = UUID.fromString(doc.getString("sender"));
+                    UUID receiver = UUID.fromString(doc.getString("receiver"));
+                    UUID other = uuid.equals(sender) ? receiver : sender;
+                    String name = names.getOrDefault(other, "Unknown");
+                    if (doc.getLong("started") > 0) {
+                        adjacency.friends.put(other, name);
+                    } else if (uuid.equals(receiver)) {
+                        adjacency.incoming.put(other, name);
+                    } else {
+                        adjacency.outgoing.add(other);
+                    }
+                }
+                adjacency.pending.forEach(packet -> apply(uuid, adjacency, packet));
+                adjacency.pending.clear();
+                adjacency.loaded = true;
+            }
+        } catch (Exception e) {
+            players.remove(uuid, adjacency);
+            PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error loading friend list for " + uuid, e);
+        }
+    }
+
+    /**
+     * Drop a player's lists, called when they log out of this proxy
+     */
+    public void unload(UUID uuid) {
+        players.remove(uuid);
+    }
+
+    public HashMap<UUID, String> getFriends(UUID uuid) {
+        Adjacency adjacency = players.get(uuid);
+        if (adjacency != null) {
+            synchronized (adjacency) {
+                if (adjacency.loaded) return new HashMap<>(adjacency.friends);
+            }
+        }
+        return PalaceBungee.getMongoHandler().getFriendList(uuid);
+    }
+
+    public HashMap<UUID, String> getRequests(UUID uuid) {
+        Adjacency adjacency = players.get(uuid);
+        if (adjacency != null) {
+            synchronized (adjacency) {
+                if (adjacency.loaded) return new HashMap<>(adjacency.incoming);
+            }
+        }
+        return PalaceBungee.getMongoHandler().getFriendRequestList(uuid);
+    }
+
+    /**
+     * Check whether a player has already sent another player a friend request that's still pending
+     */
+    public boolean hasSentRequest(UUID sender, UUID receiver) {
+        Adjacency adjacency = players.get(sender);
+        if (adjacency != null) {
+            synchronized (adjacency) {
+                if (adjacency.loaded) return adjacency.outgoing.contains(receiver);
+            }
+        }
+        return PalaceBungee.getMongoHandler().getFriendRequestList(receiver).containsKey(sender);
+    }
+
+    /**
+     * Apply a friend update made on this proxy, then tell the other proxies about it
+     */
+    public void update(FriendUpdatePacket.Action action, UUID sender, String senderName, UUID receiver, String receiverName) {
+        FriendUpdatePacket packet = new FriendUpdatePacket(action, proxyId, sender, senderName, receiver, receiverName);
+        handle(packet);
+        try {
+            PalaceBungee.getMessageHandler().sendMessage(packet, PalaceBungee.getMessageHandler().ALL_PROXIES);
+        } catch (Exception e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error publishing friend update", e);
+        }
+    }
+
+    /**
+     * Apply a friend update made on any proxy to the players it involves who are online here
+     */
+    public void handle(FriendUpdatePacket packet) {
+        for (UUID uuid : Arrays.asList(packet.getSender(), packet.getReceiver())) {
+            Adjacency adjacency = players.get(uuid);
+            if (adjacency == null) continue;
+            synchronized (adjacency) {
+                if (adjacency.loaded) {
+                    apply(uuid, adjacency, packet);
+                } else {
+                    adjacency.pending.add(packet);
+                }
+            }
+        }
+    }
+
+    private static void apply(UUID uuid, Adjacency adjacency, FriendUpdatePacket packet) {
+        boolean sender = uuid.equals(packet.getSender());
+        UUID other = sender ? packet.getReceiver() : packet.getSender();
+        String otherName = sender ? packet.getReceiverName() : packet.getSenderName();
+        switch (packet.getAction()) {
+            case REQUEST:
+                if (sender) {
+                    adjacency.outgoing.add(other);
+                } else {
+                    adjacency.incoming.put(other, otherName);
+                }
+                break;
+            case ACCEPT:
+                adjacency.outgoing.remove(other);
+                adjacency.incoming.remove(other);
+                adjacency.friends.put(other, otherName);
+                break;
+            case DENY:
+                adjacency.outgoing.remove(other);
+                adjacency.incoming.remove(other);
+                break;
+            case REMOVE:
+                adjacency.friends.remove(other);
+                break;
+        }
+    }
+
+    private static class Adjacency {
+        private final Map<UUID, String> friends = new HashMap<>();
+        private final Map<UUID, String> incoming = new HashMap<>();
+        private final Set<UUID> outgoing = new HashSet<>();
+        private final List<FriendUpdatePacket> pending = new ArrayList<>();
+        private boolean loaded = false;
+    }
+}
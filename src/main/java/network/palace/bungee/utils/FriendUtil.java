@@ -7,6 +7,7 @@ import net.md_5.bungee.api.chat.HoverEvent;
 import network.palace.bungee.PalaceBungee;
 import network.palace.bungee.handlers.Player;
 import network.palace.bungee.handlers.Rank;
+import network.palace.bungee.messages.packets.FriendUpdatePacket;
 
 import java.util.*;
 
@@ -126,8 +127,11 @@ public class FriendUtil {
         }
         try {
             UUID tuuid = PalaceBungee.getMongoHandler().usernameToUUID(name);
-            HashMap<UUID, String> requests = PalaceBungee.getMongoHandler().getFriendRequestList(tuuid);
-            if (requests.containsKey(player.getUniqueId())) {
+            if (tuuid == null) {
+                player.sendMessage(ChatColor.RED + "Player not found!");
+                return;
+            }
+            if (PalaceBungee.getFriendGraph().hasSentRequest(player.getUniqueId(), tuuid)) {
                 player.sendMessage(ChatColor.RED + "You have already sent this player a Friend Request!");
                 return;
             }
@@ -141,6 +145,7 @@ public class FriendUtil {
                     " a Friend Request!");
             /* Add request to database */
             PalaceBungee.getMongoHandler().addFriendRequest(player.getUniqueId(), tuuid);
+            PalaceBungee.getFriendGraph().update(FriendUpdatePacket.Action.REQUEST, player.getUniqueId(), player.getUsername(), tuuid, name);
             PalaceBungee.getMessageHandler().sendMessageToPlayer(tuuid,
                     new ComponentBuilder("\n" + player.getUsername()).color(ChatColor.GREEN)
                             .append(" has sent you a Friend Request!\n").color(ChatColor.YELLOW)
@@ -162,10 +167,10 @@ public class FriendUtil {
                 player.sendMessage(ChatColor.RED + "That player isn't on your Friend List!");
                 return;
             }
-            player.getFriends().remove(tuuid);
             player.sendMessage(ChatColor.RED + "You removed " + ChatColor.AQUA + name + ChatColor.RED +
                     " from your Friend List!");
             PalaceBungee.getMongoHandler().removeFriend(player.getUniqueId(), tuuid);
+            PalaceBungee.getFriendGraph().update(FriendUpdatePacket.Action.REMOVE, player.getUniqueId(), player.getUsername(), tuuid, name);
         } catch (Exception ignored) {
             player.sendMessage(ChatColor.RED + "Player not found!");
         }
@@ -185,11 +190,10 @@ public class FriendUtil {
                 player.sendMessage(ChatColor.RED + "That player hasn't sent you a Friend Request!");
                 return;
             }
-            player.getRequests().remove(tuuid);
-            player.getFriends().put(tuuid, name);
             player.sendMessage(ChatColor.YELLOW + "You have accepted " + ChatColor.GREEN + name + "'s " + ChatColor.YELLOW +
                     "Friend Request!");
             PalaceBungee.getMongoHandler().acceptFriendRequest(player.getUniqueId(), tuuid);
+            PalaceBungee.getFriendGraph().update(FriendUpdatePacket.Action.ACCEPT, tuuid, requestList.get(tuuid), player.getUniqueId(), player.getUsername());
             PalaceBungee.getMessageHandler().sendMessageToPlayer(tuuid, player.getRank().getTagColor() + player.getUsername() + ChatColor.YELLOW +
                     " has accepted your Friend Request!");
         } catch (Exception e) {
@@ -212,10 +216,10 @@ public class FriendUtil {
                 player.sendMessage(ChatColor.RED + "That player hasn't sent you a Friend Request!");
                 return;
             }
-            player.getRequests().remove(tuuid);
             player.sendMessage(ChatColor.RED + "You have denied " + ChatColor.GREEN + name + "'s " + ChatColor.RED +
                     "Friend Request!");
             PalaceBungee.getMongoHandler().denyFriendRequest(player.getUniqueId(), tuuid);
+            PalaceBungee.getFriendGraph().update(FriendUpdatePacket.Action.DENY, tuuid, requestList.get(tuuid), player.getUniqueId(), player.getUsername());
         } catch (Exception e) {
             e.printStackTrace();
             player.sendMessage(ChatColor.RED + "We encountered an error while denying that friend request, try again in a few minutes!");
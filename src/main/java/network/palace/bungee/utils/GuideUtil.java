@@ -100,7 +100,7 @@ public class GuideUtil {
                 .append(" has accepted your help request. Contact them by typing ").color(ChatColor.AQUA)
                 .append("/msg " + player.getUsername() + " [Your Message]").color(ChatColor.YELLOW)
                 .append(" (or click on this message)").color(ChatColor.GREEN).create();
-        PalaceBungee.getMessageHandler().sendMessage(new ComponentMessagePacket(tpMessage, tpUUID), PalaceBungee.getMessageHandler().ALL_PROXIES);
+        PalaceBungee.getMessageHandler().sendToPlayer(new ComponentMessagePacket(tpMessage, tpUUID), tpUUID);
         PalaceBungee.getMongoHandler().setPendingHelpRequest(tpUUID, false);
         PalaceBungee.getMongoHandler().logHelpRequest(tpUUID, player.getUniqueId());
     }
@@ -0,0 +1,159 @@
+package network.palace.bungee.utils;
+
+import net.md_5.bungee.api.config.ServerInfo;
+import net.md_5.bungee.config.Configuration;
+import network.palace.bungee.PalaceBungee;
+import network.palace.bungee.handlers.Server;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Pings every server in the {@link ServerRegistry} every {@code health.interval} seconds, so a server that has hung
+ * but is still marked online in the database stops receiving players.
+ * <p>
+ * A server that fails {@code health.failures} pings in a row is ejected, and the balancer leaves it out until a ping
+ * succeeds again. After that it's brought back slowly: for {@code health.slowStart} seconds it looks fuller to the
+ * balancer than it is, by an amount that shrinks to nothing over that time. Healthy servers are also weighted by an
+ * average of their recent ping times, see {@link #getPenalty(Server)}.
+ */
+public class HealthChecker {
+    private final ConcurrentHashMap<String, Health> servers = new ConcurrentHashMap<>();
+    private final int failures;
+    private final long interval, slowStart;
+    private final double latencyWeight;
+
+    public HealthChecker() {
+        int interval = 5, failures = 3, slowStart = 30;
+        double latencyWeight = 1;
+        try {
+            Configuration config = PalaceBungee.getConfigUtil().getConfig();
+            interval = config.getInt("health.interval", interval);
+            failures = config.getInt("health.failures", failures);
+            slowStart = config.getInt("health.slowStart", slowStart);
+            latencyWeight = config.getDouble("health.latencyWeight", latencyWeight);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading health check settings from config file, using defaults", e);
+        }
+        this.interval = TimeUnit.SECONDS.toMillis(interval);
+        this.failures = failures;
+        this.slowStart = TimeUnit.SECONDS.toMillis(slowStart);
+        this.latencyWeight = latencyWeight;
+        PalaceBungee.getProxyServer().getScheduler().schedule(PalaceBungee.getInstance(), () -> {
+            try {
+                pingAll();
+            } catch (Exception e) {
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error pinging servers", e);
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    private void pingAll() {
+        Set<String> names = new HashSet<>();
+        for (Server server : PalaceBungee.getServerUtil().getRegistry().getServers()) {
+            names.add(server.getName());
+            ServerInfo info = PalaceBungee.getServerUtil().getServerInfo(server.getName(), true);
+            if (info == null) continue;
+            Health health = servers.computeIfAbsent(server.getName(), name -> new Health());
+            long start = System.currentTimeMillis();
+            synchronized (health) {
+                if (health.pinging) {
+                    // the last ping never came back, which counts as a failure rather than piling up another ping
+                    if (start - health.started < interval) continue;
+                    fail(server.getName(), health);
+                }
+                health.pinging = true;
+                health.started = start;
+            }
+            info.ping((ping, error) -> {
+                synchronized (health) {
+                    if (!health.pinging || health.started != start) return;
+                    health.pinging = false;
+                    if (error != null || ping == null) {
+                        fail(server.getName(), health);
+                    } else {
+                        succeed(server.getName(), health, System.currentTimeMillis() - start);
+                    }
+                }
+            });
+        }
+        servers.keySet().retainAll(names);
+    }
+
+    private void fail(String name, Health health) {
+        health.failures++;
+        if (!health.ejected && health.failures >= failures) {
+            health.ejected = true;
+            PalaceBungee.getProxyServer().getLogger().warning("Server " + name + " failed " + health.failures +
+                    " health checks in a row, no longer sending players to it");
+        }
+    }
+
+    private void succeed(String name, Health health, long latency) {
+        health.failures = 0;
+        health.latency = health.latency < 0 ? latency : health.latency * 0.8 + latency * 0.2;
+        if (health.ejected) {
+            health.ejected = false;
+            health.readmitted = System.currentTimeMillis();
+            PalaceBungee.getProxyServer().getLogger().info("Server " + name + " is responding again, slowly sending players to it");
+        }
+    }
+
+    /**
+     * Check whether a server has failed enough health checks in a row that players shouldn't be sent to it
+     */
+    public boolean isEjected(Server server) {
+        Health health = servers.get(server.getName());
+        if (health == null) return false;
+        synchronized (health) {
+            return health.ejected;
+        }
+    }
+
+    /**
+     * Get how much fuller a server should look to the balancer than it is, made up of its average ping time in
+     * seconds times {@code health.latencyWeight}, plus up to 1 while it's being brought back after an ejection
+     */
+    public double getPenalty(Server server) {
+        Health health = servers.get(server.getName());
+        if (health == null) return 0;
+        synchronized (health) {
+            double penalty = health.latency < 0 ? 0 : health.latency / 1000 * latencyWeight;
+            long since = System.currentTimeMillis() - health.readmitted;
+            if (since < slowStart) penalty += 1 - (double) since / slowStart;
+            return penalty;
+        }
+    }
+
+    /**
+     * @return the average ping time of a server in milliseconds, or -1 if it hasn't answered a ping yet
+     */
+    public long getLatency(Server server) {
+        Health health = servers.get(server.getName());
+        if (health == null) return -1;
+        synchronized (health) {
+            return Math.round(health.latency);
+        }
+    }
+
+    public int getEjectedCount() {
+        int count = 0;
+        for (Health health : servers.values()) {
+            synchronized (health) {
+                if (health.ejected) count++;
+            }
+        }
+        return count;
+    }
+
+    private static class Health {
+        private double latency = -1;
+        private int failures = 0;
+        private boolean ejected = false, pinging = false;
+        private long started = 0, readmitted = 0;
+    }
+}
@@ -0,0 +1,217 @@
+package network.palace.bungee.utils;
+
+import com.google.common.net.InetAddresses;
+
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * A binary prefix trie over IPv4 and IPv6 addresses. Each entry is a CIDR prefix of any length, so a lookup walks at
+ * most 32 (IPv4) or 128 (IPv6) nodes no matter how many entries there are. Nodes that no longer lead to an entry are
+ * pruned on removal, so the trie doesn't grow as entries come and go.
+ * <p>
+ * Not thread-safe; callers synchronize or treat a built trie as read-only.
+ *
+ * @param <V> the type of value stored for each prefix
+ */
+public class IPTrie<V> {
+    /**
+     * The shortest prefixes {@link #parsePrefix(String)} accepts, so a ban or kick can't cover a large part of the
+     * internet, or with a length of 0 every address
+     */
+    public static final int MIN_IPV4_LENGTH = 16, MIN_IPV6_LENGTH = 32;
+
+    private final Node<V> v4 = new Node<>(), v6 = new Node<>();
+    private int size = 0;
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Store a value for a prefix, replacing any value already stored for exactly that prefix
+     *
+     * @return the previous value, or null
+     */
+    public V put(Prefix prefix, V value) {
+        Node<V> node = root(prefix);
+        for (int i = 0; i < prefix.length; i++) {
+            int bit = bit(prefix.bytes, i);
+            Node<V> next = node.children[bit];
+            if (next == null) {
+                next = new Node<>();
+                node.children[bit] = next;
+            }
+            node = next;
+        }
+        V previous = node.value;
+        node.value = value;
+        if (previous == null) size++;
+        return previous;
+    }
+
+    /**
+     * Get the value stored for exactly this prefix
+     */
+    public V get(Prefix prefix) {
+        Node<V> node = find(prefix);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Remove the value stored for exactly this prefix
+     *
+     * @return the removed value, or null
+     */
+    public V remove(Prefix prefix) {
+        Deque<Node<V>> path = new ArrayDeque<>();
+        Node<V> node = root(prefix);
+        path.push(node);
+        for (int i = 0; i < prefix.length; i++) {
+            node = node.children[bit(prefix.bytes, i)];
+            if (node == null) return null;
+            path.push(node);
+        }
+        V previous = node.value;
+        if (previous == null) return null;
+        node.value = null;
+        size--;
+        // detach nodes that no longer lead anywhere, from the leaf back up towards the root
+        for (int i = prefix.length - 1; i >= 0; i--) {
+            Node<V> child = path.pop();
+            if (child.value != null || child.children[0] != null || child.children[1] != null) break;
+            path.peek().children[bit(prefix.bytes, i)] = null;
+        }
+        return previous;
+    }
+
+    /**
+     * Find the most specific prefix containing an address
+     *
+     * @param address the address bytes, 4 for IPv4 or 16 for IPv6
+     * @return the value of the longest matching prefix, or null if no prefix contains the address
+     */
+    public V longestMatch(byte[] address) {
+        Node<V> node = address.length == 4 ? v4 : v6;
+        V match = node.value;
+        for (int i = 0; i < address.length * 8; i++) {
+            node = node.children[bit(address, i)];
+            if (node == null) break;
+            if (node.value != null) match = node.value;
+        }
+        return match;
+    }
+
+    /**
+     * Pass every value stored at or below a prefix to a consumer, i.e. every entry the prefix contains
+     */
+    public void collect(Prefix prefix, Consumer<V> consumer) {
+        Node<V> node = find(prefix);
+        if (node == null) return;
+        Deque<Node<V>> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            Node<V> n = stack.pop();
+            if (n.value != null) consumer.accept(n.value);
+            if (n.children[0] != null) stack.push(n.children[0]);
+            if (n.children[1] != null) stack.push(n.children[1]);
+        }
+    }
+
+    private Node<V> find(Prefix prefix) {
+        Node<V> node = root(prefix);
+        for (int i = 0; i < prefix.length && node != null; i++) {
+            node = node.children[bit(prefix.bytes, i)];
+        }
+        return node;
+    }
+
+    private Node<V> root(Prefix prefix) {
+        return prefix.bytes.length == 4 ? v4 : v6;
+    }
+
+    private static int bit(byte[] bytes, int index) {
+        return (bytes[index >> 3] >> (7 - (index & 7))) & 1;
+    }
+
+    /**
+     * Parse an address literal into its bytes, without doing a DNS lookup
+     *
+     * @param address an IPv4 or IPv6 address, optionally with an IPv6 scope such as %eth0
+     * @return the address bytes, or null if it isn't a valid address literal
+     */
+    public static byte[] parseAddress(String address) {
+        if (address == null) return null;
+        int scope = address.indexOf('%');
+        if (scope >= 0) address = address.substring(0, scope);
+        try {
+            InetAddress inet = InetAddresses.forString(address);
+            return inet.getAddress();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parse a prefix. Accepts a single address ({@code 1.2.3.4}, {@code 2001:db8::1}), CIDR notation
+     * ({@code 1.2.0.0/16}, {@code 2001:db8::/32}) and the older {@code 1.2.3.*} wildcard ranges. Other wildcards, such
+     * as {@code 1.2.*.*}, never matched anything before CIDR ranges were supported, so they still aren't accepted.
+     *
+     * @return the prefix, or null if it can't be parsed or is shorter than {@link #MIN_IPV4_LENGTH} or
+     * {@link #MIN_IPV6_LENGTH}
+     */
+    public static Prefix parsePrefix(String s) {
+        if (s == null || s.isEmpty()) return null;
+        s = s.trim();
+        int length;
+        byte[] bytes;
+        if (s.contains("*")) {
+            if (!s.endsWith(".*") || s.indexOf('*') != s.length() - 1) return null;
+            String[] parts = s.split("\\.");
+            if (parts.length != 4) return null;
+            parts[3] = "0";
+            bytes = parseAddress(String.join(".", parts));
+            length = 24;
+        } else if (s.contains("/")) {
+            int slash = s.indexOf('/');
+            bytes = parseAddress(s.substring(0, slash));
+            try {
+                length = Integer.parseInt(s.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        } else {
+            bytes = parseAddress(s);
+            length = bytes == null ? 0 : bytes.length * 8;
+        }
+        if (bytes == null || length < (bytes.length == 4 ? MIN_IPV4_LENGTH : MIN_IPV6_LENGTH) || length > bytes.length * 8)
+            return null;
+        // clear any host bits past the prefix length so 1.2.3.4/24 and 1.2.3.0/24 are the same prefix
+        for (int i = length; i < bytes.length * 8; i++) {
+            bytes[i >> 3] &= ~(1 << (7 - (i & 7)));
+        }
+        return new Prefix(bytes, length);
+    }
+
+    public static class Prefix {
+        private final byte[] bytes;
+        private final int length;
+
+        public Prefix(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+
+        public static Prefix of(byte[] address) {
+            return new Prefix(address, address.length * 8);
+        }
+    }
+
+    private static class Node<V> {
+        @SuppressWarnings("unchecked")
+        private final Node<V>[] children = new Node[2];
+        private V value;
+    }
+}
@@ -0,0 +1,63 @@
+package network.palace.bungee.utils;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples in a fixed-size ring buffer so percentiles can be reported
+ * without the memory growing over the lifetime of the proxy.
+ */
+public class LatencyTracker {
+    private final long[] samples;
+    private int next = 0;
+    private int size = 0;
+    private long total = 0;
+
+    public LatencyTracker(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    /**
+     * Record a latency sample
+     *
+     * @param millis the latency in milliseconds
+     */
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) size++;
+        total++;
+    }
+
+    /**
+     * Get a percentile of the recorded samples
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency at that percentile in milliseconds, or 0 if nothing has been recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] sorted;
+        synchronized (this) {
+            if (size == 0) return 0;
+            sorted = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    /**
+     * @return the total number of samples recorded, including ones that have since been overwritten
+     */
+    public synchronized long getCount() {
+        return total;
+    }
+
+    /**
+     * Format the median, 95th and 99th percentiles for display
+     *
+     * @return a string such as "p50=4ms p95=12ms p99=30ms"
+     */
+    public String summary() {
+        return "p50=" + getPercentile(50) + "ms p95=" + getPercentile(95) + "ms p99=" + getPercentile(99) + "ms";
+    }
+}
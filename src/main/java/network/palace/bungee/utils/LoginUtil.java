@@ -0,0 +1,97 @@
+package network.palace.bungee.utils;
+
+import lombok.Getter;
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.chat.ComponentBuilder;
+import net.md_5.bungee.api.event.LoginEvent;
+import net.md_5.bungee.config.Configuration;
+import network.palace.bungee.PalaceBungee;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Runs the database work for each {@link LoginEvent} on a dedicated, bounded pool of login threads so
+ * the netty event loop isn't blocked while a player's profile and bans are loaded.
+ * <p>
+ * The pool size and queue size are read from the {@code login} section of config.yml.
+ */
+public class LoginUtil {
+    private final ThreadPoolExecutor executor;
+    @Getter private final LatencyTracker latency = new LatencyTracker(1024);
+    private final AtomicLong rejected = new AtomicLong(0);
+
+    public LoginUtil() {
+        int threads = 4, queueSize = 256;
+        try {
+            Configuration config = PalaceBungee.getConfigUtil().getConfig();
+            threads = config.getInt("login.threads", threads);
+            queueSize = config.getInt("login.queueSize", queueSize);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading login settings from config file, using defaults", e);
+        }
+        AtomicInteger threadId = new AtomicInteger(1);
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize), r -> {
+            Thread t = new Thread(r, "PalaceBungee Login #" + threadId.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Handle a login asynchronously. The event is held open with an intent until the task finishes.
+     * If the login queue is full the connection is turned away instead of waiting.
+     *
+     * @param event the login event
+     * @param task  the work to run for this login
+     */
+    public void submit(LoginEvent event, Runnable task) {
+        long queued = System.currentTimeMillis();
+        event.registerIntent(PalaceBungee.getInstance());
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error handling login for " + event.getConnection().getName(), e);
+                    event.setCancelled(true);
+                    event.setCancelReason(new ComponentBuilder("We are currently experiencing some server-side issues. Please check back soon!").color(ChatColor.RED).create());
+                } finally {
+                    latency.record(System.currentTimeMillis() - queued);
+                    event.completeIntent(PalaceBungee.getInstance());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            event.setCancelled(true);
+            event.setCancelReason(new ComponentBuilder("Too many players are connecting right now, please try again in a moment!").color(ChatColor.RED).create());
+            event.completeIntent(PalaceBungee.getInstance());
+        }
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ignored) {
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package network.palace.bungee.utils;
+
+import network.palace.bungee.PalaceBungee;
+import network.palace.bungee.handlers.Player;
+
+import java.util.*;
+
+/**
+ * Indexes the players connected to this proxy by address, so finding every player inside an address or range
+ * (e.g. for a KICK_IP packet) is a single probe of an {@link IPTrie} rather than a pass over every online player.
+ */
+public class OnlineAddressIndex {
+    private final IPTrie<Set<UUID>> trie = new IPTrie<>();
+    private final Map<UUID, byte[]> addresses = new HashMap<>();
+
+    public synchronized void add(Player player) {
+        byte[] address = IPTrie.parseAddress(player.getAddress());
+        if (address == null) return;
+        remove(player.getUniqueId());
+        IPTrie.Prefix prefix = IPTrie.Prefix.of(address);
+        Set<UUID> set = trie.get(prefix);
+        if (set == null) {
+            set = new HashSet<>();
+            trie.put(prefix, set);
+        }
+        set.add(player.getUniqueId());
+        addresses.put(player.getUniqueId(), address);
+    }
+
+    public synchronized void remove(UUID uuid) {
+        byte[] address = addresses.remove(uuid);
+        if (address == null) return;
+        IPTrie.Prefix prefix = IPTrie.Prefix.of(address);
+        Set<UUID> set = trie.get(prefix);
+        if (set == null) return;
+        set.remove(uuid);
+        if (set.isEmpty()) trie.remove(prefix);
+    }
+
+    /**
+     * Get the online players whose address is inside an address or range
+     *
+     * @param range an address, a CIDR range or a legacy a.b.c.* range
+     * @return the players, empty if the range can't be parsed
+     */
+    public List<Player> getPlayers(String range) {
+        IPTrie.Prefix prefix = IPTrie.parsePrefix(range);
+        if (prefix == null) return Collections.emptyList();
+        List<UUID> uuids = new ArrayList<>();
+        synchronized (this) {
+            trie.collect(prefix, uuids::addAll);
+        }
+        List<Player> players = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            Player player = PalaceBungee.getPlayer(uuid);
+            if (player != null) players.add(player);
+        }
+        return players;
+    }
+}
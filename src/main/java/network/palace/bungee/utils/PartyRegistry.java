@@ -0,0 +1,303 @@
+package network.palace.bungee.utils;
+
+import network.palace.bungee.PalaceBungee;
+import network.palace.bungee.handlers.Party;
+import network.palace.bungee.messages.packets.PartyUpdatePacket;
+import network.palace.bungee.mongo.AsyncMongoHandler;
+import org.bson.types.ObjectId;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Every party on the network, held in memory on each proxy so party commands, party chat and social spy can find a
+ * player's party without querying the database.
+ * <p>
+ * A change made on this proxy is applied here, broadcast to the other proxies as a {@link PartyUpdatePacket}, and
+ * then written to the {@code parties} collection by a single writer thread, so writes for the same party reach the
+ * database in the order they were made. The database is only read once, when the registry starts up; updates that
+ * arrive before that load finishes are replayed on top of it, and until then lookups fall back to the database.
+ * <p>
+ * Invites expire on a {@link TimerWheel}. Every proxy expires its own copy of an invite, and the proxy that created
+ * the invite also removes it from the database.
+ * <p>
+ * Parties returned from the registry are copies, so callers can't change the registry by accident.
+ */
+public class PartyRegistry {
+    private final UUID proxyId = PalaceBungee.getProxyID();
+    private final Map<String, Party> parties = new HashMap<>();
+    private final Map<UUID, String> members = new HashMap<>();
+    private final Map<UUID, Invite> invites = new HashMap<>();
+    private final List<PartyUpdatePacket> pending = new ArrayList<>();
+    private final TimerWheel wheel = new TimerWheel(64, 1, TimeUnit.SECONDS);
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "PalaceBungee Party Writer");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean loaded = false;
+
+    public PartyRegistry() {
+        load();
+    }
+
+    private void load() {
+        PalaceBungee.getAsyncMongoHandler().supply(mongo -> {
+            // invites whose proxy went away before they expired are never removed by that proxy
+            mongo.removeExpiredInvites();
+            return mongo.getParties();
+        }).whenComplete((list, t) -> {
+            if (t != null) {
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error loading parties from database, retrying in 30 seconds", t);
+                PalaceBungee.getProxyServer().getScheduler().schedule(PalaceBungee.getInstance(), this::load, 30, TimeUnit.SECONDS);
+                return;
+            }
+            synchronized (this) {
+                long now = System.currentTimeMillis();
+                for (Party party : list) {
+                    put(party);
+                    party.getInviteMap().forEach((uuid, expires) -> {
+                        if (expires > now) addInvite(party.getPartyID(), uuid, expires, false);
+                    });
+                }
+                pending.forEach(this::apply);
+                pending.clear();
+                loaded = true;
+            }
+            PalaceBungee.getProxyServer().getLogger().info("Loaded " + list.size() + " parties into the party registry");
+        });
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public Party getPartyByMember(UUID uuid) throws Exception {
+        if (!loaded) return PalaceBungee.getMongoHandler().getPartyByMember(uuid);
+        synchronized (this) {
+            String id = members.get(uuid);
+            return id == null ? null : copy(parties.get(id));
+        }
+    }
+
+    public Party getPartyByLeader(UUID uuid) throws Exception {
+        if (!loaded) return PalaceBungee.getMongoHandler().getPartyByLeader(uuid);
+        synchronized (this) {
+            String id = members.get(uuid);
+            Party party = id == null ? null : parties.get(id);
+            return party == null || !party.isLeader(uuid) ? null : copy(party);
+        }
+    }
+
+    public List<Party> getParties() throws Exception {
+        if (!loaded) return PalaceBungee.getMongoHandler().getParties();
+        List<Party> list = new ArrayList<>();
+        synchronized (this) {
+            parties.values().forEach(party -> list.add(copy(party)));
+        }
+        return list;
+    }
+
+    /**
+     * Check whether a player has an invite to any party that hasn't expired yet
+     */
+    public synchronized boolean hasPendingInvite(UUID uuid) {
+        Invite invite = invites.get(uuid);
+        return invite != null && invite.expires > System.currentTimeMillis();
+    }
+
+    /**
+     * Get the party a player has a pending invite to
+     *
+     * @return the id of the party, or null if the player doesn't have an invite that hasn't expired
+     */
+    public synchronized String getInvite(UUID uuid) {
+        Invite invite = invites.get(uuid);
+        return invite == null || invite.expires <= System.currentTimeMillis() ? null : invite.partyId;
+    }
+
+    public synchronized int getPartyCount() {
+        return parties.size();
+    }
+
+    /*
+    Changes made on this proxy
+     */
+
+    public Party create(UUID leader, String leaderName) {
+        String id = new ObjectId().toHexString();
+        update(new PartyUpdatePacket(PartyUpdatePacket.Action.CREATE, proxyId, id, leader, leaderName, 0),
+                mongo -> mongo.createParty(id, leader));
+        HashMap<UUID, String> map = new HashMap<>();
+        map.put(leader, leaderName);
+        return new Party(id, leader, leaderName, map, new HashMap<>());
+    }
+
+    public void invite(Party party, UUID uuid, long expires) {
+        String id = party.getPartyID();
+        update(new PartyUpdatePacket(PartyUpdatePacket.Action.INVITE, proxyId, id, uuid, null, expires),
+                mongo -> mongo.addPartyInvite(id, uuid, expires));
+    }
+
+    public void join(String partyId, UUID uuid, String username) {
+        update(new PartyUpdatePacket(PartyUpdatePacket.Action.JOIN, proxyId, partyId, uuid, username, 0),
+                mongo -> mongo.addPartyMember(partyId, uuid));
+    }
+
+    public void leave(Party party, UUID uuid) {
+        String id = party.getPartyID();
+        update(new PartyUpdatePacket(PartyUpdatePacket.Action.LEAVE, proxyId, id, uuid, null, 0),
+                mongo -> mongo.removePartyMember(id, uuid));
+    }
+
+    public void promote(Party party, UUID uuid, String username) {
+        String id = party.getPartyID();
+        UUID currentLeader = party.getLeader();
+        update(new PartyUpdatePacket(PartyUpdatePacket.Action.PROMOTE, proxyId, id, uuid, username, 0),
+                mongo -> mongo.setPartyLeader(id, currentLeader, uuid));
+    }
+
+    public void close(Party party) {
+        String id = party.getPartyID();
+        update(new PartyUpdatePacket(PartyUpdatePacket.Action.CLOSE, proxyId, id, null, null, 0),
+                mongo -> mongo.closeParty(id));
+    }
+
+    /**
+     * Apply a change made on this proxy, tell the other proxies about it, then queue its database write
+     */
+    private void update(PartyUpdatePacket packet, AsyncMongoHandler.MongoTask write) {
+        handle(packet);
+        try {
+            PalaceBungee.getMessageHandler().sendMessage(packet, PalaceBungee.getMessageHandler().ALL_PROXIES);
+        } catch (Exception e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error publishing party update", e);
+        }
+        write(write);
+    }
+
+    private void write(AsyncMongoHandler.MongoTask write) {
+        writer.execute(() -> {
+            try {
+                write.run(PalaceBungee.getMongoHandler());
+            } catch (Exception e) {
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error writing party update to database", e);
+            }
+        });
+    }
+
+    /**
+     * Apply a party change made on any proxy
+     */
+    public synchronized void handle(PartyUpdatePacket packet) {
+        if (loaded) {
+            apply(packet);
+        } else {
+            pending.add(packet);
+        }
+    }
+
+    private void apply(PartyUpdatePacket packet) {
+        String id = packet.getPartyId();
+        UUID uuid = packet.getUuid();
+        if (packet.getAction() == PartyUpdatePacket.Action.CREATE) {
+            HashMap<UUID, String> map = new HashMap<>();
+            map.put(uuid, packet.getUsername());
+            put(new Party(id, uuid, packet.getUsername(), map, new HashMap<>()));
+            return;
+        }
+        Party party = parties.get(id);
+        if (party == null) return;
+        switch (packet.getAction()) {
+            case INVITE:
+                addInvite(id, uuid, packet.getExpires(), packet.getProxy().equals(proxyId));
+                break;
+            case JOIN:
+                removeInvite(uuid);
+                party.addMember(uuid, packet.getUsername());
+                members.put(uuid, id);
+                break;
+            case LEAVE:
+                party.removeMember(uuid);
+                members.remove(uuid, id);
+                break;
+            case PROMOTE:
+                parties.put(id, new Party(id, uuid, packet.getUsername(), new HashMap<>(party.getMemberMap()),
+                        new HashMap<>(party.getInviteMap())));
+                break;
+            case CLOSE:
+                parties.remove(id);
+                party.getMembers().forEach(member -> members.remove(member, id));
+                party.getInviteMap().keySet().forEach(this::removeInvite);
+                break;
+        }
+    }
+
+    private void put(Party party) {
+        parties.put(party.getPartyID(), party);
+        party.getMembers().forEach(member -> members.put(member, party.getPartyID()));
+    }
+
+    private void addInvite(String partyId, UUID uuid, long expires, boolean owner) {
+        removeInvite(uuid);
+        Party party = parties.get(partyId);
+        if (party == null) return;
+        party.addInvite(uuid, expires);
+        Invite invite = new Invite(partyId, expires, owner);
+        invite.timeout = wheel.schedule(expires, () -> expire(uuid, invite));
+        invites.put(uuid, invite);
+    }
+
+    private void removeInvite(UUID uuid) {
+        Invite invite = invites.remove(uuid);
+        if (invite == null) return;
+        invite.timeout.cancel();
+        Party party = parties.get(invite.partyId);
+        if (party != null) party.removeInvite(uuid);
+    }
+
+    private void expire(UUID uuid, Invite invite) {
+        synchronized (this) {
+            if (!invites.remove(uuid, invite)) return;
+            Party party = parties.get(invite.partyId);
+            if (party != null) party.removeInvite(uuid);
+        }
+        if (invite.owner) write(mongo -> mongo.removePartyInvite(uuid));
+    }
+
+    /**
+     * Wait for queued database writes to finish, called when the proxy shuts down
+     */
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                PalaceBungee.getProxyServer().getLogger().warning("Timed out waiting for party updates to be written to the database");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Party copy(Party party) {
+        if (party == null) return null;
+        return new Party(party.getPartyID(), party.getLeader(), party.getLeaderName(),
+                new HashMap<>(party.getMemberMap()), new HashMap<>(party.getInviteMap()));
+    }
+
+    private static class Invite {
+        private final String partyId;
+        private final long expires;
+        private final boolean owner;
+        private TimerWheel.Timeout timeout;
+
+        private Invite(String partyId, long expires, boolean owner) {
+            this.partyId = partyId;
+            this.expires = expires;
+            this.owner = owner;
+        }
+    }
+}
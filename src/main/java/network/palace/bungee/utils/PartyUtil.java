@@ -1,37 +1,39 @@
 package network.palace.bungee.utils;
 
 import com.google.common.collect.ImmutableMap;
+import lombok.Getter;
 import net.md_5.bungee.api.ChatColor;
 import net.md_5.bungee.api.chat.BaseComponent;
 import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.ComponentBuilder;
 import net.md_5.bungee.api.chat.HoverEvent;
+import net.md_5.bungee.api.config.ServerInfo;
 import network.palace.bungee.PalaceBungee;
 import network.palace.bungee.handlers.*;
 import network.palace.bungee.messages.packets.ChangeChannelPacket;
 import network.palace.bungee.messages.packets.ComponentMessagePacket;
 import network.palace.bungee.messages.packets.SendPlayerPacket;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 public class PartyUtil {
+    @Getter private final PartyRegistry registry = new PartyRegistry();
 
     public Party createParty(Player player) throws Exception {
-        if (PalaceBungee.getMongoHandler().getPartyByMember(player.getUniqueId()) != null) {
+        if (registry.getPartyByMember(player.getUniqueId()) != null) {
             // player is already in a party
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.AQUA + "You must leave your current party before you can create a new one.");
             return null;
         }
-        Party party = PalaceBungee.getMongoHandler().createParty(player.getUniqueId());
+        Party party = registry.create(player.getUniqueId(), player.getUsername());
         player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.GREEN + "You have created a party! Invite players with " + ChatColor.YELLOW + "/party invite [Username]");
         return party;
     }
 
     public void inviteToParty(Player player, String invited) throws Exception {
-        Party party = PalaceBungee.getMongoHandler().getPartyByMember(player.getUniqueId());
+        Party party = registry.getPartyByMember(player.getUniqueId());
         if (party == null) {
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.AQUA + "You aren't in a party! Create one with " + ChatColor.YELLOW + "/party create");
             return;
@@ -53,17 +55,16 @@ public class PartyUtil {
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.RED + "You can't invite that player to a party!");
             return;
         }
-        if (PalaceBungee.getMongoHandler().getPartyByMember(uuid) != null) {
+        if (registry.getPartyByMember(uuid) != null) {
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.AQUA + "This player is already in a party!");
             return;
         }
-        if (PalaceBungee.getMongoHandler().hasPendingInvite(uuid)) {
+        if (registry.hasPendingInvite(uuid)) {
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.AQUA + "This player already has a pending party invite!");
             return;
         }
         long expires = System.currentTimeMillis() + (30 * 1000);
-        party.addInvite(uuid, expires);
-        PalaceBungee.getMongoHandler().addPartyInvite(party.getPartyID(), uuid, expires);
+        registry.invite(party, uuid, expires);
 
         BaseComponent[] components = new ComponentBuilder(Subsystem.PARTY.getComponentPrefix()).color(Subsystem.PARTY.getColor())
                 .append(player.getUsername()).color(ChatColor.YELLOW).append(" has invited you to their party! ")
@@ -75,14 +76,14 @@ public class PartyUtil {
                 .color(ChatColor.GREEN).create();
 
         ComponentMessagePacket packet = new ComponentMessagePacket(components, uuid);
-        PalaceBungee.getMessageHandler().sendMessage(packet, PalaceBungee.getMessageHandler().ALL_PROXIES);
+        PalaceBungee.getMessageHandler().sendToPlayer(packet, uuid);
 
         party.messageAllMembers(ChatColor.YELLOW + player.getUsername() + " has asked " + PalaceBungee.getUsername(uuid) +
                 " to join the party! They have 30 seconds to accept.", true, false);
     }
 
     public void removeFromParty(Player player, String username) throws Exception {
-        Party party = PalaceBungee.getMongoHandler().getPartyByMember(player.getUniqueId());
+        Party party = registry.getPartyByMember(player.getUniqueId());
         if (party == null) {
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.AQUA + "You aren't in a party! Create one with " + ChatColor.YELLOW + "/party create");
             return;
@@ -96,24 +97,27 @@ public class PartyUtil {
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.RED + "Player not found!");
             return;
         }
+        String name = party.getMemberMap().get(uuid);
+        registry.leave(party, uuid);
         party.removeMember(uuid);
-        PalaceBungee.getMongoHandler().removePartyMember(party.getPartyID(), uuid);
 
-        party.messageAllMembers(ChatColor.AQUA + PalaceBungee.getUsername(uuid) + " has been removed from the party!", true, false);
+        party.messageAllMembers(ChatColor.AQUA + name + " has been removed from the party!", true, false);
 
         PalaceBungee.getMessageHandler().sendMessageToPlayer(uuid, ChatColor.GREEN + "You have been removed from " + player.getUsername() + "'s party.");
     }
 
     public void acceptRequest(Player player) throws Exception {
-        Party party = PalaceBungee.getMongoHandler().getPartyByMember(player.getUniqueId());
+        Party party = registry.getPartyByMember(player.getUniqueId());
         if (party != null) {
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.AQUA + "You're already in a party! Leave this party first with " + ChatColor.YELLOW + "/party leave");
             return;
         }
-        if (PalaceBungee.getMongoHandler().acceptPartyInvite(player.getUniqueId())) {
+        String partyId = registry.getInvite(player.getUniqueId());
+        if (partyId != null) {
             // Invite accepted
-            party = PalaceBungee.getMongoHandler().getPartyByMember(player.getUniqueId());
-            party.addMember(player.getUniqueId(), player.getUsername());
+            registry.join(partyId, player.getUniqueId(), player.getUsername());
+            party = registry.getPartyByMember(player.getUniqueId());
+            if (party == null) return;
             party.messageAllMembers(ChatColor.YELLOW + player.getUsername() + " has joined the party!", true, false);
         } else {
             // No invite to accept
@@ -122,7 +126,7 @@ public class PartyUtil {
     }
 
     public void closeParty(Player player) throws Exception {
-        Party party = PalaceBungee.getMongoHandler().getPartyByMember(player.getUniqueId());
+        Party party = registry.getPartyByMember(player.getUniqueId());
         if (party == null) {
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.AQUA + "You aren't in a party! Create one with " + ChatColor.YELLOW + "/party create");
             return;
@@ -140,16 +144,16 @@ public class PartyUtil {
             // Move all players to the main chat channel
             try {
                 ChangeChannelPacket packet = new ChangeChannelPacket(uuid, "all");
-                PalaceBungee.getMessageHandler().sendMessage(packet, PalaceBungee.getMessageHandler().ALL_PROXIES);
+                PalaceBungee.getMessageHandler().sendToPlayer(packet, uuid);
             } catch (Exception e) {
                 e.printStackTrace();
             }
         });
-        PalaceBungee.getMongoHandler().closeParty(party.getPartyID());
+        registry.close(party);
     }
 
     public void leaveParty(Player player) throws Exception {
-        Party party = PalaceBungee.getMongoHandler().getPartyByMember(player.getUniqueId());
+        Party party = registry.getPartyByMember(player.getUniqueId());
         if (party == null) {
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.AQUA + "You aren't in a party! Create one with " + ChatColor.YELLOW + "/party create");
             return;
@@ -158,15 +162,15 @@ public class PartyUtil {
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.RED + "You can't leave the party since you're the party leader!");
             return;
         }
+        registry.leave(party, player.getUniqueId());
         party.removeMember(player.getUniqueId());
-        PalaceBungee.getMongoHandler().removePartyMember(party.getPartyID(), player.getUniqueId());
 
         party.messageAllMembers(ChatColor.AQUA + player.getUsername() + " has left the party!", true, false);
-        player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.AQUA + "You have left " + PalaceBungee.getUsername(party.getLeader()) + "'s party!");
+        player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.AQUA + "You have left " + party.getLeaderName() + "'s party!");
     }
 
     public void listParty(Player player) throws Exception {
-        Party party = PalaceBungee.getMongoHandler().getPartyByMember(player.getUniqueId());
+        Party party = registry.getPartyByMember(player.getUniqueId());
         if (party == null) {
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.AQUA + "You aren't in a party! Create one with " + ChatColor.YELLOW + "/party create");
             return;
@@ -191,8 +195,14 @@ public class PartyUtil {
         player.sendMessage(Party.MESSAGE_BARS);
     }
 
+    /**
+     * Move every member of the leader's party to one server together. The leader's server is used if it has room for
+     * the whole party, otherwise the least loaded server of the same type that does. Slots are reserved for every
+     * member being moved before any of them connect, and members whose connection fails are retried on the same
+     * server rather than sent somewhere else.
+     */
     public void warpParty(Player player) throws Exception {
-        Party party = PalaceBungee.getMongoHandler().getPartyByMember(player.getUniqueId());
+        Party party = registry.getPartyByMember(player.getUniqueId());
         if (party == null) {
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.AQUA + "You aren't in a party! Create one with " + ChatColor.YELLOW + "/party create");
             return;
@@ -201,19 +211,82 @@ public class PartyUtil {
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.RED + "Only the party leader can warp players to their server!");
             return;
         }
-        party.messageAllMembers(ChatColor.YELLOW + player.getUsername() + " has warped the party to their server!", true, false);
-        party.forAllMembers(uuid -> {
+        ServerUtil util = PalaceBungee.getServerUtil();
+        Server current = util.getServer(player.getServerName(), true);
+        if (current == null) {
+            player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.RED + "You can't warp your party to this server!");
+            return;
+        }
+        Map<UUID, String> locations = new HashMap<>();
+        for (UUID uuid : party.getMembers()) {
+            String server = getServerName(uuid);
+            // offline members aren't moved, and don't need a slot
+            if (server != null) locations.put(uuid, server);
+        }
+        List<Server> options = util.getCandidates(s -> s.getServerType().equals(current.getServerType()), current.getUniqueId());
+        options.sort(Comparator.comparingDouble(util::getLoad));
+        options.add(0, current);
+        Server target = current;
+        for (Server option : options) {
+            long moving = locations.values().stream().filter(server -> !option.getName().equals(server)).count();
+            if (util.getFreeSlots(option) >= moving) {
+                target = option;
+                break;
+            }
+        }
+        ServerInfo info = util.getServerInfo(target.getName(), true);
+        if (info == null) {
+            player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.RED + "You can't warp your party to this server!");
+            return;
+        }
+        if (target == current) {
+            party.messageAllMembers(ChatColor.YELLOW + player.getUsername() + " has warped the party to their server!", true, false);
+        } else {
+            party.messageAllMembers(ChatColor.YELLOW + player.getUsername() + "'s server doesn't have room for the whole party, so " +
+                    player.getUsername() + " has warped the party to " + target.getName() + "!", true, false);
+        }
+        List<UUID> moving = new ArrayList<>();
+        for (Map.Entry<UUID, String> entry : locations.entrySet()) {
+            if (target.getName().equals(entry.getValue())) continue;
+            util.reserve(target);
+            moving.add(entry.getKey());
+        }
+        for (UUID uuid : moving) {
+            if (PalaceBungee.getPlayer(uuid) != null) {
+                connect(uuid, target, info, 3);
+                continue;
+            }
             try {
-                if (uuid.equals(player.getUniqueId())) return;
-                player.sendPacket(new SendPlayerPacket(uuid.toString(), player.getServerName()), false);
+                UUID proxy = PalaceBungee.getMongoHandler().findPlayer(uuid);
+                if (proxy != null) PalaceBungee.getMessageHandler().sendToProxy(new SendPlayerPacket(uuid.toString(), target.getName()), proxy);
             } catch (Exception e) {
-                e.printStackTrace();
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error warping party member " + uuid, e);
             }
-        });
+        }
+    }
+
+    private static String getServerName(UUID uuid) {
+        Player tp = PalaceBungee.getPlayer(uuid);
+        if (tp != null) return tp.getServerName();
+        PlayerPresence presence = PalaceBungee.getPresenceUtil().getPresence(uuid);
+        return presence == null ? null : presence.getServer();
+    }
+
+    /**
+     * Connect a player on this proxy to a party warp's server, trying again on the same server if it fails
+     */
+    private static void connect(UUID uuid, Server target, ServerInfo info, int attempts) {
+        Player tp = PalaceBungee.getPlayer(uuid);
+        if (tp == null || tp.getServerName().equals(target.getName())) return;
+        tp.getProxiedPlayer().ifPresent(p -> p.connect(info, (success, error) -> {
+            if ((success != null && success) || attempts <= 1) return;
+            PalaceBungee.getProxyServer().getScheduler().schedule(PalaceBungee.getInstance(),
+                    () -> connect(uuid, target, info, attempts - 1), 2, TimeUnit.SECONDS);
+        }));
     }
 
     public void promoteToLeader(Player player, String username) throws Exception {
-        Party party = PalaceBungee.getMongoHandler().getPartyByMember(player.getUniqueId());
+        Party party = registry.getPartyByMember(player.getUniqueId());
         if (party == null) {
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.AQUA + "You aren't in a party! Create one with " + ChatColor.YELLOW + "/party create");
             return;
@@ -231,15 +304,16 @@ public class PartyUtil {
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.AQUA + "That didn't change much! :shrug:");
             return;
         }
-        PalaceBungee.getMongoHandler().setPartyLeader(party.getPartyID(), player.getUniqueId(), uuid);
-        party.messageAllMembers(ChatColor.YELLOW + PalaceBungee.getUsername(uuid) + " has been promoted to party leader!", true, false);
+        String name = party.getMemberMap().get(uuid);
+        registry.promote(party, uuid, name);
+        party.messageAllMembers(ChatColor.YELLOW + name + " has been promoted to party leader!", true, false);
     }
 
     public void chat(Player player, String msg) throws Exception {
         String processed = PalaceBungee.getChatUtil().processChatMessage(player, msg, "PC", false, false);
         if (processed == null) return;
 
-        Party party = PalaceBungee.getMongoHandler().getPartyByMember(player.getUniqueId());
+        Party party = registry.getPartyByMember(player.getUniqueId());
         if (party == null) {
             player.sendSubsystemMessage(Subsystem.PARTY, ChatColor.AQUA + "You aren't in a party! Create one with " + ChatColor.YELLOW + "/party create");
             return;
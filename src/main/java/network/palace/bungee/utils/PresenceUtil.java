@@ -0,0 +1,280 @@
+package network.palace.bungee.utils;
+
+import net.md_5.bungee.config.Configuration;
+import network.palace.bungee.PalaceBungee;
+import network.palace.bungee.handlers.Player;
+import network.palace.bungee.handlers.PlayerPresence;
+import network.palace.bungee.messages.packets.PresencePacket;
+import network.palace.bungee.messages.packets.PresenceSnapshotPacket;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * Keeps track of which players are online across the whole network, and which proxy and server each of them is on,
+ * so lookups like /msg and /find don't need to query the database for {@code online: true} players.
+ * <p>
+ * Every proxy broadcasts a {@link PresencePacket} when one of its players joins, switches server or leaves, and a
+ * {@link PresenceSnapshotPacket} of all its players every {@code presence.snapshotInterval} seconds. The snapshots
+ * correct anything a proxy missed, and a proxy that hasn't sent one for {@code presence.expiry} seconds is assumed
+ * to be gone and its players are removed.
+ * <p>
+ * Until the index has been loaded from the database, or if this proxy stops receiving its own snapshots back from
+ * the message queue, the index is considered cold and {@link network.palace.bungee.mongo.MongoHandler} falls back
+ * to querying the database.
+ */
+public class PresenceUtil {
+    private final UUID proxyId = PalaceBungee.getProxyID();
+    private final ConcurrentHashMap<UUID, PlayerPresence> players = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, UUID> usernames = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Long> proxies = new ConcurrentHashMap<>();
+    private final long expiry;
+    private final AtomicLong lastEcho = new AtomicLong(0);
+    private volatile boolean bootstrapped = false, bootstrapping = false;
+
+    public PresenceUtil() {
+        int snapshotInterval = 30, expiry = 90;
+        try {
+            Configuration config = PalaceBungee.getConfigUtil().getConfig();
+            snapshotInterval = config.getInt("presence.snapshotInterval", snapshotInterval);
+            expiry = config.getInt("presence.expiry", expiry);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading presence settings from config file, using defaults", e);
+        }
+        this.expiry = TimeUnit.SECONDS.toMillis(expiry);
+        bootstrap();
+        PalaceBungee.getProxyServer().getScheduler().schedule(PalaceBungee.getInstance(), this::tick,
+                snapshotInterval, snapshotInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Load the players currently marked online in the database. Live updates received in the meantime take priority.
+     */
+    private void bootstrap() {
+        if (bootstrapping) return;
+        bootstrapping = true;
+        PalaceBungee.getAsyncMongoHandler().supply(mongo -> mongo.getOnlinePresence()).whenComplete((list, t) -> {
+            bootstrapping = false;
+            if (t != null) {
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error loading player presence from database", t);
+                return;
+            }
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                for (PlayerPresence presence : list) {
+                    if (presence.getProxy().equals(proxyId) || players.containsKey(presence.getUniqueId())) continue;
+                    put(presence);
+                    proxies.putIfAbsent(presence.getProxy(), now);
+                }
+            }
+            lastEcho.set(now);
+            bootstrapped = true;
+        });
+    }
+
+    public void join(Player player) {
+        PlayerPresence presence = new PlayerPresence(player).withProxy(proxyId);
+        synchronized (this) {
+            put(presence);
+        }
+        publish(new PresencePacket(PresencePacket.Action.JOIN, proxyId, player.getUniqueId(), presence));
+    }
+
+    public void switchServer(UUID uuid, String server) {
+        PlayerPresence presence = players.get(uuid);
+        if (presence == null) {
+            Player player = PalaceBungee.getPlayer(uuid);
+            if (player == null) return;
+            presence = new PlayerPresence(player).withProxy(proxyId);
+        }
+        presence = presence.withServer(server);
+        synchronized (this) {
+            put(presence);
+        }
+        publish(new PresencePacket(PresencePacket.Action.SWITCH, proxyId, uuid, presence));
+    }
+
+    public void leave(UUID uuid) {
+        synchronized (this) {
+            remove(uuid, proxyId);
+        }
+        publish(new PresencePacket(PresencePacket.Action.LEAVE, proxyId, uuid, null));
+    }
+
+    public void handle(PresencePacket packet) {
+        if (packet.getProxy().equals(proxyId)) return;
+        proxies.put(packet.getProxy(), System.currentTimeMillis());
+        synchronized (this) {
+            if (packet.getAction().equals(PresencePacket.Action.LEAVE)) {
+                remove(packet.getUuid(), packet.getProxy());
+            } else {
+                put(packet.getPresence());
+            }
+        }
+    }
+
+    public void handle(PresenceSnapshotPacket packet) {
+        long now = System.currentTimeMillis();
+        if (packet.getProxy().equals(proxyId)) {
+            // our own snapshot made it back through the message queue, so we're still receiving updates
+            lastEcho.set(now);
+            return;
+        }
+        proxies.put(packet.getProxy(), now);
+        Set<UUID> current = new HashSet<>();
+        synchronized (this) {
+            for (PlayerPresence presence : packet.getPlayers()) {
+                current.add(presence.getUniqueId());
+                put(presence);
+            }
+            for (PlayerPresence presence : new ArrayList<>(players.values())) {
+                if (presence.getProxy().equals(packet.getProxy()) && !current.contains(presence.getUniqueId())) {
+                    remove(presence.getUniqueId(), packet.getProxy());
+                }
+            }
+        }
+    }
+
+    /**
+     * Publish this proxy's snapshot and remove players on proxies that have gone quiet
+     */
+    private void tick() {
+        if (!bootstrapped) bootstrap();
+        List<PlayerPresence> local = new ArrayList<>();
+        for (Player player : PalaceBungee.getOnlinePlayers()) {
+            local.add(new PlayerPresence(player).withProxy(proxyId));
+        }
+        synchronized (this) {
+            Set<UUID> current = new HashSet<>();
+            for (PlayerPresence presence : local) {
+                current.add(presence.getUniqueId());
+                put(presence);
+            }
+            for (PlayerPresence presence : new ArrayList<>(players.values())) {
+                if (presence.getProxy().equals(proxyId) && !current.contains(presence.getUniqueId())) {
+                    remove(presence.getUniqueId(), proxyId);
+                }
+            }
+            long now = System.currentTimeMillis();
+            proxies.entrySet().removeIf(entry -> {
+                if (now - entry.getValue() < expiry) return false;
+                PalaceBungee.getProxyServer().getLogger().warning("No presence updates from proxy " + entry.getKey() + " in " +
+                        ((now - entry.getValue()) / 1000) + " seconds, removing its players");
+                for (PlayerPresence presence : new ArrayList<>(players.values())) {
+                    if (presence.getProxy().equals(entry.getKey())) remove(presence.getUniqueId(), entry.getKey());
+                }
+                return true;
+            });
+        }
+        publish(new PresenceSnapshotPacket(proxyId, local));
+    }
+
+    private void put(PlayerPresence presence) {
+        PlayerPresence previous = players.put(presence.getUniqueId(), presence);
+        if (previous != null && !previous.getUsername().equals(presence.getUsername())) {
+            usernames.remove(previous.getUsername(), previous.getUniqueId());
+        }
+        usernames.put(presence.getUsername(), presence.getUniqueId());
+    }
+
+    /**
+     * Remove a player, but only if they're still listed on the given proxy. A player moving between proxies can be
+     * reported joining the new proxy before they're reported leaving the old one.
+     */
+    private void remove(UUID uuid, UUID proxy) {
+        PlayerPresence presence = players.get(uuid);
+        if (presence == null || !presence.getProxy().equals(proxy)) return;
+        players.remove(uuid);
+        usernames.remove(presence.getUsername(), uuid);
+    }
+
+    private void publish(PresencePacket packet) {
+        try {
+            PalaceBungee.getMessageHandler().sendMessage(packet, PalaceBungee.getMessageHandler().ALL_PROXIES);
+        } catch (Exception e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error publishing presence update", e);
+        }
+    }
+
+    private void publish(PresenceSnapshotPacket packet) {
+        try {
+            PalaceBungee.getMessageHandler().sendMessage(packet, PalaceBungee.getMessageHandler().ALL_PROXIES);
+        } catch (Exception e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error publishing presence snapshot", e);
+        }
+    }
+
+    /**
+     * @return true if the index can be trusted, false if lookups should go to the database instead
+     */
+    public boolean isWarm() {
+        return bootstrapped && System.currentTimeMillis() - lastEcho.get() < expiry;
+    }
+
+    public PlayerPresence getPresence(UUID uuid) {
+        return players.get(uuid);
+    }
+
+    public PlayerPresence getPresence(String username) {
+        UUID uuid = usernames.get(username);
+        return uuid == null ? null : players.get(uuid);
+    }
+
+    /**
+     * Find the proxies a group of players are on, so a packet meant for them can be sent to just those proxies.
+     * Players that aren't online are skipped, so if none of them are the set is empty and nothing needs sending.
+     *
+     * @return the proxies, or null if the packet should go to every proxy instead: when the index is cold, or the
+     * players are on every proxy anyway
+     */
+    public Set<UUID> getProxies(Collection<UUID> uuids) {
+        if (!isWarm() || uuids == null) return null;
+        Set<UUID> set = new HashSet<>();
+        for (UUID uuid : uuids) {
+            if (PalaceBungee.getPlayer(uuid) != null) {
+                set.add(proxyId);
+                continue;
+            }
+            PlayerPresence presence = players.get(uuid);
+            if (presence != null) set.add(presence.getProxy());
+        }
+        // the other proxies we've heard from, plus this one
+        if (set.size() > proxies.size()) return null;
+        return set;
+    }
+
+    public int getOnlineCount() {
+        return players.size();
+    }
+
+    public List<String> getOnlinePlayerNames() {
+        return new ArrayList<>(usernames.keySet());
+    }
+
+    public HashMap<String, Integer> getServerCounts() {
+        HashMap<String, Integer> map = new HashMap<>();
+        for (PlayerPresence presence : players.values()) {
+            map.merge(presence.getServer(), 1, Integer::sum);
+        }
+        return map;
+    }
+
+    public HashMap<UUID, Integer> getProxyCounts() {
+        HashMap<UUID, Integer> map = new HashMap<>();
+        for (PlayerPresence presence : players.values()) {
+            map.merge(presence.getProxy(), 1, Integer::sum);
+        }
+        return map;
+    }
+
+    public boolean areStaffOnline(boolean guide) {
+        for (PlayerPresence presence : players.values()) {
+            if (presence.isStaff(guide)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,82 @@
+package network.palace.bungee.utils;
+
+import network.palace.bungee.handlers.Server;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Picks which of a group of servers a player should be sent to, given the load of each one. A load of 0 is an empty
+ * server and 1 is a full one; see {@link ServerUtil#getLoad(Server)}. The load passed in also includes the
+ * {@link HealthChecker} penalty for slow or recently recovered servers.
+ * <p>
+ * The strategy is chosen with {@code balancer.strategy} in the config file.
+ */
+public interface ServerBalancer {
+
+    /**
+     * @param pool       a name for this group of servers, e.g. a server type, for strategies that remember past choices
+     * @param candidates the servers to choose between, never empty
+     * @param load       the current load of a server
+     * @return the server to send the player to
+     */
+    Server choose(String pool, List<Server> candidates, ToDoubleFunction<Server> load);
+
+    static ServerBalancer fromName(String name, double hysteresis) {
+        if (name.equalsIgnoreCase("power-of-two")) return new PowerOfTwo();
+        return new LeastLoad(hysteresis);
+    }
+
+    /**
+     * Send players to the least loaded server, but keep sending them to the server chosen last time for a pool until
+     * another server is lighter by more than the hysteresis band, so near-equal servers don't trade places on every
+     * login.
+     */
+    class LeastLoad implements ServerBalancer {
+        private final double hysteresis;
+        private final Map<String, String> lastChoice = new HashMap<>();
+
+        public LeastLoad(double hysteresis) {
+            this.hysteresis = hysteresis;
+        }
+
+        @Override
+        public synchronized Server choose(String pool, List<Server> candidates, ToDoubleFunction<Server> load) {
+            Server best = null, previous = null;
+            double bestLoad = Double.MAX_VALUE, previousLoad = 0;
+            String last = lastChoice.get(pool);
+            for (Server server : candidates) {
+                double l = load.applyAsDouble(server);
+                if (l < bestLoad) {
+                    best = server;
+                    bestLoad = l;
+                }
+                if (server.getName().equals(last)) {
+                    previous = server;
+                    previousLoad = l;
+                }
+            }
+            if (previous != null && previousLoad - bestLoad <= hysteresis) best = previous;
+            lastChoice.put(pool, best.getName());
+            return best;
+        }
+    }
+
+    /**
+     * Compare two servers picked at random and send players to the less loaded one. This avoids every proxy sending
+     * its players to the same server when their view of the network's load is slightly out of date.
+     */
+    class PowerOfTwo implements ServerBalancer {
+
+        @Override
+        public Server choose(String pool, List<Server> candidates, ToDoubleFunction<Server> load) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            Server a = candidates.get(random.nextInt(candidates.size()));
+            Server b = candidates.get(random.nextInt(candidates.size()));
+            return load.applyAsDouble(a) <= load.applyAsDouble(b) ? a : b;
+        }
+    }
+}
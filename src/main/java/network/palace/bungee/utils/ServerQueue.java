@@ -0,0 +1,235 @@
+package network.palace.bungee.utils;
+
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.ChatMessageType;
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.api.config.ServerInfo;
+import network.palace.bungee.PalaceBungee;
+import network.palace.bungee.handlers.Player;
+import network.palace.bungee.handlers.Rank;
+import network.palace.bungee.handlers.Server;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Holds players waiting to join a server that's full, instead of letting every /join attempt reach the server and
+ * be turned away. Only servers with a player limit ({@link Server#getGameMaxPlayers()}) are queued.
+ * <p>
+ * Each server has three first-come-first-served lanes. Staff are always let in first, and the priority lane for
+ * DVC and above is let in {@code queue.priorityWeight} times for every player let in from the standard lane, so
+ * neither lane is starved. Once a second, players are let in for as many slots as the server has free according to
+ * its latest count and the players already sent there (see {@link ServerUtil#getLoad(Server)}), and everyone still
+ * waiting is shown their position and an estimated wait on their action bar.
+ */
+public class ServerQueue {
+    private final Map<String, Line> lines = new HashMap<>();
+    private final Map<UUID, String> queued = new HashMap<>();
+    private final int priorityWeight;
+
+    public ServerQueue() {
+        int priorityWeight = 3;
+        try {
+            priorityWeight = PalaceBungee.getConfigUtil().getConfig().getInt("queue.priorityWeight", priorityWeight);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading queue settings from config file, using defaults", e);
+        }
+        this.priorityWeight = Math.max(1, priorityWeight);
+        PalaceBungee.getProxyServer().getScheduler().schedule(PalaceBungee.getInstance(), () -> {
+            try {
+                drain();
+            } catch (Exception e) {
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error draining server queues", e);
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Check whether a player can connect to a server now, and queue them for it if not
+     *
+     * @return true if the player should connect now, false if they've been queued
+     */
+    public boolean admit(Player player, Server server) {
+        int position;
+        synchronized (this) {
+            Line line = lines.get(server.getName());
+            if (server.getGameMaxPlayers() <= 0 || ((line == null || line.isEmpty()) &&
+                    PalaceBungee.getServerUtil().getLoad(server) < 1)) {
+                leave(player.getUniqueId());
+                return true;
+            }
+            if (!server.getName().equals(queued.get(player.getUniqueId()))) {
+                leave(player.getUniqueId());
+                if (line == null) lines.put(server.getName(), line = new Line());
+                line.add(player.getUniqueId(), lane(player.getRank()));
+                queued.put(player.getUniqueId(), server.getName());
+            }
+            position = line.getPosition(player.getUniqueId(), priorityWeight);
+        }
+        player.sendMessage(ChatColor.YELLOW + server.getName() + " is full! You are " + ChatColor.GREEN + "#" + position +
+                ChatColor.YELLOW + " in the queue and will be sent there when a spot opens up.");
+        return false;
+    }
+
+    /**
+     * Take a player out of the queue they're in, e.g. when they log out
+     */
+    public synchronized void leave(UUID uuid) {
+        String name = queued.remove(uuid);
+        if (name == null) return;
+        Line line = lines.get(name);
+        if (line == null) return;
+        line.remove(uuid);
+        if (line.isEmpty()) lines.remove(name);
+    }
+
+    /**
+     * Take a player out of a server's queue if they got there some other way
+     */
+    public synchronized void arrived(UUID uuid, String server) {
+        if (server.equals(queued.get(uuid))) leave(uuid);
+    }
+
+    public synchronized int getQueuedCount() {
+        return queued.size();
+    }
+
+    private void drain() {
+        Map<UUID, Server> admitted = new HashMap<>();
+        Map<UUID, String> updates = new HashMap<>();
+        synchronized (this) {
+            Iterator<Map.Entry<String, Line>> iterator = lines.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Line> entry = iterator.next();
+                Line line = entry.getValue();
+                Server server = PalaceBungee.getServerUtil().getServer(entry.getKey(), true);
+                if (server == null) {
+                    // the server was removed, so its queue is dropped and the players are told
+                    line.forEach(uuid -> {
+                        queued.remove(uuid);
+                        updates.put(uuid, ChatColor.RED + "The server you were queued for is no longer available");
+                    });
+                    iterator.remove();
+                    continue;
+                }
+                int count = 0;
+                while (!line.isEmpty() && server.isOnline() && !PalaceBungee.getServerUtil().getHealth().isEjected(server) &&
+                        (server.getGameMaxPlayers() <= 0 || PalaceBungee.getServerUtil().getLoad(server) < 1)) {
+                    UUID uuid = line.poll(priorityWeight);
+                    queued.remove(uuid);
+                    if (PalaceBungee.getPlayer(uuid) == null) continue;
+                    PalaceBungee.getServerUtil().reserve(server);
+                    admitted.put(uuid, server);
+                    count++;
+                }
+                line.recordAdmitted(count);
+                if (line.isEmpty()) {
+                    iterator.remove();
+                    continue;
+                }
+                line.forEach(uuid -> updates.put(uuid, ChatColor.YELLOW + "Queued for " + server.getName() + ": " +
+                        ChatColor.GREEN + "#" + line.getPosition(uuid, priorityWeight) + ChatColor.YELLOW + " - " +
+                        line.getEstimate(uuid, priorityWeight)));
+            }
+        }
+        admitted.forEach((uuid, server) -> {
+            Player player = PalaceBungee.getPlayer(uuid);
+            ServerInfo info = PalaceBungee.getServerUtil().getServerInfo(server.getName(), true);
+            if (player == null || info == null) return;
+            player.sendMessage(ChatColor.GREEN + "A spot opened up! Sending you to " + ChatColor.YELLOW + server.getName() + "...");
+            player.getProxiedPlayer().ifPresent(p -> p.connect(info));
+        });
+        updates.forEach((uuid, message) -> {
+            Player player = PalaceBungee.getPlayer(uuid);
+            if (player != null) player.getProxiedPlayer().ifPresent(p ->
+                    p.sendMessage(ChatMessageType.ACTION_BAR, new TextComponent(message)));
+        });
+    }
+
+    private static int lane(Rank rank) {
+        if (rank.getRankId() >= Rank.TRAINEE.getRankId()) return Line.STAFF;
+        if (rank.getRankId() >= Rank.DVC.getRankId()) return Line.PRIORITY;
+        return Line.STANDARD;
+    }
+
+    /**
+     * The players waiting for one server, in three lanes
+     */
+    private static class Line {
+        private static final int STAFF = 0, PRIORITY = 1, STANDARD = 2;
+        private final List<LinkedHashSet<UUID>> lanes = Arrays.asList(new LinkedHashSet<>(), new LinkedHashSet<>(), new LinkedHashSet<>());
+        // players let in from the priority lane since the standard lane was last let in
+        private int priorityStreak = 0;
+        // players let in per second, averaged over roughly the last ten seconds
+        private double rate = 0;
+
+        private void add(UUID uuid, int lane) {
+            lanes.get(lane).add(uuid);
+        }
+
+        private void remove(UUID uuid) {
+            lanes.forEach(lane -> lane.remove(uuid));
+        }
+
+        private boolean isEmpty() {
+            return lanes.stream().allMatch(Set::isEmpty);
+        }
+
+        private void forEach(Consumer<UUID> action) {
+            lanes.forEach(lane -> new ArrayList<>(lane).forEach(action));
+        }
+
+        private UUID poll(int priorityWeight) {
+            LinkedHashSet<UUID> lane;
+            if (!lanes.get(STAFF).isEmpty()) {
+                lane = lanes.get(STAFF);
+            } else if (!lanes.get(PRIORITY).isEmpty() && (priorityStreak < priorityWeight || lanes.get(STANDARD).isEmpty())) {
+                lane = lanes.get(PRIORITY);
+                priorityStreak++;
+            } else {
+                lane = lanes.get(STANDARD);
+                priorityStreak = 0;
+            }
+            Iterator<UUID> iterator = lane.iterator();
+            UUID uuid = iterator.next();
+            iterator.remove();
+            return uuid;
+        }
+
+        /**
+         * Estimate a player's place in line from the lane weights, counting everyone in the staff lane as ahead of
+         * them and the share of the other lane that would be let in before them
+         */
+        private int getPosition(UUID uuid, int priorityWeight) {
+            int staff = lanes.get(STAFF).size(), priority = lanes.get(PRIORITY).size(), standard = lanes.get(STANDARD).size();
+            int index = indexOf(lanes.get(STAFF), uuid);
+            if (index >= 0) return index + 1;
+            index = indexOf(lanes.get(PRIORITY), uuid);
+            if (index >= 0) return staff + index + Math.min(standard, index / priorityWeight) + 1;
+            index = indexOf(lanes.get(STANDARD), uuid);
+            return staff + index + Math.min(priority, (index + 1) * priorityWeight) + 1;
+        }
+
+        private String getEstimate(UUID uuid, int priorityWeight) {
+            if (rate < 0.01) return "waiting for a spot";
+            long seconds = Math.round(getPosition(uuid, priorityWeight) / rate);
+            return seconds < 60 ? "about " + seconds + "s" : "about " + (seconds / 60) + "m";
+        }
+
+        private void recordAdmitted(int count) {
+            rate = rate * 0.9 + count * 0.1;
+        }
+
+        private static int indexOf(Set<UUID> lane, UUID uuid) {
+            int i = 0;
+            for (UUID u : lane) {
+                if (u.equals(uuid)) return i;
+                i++;
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package network.palace.bungee.utils;
+
+import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.config.ServerInfo;
+import network.palace.bungee.PalaceBungee;
+import network.palace.bungee.handlers.Server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+
+/**
+ * Every server on the network with its player count and online state, read from the {@code servers} collection with
+ * one query every {@code servers.refreshInterval} seconds on a background thread.
+ * <p>
+ * Each refresh publishes a new immutable {@link Snapshot} through an atomic reference, so routing decisions like
+ * picking the emptiest server of a type read from memory without locking or querying the database. Servers created or
+ * deleted with {@code /server} are applied to the snapshot as soon as their packet arrives.
+ */
+public class ServerRegistry {
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(new Snapshot(Collections.emptyList(), 0));
+
+    public ServerRegistry() {
+        int refreshInterval = 3;
+        try {
+            refreshInterval = PalaceBungee.getConfigUtil().getConfig().getInt("servers.refreshInterval", refreshInterval);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading server registry settings from config file, using defaults", e);
+        }
+        PalaceBungee.getProxyServer().getScheduler().schedule(PalaceBungee.getInstance(), () -> {
+            try {
+                refresh();
+            } catch (Exception e) {
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error refreshing server registry", e);
+            }
+        }, refreshInterval, refreshInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Replace the registry with the servers currently in the database, registering any server BungeeCord doesn't
+     * know about yet. Servers that haven't changed keep their unique id.
+     *
+     * @return the number of servers loaded
+     */
+    public int refresh() {
+        List<Server> servers = PalaceBungee.getMongoHandler().getServers(PalaceBungee.isTestNetwork());
+        Map<String, ServerInfo> infos = ProxyServer.getInstance().getServers();
+        for (Server server : servers) {
+            if (infos.containsKey(server.getName())) continue;
+            try {
+                String[] addressList = server.getAddress().split(":");
+                ServerInfo info = ProxyServer.getInstance().constructServerInfo(server.getName(),
+                        new InetSocketAddress(addressList[0], Integer.parseInt(addressList[1])), "", false);
+                infos.put(info.getName(), info);
+            } catch (Exception e) {
+                PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error registering server " + server.getName(), e);
+            }
+        }
+        long now = System.currentTimeMillis();
+        snapshot.updateAndGet(current -> {
+            List<Server> list = new ArrayList<>(servers.size());
+            for (Server server : servers) {
+                Server previous = current.byName.get(server.getName());
+                list.add(previous != null && previous.isSameServer(server) ?
+                        previous.withStatus(server) : server);
+            }
+            return new Snapshot(list, now);
+        });
+        return servers.size();
+    }
+
+    public void add(Server server) {
+        snapshot.updateAndGet(current -> {
+            List<Server> list = new ArrayList<>(current.servers);
+            list.removeIf(s -> s.getName().equals(server.getName()));
+            list.add(server);
+            return new Snapshot(list, current.refreshed);
+        });
+    }
+
+    public void remove(String name) {
+        snapshot.updateAndGet(current -> {
+            List<Server> list = new ArrayList<>(current.servers);
+            list.removeIf(s -> s.getName().equals(name));
+            return new Snapshot(list, current.refreshed);
+        });
+    }
+
+    public Server getServer(String name, boolean exact) {
+        Snapshot s = snapshot.get();
+        return exact ? s.byName.get(name) : s.byLowerName.get(name.toLowerCase());
+    }
+
+    public ServerInfo getServerInfo(String name, boolean exact) {
+        if (exact) return ProxyServer.getInstance().getServerInfo(name);
+        return snapshot.get().infoByLowerName.get(name.toLowerCase());
+    }
+
+    /**
+     * @return an unmodifiable list of every server in the latest snapshot
+     */
+    public List<Server> getServers() {
+        return snapshot.get().servers;
+    }
+
+    /**
+     * @return the time the latest snapshot was read from the database, in epoch milliseconds
+     */
+    public long getLastRefresh() {
+        return snapshot.get().refreshed;
+    }
+
+    private static class Snapshot {
+        private final List<Server> servers;
+        private final Map<String, Server> byName = new HashMap<>();
+        private final Map<String, Server> byLowerName = new HashMap<>();
+        private final Map<String, ServerInfo> infoByLowerName = new HashMap<>();
+        private final long refreshed;
+
+        private Snapshot(List<Server> servers, long refreshed) {
+            this.servers = Collections.unmodifiableList(servers);
+            this.refreshed = refreshed;
+            for (Server server : servers) {
+                byName.put(server.getName(), server);
+                byLowerName.putIfAbsent(server.getName().toLowerCase(), server);
+            }
+            // the proxy's server map can also hold servers from its own config, so it's indexed separately
+            for (ServerInfo info : ProxyServer.getInstance().getServers().values()) {
+                infoByLowerName.putIfAbsent(info.getName().toLowerCase(), info);
+            }
+        }
+    }
+}
@@ -1,34 +1,63 @@
 package network.palace.bungee.utils;
 
 import lombok.Getter;
-import net.md_5.bungee.api.ProxyServer;
 import net.md_5.bungee.api.ReconnectHandler;
 import net.md_5.bungee.api.config.ServerInfo;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.config.Configuration;
 import network.palace.bungee.PalaceBungee;
 import network.palace.bungee.handlers.Player;
 import network.palace.bungee.handlers.Server;
 import network.palace.bungee.messages.packets.DisablePlayerPacket;
 
-import java.net.InetSocketAddress;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 
 public class ServerUtil {
-    private final HashMap<String, Server> servers = new HashMap<>();
-    private ServerInfo currentHub;
+    @Getter private final ServerRegistry registry = new ServerRegistry();
+    @Getter private final ServerQueue queue = new ServerQueue();
+    @Getter private final HealthChecker health = new HealthChecker();
+    @Getter private final EvacuationPlanner evacuation = new EvacuationPlanner();
     @Getter private int onlineCount = 0;
     @Getter private final List<String> onlinePlayerNames = new ArrayList<>();
+    private final ServerBalancer balancer;
+    private final int defaultCapacity;
+    private final long reservationTime;
+    private final ConcurrentHashMap<String, AtomicInteger> reservations = new ConcurrentHashMap<>();
+    private final TimerWheel wheel = new TimerWheel(16, 1, TimeUnit.SECONDS);
 
     public ServerUtil() {
-        loadServers();
+        String strategy = "least-load";
+        double hysteresis = 0.02;
+        int defaultCapacity = 100, reservationTime = 10;
+        try {
+            Configuration config = PalaceBungee.getConfigUtil().getConfig();
+            strategy = config.getString("balancer.strategy", strategy);
+            hysteresis = config.getDouble("balancer.hysteresis", hysteresis);
+            defaultCapacity = config.getInt("balancer.defaultCapacity", defaultCapacity);
+            reservationTime = config.getInt("balancer.reservationTime", reservationTime);
+        } catch (IOException e) {
+            PalaceBungee.getProxyServer().getLogger().log(Level.WARNING, "Error loading balancer settings from config file, using defaults", e);
+        }
+        this.balancer = ServerBalancer.fromName(strategy, hysteresis);
+        this.defaultCapacity = defaultCapacity;
+        this.reservationTime = TimeUnit.SECONDS.toMillis(reservationTime);
 
-        currentHub = getServerInfo("Hub1", true);
+        loadServers();
 
         PalaceBungee.getProxyServer().setReconnectHandler(new ReconnectHandler() {
             @Override
             public ServerInfo getServer(ProxiedPlayer proxiedPlayer) {
-                return currentHub;
+                Server hub = chooseServer("Hub", s -> s.getName().startsWith("Hub"), null);
+                ServerInfo info = hub == null ? null : getServerInfo(hub.getName(), true);
+                if (info == null) return getServerInfo("Hub1", true);
+                reserve(hub);
+                return info;
             }
 
             @Override
@@ -59,18 +88,6 @@ public class ServerUtil {
                 } catch (Exception e) {
                     PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error updating online player name list", e);
                 }
-                try {
-                    int currentCount = servers.get(currentHub.getName()).getCount();
-                    for (Server server : servers.values()) {
-                        if (!server.getName().startsWith("Hub")) continue;
-                        if (server.getCount() < currentCount) {
-                            currentCount = server.getCount();
-                            currentHub = getServerInfo(server.getName(), true);
-                        }
-                    }
-                } catch (Exception e) {
-                    PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error determining currentHub", e);
-                }
                 try {
                     for (Player tp : PalaceBungee.getOnlinePlayers()) {
                         if (tp.getProxiedPlayer().isEmpty() && (System.currentTimeMillis() - tp.getLoginTime()) > 5000) {
@@ -85,22 +102,9 @@ public class ServerUtil {
     }
 
     private void loadServers() {
-        servers.clear();
-//        ProxyServer.getInstance().getServers().clear();
         try {
-            List<Server> servers = PalaceBungee.getMongoHandler().getServers(PalaceBungee.isTestNetwork());
-            for (Server s : servers) {
-                this.servers.put(s.getName(), s);
-                try {
-                    String[] addressList = s.getAddress().split(":");
-                    ServerInfo info = ProxyServer.getInstance().constructServerInfo(s.getName(),
-                            new InetSocketAddress(addressList[0], Integer.parseInt(addressList[1])), "", false);
-                    ProxyServer.getInstance().getServers().put(info.getName(), info);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-            }
-            PalaceBungee.getProxyServer().getLogger().info("Successfully loaded " + servers.size() + " servers!");
+            int count = registry.refresh();
+            PalaceBungee.getProxyServer().getLogger().info("Successfully loaded " + count + " servers!");
         } catch (Exception e) {
             PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error loading servers, stopping bungee server!", e);
             System.exit(1);
@@ -108,20 +112,11 @@ public class ServerUtil {
     }
 
     public ServerInfo getServerInfo(String name, boolean exact) {
-        for (ServerInfo info : ProxyServer.getInstance().getServers().values()) {
-            if ((exact && info.getName().equals(name)) || (!exact && info.getName().equalsIgnoreCase(name)))
-                return info;
-        }
-        return null;
+        return registry.getServerInfo(name, exact);
     }
 
     public Server getServer(String name, boolean exact) {
-        if (exact) return servers.get(name);
-        for (Server s : servers.values()) {
-            if (s.getName().equalsIgnoreCase(name))
-                return s;
-        }
-        return null;
+        return registry.getServer(name, exact);
     }
 
     public int getServerCount(net.md_5.bungee.api.connection.Server server) {
@@ -129,19 +124,20 @@ public class ServerUtil {
     }
 
     public int getServerCount(String name) {
-        return PalaceBungee.getMongoHandler().getServerCount(name);
+        Server server = getServer(name, true);
+        return server == null ? 0 : server.getCount();
     }
 
     public void createServer(Server server) {
-        servers.put(server.getName(), server);
+        registry.add(server);
     }
 
     public void deleteServer(String name) {
-        servers.remove(name);
+        registry.remove(name);
     }
 
     public List<Server> getServers() {
-        return new ArrayList<>(servers.values());
+        return new ArrayList<>(registry.getServers());
     }
 
     public void sendPlayer(Player player, String serverName) {
@@ -173,7 +169,9 @@ public class ServerUtil {
         if (to == null) {
             // unknown error
         } else {
+            queue.arrived(uuid, to.getName());
             PalaceBungee.getMongoHandler().setPlayerServer(uuid, to.getName());
+            PalaceBungee.getPresenceUtil().switchServer(uuid, to.getName());
         }
     }
 
@@ -182,18 +180,7 @@ public class ServerUtil {
     }
 
     public Server getServerByType(String serverType, UUID exclude) {
-        Server server = null;
-        for (Server s : servers.values()) {
-            if ((s.getUniqueId().equals(exclude)) || !s.isOnline()) continue;
-            if (s.getServerType().equals(serverType)) {
-                if (server == null) {
-                    server = s;
-                    continue;
-                }
-                if (s.getCount() < server.getCount()) server = s;
-            }
-        }
-        return server;
+        return chooseServer(serverType, s -> s.getServerType().equals(serverType), exclude);
     }
 
     public void sendPlayerByType(Player player, String serverType) {
@@ -201,21 +188,84 @@ public class ServerUtil {
         if (server != null) server.join(player);
     }
 
-
     public Server getEmptyParkServer(UUID exclude) {
-        Server s = null;
-        List<Server> servers = new ArrayList<>(this.servers.values());
-        for (Server server : servers) {
-            if ((server.getUniqueId().equals(exclude)) || !server.isOnline() || !server.isPark()) continue;
-            if (s == null) {
-                s = server;
-                continue;
-            }
-            if (server.getCount() < s.getCount()) {
-                s = server;
-            }
+        return chooseServer("Park", Server::isPark, exclude);
+    }
+
+    /**
+     * Use the configured {@link ServerBalancer} to pick an online server
+     *
+     * @param pool    a name for this group of servers
+     * @param filter  which servers belong to the group
+     * @param exclude the unique id of a server to leave out, or null
+     * @return the server, or null if none in the group are online
+     */
+    private Server chooseServer(String pool, Predicate<Server> filter, UUID exclude) {
+        List<Server> candidates = getCandidates(filter, exclude);
+        if (candidates.isEmpty()) return null;
+        // only fall back to full servers when every server in the group is full
+        List<Server> open = new ArrayList<>(candidates);
+        open.removeIf(server -> server.getGameMaxPlayers() > 0 && getLoad(server) >= 1);
+        return balancer.choose(pool, open.isEmpty() ? candidates : open, this::getScore);
+    }
+
+    /**
+     * Get the online servers in a group, leaving out ejected servers unless every server in the group is ejected
+     *
+     * @param filter  which servers belong to the group
+     * @param exclude the unique id of a server to leave out, or null
+     * @return the servers, which may be empty
+     */
+    public List<Server> getCandidates(Predicate<Server> filter, UUID exclude) {
+        List<Server> candidates = new ArrayList<>();
+        for (Server server : registry.getServers()) {
+            if (server.getUniqueId().equals(exclude) || !server.isOnline() || !filter.test(server)) continue;
+            candidates.add(server);
         }
-        return s;
+        List<Server> healthy = new ArrayList<>(candidates);
+        healthy.removeIf(health::isEjected);
+        return healthy.isEmpty() ? candidates : healthy;
+    }
+
+    /**
+     * Get a server's load adjusted by its health, which is what the balancer compares servers by
+     */
+    private double getScore(Server server) {
+        return getLoad(server) + health.getPenalty(server);
+    }
+
+    /**
+     * Get how full a server is, counting players this proxy has sent there that may not be in its count yet
+     *
+     * @return the number of players divided by the server's capacity, where 1 is full
+     */
+    public double getLoad(Server server) {
+        AtomicInteger reserved = reservations.get(server.getName());
+        return (server.getCount() + (reserved == null ? 0 : reserved.get())) / (double) getCapacity(server);
+    }
+
+    /**
+     * @return the number of players that can still be sent to a server before it's full, never negative
+     */
+    public int getFreeSlots(Server server) {
+        return Math.max(0, (int) Math.floor(getCapacity(server) * (1 - getLoad(server))));
+    }
+
+    /**
+     * @return the server's player limit, or {@code balancer.defaultCapacity} if it doesn't have one
+     */
+    public int getCapacity(Server server) {
+        return server.getGameMaxPlayers() > 0 ? server.getGameMaxPlayers() : defaultCapacity;
+    }
+
+    /**
+     * Count a player on their way to a server towards its load until the server's own count has had time to
+     * include them, so players routed between two registry refreshes don't all go to the same server
+     */
+    public void reserve(Server server) {
+        AtomicInteger reserved = reservations.computeIfAbsent(server.getName(), name -> new AtomicInteger());
+        reserved.incrementAndGet();
+        wheel.schedule(System.currentTimeMillis() + reservationTime, reserved::decrementAndGet);
     }
 
     public String getChannel(Player player) {
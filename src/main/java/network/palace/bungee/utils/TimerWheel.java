@@ -0,0 +1,96 @@
+package network.palace.bungee.utils;
+
+import network.palace.bungee.PalaceBungee;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * A hashed timer wheel for large numbers of short-lived timeouts, such as invite expiry. Scheduling and cancelling a
+ * timeout are constant time, and each tick only looks at the timeouts in one slot rather than every pending timeout.
+ * Timeouts fire on the tick after their deadline passes, so they can run up to one tick late.
+ */
+public class TimerWheel {
+    private final long tickMillis;
+    private final long start = System.currentTimeMillis();
+    private final List<Set<Timeout>> slots;
+    private long tick = 0;
+
+    /**
+     * @param slots    the number of slots in the wheel
+     * @param duration the length of a tick
+     * @param unit     the unit of the tick length
+     */
+    public TimerWheel(int slots, long duration, TimeUnit unit) {
+        this.tickMillis = unit.toMillis(duration);
+        this.slots = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            this.slots.add(new HashSet<>());
+        }
+        PalaceBungee.getProxyServer().getScheduler().schedule(PalaceBungee.getInstance(), this::advance,
+                tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run a task once a deadline has passed
+     *
+     * @param deadline the time to run the task, in epoch milliseconds
+     * @param task     the task
+     * @return a handle that can cancel the task before it runs
+     */
+    public synchronized Timeout schedule(long deadline, Runnable task) {
+        long due = Math.max(tick + 1, (deadline - start + tickMillis - 1) / tickMillis);
+        Timeout timeout = new Timeout(due, task);
+        slot(due).add(timeout);
+        return timeout;
+    }
+
+    private synchronized List<Timeout> expire() {
+        List<Timeout> expired = new ArrayList<>();
+        long target = (System.currentTimeMillis() - start) / tickMillis;
+        while (tick < target) {
+            tick++;
+            // timeouts more than one revolution away stay in the slot until their round comes up
+            Iterator<Timeout> iterator = slot(tick).iterator();
+            while (iterator.hasNext()) {
+                Timeout timeout = iterator.next();
+                if (timeout.due <= tick) {
+                    iterator.remove();
+                    expired.add(timeout);
+                }
+            }
+        }
+        return expired;
+    }
+
+    private void advance() {
+        for (Timeout timeout : expire()) {
+            try {
+                timeout.task.run();
+            } catch (Exception e) {
+                PalaceBungee.getProxyServer().getLogger().log(Level.SEVERE, "Error running timer task", e);
+            }
+        }
+    }
+
+    private Set<Timeout> slot(long tick) {
+        return slots.get((int) (tick % slots.size()));
+    }
+
+    public class Timeout {
+        private final long due;
+        private final Runnable task;
+
+        private Timeout(long due, Runnable task) {
+            this.due = due;
+            this.task = task;
+        }
+
+        public void cancel() {
+            synchronized (TimerWheel.this) {
+                slot(due).remove(this);
+            }
+        }
+    }
+}
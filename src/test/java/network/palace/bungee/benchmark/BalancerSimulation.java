@@ -0,0 +1,104 @@
+package network.palace.bungee.benchmark;
+
+import network.palace.bungee.handlers.Server;
+import network.palace.bungee.utils.ServerBalancer;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Simulates bursts of logins spread over several proxies and compares how evenly each {@link ServerBalancer} strategy
+ * spreads them over a group of servers.
+ * <p>
+ * Like the real network, every proxy only sees the player counts from the last refresh of the servers collection, plus
+ * the players it has sent to each server itself since then, see {@link network.palace.bungee.utils.ServerUtil#getLoad}.
+ * Each interval between refreshes a burst of logins arrives, shared between the proxies, and some of the players
+ * already online leave. For each strategy the spread of each burst over the servers is printed, along with the spread
+ * of the total load once the burst is over.
+ * <p>
+ * This is a plain main method rather than a test, run it with the test classpath, e.g.
+ * {@code java -cp target/classes:target/test-classes:<dependencies> network.palace.bungee.benchmark.BalancerSimulation}
+ */
+public class BalancerSimulation {
+    private static final int SERVERS = 8, CAPACITY = 100, PROXIES = 4, INTERVALS = 500, BURST = 200;
+    // chance each online player leaves during an interval, which keeps the servers around 60% full
+    private static final double LEAVE_CHANCE = 0.4;
+
+    public static void main(String[] args) {
+        System.out.printf("%d servers of %d, %d proxies, %d logins per refresh, %d refreshes%n%n", SERVERS, CAPACITY,
+                PROXIES, BURST, INTERVALS);
+        System.out.printf("%-22s %14s %14s %14s %14s%n", "strategy", "burst max-min", "burst stddev", "load max-min", "peak load");
+        simulate("least-load 0.02", () -> new ServerBalancer.LeastLoad(0.02));
+        simulate("least-load 0", () -> new ServerBalancer.LeastLoad(0));
+        simulate("power-of-two", ServerBalancer.PowerOfTwo::new);
+    }
+
+    private static void simulate(String name, Supplier<ServerBalancer> factory) {
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < SERVERS; i++) {
+            servers.add(new Server("Hub" + (i + 1), "127.0.0.1:" + (25566 + i), false, "Hub", true, 0, CAPACITY));
+        }
+        // each proxy has its own balancer, as it would on the network
+        ServerBalancer[] balancers = new ServerBalancer[PROXIES];
+        List<Map<String, Integer>> reserved = new ArrayList<>();
+        for (int i = 0; i < PROXIES; i++) {
+            balancers[i] = factory.get();
+            reserved.add(new HashMap<>());
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        Random random = new Random(42);
+        servers.forEach(s -> counts.put(s.getName(), 20 + random.nextInt(20)));
+
+        double burstRange = 0, burstDeviation = 0, loadRange = 0, peak = 0;
+        for (int interval = 0; interval < INTERVALS; interval++) {
+            // the count every proxy saw at the last refresh
+            Map<String, Integer> refreshed = new HashMap<>(counts);
+            reserved.forEach(Map::clear);
+            Map<String, Integer> sent = new HashMap<>();
+            for (int login = 0; login < BURST; login++) {
+                int proxy = random.nextInt(PROXIES);
+                Map<String, Integer> own = reserved.get(proxy);
+                Server server = balancers[proxy].choose("Hub", servers,
+                        s -> (refreshed.get(s.getName()) + own.getOrDefault(s.getName(), 0)) / (double) CAPACITY);
+                own.merge(server.getName(), 1, Integer::sum);
+                sent.merge(server.getName(), 1, Integer::sum);
+                counts.merge(server.getName(), 1, Integer::sum);
+            }
+            double[] burst = new double[SERVERS], load = new double[SERVERS];
+            for (int i = 0; i < SERVERS; i++) {
+                String server = servers.get(i).getName();
+                burst[i] = sent.getOrDefault(server, 0);
+                load[i] = counts.get(server) / (double) CAPACITY;
+                peak = Math.max(peak, load[i]);
+            }
+            burstRange += range(burst);
+            burstDeviation += deviation(burst);
+            loadRange += range(load);
+            for (Server server : servers) {
+                int count = counts.get(server.getName()), left = 0;
+                for (int i = 0; i < count; i++) {
+                    if (random.nextDouble() < LEAVE_CHANCE) left++;
+                }
+                counts.put(server.getName(), count - left);
+            }
+        }
+        System.out.printf("%-22s %14.1f %14.2f %14.3f %14.3f%n", name, burstRange / INTERVALS, burstDeviation / INTERVALS,
+                loadRange / INTERVALS, peak);
+    }
+
+    private static double range(double[] values) {
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        for (double v : values) {
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+        }
+        return max - min;
+    }
+
+    private static double deviation(double[] values) {
+        double mean = 0, sum = 0;
+        for (double v : values) mean += v / values.length;
+        for (double v : values) sum += (v - mean) * (v - mean);
+        return Math.sqrt(sum / values.length);
+    }
+}
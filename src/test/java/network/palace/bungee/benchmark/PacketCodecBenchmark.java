@@ -0,0 +1,84 @@
+package network.palace.bungee.benchmark;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.chat.TextComponent;
+import network.palace.bungee.handlers.PlayerPresence;
+import network.palace.bungee.handlers.Rank;
+import network.palace.bungee.handlers.RankTag;
+import network.palace.bungee.messages.packets.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Compares the JSON and binary packet formats for the packets sent most often between proxies. Each packet is
+ * encoded and decoded the same way {@link network.palace.bungee.messages.MessageHandler} and
+ * {@link network.palace.bungee.messages.PacketRegistry} do it, and the size of each format and the time for one
+ * round trip are printed.
+ * <p>
+ * This is a plain main method rather than a test, run it with the test classpath, e.g.
+ * {@code java -cp target/classes:target/test-classes:<dependencies> network.palace.bungee.benchmark.PacketCodecBenchmark}
+ */
+public class PacketCodecBenchmark {
+    // results are added up here so the JIT can't throw the work away
+    private static long sink = 0;
+
+    public static void main(String[] args) {
+        UUID proxy = UUID.randomUUID();
+        Random random = new Random(42);
+
+        ChatPacket chat = new ChatPacket(UUID.randomUUID(), Rank.PASSHOLDER,
+                TextComponent.fromLegacyText(ChatColor.GRAY + "Has anyone ridden the new coaster yet? The queue at the park was huge"), "ParkChat");
+        DMPacket dm = new DMPacket("Player1", "Player2", "hey, want to meet at the castle in five minutes?", "ParkChat",
+                "msg", UUID.randomUUID(), UUID.randomUUID(), proxy, true, Rank.GUEST);
+        List<PlayerPresence> players = new ArrayList<>();
+        Rank[] ranks = Rank.values();
+        for (int i = 0; i < 200; i++) {
+            List<RankTag> tags = i % 10 == 0 ? Collections.singletonList(RankTag.GUIDE) : Collections.emptyList();
+            players.add(new PlayerPresence(UUID.randomUUID(), "Player" + i, proxy, "Server" + random.nextInt(20),
+                    ranks[random.nextInt(ranks.length)], tags));
+        }
+        PresenceSnapshotPacket snapshot = new PresenceSnapshotPacket(proxy, players);
+
+        System.out.printf("%-18s %10s %10s %12s %12s%n", "packet", "json B", "binary B", "json ns/op", "binary ns/op");
+        run("Chat", chat, ChatPacket::new, ChatPacket::new, 100000);
+        run("DM", dm, DMPacket::new, DMPacket::new, 100000);
+        run("PresenceSnapshot", snapshot, PresenceSnapshotPacket::new, PresenceSnapshotPacket::new, 2000);
+        if (sink == 42) System.out.println();
+    }
+
+    private static void run(String name, MQPacket packet, Function<JsonObject, MQPacket> json, Function<PacketBuffer, MQPacket> binary,
+                            int iterations) {
+        int jsonBytes = packet.toBytes().length, binaryBytes = packet.toBinary().length;
+        for (int i = 0; i < iterations / 5; i++) {
+            sink += jsonRoundTrip(packet, json) + binaryRoundTrip(packet, binary);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += jsonRoundTrip(packet, json);
+        }
+        long jsonNanos = (System.nanoTime() - start) / iterations;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += binaryRoundTrip(packet, binary);
+        }
+        long binaryNanos = (System.nanoTime() - start) / iterations;
+        System.out.printf("%-18s %10d %10d %12d %12d%n", name, jsonBytes, binaryBytes, jsonNanos, binaryNanos);
+    }
+
+    private static int jsonRoundTrip(MQPacket packet, Function<JsonObject, MQPacket> decoder) {
+        byte[] bytes = packet.toBytes();
+        JsonObject object = new JsonParser().parse(new String(bytes, StandardCharsets.UTF_8)).getAsJsonObject();
+        return decoder.apply(object).getId() + bytes.length;
+    }
+
+    private static int binaryRoundTrip(MQPacket packet, Function<PacketBuffer, MQPacket> decoder) {
+        byte[] bytes = packet.toBinary();
+        PacketBuffer buffer = new PacketBuffer(bytes);
+        buffer.readVarInt();
+        return decoder.apply(buffer).getId() + bytes.length;
+    }
+}